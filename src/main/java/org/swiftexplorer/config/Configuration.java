@@ -26,6 +26,9 @@ import org.swiftexplorer.config.proxy.ProxySettingsImpl;
 import org.swiftexplorer.config.swift.HasSwiftSettings;
 import org.swiftexplorer.config.swift.SwiftParameters;
 import org.swiftexplorer.config.swift.SwiftSettingsImpl;
+import org.swiftexplorer.swift.operations.ContainerCatalog;
+import org.swiftexplorer.swift.operations.TransferJournal;
+import org.swiftexplorer.util.FileHashCache;
 
 import java.io.File;
 import java.io.IOException;
@@ -115,9 +118,39 @@ public enum Configuration implements HasConfiguration {
 		swiftSettings.setConfig(config);
 		
 		setProxy () ;
+		setHashCache (settingFilePath) ;
+		setContainerCatalog (settingFilePath) ;
+		setTransferJournal (settingFilePath) ;
 	}	
 	
 	
+	// the hashes of the local files are kept next to the settings file
+	private void setHashCache (String settingFilePath)
+	{
+		String app = appName.toLowerCase().replaceAll(" ", "") ; 
+		File parent = new File (settingFilePath).getAbsoluteFile().getParentFile() ;
+		FileHashCache.setDefault(new FileHashCache (new File (parent, app + "-hashes.log")));
+	}
+	
+	
+	// the listings of the containers are kept next to the settings file as well
+	private void setContainerCatalog (String settingFilePath)
+	{
+		String app = appName.toLowerCase().replaceAll(" ", "") ; 
+		File parent = new File (settingFilePath).getAbsoluteFile().getParentFile() ;
+		ContainerCatalog.setDefault(new ContainerCatalog (new File (parent, app + "-catalog")));
+	}
+	
+	
+	// and so is the journal of the completed transfers
+	private void setTransferJournal (String settingFilePath)
+	{
+		String app = appName.toLowerCase().replaceAll(" ", "") ; 
+		File parent = new File (settingFilePath).getAbsoluteFile().getParentFile() ;
+		TransferJournal.setDefault(new TransferJournal (new File (parent, app + "-transfers.log")));
+	}
+	
+	
 	private void checkConfigFile (String path)
 	{
 		try 
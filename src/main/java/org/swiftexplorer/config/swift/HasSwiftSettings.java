@@ -18,4 +18,13 @@ public interface HasSwiftSettings {
 	public long getSegmentationSize () ;
 	public boolean hideSegmentsContainers () ;
 	public String getPreferredRegion () ;
+	public int getNumberOfConcurrentTransfers () ;
+	public int getNumberOfConcurrentSegmentTransfers () ;
+	public int getMaxConnections () ;
+	public int getMaxConnectionsPerRoute () ;
+	public int getConnectionTimeout () ;
+	public int getSocketTimeout () ;
+	public int getIdleConnectionTimeout () ;
+	public int getSocketBufferSize () ;
+	public boolean isStaleConnectionCheckEnabled () ;
 }
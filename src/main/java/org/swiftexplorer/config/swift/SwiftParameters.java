@@ -21,10 +21,55 @@ public class SwiftParameters implements HasSwiftSettings {
 	private final long segmentationSize ;
 	private final boolean hideSegmentsContainers ;
 	private final String preferredRegion ;
+	private final int numberOfConcurrentTransfers ;
+	private final int numberOfConcurrentSegmentTransfers ;
+	private final int maxConnections ;
+	private final int maxConnectionsPerRoute ;
+	private final int connectionTimeout ;
+	private final int socketTimeout ;
+	private final int idleConnectionTimeout ;
+	private final int socketBufferSize ;
+	private final boolean staleConnectionCheck ;
 	
 	public static final long MIN_SEGMENTATION_SIZE = 10485760 ; // 10MB
 	public static final long MAX_SEGMENTATION_SIZE = UploadInstructions.MAX_SEGMENTATION_SIZE ;
 	
+	public static final int MIN_CONCURRENT_TRANSFERS = 1 ;
+	public static final int MAX_CONCURRENT_TRANSFERS = 32 ;
+	public static final int DEFAULT_CONCURRENT_TRANSFERS = 4 ;
+	
+	public static final int MIN_CONCURRENT_SEGMENT_TRANSFERS = 1 ;
+	public static final int MAX_CONCURRENT_SEGMENT_TRANSFERS = 16 ;
+	public static final int DEFAULT_CONCURRENT_SEGMENT_TRANSFERS = 4 ;
+	
+	public static final int MIN_MAX_CONNECTIONS = 2 ;
+	public static final int MAX_MAX_CONNECTIONS = 512 ;
+	public static final int DEFAULT_MAX_CONNECTIONS = 50 ;
+	
+	public static final int MIN_MAX_CONNECTIONS_PER_ROUTE = 1 ;
+	public static final int MAX_MAX_CONNECTIONS_PER_ROUTE = 512 ;
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 25 ;
+	
+	// timeouts are in seconds, 0 means no timeout
+	public static final int MIN_CONNECTION_TIMEOUT = 0 ;
+	public static final int MAX_CONNECTION_TIMEOUT = 600 ;
+	public static final int DEFAULT_CONNECTION_TIMEOUT = 30 ;
+	
+	public static final int MIN_SOCKET_TIMEOUT = 0 ;
+	public static final int MAX_SOCKET_TIMEOUT = 3600 ;
+	public static final int DEFAULT_SOCKET_TIMEOUT = 0 ;
+	
+	// 0 means that the idle connections are never evicted
+	public static final int MIN_IDLE_CONNECTION_TIMEOUT = 0 ;
+	public static final int MAX_IDLE_CONNECTION_TIMEOUT = 3600 ;
+	public static final int DEFAULT_IDLE_CONNECTION_TIMEOUT = 60 ;
+	
+	public static final int MIN_SOCKET_BUFFER_SIZE = 1024 ; // 1KB
+	public static final int MAX_SOCKET_BUFFER_SIZE = 1048576 ; // 1MB
+	public static final int DEFAULT_SOCKET_BUFFER_SIZE = 65536 ; // 64KB
+	
+	public static final boolean DEFAULT_STALE_CONNECTION_CHECK = true ;
+	
 	
 	@Override
 	public long getSegmentationSize() {
@@ -44,12 +89,75 @@ public class SwiftParameters implements HasSwiftSettings {
 	}
 	
 	
+	@Override
+	public int getNumberOfConcurrentTransfers() {
+		return numberOfConcurrentTransfers;
+	}
+	
+	
+	@Override
+	public int getNumberOfConcurrentSegmentTransfers() {
+		return numberOfConcurrentSegmentTransfers;
+	}
+	
+	
+	@Override
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+	
+	
+	@Override
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+	
+	
+	@Override
+	public int getConnectionTimeout() {
+		return connectionTimeout;
+	}
+	
+	
+	@Override
+	public int getSocketTimeout() {
+		return socketTimeout;
+	}
+	
+	
+	@Override
+	public int getIdleConnectionTimeout() {
+		return idleConnectionTimeout;
+	}
+	
+	
+	@Override
+	public int getSocketBufferSize() {
+		return socketBufferSize;
+	}
+	
+	
+	@Override
+	public boolean isStaleConnectionCheckEnabled() {
+		return staleConnectionCheck;
+	}
+	
+	
 	private SwiftParameters (Builder b)
 	{
 		super () ;
 		this.segmentationSize = b.segmentationSize ;
 		this.hideSegmentsContainers = b.hideSegmentsContainers ;
 		this.preferredRegion = b.preferredRegion ;
+		this.numberOfConcurrentTransfers = b.numberOfConcurrentTransfers ;
+		this.numberOfConcurrentSegmentTransfers = b.numberOfConcurrentSegmentTransfers ;
+		this.maxConnections = b.maxConnections ;
+		this.maxConnectionsPerRoute = b.maxConnectionsPerRoute ;
+		this.connectionTimeout = b.connectionTimeout ;
+		this.socketTimeout = b.socketTimeout ;
+		this.idleConnectionTimeout = b.idleConnectionTimeout ;
+		this.socketBufferSize = b.socketBufferSize ;
+		this.staleConnectionCheck = b.staleConnectionCheck ;
 	}
 	
 	
@@ -58,6 +166,15 @@ public class SwiftParameters implements HasSwiftSettings {
 		private final long segmentationSize ;
 		private final boolean hideSegmentsContainers ;
 		private final String preferredRegion ;
+		private int numberOfConcurrentTransfers = DEFAULT_CONCURRENT_TRANSFERS ;
+		private int numberOfConcurrentSegmentTransfers = DEFAULT_CONCURRENT_SEGMENT_TRANSFERS ;
+		private int maxConnections = DEFAULT_MAX_CONNECTIONS ;
+		private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE ;
+		private int connectionTimeout = DEFAULT_CONNECTION_TIMEOUT ;
+		private int socketTimeout = DEFAULT_SOCKET_TIMEOUT ;
+		private int idleConnectionTimeout = DEFAULT_IDLE_CONNECTION_TIMEOUT ;
+		private int socketBufferSize = DEFAULT_SOCKET_BUFFER_SIZE ;
+		private boolean staleConnectionCheck = DEFAULT_STALE_CONNECTION_CHECK ;
         
         public Builder (long segmentationSize, boolean hideSegmentsContainers)
         {
@@ -72,6 +189,65 @@ public class SwiftParameters implements HasSwiftSettings {
         	this.preferredRegion = preferredRegion ;
         }
         
+        public Builder setNumberOfConcurrentTransfers (int n)
+        {
+        	this.numberOfConcurrentTransfers = Math.max(MIN_CONCURRENT_TRANSFERS, Math.min(n, MAX_CONCURRENT_TRANSFERS)) ;
+        	return this ;
+        }
+        
+        public Builder setNumberOfConcurrentSegmentTransfers (int n)
+        {
+        	this.numberOfConcurrentSegmentTransfers = Math.max(MIN_CONCURRENT_SEGMENT_TRANSFERS, Math.min(n, MAX_CONCURRENT_SEGMENT_TRANSFERS)) ;
+        	return this ;
+        }
+        
+        public Builder setMaxConnections (int n)
+        {
+        	this.maxConnections = bound (n, MIN_MAX_CONNECTIONS, MAX_MAX_CONNECTIONS) ;
+        	return this ;
+        }
+        
+        public Builder setMaxConnectionsPerRoute (int n)
+        {
+        	this.maxConnectionsPerRoute = bound (n, MIN_MAX_CONNECTIONS_PER_ROUTE, MAX_MAX_CONNECTIONS_PER_ROUTE) ;
+        	return this ;
+        }
+        
+        public Builder setConnectionTimeout (int seconds)
+        {
+        	this.connectionTimeout = bound (seconds, MIN_CONNECTION_TIMEOUT, MAX_CONNECTION_TIMEOUT) ;
+        	return this ;
+        }
+        
+        public Builder setSocketTimeout (int seconds)
+        {
+        	this.socketTimeout = bound (seconds, MIN_SOCKET_TIMEOUT, MAX_SOCKET_TIMEOUT) ;
+        	return this ;
+        }
+        
+        public Builder setIdleConnectionTimeout (int seconds)
+        {
+        	this.idleConnectionTimeout = bound (seconds, MIN_IDLE_CONNECTION_TIMEOUT, MAX_IDLE_CONNECTION_TIMEOUT) ;
+        	return this ;
+        }
+        
+        public Builder setSocketBufferSize (int size)
+        {
+        	this.socketBufferSize = bound (size, MIN_SOCKET_BUFFER_SIZE, MAX_SOCKET_BUFFER_SIZE) ;
+        	return this ;
+        }
+        
+        public Builder setStaleConnectionCheck (boolean b)
+        {
+        	this.staleConnectionCheck = b ;
+        	return this ;
+        }
+        
+        private static int bound (int n, int min, int max)
+        {
+        	return Math.max(min, Math.min(n, max)) ;
+        }
+        
         public SwiftParameters build ()
         {
         	return new SwiftParameters (this) ;
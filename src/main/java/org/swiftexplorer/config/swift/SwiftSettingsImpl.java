@@ -20,6 +20,20 @@ import org.javaswift.joss.instructions.UploadInstructions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static org.swiftexplorer.config.swift.SwiftParameters.DEFAULT_CONCURRENT_SEGMENT_TRANSFERS;
+import static org.swiftexplorer.config.swift.SwiftParameters.DEFAULT_CONCURRENT_TRANSFERS;
+import static org.swiftexplorer.config.swift.SwiftParameters.DEFAULT_CONNECTION_TIMEOUT;
+import static org.swiftexplorer.config.swift.SwiftParameters.DEFAULT_IDLE_CONNECTION_TIMEOUT;
+import static org.swiftexplorer.config.swift.SwiftParameters.DEFAULT_MAX_CONNECTIONS;
+import static org.swiftexplorer.config.swift.SwiftParameters.DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+import static org.swiftexplorer.config.swift.SwiftParameters.DEFAULT_SOCKET_BUFFER_SIZE;
+import static org.swiftexplorer.config.swift.SwiftParameters.DEFAULT_SOCKET_TIMEOUT;
+import static org.swiftexplorer.config.swift.SwiftParameters.DEFAULT_STALE_CONNECTION_CHECK;
+import static org.swiftexplorer.config.swift.SwiftParameters.MAX_CONCURRENT_SEGMENT_TRANSFERS;
+import static org.swiftexplorer.config.swift.SwiftParameters.MAX_CONCURRENT_TRANSFERS;
+import static org.swiftexplorer.config.swift.SwiftParameters.MIN_CONCURRENT_SEGMENT_TRANSFERS;
+import static org.swiftexplorer.config.swift.SwiftParameters.MIN_CONCURRENT_TRANSFERS;
+
 public class SwiftSettingsImpl implements HasSwiftSettings {
 
 	final private Logger logger = LoggerFactory.getLogger(SwiftSettingsImpl.class);
@@ -34,6 +48,12 @@ public class SwiftSettingsImpl implements HasSwiftSettings {
 	
 	private volatile String preferredRegion = null ;
 	
+	private volatile int numberOfConcurrentTransfers = DEFAULT_CONCURRENT_TRANSFERS ;
+	
+	private volatile int numberOfConcurrentSegmentTransfers = DEFAULT_CONCURRENT_SEGMENT_TRANSFERS ;
+	
+	private volatile SwiftParameters connectionParameters = new SwiftParameters.Builder (defaultSegmentationSize, true).build() ;
+	
 	public SwiftSettingsImpl (String baseProperty)
 	{
 		super () ;
@@ -54,6 +74,30 @@ public class SwiftSettingsImpl implements HasSwiftSettings {
 		hideSegmentsContainers = this.config.getBoolean(baseProperty + ".hideSegmentsContainers", true) ;
 		segmentationSize = Math.min(this.config.getLong(baseProperty + ".segmentationSize", defaultSegmentationSize), UploadInstructions.MAX_SEGMENTATION_SIZE) ;
 		preferredRegion = this.config.getString(baseProperty + ".preferredRegion", null) ;
+		numberOfConcurrentTransfers = boundConcurrentTransfers (this.config.getInt(baseProperty + ".concurrentTransfers", DEFAULT_CONCURRENT_TRANSFERS)) ;
+		numberOfConcurrentSegmentTransfers = boundConcurrentSegmentTransfers (this.config.getInt(baseProperty + ".concurrentSegmentTransfers", DEFAULT_CONCURRENT_SEGMENT_TRANSFERS)) ;
+		// the builder bounds the connection parameters
+		connectionParameters = new SwiftParameters.Builder (segmentationSize, hideSegmentsContainers)
+				.setMaxConnections(this.config.getInt(baseProperty + ".connection.maxTotal", DEFAULT_MAX_CONNECTIONS))
+				.setMaxConnectionsPerRoute(this.config.getInt(baseProperty + ".connection.maxPerRoute", DEFAULT_MAX_CONNECTIONS_PER_ROUTE))
+				.setConnectionTimeout(this.config.getInt(baseProperty + ".connection.connectTimeout", DEFAULT_CONNECTION_TIMEOUT))
+				.setSocketTimeout(this.config.getInt(baseProperty + ".connection.socketTimeout", DEFAULT_SOCKET_TIMEOUT))
+				.setIdleConnectionTimeout(this.config.getInt(baseProperty + ".connection.idleTimeout", DEFAULT_IDLE_CONNECTION_TIMEOUT))
+				.setSocketBufferSize(this.config.getInt(baseProperty + ".connection.socketBufferSize", DEFAULT_SOCKET_BUFFER_SIZE))
+				.setStaleConnectionCheck(this.config.getBoolean(baseProperty + ".connection.staleCheck", DEFAULT_STALE_CONNECTION_CHECK))
+				.build() ;
+	}
+	
+	
+	private static int boundConcurrentTransfers (int n)
+	{
+		return Math.max(MIN_CONCURRENT_TRANSFERS, Math.min(n, MAX_CONCURRENT_TRANSFERS)) ;
+	}
+	
+	
+	private static int boundConcurrentSegmentTransfers (int n)
+	{
+		return Math.max(MIN_CONCURRENT_SEGMENT_TRANSFERS, Math.min(n, MAX_CONCURRENT_SEGMENT_TRANSFERS)) ;
 	}
 	
 	
@@ -75,6 +119,60 @@ public class SwiftSettingsImpl implements HasSwiftSettings {
 	}
 	
 	
+	@Override
+	public int getNumberOfConcurrentTransfers() {
+		return numberOfConcurrentTransfers;
+	}
+	
+	
+	@Override
+	public int getNumberOfConcurrentSegmentTransfers() {
+		return numberOfConcurrentSegmentTransfers;
+	}
+	
+	
+	@Override
+	public int getMaxConnections() {
+		return connectionParameters.getMaxConnections();
+	}
+	
+	
+	@Override
+	public int getMaxConnectionsPerRoute() {
+		return connectionParameters.getMaxConnectionsPerRoute();
+	}
+	
+	
+	@Override
+	public int getConnectionTimeout() {
+		return connectionParameters.getConnectionTimeout();
+	}
+	
+	
+	@Override
+	public int getSocketTimeout() {
+		return connectionParameters.getSocketTimeout();
+	}
+	
+	
+	@Override
+	public int getIdleConnectionTimeout() {
+		return connectionParameters.getIdleConnectionTimeout();
+	}
+	
+	
+	@Override
+	public int getSocketBufferSize() {
+		return connectionParameters.getSocketBufferSize();
+	}
+	
+	
+	@Override
+	public boolean isStaleConnectionCheckEnabled() {
+		return connectionParameters.isStaleConnectionCheckEnabled();
+	}
+	
+	
 	public synchronized void update (SwiftParameters swiftParam) throws ConfigurationException
 	{
 		if (config == null)
@@ -91,9 +189,29 @@ public class SwiftSettingsImpl implements HasSwiftSettings {
 		this.segmentationSize = Math.min(swiftParam.getSegmentationSize(), UploadInstructions.MAX_SEGMENTATION_SIZE) ;
 		this.hideSegmentsContainers = swiftParam.hideSegmentsContainers() ;
 		this.preferredRegion = swiftParam.getPreferredRegion() ;
+		this.numberOfConcurrentTransfers = boundConcurrentTransfers (swiftParam.getNumberOfConcurrentTransfers()) ;
+		this.numberOfConcurrentSegmentTransfers = boundConcurrentSegmentTransfers (swiftParam.getNumberOfConcurrentSegmentTransfers()) ;
+		this.connectionParameters = new SwiftParameters.Builder (segmentationSize, hideSegmentsContainers)
+				.setMaxConnections(swiftParam.getMaxConnections())
+				.setMaxConnectionsPerRoute(swiftParam.getMaxConnectionsPerRoute())
+				.setConnectionTimeout(swiftParam.getConnectionTimeout())
+				.setSocketTimeout(swiftParam.getSocketTimeout())
+				.setIdleConnectionTimeout(swiftParam.getIdleConnectionTimeout())
+				.setSocketBufferSize(swiftParam.getSocketBufferSize())
+				.setStaleConnectionCheck(swiftParam.isStaleConnectionCheckEnabled())
+				.build() ;
 				
 		config.setProperty(baseProperty + ".segmentationSize", segmentationSize);	
 		config.setProperty(baseProperty + ".hideSegmentsContainers", hideSegmentsContainers);	
+		config.setProperty(baseProperty + ".concurrentTransfers", numberOfConcurrentTransfers);	
+		config.setProperty(baseProperty + ".concurrentSegmentTransfers", numberOfConcurrentSegmentTransfers);	
+		config.setProperty(baseProperty + ".connection.maxTotal", connectionParameters.getMaxConnections());	
+		config.setProperty(baseProperty + ".connection.maxPerRoute", connectionParameters.getMaxConnectionsPerRoute());	
+		config.setProperty(baseProperty + ".connection.connectTimeout", connectionParameters.getConnectionTimeout());	
+		config.setProperty(baseProperty + ".connection.socketTimeout", connectionParameters.getSocketTimeout());	
+		config.setProperty(baseProperty + ".connection.idleTimeout", connectionParameters.getIdleConnectionTimeout());	
+		config.setProperty(baseProperty + ".connection.socketBufferSize", connectionParameters.getSocketBufferSize());	
+		config.setProperty(baseProperty + ".connection.staleCheck", connectionParameters.isStaleConnectionCheckEnabled());	
 		if (this.preferredRegion != null && !this.preferredRegion.isEmpty())
 			config.setProperty(baseProperty + ".preferredRegion", preferredRegion);
 		config.save();
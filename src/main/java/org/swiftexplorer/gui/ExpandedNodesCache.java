@@ -0,0 +1,121 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.gui;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.swiftexplorer.swift.util.SwiftUtils;
+
+
+/*
+ * Keeps the names of the tree nodes whose children have been loaded (i.e., the directories that have 
+ * been expanded), along with the number of objects each of them brought in, in least-recently-expanded 
+ * order. Once the loaded objects exceed the given budget, the least recently expanded directories 
+ * can be unloaded; they are then loaded again if they are expanded again.
+ */
+class ExpandedNodesCache {
+
+	private final Map<String, Integer> numberOfObjectsMap = new LinkedHashMap<String, Integer> (16, 0.75f, true) ;
+	private final long maxNumberOfObjects ;
+	private long numberOfObjects = 0 ;
+	
+	
+	ExpandedNodesCache (long maxNumberOfObjects)
+	{
+		super () ;
+		this.maxNumberOfObjects = maxNumberOfObjects ;
+	}
+	
+	
+	/**
+	 * @param name the directory name
+	 * @return true if the children of the directory have been loaded (it is then the most recently expanded one)
+	 */
+	public synchronized boolean contains (String name)
+	{
+		return numberOfObjectsMap.get(name) != null ;
+	}
+	
+	
+	/**
+	 * Records that the children of the given directory have been loaded (or are being loaded), 
+	 * the directory becomes the most recently expanded one.
+	 * @param name the directory name
+	 */
+	public synchronized void add (String name)
+	{
+		if (numberOfObjectsMap.get(name) == null)
+			numberOfObjectsMap.put(name, 0) ;
+	}
+	
+	
+	public synchronized void addObjects (String name, int n)
+	{
+		Integer count = numberOfObjectsMap.get(name) ;
+		if (count == null)
+			return ;
+		numberOfObjectsMap.put(name, count + n) ;
+		numberOfObjects += n ;
+	}
+	
+	
+	/**
+	 * @return true if the loaded objects exceed the budget
+	 */
+	public synchronized boolean isFull ()
+	{
+		return numberOfObjects > maxNumberOfObjects ;
+	}
+	
+	
+	/**
+	 * @return the directories, the least recently expanded first
+	 */
+	public synchronized List<String> getLeastRecentlyExpanded ()
+	{
+		return new ArrayList<String> (numberOfObjectsMap.keySet()) ;
+	}
+	
+	
+	/**
+	 * Removes the given directory and its sub-directories (they are unloaded altogether)
+	 * @param name the directory name
+	 */
+	public synchronized void remove (String name)
+	{
+		String prefix = name + SwiftUtils.separator ;
+		Iterator<Map.Entry<String, Integer> > iter = numberOfObjectsMap.entrySet().iterator() ;
+		while (iter.hasNext())
+		{
+			Map.Entry<String, Integer> entry = iter.next() ;
+			if (entry.getKey().equals(name) || entry.getKey().startsWith(prefix))
+			{
+				numberOfObjects -= entry.getValue() ;
+				iter.remove();
+			}
+		}
+	}
+	
+	
+	public synchronized void clear ()
+	{
+		numberOfObjectsMap.clear();
+		numberOfObjects = 0 ;
+	}
+}
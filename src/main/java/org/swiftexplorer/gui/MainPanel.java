@@ -66,9 +66,12 @@ import org.swiftexplorer.gui.util.ComputerSleepingManager;
 import org.swiftexplorer.gui.util.DoubleClickListener;
 import org.swiftexplorer.gui.util.FileTypeIconFactory;
 import org.swiftexplorer.gui.util.GuiTreadingUtils;
+import org.swiftexplorer.gui.util.JobScheduler;
+import org.swiftexplorer.gui.util.JobScheduler.Job;
 import org.swiftexplorer.gui.util.LabelComponentPanel;
 import org.swiftexplorer.gui.util.PopupTrigger;
 import org.swiftexplorer.gui.util.ReflectionAction;
+import org.swiftexplorer.gui.util.StoredObjectsSearcher;
 import org.swiftexplorer.gui.util.SwiftOperationStopRequesterImpl;
 import org.swiftexplorer.gui.util.SwingUtils;
 import org.swiftexplorer.swift.SwiftAccess;
@@ -82,6 +85,7 @@ import org.swiftexplorer.swift.operations.SwiftOperations.ResultCallback;
 import org.swiftexplorer.swift.operations.SwiftOperations.SwiftCallback;
 import org.swiftexplorer.swift.operations.SwiftOperationsImpl;
 import org.swiftexplorer.swift.util.HubicSwift;
+import org.swiftexplorer.swift.util.StoredObjectsIndex;
 import org.swiftexplorer.swift.util.SwiftUtils;
 import org.swiftexplorer.util.FileUtils;
 import org.swiftexplorer.util.Pair;
@@ -115,6 +119,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -153,6 +158,10 @@ import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 import javax.swing.border.Border;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import javax.swing.event.TreeExpansionEvent;
@@ -198,17 +207,26 @@ public class MainPanel extends JPanel implements SwiftOperations.SwiftCallback {
     private final DefaultListModel<Container> containers = new DefaultListModel<Container>();
     private final JList<Container> containersList = new JList<Container>(containers);
     
-    private final DefaultListModel<StoredObject> storedObjects = new DefaultListModel<StoredObject>();
+    private final StoredObjectsListModel storedObjects = new StoredObjectsListModel();
     private final JList<StoredObject> storedObjectsList = new JList<StoredObject>(storedObjects);
     private final Collection<StoredObject> allStoredObjects ;
+    // the names of the loaded objects are indexed as they are received, the search runs in the background
+    private final StoredObjectsIndex storedObjectsIndex = new StoredObjectsIndex () ;
+    private final StoredObjectsSearcher storedObjectsSearcher = new StoredObjectsSearcher (storedObjectsIndex, 1000) ;
 
     private final JTree tree = new JTree (new Object[] {}) ; 
     private List<TreePath> treeExpansionState = null ; 
-    private final Set<String> treeHasBeenExpandedNodeSet = new HashSet<> () ;
+    // the directories expanded in the tree are loaded on demand, and unloaded (the least recently 
+    // expanded first) once they hold too many objects
+    private static final long maxNumberOfLoadedObjects = 200000 ;
+    private final ExpandedNodesCache treeHasBeenExpandedNodeSet = new ExpandedNodesCache (maxNumberOfLoadedObjects) ;
     
     private final JTextField searchTextField = new JTextField(16);
+    // in prefix mode, the search is performed by the server (on Enter), and its results are loaded
+    private final JCheckBox prefixSearchCheckBox = new JCheckBox () ;
+    private final AtomicInteger prefixSearchCount = new AtomicInteger () ;
     private final JButton progressButton = new JButton() ;
-    private final ProgressPanel progressPanel = new ProgressPanel () ;
+    private final ProgressPanel progressPanel ;
     
     private JDialog differencesManagementDlg = null ;
     
@@ -332,6 +350,7 @@ public class MainPanel extends JPanel implements SwiftOperations.SwiftCallback {
         //
         this.config = config ;
         this.stringsBundle = stringsBundle ;
+        this.progressPanel = new ProgressPanel (stringsBundle) ;
         
     	allStoredObjects = Collections.synchronizedSortedSet(new TreeSet<StoredObject>());
                 
@@ -341,6 +360,11 @@ public class MainPanel extends JPanel implements SwiftOperations.SwiftCallback {
         callback = GuiTreadingUtils.guiThreadSafe(SwiftCallback.class, this);
         //
         statusPanel = new StatusPanel(ops, callback);
+        JobScheduler.getDefault().addJobListener(GuiTreadingUtils.guiThreadSafe(JobScheduler.JobListener.class, new JobScheduler.JobListener () {
+			@Override
+			public void onJobStateChanged(Job job) {
+				statusPanel.onJobsChanged(JobScheduler.getDefault().getJobs());
+			}})) ;
         //
         JScrollPane left = new JScrollPane(containersList);
         //
@@ -367,7 +391,7 @@ public class MainPanel extends JPanel implements SwiftOperations.SwiftCallback {
 				if (node.isRoot())
 					storedObjectsList.clearSelection();
 				else if (node.getStoredObject() != null)
-					storedObjectsList.setSelectedValue(node.getStoredObject(), true); 
+					selectStoredObject(node.getStoredObject()); 
 
 			}});
         
@@ -439,6 +463,20 @@ public class MainPanel extends JPanel implements SwiftOperations.SwiftCallback {
         add(statusPanel, BorderLayout.SOUTH);
         //
         searchTextField.setAction(searchAction);
+        searchTextField.getDocument().addDocumentListener(new DocumentListener () {
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				if (!isPrefixSearch ())
+					onSearch () ;
+			}
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				if (!isPrefixSearch ())
+					onSearch () ;
+			}
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+			}}) ;
         
         progressButton.setAction(progressButtonAction) ;
         progressButton.setEnabled(false);
@@ -508,6 +546,14 @@ public class MainPanel extends JPanel implements SwiftOperations.SwiftCallback {
 			return ;
 		}
 		
+		final String dirName ;
+		if (node.isVirtual())
+			dirName = node.getObjectName() ;
+		else if (node.getStoredObject() != null && SwiftUtils.isDirectory(node.getStoredObject()))
+			dirName = node.getStoredObject().getName() ;
+		else
+			return ;
+		
 		// intercept the callback with wrapper to expand the node
 		final SwiftCallback cb = GuiTreadingUtils.guiThreadSafe(
 				SwiftCallback.class, new CloudieCallbackWrapper(callback) {
@@ -518,17 +564,75 @@ public class MainPanel extends JPanel implements SwiftOperations.SwiftCallback {
 				    		treeExpansionState.add(treePath) ;
 				    	
 				    	super.onAppendStoredObjects(container, page, sos) ;
+				    	
+				    	treeHasBeenExpandedNodeSet.addObjects(dirName, sos.size());
+				    	unloadCollapsedDirectories () ;
 				    }
 				});
 		
-		if (node.isVirtual()){
-			loadDirectory (container, node.getObjectName(), cb) ;
-		}
-		else if (node.getStoredObject() != null){
-			StoredObject obj = node.getStoredObject() ;
-			if (SwiftUtils.isDirectory(obj))
-				loadDirectory (container, obj.getName(), cb) ;
-		}
+		loadDirectory (container, dirName, cb) ;
+    }
+    
+    
+    private void unloadCollapsedDirectories ()
+    {
+    	if (!treeHasBeenExpandedNodeSet.isFull())
+    		return ;
+    	TreeModel tm = tree.getModel() ;
+    	if (!(tm instanceof StoredObjectsTreeModel))
+    		return ;
+    	StoredObjectsTreeModel treeModel = (StoredObjectsTreeModel) tm ;
+    	
+    	List<StoredObject> unloaded = new ArrayList<StoredObject> () ;
+    	for (String dirName : treeHasBeenExpandedNodeSet.getLeastRecentlyExpanded())
+    	{
+    		if (!treeHasBeenExpandedNodeSet.isFull())
+    			break ;
+    		TreePath path = treeModel.getTreePath(dirName) ;
+    		// the directories that are displayed are kept
+    		if (path != null && tree.isExpanded(path))
+    			continue ;
+    		if (path != null)
+    			unloaded.addAll(treeModel.removeChildren(path.getLastPathComponent())) ;
+    		treeHasBeenExpandedNodeSet.remove(dirName);
+    	}
+    	if (unloaded.isEmpty())
+    		return ;
+    	
+    	logger.info("{} objects of collapsed directories have been unloaded", unloaded.size());
+    	allStoredObjects.removeAll(unloaded) ;
+    	// the index keeps the unloaded objects (they are ignored by the search), until it gets too large
+    	if (storedObjectsIndex.size() > 2 * allStoredObjects.size())
+    	{
+    		storedObjectsIndex.clear();
+    		synchronized (allStoredObjects)
+    		{
+    			storedObjectsIndex.addAll(allStoredObjects);
+    		}
+    	}
+    	removeDisplayedStoredObjects (unloaded) ;
+    }
+    
+    
+    /*
+     * Removes the given objects from the list view, without searching the loaded objects again
+     */
+    private void removeDisplayedStoredObjects (Collection<StoredObject> removed)
+    {
+    	Set<StoredObject> removedSet = new HashSet<StoredObject> (removed) ;
+    	List<StoredObject> remaining = new ArrayList<StoredObject> (storedObjects.getSize()) ;
+    	for (int i = 0 ; i < storedObjects.getSize() ; ++i)
+    	{
+    		if (!removedSet.contains(storedObjects.get(i)))
+    			remaining.add(storedObjects.get(i)) ;
+    	}
+    	if (remaining.size() == storedObjects.getSize())
+    		return ;
+    	StoredObject obj = storedObjectsList.getSelectedValue() ;
+    	storedObjects.clear();
+	    storedObjects.addAll(remaining);
+	    if (obj != null && !removedSet.contains(obj))
+	    	selectStoredObject(obj);
     }
     
     
@@ -667,6 +771,21 @@ public class MainPanel extends JPanel implements SwiftOperations.SwiftCallback {
         });
         //
         storedObjectsList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        // the cells are sized after the longest name, otherwise the list would render all
+        // its elements to lay them out
+        storedObjects.addListDataListener(new ListDataListener () {
+			@Override
+			public void intervalAdded(ListDataEvent e) {
+				updateStoredObjectsListPrototype () ;
+			}
+			@Override
+			public void intervalRemoved(ListDataEvent e) {
+				updateStoredObjectsListPrototype () ;
+			}
+			@Override
+			public void contentsChanged(ListDataEvent e) {
+				updateStoredObjectsListPrototype () ;
+			}}) ;
         storedObjectsList.setCellRenderer(new DefaultListCellRenderer() {
 
 			private static final long serialVersionUID = 1L;
@@ -693,6 +812,17 @@ public class MainPanel extends JPanel implements SwiftOperations.SwiftCallback {
     }
     
     
+    private void updateStoredObjectsListPrototype ()
+    {
+    	int idx = storedObjects.getLongestNameIndex() ;
+    	if (idx < 0)
+    		return ;
+    	StoredObject prototype = storedObjects.getElementAt(idx) ;
+    	if (!prototype.equals(storedObjectsList.getPrototypeCellValue()))
+    		storedObjectsList.setPrototypeCellValue(prototype);
+    }
+    
+    
     public static Icon getContainerIcon(Container container) 
     {
     	if (container == null)
@@ -757,6 +887,12 @@ public class MainPanel extends JPanel implements SwiftOperations.SwiftCallback {
     
     
     private void buildTree (boolean restore)
+    {
+    	buildTree (restore, null) ;
+    }
+    
+    
+    private void buildTree (boolean restore, Collection<StoredObject> filteredStoredObjects)
     {
     	Container selectedContainer = getSelectedContainer() ;
     	if (selectedContainer == null)
@@ -773,15 +909,11 @@ public class MainPanel extends JPanel implements SwiftOperations.SwiftCallback {
 			//StoredObjectsTreeModel.TreeUtils.getTreeExpansionState (tree, treeExpansionState) ;
 			treeExpansionState = StoredObjectsTreeModel.TreeUtils.getTreeExpansionState(tree) ;
 		
-    	if (filter != null && !filter.isEmpty())
-    	{
-    		storedObjectsList = new ArrayList<StoredObject> () ;
-            for (StoredObject storedObject : allStoredObjects) {
-                if (isFilterIncluded(storedObject)) {
-                	storedObjectsList.add(storedObject);
-                }
-            }
-    	}
+    	if (filteredStoredObjects != null)
+    		storedObjectsList = filteredStoredObjects ;
+    	else if (filter != null && !filter.isEmpty())
+    		// the list view holds the search results (a search in progress rebuilds the tree once done)
+    		storedObjectsList = storedObjects.toList () ;
     	else
     		storedObjectsList = allStoredObjects ;
     	
@@ -839,6 +971,16 @@ public class MainPanel extends JPanel implements SwiftOperations.SwiftCallback {
     }
 
     
+    private void selectStoredObject(StoredObject obj) {
+    	// unlike setSelectedValue, this does not go through all the elements of the list
+    	int idx = storedObjects.indexOf(obj);
+    	if (idx < 0)
+    		return ;
+    	storedObjectsList.setSelectedIndex(idx);
+    	storedObjectsList.ensureIndexIsVisible(idx);
+    }
+
+    
     public List<StoredObject> getSelectedStoredObjects() {
         List<StoredObject> results = new ArrayList<StoredObject>();
         for (int idx : storedObjectsList.getSelectedIndices()) {
@@ -1312,8 +1454,10 @@ public class MainPanel extends JPanel implements SwiftOperations.SwiftCallback {
     
     private void clearStoredObjectViews ()
     {
+        storedObjectsSearcher.cancel();
         storedObjects.clear();
         allStoredObjects.clear();
+        storedObjectsIndex.clear();
         buildTree (false) ;
     }
     
@@ -1504,6 +1648,14 @@ public class MainPanel extends JPanel implements SwiftOperations.SwiftCallback {
         label.setDisplayedMnemonic('f');
         panel.add(label);
         panel.add(searchTextField);
+        prefixSearchCheckBox.setText(getLocalizedString("Prefix_Search"));
+        prefixSearchCheckBox.setToolTipText(getLocalizedString("Prefix_Search_Tooltip"));
+        prefixSearchCheckBox.addItemListener(new ItemListener () {
+			@Override
+			public void itemStateChanged(ItemEvent e) {
+				onSearch () ;
+			}}) ;
+        panel.add(prefixSearchCheckBox);
         parent.add(panel);
     }
 
@@ -2193,18 +2345,80 @@ public class MainPanel extends JPanel implements SwiftOperations.SwiftCallback {
     
     public void onSearch() {
         storedObjects.clear();
-        synchronized (allStoredObjects)
+        String filter = searchTextField.getText();
+        // the pages of a previous prefix search are not displayed anymore
+        prefixSearchCount.incrementAndGet() ;
+        if (isPrefixSearch () && !filter.isEmpty())
+        {
+        	onPrefixSearch (filter) ;
+        	return ;
+        }
+        if (filter.isEmpty()) 
         {
-	        for (StoredObject storedObject : allStoredObjects) {
-	            if (isFilterIncluded(storedObject)) {
-	                storedObjects.addElement(storedObject);
-	            }
+        	storedObjectsSearcher.cancel();
+	        synchronized (allStoredObjects)
+	        {
+	        	storedObjects.addAll(allStoredObjects);
 	        }
+	        buildTree (true) ;
+	        return ;
         }
-        //set the tablist
-        if (allStoredObjects.size() != storedObjects.size())
-        	objectViewTabbedPane.setSelectedIndex(listviewTabIndex);
-        buildTree (true) ;
+        
+        searchStoredObjects (filter) ;
+    }
+    
+    
+    private void searchStoredObjects (String filter) {
+    	
+        // the previous search, if still running, is cancelled
+        storedObjectsSearcher.search(filter, isPrefixSearch (), allStoredObjects, new StoredObjectsSearcher.SearchCallback () {
+
+			@Override
+			public void onSearchResults(List<StoredObject> results) {
+				storedObjects.addAll(results);
+			}
+
+			@Override
+			public void onSearchDone(List<StoredObject> results, boolean isReordered) {
+				if (isReordered)
+				{
+					storedObjects.clear();
+					storedObjects.addAll(results);
+				}
+		        //set the tablist
+		        if (allStoredObjects.size() != results.size())
+		        	objectViewTabbedPane.setSelectedIndex(listviewTabIndex);
+		        buildTree (true, results) ;
+			}}) ;
+    }
+    
+    
+    private void onPrefixSearch (final String prefix) {
+    	
+    	final Container container = getSelectedContainer() ;
+    	if (container == null)
+    		return ;
+    	
+    	// the objects already loaded are searched...
+    	objectViewTabbedPane.setSelectedIndex(listviewTabIndex);
+    	searchStoredObjects (prefix) ;
+    	
+    	// ... and the server is asked for the others, which only requires listing the prefix
+    	final int searchId = prefixSearchCount.get() ;
+        @SuppressWarnings("unchecked")
+		ResultCallback<Collection<StoredObject> > pcb = GuiTreadingUtils.guiThreadSafe(ResultCallback.class, new ResultCallback<Collection<StoredObject> > () {
+			@Override
+			public void onResult(Collection<StoredObject> page) {
+				if (searchId != prefixSearchCount.get())
+					return ;
+				onAppendStoredObjects (container, 0, page) ;
+			}}) ;
+        ops.listStoredObjects(container, prefix, pcb, getNewSwiftStopRequester (), callback);
+    }
+    
+    
+    private boolean isPrefixSearch () {
+    	return prefixSearchCheckBox.isSelected() ;
     }
     
     
@@ -2212,6 +2426,8 @@ public class MainPanel extends JPanel implements SwiftOperations.SwiftCallback {
         String filter = searchTextField.getText();
         if (filter.isEmpty()) {
             return true;
+        } else if (isPrefixSearch ()) {
+        	return obj.getName().startsWith(filter);
         } else {
             return obj.getName().contains(filter);
         }
@@ -2333,16 +2549,7 @@ public class MainPanel extends JPanel implements SwiftOperations.SwiftCallback {
         if (isContainerSelected() && getSelectedContainer().equals(container)) 
         {
         	allStoredObjects.removeAll(storedObjects);
-	    	StoredObject obj = storedObjectsList.getSelectedValue() ;
-	    	this.storedObjects.clear();
-		    for (StoredObject storedObject : allStoredObjects) {
-		        if (isFilterIncluded(storedObject)) {
-		        	this.storedObjects.addElement(storedObject);
-		        }
-		    }
-		    if (obj != null && obj.exists())
-		    	storedObjectsList.setSelectedValue(obj, true);
-		    
+        	removeDisplayedStoredObjects (storedObjects) ;
 		    buildTree (true) ;
         }
     }
@@ -2354,9 +2561,12 @@ public class MainPanel extends JPanel implements SwiftOperations.SwiftCallback {
     @Override
     public void onNewStoredObjects() {
 	
-        searchTextField.setText("");
+        storedObjectsSearcher.cancel();
+        prefixSearchCount.incrementAndGet() ;
         storedObjects.clear();
         allStoredObjects.clear();
+        storedObjectsIndex.clear();
+        searchTextField.setText("");
         statusPanel.onDeselectStoredObject();
         treeHasBeenExpandedNodeSet.clear();
 
@@ -2371,35 +2581,88 @@ public class MainPanel extends JPanel implements SwiftOperations.SwiftCallback {
     public void onAppendStoredObjects(final Container container, int page, final Collection<StoredObject> sos) {
 
 		if (isContainerSelected() && getSelectedContainer().equals(container)) {
+			
+			// the pages are normally received in name order, in which case the new objects 
+			// simply follow the ones already listed
+			boolean isAppended = isSortedAfter (sos, (allStoredObjects.isEmpty()) ? (null) : (((SortedSet<StoredObject>) allStoredObjects).last())) ;
 		    allStoredObjects.addAll(sos);
-
-	    	/*
+		    storedObjectsIndex.addAll(sos);
+		    
+		    // a search in progress may have missed the new objects, they are matched against it
+		    List<StoredObject> includedObjects = storedObjectsSearcher.append(sos) ;
+		    if (includedObjects != null)
+		    {
+		    	// the results are sorted once the search is done
+		    	storedObjects.addAll(includedObjects);
+		    	updateTree (includedObjects) ;
+		    	return ;
+		    }
+		    
+		    includedObjects = new ArrayList<StoredObject> (sos.size()) ;
 		    for (StoredObject storedObject : sos) {
 		        if (isFilterIncluded(storedObject)) {
-		            storedObjects.addElement(storedObject);
+		        	includedObjects.add(storedObject);
 		        }
 		    }
 		    
-	    	updateTree (sos) ;
-	    	StoredObjectsTreeModel.TreeUtils.setTreeExpansionState(tree, treeExpansionState);
-
-		    System.gc() ;
-		    */
-	    	
-	    	StoredObject obj = storedObjectsList.getSelectedValue() ;
-	    	storedObjects.clear();
-		    for (StoredObject storedObject : allStoredObjects) {
-		        if (isFilterIncluded(storedObject)) {
-		            storedObjects.addElement(storedObject);
-		        }
+		    if (isAppended)
+		    {
+		    	storedObjects.addAll(includedObjects);
+		    }
+		    else
+		    {
+		    	StoredObject obj = storedObjectsList.getSelectedValue() ;
+		    	List<StoredObject> merged = mergeSorted (storedObjects.toList (), includedObjects) ;
+		    	storedObjects.clear();
+			    storedObjects.addAll(merged);
+			    if (obj != null)
+			    	selectStoredObject(obj);
 		    }
-		    if (obj != null)
-		    	storedObjectsList.setSelectedValue(obj, true);
 		    
-	    	updateTree (sos) ;
+	    	updateTree (includedObjects) ;
 	    	StoredObjectsTreeModel.TreeUtils.setTreeExpansionState(tree, treeExpansionState);
 		}
     }
+    
+    
+    /*
+     * Merges the new objects into the sorted displayed objects; the new objects replace the displayed ones with the same name
+     */
+    private static List<StoredObject> mergeSorted (List<StoredObject> displayed, List<StoredObject> newObjects)
+    {
+    	List<StoredObject> sorted = new ArrayList<StoredObject> (newObjects) ;
+    	Collections.sort(sorted) ;
+    	List<StoredObject> ret = new ArrayList<StoredObject> (displayed.size() + sorted.size()) ;
+    	int i = 0 ;
+    	int j = 0 ;
+    	while (i < displayed.size() || j < sorted.size())
+    	{
+    		if (j >= sorted.size() || (i < displayed.size() && displayed.get(i).compareTo(sorted.get(j)) < 0))
+    			ret.add(displayed.get(i++)) ;
+    		else
+    		{
+    			StoredObject obj = sorted.get(j++) ;
+    			if (i < displayed.size() && displayed.get(i).compareTo(obj) == 0)
+    				++i ;
+    			if (ret.isEmpty() || ret.get(ret.size() - 1).compareTo(obj) != 0)
+    				ret.add(obj) ;
+    		}
+    	}
+    	return ret ;
+    }
+    
+    
+    private static boolean isSortedAfter (Collection<StoredObject> sos, StoredObject last)
+    {
+    	StoredObject previous = last ;
+    	for (StoredObject storedObject : sos)
+    	{
+    		if (previous != null && previous.compareTo(storedObject) >= 0)
+    			return false ;
+    		previous = storedObject ;
+    	}
+    	return true ;
+    }
         
     
     /**
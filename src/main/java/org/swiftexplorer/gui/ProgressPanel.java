@@ -28,9 +28,18 @@ import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JProgressBar;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
 import javax.swing.SwingUtilities;
 import javax.swing.event.AncestorEvent;
 import javax.swing.event.AncestorListener;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import org.swiftexplorer.config.swift.SwiftParameters;
+import org.swiftexplorer.gui.localization.HasLocalizedStrings;
+import org.swiftexplorer.swift.operations.AdaptiveConcurrencyController;
+import org.swiftexplorer.util.BandwidthLimiter;
 
 public class ProgressPanel extends JPanel {
 
@@ -40,10 +49,17 @@ public class ProgressPanel extends JPanel {
     private final JLabel progressLabelTotal = new JLabel () ;
     private final JProgressBar progressBarCurrent = new JProgressBar (0, 100) ;
     private final JLabel progressLabelCurrent = new JLabel () ;
+    
+    // the limits are applied live, to the transfers in progress
+    private final JSpinner bandwidthLimitSpinner = new JSpinner (new SpinnerNumberModel (0, 0, 1048576, 128)) ;
+    private final JSpinner maxTransfersSpinner = new JSpinner (new SpinnerNumberModel (1, 1, SwiftParameters.MAX_CONCURRENT_TRANSFERS, 1)) ;
+    private final JLabel activeTransfersLabel = new JLabel () ;
+    
+    private final HasLocalizedStrings stringsBundle ;
    
     private final int border = 15 ;
     private final int initialWidth = 500 ;
-    private final int initialHeight = 160 ;
+    private final int initialHeight = 200 ;
     
     
 	static private class Listener extends ComponentAdapter implements AncestorListener {
@@ -91,8 +107,15 @@ public class ProgressPanel extends JPanel {
 	
     
     public ProgressPanel ()
+    {
+    	this (null) ;
+    }
+    
+    
+    public ProgressPanel (HasLocalizedStrings stringsBundle)
     {
     	super (new GridBagLayout()) ;
+    	this.stringsBundle = stringsBundle ;
     	GridBagConstraints c = new GridBagConstraints();    	
     	setBorder(BorderFactory.createEmptyBorder(border, border, border, border)) ;
         
@@ -120,6 +143,14 @@ public class ProgressPanel extends JPanel {
         c.gridy = 4;
     	this.add(progressBarCurrent, c) ;
     	
+        c.gridx = 0;
+        c.gridy = 5;
+    	this.add(Box.createVerticalStrut(10), c) ;
+    	
+        c.gridx = 0;
+        c.gridy = 6;
+    	this.add(initLimitsBox (), c) ;
+    	
     	setPreferredSize(new Dimension (initialWidth, initialHeight)) ;
     	
     	Listener listener = new Listener(this) ;
@@ -128,8 +159,67 @@ public class ProgressPanel extends JPanel {
     }
     
     
+    private Box initLimitsBox ()
+    {
+    	Box box = Box.createHorizontalBox() ;
+    	box.add(new JLabel (getLocalizedString ("Bandwidth_Limit"))) ;
+    	box.add(Box.createHorizontalStrut(8)) ;
+    	box.add(bandwidthLimitSpinner) ;
+    	box.add(Box.createHorizontalStrut(16)) ;
+    	box.add(new JLabel (getLocalizedString ("Max_Concurrent_Transfers"))) ;
+    	box.add(Box.createHorizontalStrut(8)) ;
+    	box.add(maxTransfersSpinner) ;
+    	box.add(Box.createHorizontalStrut(8)) ;
+    	box.add(activeTransfersLabel) ;
+    	
+    	updateLimits () ;
+    	
+    	bandwidthLimitSpinner.setToolTipText(getLocalizedString ("Bandwidth_Limit_Tooltip"));
+    	bandwidthLimitSpinner.addChangeListener(new ChangeListener () {
+			@Override
+			public void stateChanged(ChangeEvent e) {
+				long kbPerSecond = ((Number) bandwidthLimitSpinner.getValue()).longValue() ;
+				BandwidthLimiter.getDefault().setRate(kbPerSecond * 1024);
+			}}) ;
+    	maxTransfersSpinner.addChangeListener(new ChangeListener () {
+			@Override
+			public void stateChanged(ChangeEvent e) {
+				int max = ((Number) maxTransfersSpinner.getValue()).intValue() ;
+				if (max != AdaptiveConcurrencyController.getDefault().getMaximum())
+					AdaptiveConcurrencyController.getDefault().setMaximum(max);
+				updateActiveTransfers () ;
+			}}) ;
+    	return box ;
+    }
+    
+    
+    private void updateLimits ()
+    {
+    	bandwidthLimitSpinner.setValue((int) Math.min(BandwidthLimiter.getDefault().getRate() / 1024, 1048576)) ;
+    	maxTransfersSpinner.setValue(Math.max(1, Math.min(AdaptiveConcurrencyController.getDefault().getMaximum(), SwiftParameters.MAX_CONCURRENT_TRANSFERS))) ;
+    	updateActiveTransfers () ;
+    }
+    
+    
+    private void updateActiveTransfers ()
+    {
+    	AdaptiveConcurrencyController controller = AdaptiveConcurrencyController.getDefault() ;
+    	activeTransfersLabel.setText(String.format("(%d / %d)", controller.getActiveCount(), controller.getLimit()));
+    	activeTransfersLabel.setToolTipText(getLocalizedString ("Active_Transfers_Tooltip"));
+    }
+    
+    
+    private String getLocalizedString (String key)
+    {
+    	if (stringsBundle == null)
+	    	return key.replace("_", " ") ;
+    	return stringsBundle.getLocalizedString(key) ;
+    }
+    
+    
     public void start ()
     {
+    	updateLimits () ;
     	start (progressBarTotal, progressLabelTotal) ;
     	start (progressBarCurrent, progressLabelCurrent) ;
     }
@@ -162,6 +252,7 @@ public class ProgressPanel extends JPanel {
 		setProgressValues (progressBarCurrent, progressLabelCurrent, currentProgress, processTextToFit (progressLabelCurrent, currentMsg)) ;
 		
 		progressLabelCurrent.setToolTipText(currentMsg);
+		updateActiveTransfers () ;
     }
     
     
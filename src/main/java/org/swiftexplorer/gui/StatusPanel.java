@@ -29,6 +29,7 @@
 
 package org.swiftexplorer.gui;
 
+import org.swiftexplorer.gui.util.JobScheduler;
 import org.swiftexplorer.swift.operations.SwiftOperations;
 import org.swiftexplorer.swift.operations.SwiftOperations.SwiftCallback;
 import org.swiftexplorer.util.FileUtils;
@@ -63,6 +64,7 @@ public class StatusPanel extends JPanel {
     private JLabel callCountLabel;
     private JLabel rightLabel;
     private JLabel busyLabel;
+    private JLabel jobsLabel;
     private Icon busy = getIcon("weather_clouds.png", "busy");
     private Icon ready = getIcon("weather_sun.png", "ready");
     private Icon lock = getIcon("lock.png", "private");
@@ -88,6 +90,10 @@ public class StatusPanel extends JPanel {
         busyLabel.setPreferredSize(new Dimension(18, 18));
         right.add(busyLabel);
         //
+        jobsLabel = new JLabel();
+        right.add(Box.createHorizontalStrut(4));
+        right.add(jobsLabel);
+        //
         callCountLabel = new JLabel();
         callCountLabel.setPreferredSize(new Dimension(64, 18));
         right.add(Box.createHorizontalStrut(4));
@@ -188,6 +194,29 @@ public class StatusPanel extends JPanel {
         leftLabel.setText("");
     }
 
+    public void onJobsChanged(List<JobScheduler.Job> jobs) {
+        int running = 0;
+        int queued = 0;
+        StringBuilder tooltip = new StringBuilder("<html>");
+        for (JobScheduler.Job job : jobs) {
+            if (job.getState() == JobScheduler.State.RUNNING) {
+                ++running;
+            } else if (job.getState() == JobScheduler.State.QUEUED) {
+                ++queued;
+            }
+            tooltip.append(job.getName()).append(" (").append(job.getState().toString().toLowerCase()).append(")<br>");
+        }
+        tooltip.append("</html>");
+        if (queued > 0) {
+            jobsLabel.setText(running + " running, " + queued + " queued");
+        } else if (running > 1) {
+            jobsLabel.setText(running + " running");
+        } else {
+            jobsLabel.setText("");
+        }
+        jobsLabel.setToolTipText((jobs.isEmpty()) ? (null) : (tooltip.toString()));
+    }
+
     public void onStart() {
         busyLabel.setIcon(busy);
     }
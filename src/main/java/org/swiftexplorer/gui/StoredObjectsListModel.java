@@ -0,0 +1,193 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.gui;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.swing.AbstractListModel;
+
+import org.javaswift.joss.model.StoredObject;
+
+
+/*
+ * The list model of the stored objects view. It refers to the objects loaded (it does not copy them), 
+ * and avoids the costs that the DefaultListModel incurs with large lists: the objects added together 
+ * are notified as a single interval, the object with the longest name is tracked (so that the list
+ * cells can be sized from it, instead of rendering every row), and an object is found by binary search
+ * as long as the objects were added in name order.
+ */
+class StoredObjectsListModel extends AbstractListModel<StoredObject> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final List<StoredObject> objects = new ArrayList<StoredObject> () ;
+	private int longestNameIndex = -1 ;
+	private boolean sorted = true ;
+	
+	
+	StoredObjectsListModel ()
+	{
+		super () ;
+	}
+	
+	
+	@Override
+	public int getSize() {
+		return objects.size() ;
+	}
+	
+
+	@Override
+	public StoredObject getElementAt(int index) {
+		return objects.get(index) ;
+	}
+	
+	
+	public StoredObject get (int index)
+	{
+		return getElementAt (index) ;
+	}
+	
+	
+	/**
+	 * @return a copy of the elements
+	 */
+	public List<StoredObject> toList ()
+	{
+		return new ArrayList<StoredObject> (objects) ;
+	}
+	
+	
+	/**
+	 * @return the index of the element with the longest name, or -1 if the model is empty
+	 */
+	public int getLongestNameIndex ()
+	{
+		return longestNameIndex ;
+	}
+	
+	
+	public void addElement (StoredObject obj)
+	{
+		if (obj == null)
+			return ;
+		add (obj) ;
+		fireIntervalAdded(this, objects.size() - 1, objects.size() - 1);
+	}
+	
+	
+	public void addAll (Collection<StoredObject> objs)
+	{
+		if (objs == null)
+			return ;
+		int first = objects.size() ;
+		for (StoredObject obj : objs)
+		{
+			if (obj != null)
+				add (obj) ;
+		}
+		if (objects.size() > first)
+			fireIntervalAdded(this, first, objects.size() - 1);
+	}
+	
+	
+	public void clear ()
+	{
+		int last = objects.size() - 1 ;
+		objects.clear();
+		longestNameIndex = -1 ;
+		sorted = true ;
+		if (last >= 0)
+			fireIntervalRemoved(this, 0, last);
+	}
+	
+	
+	public int indexOf (Object obj)
+	{
+		if (!(obj instanceof StoredObject))
+			return -1 ;
+		String name = ((StoredObject) obj).getName() ;
+		if (sorted)
+		{
+			int low = 0 ;
+			int high = objects.size() - 1 ;
+			while (low <= high)
+			{
+				int mid = (low + high) >>> 1 ;
+				int cmp = objects.get(mid).getName().compareTo(name) ;
+				if (cmp < 0)
+					low = mid + 1 ;
+				else if (cmp > 0)
+					high = mid - 1 ;
+				else
+					return mid ;
+			}
+			return -1 ;
+		}
+		for (int i = 0 ; i < objects.size() ; ++i)
+		{
+			if (objects.get(i).getName().equals(name))
+				return i ;
+		}
+		return -1 ;
+	}
+	
+	
+	public boolean removeElement (Object obj)
+	{
+		int index = indexOf (obj) ;
+		if (index < 0)
+			return false ;
+		removeElementAt (index) ;
+		return true ;
+	}
+	
+	
+	public void removeElementAt (int index)
+	{
+		objects.remove(index) ;
+		if (longestNameIndex == index)
+			updateLongestNameIndex () ;
+		else if (longestNameIndex > index)
+			--longestNameIndex ;
+		if (objects.isEmpty())
+			sorted = true ;
+		fireIntervalRemoved(this, index, index);
+	}
+	
+	
+	private void add (StoredObject obj)
+	{
+		int size = objects.size() ;
+		if (sorted && size > 0 && objects.get(size - 1).getName().compareTo(obj.getName()) >= 0)
+			sorted = false ;
+		if (longestNameIndex < 0 || obj.getName().length() > objects.get(longestNameIndex).getName().length())
+			longestNameIndex = size ;
+		objects.add(obj) ;
+	}
+	
+	
+	private void updateLongestNameIndex ()
+	{
+		longestNameIndex = -1 ;
+		for (int i = 0 ; i < objects.size() ; ++i)
+		{
+			if (longestNameIndex < 0 || objects.get(i).getName().length() > objects.get(longestNameIndex).getName().length())
+				longestNameIndex = i ;
+		}
+	}
+}
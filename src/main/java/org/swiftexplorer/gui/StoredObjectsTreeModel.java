@@ -17,16 +17,17 @@ package org.swiftexplorer.gui;
 
 import org.swiftexplorer.swift.util.SwiftUtils;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
-import java.util.TreeSet;
 
 import javax.swing.JTree;
 import javax.swing.event.TreeModelEvent;
@@ -92,6 +93,9 @@ public class StoredObjectsTreeModel implements TreeModel
 	    		return ;
 	    	for (TreePath path : list)
 	    	{
+	    		// the tree is not reset when nodes are inserted, most paths are still expanded
+	    		if (tree.isExpanded(path))
+	    			continue ;
 	    		if (!isTreePathValid (path))
 	    			continue ;
 	    		tree.expandPath(path);
@@ -144,41 +148,43 @@ public class StoredObjectsTreeModel implements TreeModel
 	}
 	
 	
-	private static class TreeNodeImpl implements TreeNode
+	/*
+	 * A node of the trie that holds the tree. A node only keeps the segment of the object name
+	 * that it adds to its parent (the full object name is rebuilt from the ancestors when required),
+	 * and its children are kept in an array sorted by segment, so that they can be accessed by index 
+	 * and searched by binary search.
+	 */
+	private static final class TreeNodeImpl implements TreeNode
 	{
-		private final StoredObject storedObject ;
-		private final String objectName ;
-		private final String nodeName ;
-		private final boolean isRoot ;
+		private static final TreeNodeImpl [] noChildren = new TreeNodeImpl [0] ;
+		
+		private final TreeNodeImpl parent ;
+		private final String segment ;
 		private final Container container ;
+		private final int hash ;
+		private StoredObject storedObject ;
+		private TreeNodeImpl [] children = noChildren ;
+		private int childCount = 0 ;
 
 		public static TreeNodeImpl buildRootNode (Container container)
 		{
 			String contName = (container == null) ? ("") : (container.getName()) ;
-			return new TreeNodeImpl (null, contName, contName, true, container) ;
+			return new TreeNodeImpl (null, contName, null, container) ;
 		}
 		
 		
-		public static TreeNodeImpl buildObjectNode (StoredObject storedObject, String objectName, String nodeName)
-		{
-			return new TreeNodeImpl (storedObject, objectName, nodeName, false, null) ;
-		}
-		
-		
-		private TreeNodeImpl(StoredObject storedObject, String objectName, String nodeName, boolean isRoot, Container container) {
+		private TreeNodeImpl(TreeNodeImpl parent, String segment, StoredObject storedObject, Container container) {
 			super();
-			if (isRoot == true && storedObject != null)
+			if (parent == null && storedObject != null)
 				throw new AssertionError ("A root node cannot have a non-null storedObject") ;
-			if (objectName == null)
-				throw new AssertionError ("A node must have a non-null objectName") ;
-			if (nodeName == null)
-				throw new AssertionError ("A node must have a non-null nodeName") ;
+			if (segment == null)
+				throw new AssertionError ("A node must have a non-null name") ;
 			
+			this.parent = parent ;
+			this.segment = segment ;
 			this.storedObject = storedObject;
-			this.nodeName = nodeName ;
-			this.objectName = objectName ;
-			this.isRoot = isRoot ;
 			this.container = container ;
+			this.hash = (parent == null) ? (1231) : (31 * ((parent.isRoot()) ? (1237) : (parent.hash)) + segment.hashCode()) ;
 		}
 
 		
@@ -191,30 +197,116 @@ public class StoredObjectsTreeModel implements TreeModel
 		
 		@Override
 		public String getObjectName() {
-			return objectName;
+			if (parent == null)
+				return segment ;
+			if (parent.isRoot())
+				return segment ;
+			StringBuilder sb = new StringBuilder () ;
+			appendObjectName (sb) ;
+			return sb.toString() ;
+		}
+		
+		
+		private void appendObjectName (StringBuilder sb) {
+			if (!parent.isRoot())
+			{
+				parent.appendObjectName(sb) ;
+				sb.append(SwiftUtils.separator) ;
+			}
+			sb.append(segment) ;
 		}
 		
 		
 		@Override
 		public String getNodeName() {
-			return nodeName;
+			return segment;
 		}
 
 		
 		@Override
 		public boolean isRoot() {
-			return isRoot;
+			return parent == null;
+		}
+		
+		
+		/*
+		 * Binary search of the child whose segment is name[from, to). Returns the index of the 
+		 * child if it exists, (-(insertion point) - 1) otherwise.
+		 */
+		private int search (String name, int from, int to)
+		{
+			int low = 0 ;
+			int high = childCount - 1 ;
+			// the objects are usually listed in name order, the last child is checked first
+			if (high >= 0)
+			{
+				int cmp = compareSegment (children[high].segment, name, from, to) ;
+				if (cmp < 0)
+					return -(high + 1) - 1 ;
+				if (cmp == 0)
+					return high ;
+			}
+			while (low <= high) 
+			{
+				int mid = (low + high) >>> 1 ;
+				int cmp = compareSegment (children[mid].segment, name, from, to) ;
+				if (cmp < 0)
+					low = mid + 1 ;
+				else if (cmp > 0)
+					high = mid - 1 ;
+				else
+					return mid ;
+			}
+			return -(low + 1) ;
+		}
+		
+		
+		private static int compareSegment (String segment, String name, int from, int to)
+		{
+			int len1 = segment.length() ;
+			int len2 = to - from ;
+			int lim = Math.min(len1, len2) ;
+			for (int k = 0 ; k < lim ; ++k)
+			{
+				char c1 = segment.charAt(k) ;
+				char c2 = name.charAt(from + k) ;
+				if (c1 != c2)
+					return c1 - c2 ;
+			}
+			return len1 - len2 ;
+		}
+		
+		
+		private TreeNodeImpl insertChild (int index, String segment)
+		{
+			if (childCount == children.length)
+				children = Arrays.copyOf(children, Math.max(4, childCount + (childCount >> 1))) ;
+			if (index < childCount)
+				System.arraycopy(children, index, children, index + 1, childCount - index);
+			TreeNodeImpl child = new TreeNodeImpl (this, segment, null, null) ;
+			children[index] = child ;
+			++childCount ;
+			return child ;
+		}
+		
+		
+		private int indexOf (TreeNodeImpl child)
+		{
+			int index = search (child.segment, 0, child.segment.length()) ;
+			return (index >= 0) ? (index) : (-1) ;
+		}
+		
+		
+		private void trimToSize ()
+		{
+			if (childCount < children.length)
+				children = (childCount == 0) ? (noChildren) : (Arrays.copyOf(children, childCount)) ;
 		}
 
 		
 		@Override
 		public int hashCode() {
-			final int prime = 31;
-			int result = 1;
-			result = prime * result + (isRoot ? 1231 : 1237);
-			result = prime * result
-					+ ((objectName == null) ? 0 : objectName.hashCode());
-			return result;
+			return hash ;
 		}
 		
 
@@ -227,32 +319,36 @@ public class StoredObjectsTreeModel implements TreeModel
 			if (getClass() != obj.getClass())
 				return false;
 			TreeNodeImpl other = (TreeNodeImpl) obj;
-			if (isRoot != other.isRoot)
+			if (hash != other.hash)
+				return false ;
+			if (isRoot() != other.isRoot())
 				return false;
-			if (objectName == null) {
-				if (other.objectName != null)
-					return false;
-			} else if (!objectName.equals(other.objectName))
+			if (!segment.equals(other.segment))
 				return false;
-			return true;
+			if (isRoot())
+				return true ;
+			// the root is not part of the object name
+			if (parent.isRoot())
+				return other.parent.isRoot() ;
+			return parent.equals(other.parent) ;
 		}
 
 		
 		@Override
 		public int compareTo(TreeNode o) {
-			return objectName.compareTo(o.getObjectName());
+			return getObjectName().compareTo(o.getObjectName());
 		}
 
 		
 		@Override
 		public String toString() {
-			return nodeName ;
+			return segment ;
 		}
 
 		
 		@Override
 		public boolean isVirtual() {
-			return !isRoot && storedObject == null ;
+			return !isRoot() && storedObject == null ;
 		}
 
 		
@@ -262,13 +358,12 @@ public class StoredObjectsTreeModel implements TreeModel
 		}
 	}
 	
-	private Set<TreeModelListener> treeModelListeners = Collections.synchronizedSet(new HashSet<TreeModelListener>());
 	
-	private volatile TreeNode rootNode= null ;
+	private Set<TreeModelListener> treeModelListeners = Collections.synchronizedSet(new HashSet<TreeModelListener>());
 	
-	private final String delimiter = SwiftUtils.separator ;
+	private volatile TreeNodeImpl rootNode= null ;
 	
-	private final Map<TreeNode, Set<TreeNode> > mapParentChildMap = Collections.synchronizedMap(new TreeMap<TreeNode, Set<TreeNode> >()) ;
+	private final char delimiter = SwiftUtils.separator.charAt(0) ;
 	
 	private final boolean allowLazyLoading ;
 	
@@ -288,86 +383,254 @@ public class StoredObjectsTreeModel implements TreeModel
             tml.treeStructureChanged(e);
         }
     }
+    
+    
+    protected void fireTreeNodesInserted(Object[] parentPath, int[] childIndices, Object[] children) {
+        TreeModelEvent e = new TreeModelEvent(this, parentPath, childIndices, children);
+        for (TreeModelListener tml : treeModelListeners) {
+            tml.treeNodesInserted(e);
+        }
+    }
+    
+    
+    protected void fireTreeNodesRemoved(Object[] parentPath, int[] childIndices, Object[] children) {
+        TreeModelEvent e = new TreeModelEvent(this, parentPath, childIndices, children);
+        for (TreeModelListener tml : treeModelListeners) {
+            tml.treeNodesRemoved(e);
+        }
+    }
 	
     
 	private synchronized void initialize (Collection<StoredObject> storedObjectsList)
 	{
 		if (rootNode == null)
 			throw new AssertionError ("The root cannot be null when initializing") ;
-		mapParentChildMap.clear();
-		mapParentChildMap.put(rootNode, new TreeSet<TreeNode> ()) ;
-		processList (storedObjectsList) ;
+		processList (storedObjectsList, null) ;
+		trimToSize () ;
+	}
+	
+	
+	/*
+	 * Records the nodes inserted while processing a list, so that the listeners can be notified
+	 * of the insertions only (rather than of a change of the whole structure). Only the insertions
+	 * under nodes that already existed are relevant: the children of a new node are discovered 
+	 * by the tree when the new node is expanded.
+	 */
+	private static class Insertions
+	{
+		private final Set<TreeNodeImpl> newNodes = new HashSet<TreeNodeImpl> () ;
+		private final Map<TreeNodeImpl, List<TreeNodeImpl> > newChildrenMap = new LinkedHashMap<TreeNodeImpl, List<TreeNodeImpl> > () ;
+		
+		void add (TreeNodeImpl parent, TreeNodeImpl child)
+		{
+			newNodes.add(child) ;
+			if (newNodes.contains(parent))
+				return ;
+			List<TreeNodeImpl> newChildren = newChildrenMap.get(parent) ;
+			if (newChildren == null)
+			{
+				newChildren = new ArrayList<TreeNodeImpl> () ;
+				newChildrenMap.put(parent, newChildren) ;
+			}
+			newChildren.add(child) ;
+		}
 	}
 	
 	
 	public synchronized void addAll (Collection<StoredObject> newStoredObjectsList)
 	{		
-		processList (newStoredObjectsList) ;
-		fireTreeStructureChanged () ;
+		Insertions insertions = new Insertions () ;
+		processList (newStoredObjectsList, insertions) ;
+		fireTreeNodesInserted (insertions) ;
 	}
 	
 	
-	private void processList (Collection<StoredObject> list)
+	private void fireTreeNodesInserted (Insertions insertions)
+	{
+		for (Map.Entry<TreeNodeImpl, List<TreeNodeImpl> > entry : insertions.newChildrenMap.entrySet())
+		{
+			TreeNodeImpl parent = entry.getKey() ;
+			List<TreeNodeImpl> newChildren = entry.getValue() ;
+			Collections.sort(newChildren);
+			int [] childIndices = new int [newChildren.size()] ;
+			for (int i = 0 ; i < childIndices.length ; ++i)
+				childIndices[i] = parent.indexOf(newChildren.get(i)) ;
+			fireTreeNodesInserted (getPath (parent), childIndices, newChildren.toArray()) ;
+		}
+	}
+	
+	
+	private static Object [] getPath (TreeNodeImpl node)
+	{
+		int depth = 0 ;
+		for (TreeNodeImpl n = node ; n != null ; n = n.parent)
+			++depth ;
+		Object [] path = new Object [depth] ;
+		for (TreeNodeImpl n = node ; n != null ; n = n.parent)
+			path[--depth] = n ;
+		return path ;
+	}
+	
+	
+	private void processList (Collection<StoredObject> list, Insertions insertions)
 	{
 		if (list == null)
 			return ;
-		Map<String, StoredObject> objectMap = new HashMap<String, StoredObject> () ;
 		for (StoredObject so : list)
 		{
-			objectMap.put(so.getName(), so) ;
+			TreeNodeImpl node = getOrCreateNode (so.getName(), insertions) ;
+			if (node != null && node.storedObject == null)
+				node.storedObject = so ;
 		}
+	}
+	
+	
+	/*
+	 * Returns the node corresponding to the given object name, creating it (and its ancestors) 
+	 * if needed. The name is split on the delimiter the way String.split does (the trailing empty 
+	 * segments are ignored).
+	 */
+	private TreeNodeImpl getOrCreateNode (String name, Insertions insertions)
+	{
+		int end = name.length() ;
+		while (end > 0 && name.charAt(end - 1) == delimiter)
+			--end ;
+		if (end == 0 && !name.isEmpty())
+			return null ;
 		
-		for (StoredObject so : list)
+		TreeNodeImpl current = rootNode ;
+		int from = 0 ;
+		while (true)
 		{
-			String path = so.getName() ;
-			String [] splitted = path.split(delimiter) ;
-			
-			if (splitted.length == 1)
-			{
-				TreeNode newNode = TreeNodeImpl.buildObjectNode(so, splitted[0], splitted[0]) ;
-				if (!mapParentChildMap.containsKey(newNode))
-					mapParentChildMap.put(newNode, new TreeSet<TreeNode> ()) ;
-				mapParentChildMap.get(rootNode).add(newNode) ;
-			}
+			int to = name.indexOf(delimiter, from) ;
+			if (to < 0 || to > end)
+				to = end ;
+			int index = current.search(name, from, to) ;
+			TreeNodeImpl child ;
+			if (index >= 0)
+				child = current.children[index] ;
 			else
 			{
-				StringBuilder objectName = new StringBuilder () ;
-				for (int i = 0 ; i < splitted.length - 1 ; ++i)
-				{			
-					// Current Object
-					if (i > 0)
-						objectName.append(delimiter) ;
-					objectName.append(splitted[i]) ;
-					String currObjName = objectName.toString() ;
-					TreeNode newNode = TreeNodeImpl.buildObjectNode(objectMap.get(currObjName), currObjName, splitted[i]) ;
-					if (i == 0)
-						mapParentChildMap.get(rootNode).add(newNode) ;
-					
-					// Next object
-					StringBuilder childObjNameBuilder = new StringBuilder () ;
-					childObjNameBuilder.append(currObjName) ;
-					childObjNameBuilder.append(delimiter) ;
-					childObjNameBuilder.append(splitted[i+1]) ;
-					String childObjName = childObjNameBuilder.toString() ;
-					TreeNode childNode = TreeNodeImpl.buildObjectNode(objectMap.get(childObjName), childObjName, splitted[i+1]) ;
-					
-					if (!mapParentChildMap.containsKey(newNode))
-						mapParentChildMap.put(newNode, new TreeSet<TreeNode> ()) ;
-					mapParentChildMap.get(newNode).add(childNode) ; 
-				}
-				// the last one
-				if (splitted.length > 0)
-				{
-					String name = splitted[splitted.length - 1] ;
-					StoredObject sobj = objectMap.get(name) ;
-					if (sobj != null && SwiftUtils.directoryContentType.equalsIgnoreCase(sobj.getContentType()))
-					{
-						TreeNode newNode = TreeNodeImpl.buildObjectNode(sobj, name, name) ;
-						if (!mapParentChildMap.containsKey(newNode))
-							mapParentChildMap.put(newNode, new TreeSet<TreeNode> ()) ;
-					}
-				}
+				child = current.insertChild(-index - 1, name.substring(from, to)) ;
+				if (insertions != null)
+					insertions.add(current, child) ;
 			}
+			current = child ;
+			if (to >= end)
+				return current ;
+			from = to + 1 ;
+		}
+	}
+	
+	
+	/*
+	 * Returns the node of this model that corresponds to the given node, which may belong to
+	 * another model (e.g., a path saved before the tree was rebuilt), or null if there is none.
+	 */
+	private TreeNodeImpl resolve (Object node)
+	{
+		if (!(node instanceof TreeNode))
+			return null ;
+		TreeNode treeNode = (TreeNode) node ;
+		if (treeNode instanceof TreeNodeImpl)
+		{
+			TreeNodeImpl n = (TreeNodeImpl) treeNode ;
+			while (n.parent != null)
+				n = n.parent ;
+			if (n == rootNode)
+				return (TreeNodeImpl) treeNode ;
+		}
+		if (treeNode.isRoot())
+			return rootNode ;
+		return findNode (treeNode.getObjectName()) ;
+	}
+	
+	
+	private TreeNodeImpl findNode (String name)
+	{
+		int end = name.length() ;
+		while (end > 0 && name.charAt(end - 1) == delimiter)
+			--end ;
+		TreeNodeImpl current = rootNode ;
+		int from = 0 ;
+		while (true)
+		{
+			int to = name.indexOf(delimiter, from) ;
+			if (to < 0 || to > end)
+				to = end ;
+			int index = current.search(name, from, to) ;
+			if (index < 0)
+				return null ;
+			current = current.children[index] ;
+			if (to >= end)
+				return current ;
+			from = to + 1 ;
+		}
+	}
+	
+	
+	/**
+	 * @param objectName the name of an object (or of a virtual directory)
+	 * @return the path of the corresponding node, or null if there is no such a node
+	 */
+	public synchronized TreePath getTreePath (String objectName)
+	{
+		if (objectName == null)
+			return null ;
+		TreeNodeImpl node = findNode (objectName) ;
+		return (node == null) ? (null) : (new TreePath (getPath (node))) ;
+	}
+	
+	
+	/**
+	 * Removes all the descendants of the given node (e.g., to unload a directory that is not displayed 
+	 * anymore). A folder node remains expandable once its children have been removed.
+	 * @param node
+	 * @return the objects of the removed nodes
+	 */
+	public synchronized List<StoredObject> removeChildren (Object node)
+	{
+		TreeNodeImpl parent = resolve (node) ;
+		if (parent == null || parent.childCount == 0)
+			return Collections.emptyList() ;
+		
+		List<StoredObject> ret = new ArrayList<StoredObject> () ;
+		Deque<TreeNodeImpl> stack = new ArrayDeque<TreeNodeImpl> () ;
+		for (int i = 0 ; i < parent.childCount ; ++i)
+			stack.push(parent.children[i]) ;
+		while (!stack.isEmpty())
+		{
+			TreeNodeImpl n = stack.pop() ;
+			if (n.storedObject != null)
+				ret.add(n.storedObject) ;
+			for (int i = 0 ; i < n.childCount ; ++i)
+				stack.push(n.children[i]) ;
+		}
+		
+		int [] childIndices = new int [parent.childCount] ;
+		for (int i = 0 ; i < childIndices.length ; ++i)
+			childIndices[i] = i ;
+		Object [] children = Arrays.copyOf(parent.children, parent.childCount, Object[].class) ;
+		parent.children = TreeNodeImpl.noChildren ;
+		parent.childCount = 0 ;
+		fireTreeNodesRemoved (getPath (parent), childIndices, children) ;
+		return ret ;
+	}
+	
+	
+	/**
+	 * Releases the spare capacity of the children arrays (e.g., once all the objects have been added)
+	 */
+	public synchronized void trimToSize ()
+	{
+		Deque<TreeNodeImpl> stack = new ArrayDeque<TreeNodeImpl> () ;
+		stack.push(rootNode) ;
+		while (!stack.isEmpty())
+		{
+			TreeNodeImpl node = stack.pop() ;
+			node.trimToSize();
+			for (int i = 0 ; i < node.childCount ; ++i)
+				stack.push(node.children[i]) ;
 		}
 	}
 
@@ -381,44 +644,19 @@ public class StoredObjectsTreeModel implements TreeModel
 	@Override
 	public synchronized Object getChild(Object parent, int index) {
 
-		if (!(parent instanceof TreeNode))
-			return null ;
-		if (!mapParentChildMap.containsKey(parent))
-			return null;
-		Set<TreeNode> children = mapParentChildMap.get(parent);
-		if (children == null)
-			return null;
-		
-		// TODO: really bad! Should be improved!
-		// ...
-		if (index < children.size())
-		{
-			int count = 0 ;
-			for (TreeNode t : children)
-			{
-				if (count >= index)
-					return t ;
-				++count ;
-			}
-			return null ;
-			// even worse...
-			//return children.toArray()[index] ;
-		}
-		else
+		TreeNodeImpl node = resolve (parent) ;
+		if (node == null || index < 0 || index >= node.childCount)
 			return null ;
+		return node.children[index] ;
 	}
 
 	
 	@Override
 	public synchronized int getChildCount(Object parent) {
-		if (!(parent instanceof TreeNode))
+		TreeNodeImpl node = resolve (parent) ;
+		if (node == null)
 			return 0 ;
-		if (!mapParentChildMap.containsKey(parent))
-			return 0;
-		Set<TreeNode> children = mapParentChildMap.get(parent);
-		if (children == null)
-			return 0;		
-		return children.size() ;	
+		return node.childCount ;	
 	}
 	
 
@@ -427,17 +665,16 @@ public class StoredObjectsTreeModel implements TreeModel
 		if (!(node instanceof TreeNode))
 			return false ;
 		if (((TreeNode)node).isRoot())
-			return mapParentChildMap.size() == 1 ;
+			return rootNode.childCount == 0 ;
 		if (allowLazyLoading)
 		{
 			if (isFolder ((TreeNode)node))
 				return false ;
 		}
-		if(!mapParentChildMap.containsKey((TreeNode)node))
-			return true ;
-		if (mapParentChildMap.get((TreeNode)node) == null)
+		TreeNodeImpl treeNode = resolve (node) ;
+		if (treeNode == null)
 			return true ;
-		if (!mapParentChildMap.get((TreeNode)node).isEmpty())
+		if (treeNode.childCount > 0)
 			return false ;
 		if (isFolder ((TreeNode)node))
 			return false ;
@@ -465,34 +702,11 @@ public class StoredObjectsTreeModel implements TreeModel
 	public synchronized int getIndexOfChild(Object parent, Object child) {
 		if (parent == null || child == null)
 			return -1 ;
-		if (!(parent instanceof TreeNode) || !(child instanceof TreeNode))
-			return -1 ;
-
-		if (!mapParentChildMap.containsKey((TreeNode)parent))
-			return -1 ;
-		
-		Set<TreeNode> children = mapParentChildMap.get(parent);
-		if (children == null)
-			return -1;
-		if (!children.contains(child))
+		TreeNodeImpl parentNode = resolve (parent) ;
+		TreeNodeImpl childNode = resolve (child) ;
+		if (parentNode == null || childNode == null || childNode.parent != parentNode)
 			return -1 ;
-		if (children instanceof TreeSet)
-		{
-			// this works because here we are sure that child is in children
-			return ((TreeSet<TreeNode>)children).headSet((TreeNode) child).size() ;
-		}
-		else
-		{
-			// not very nice! But never used, for the Set should be a TreeSet...
-			int count = 0 ;
-			for (TreeNode tn : children)
-			{
-				if (tn.equals(child))
-					break ;
-				++count ;
-			}
-			return count;
-		}
+		return parentNode.indexOf(childNode) ;
 	}
 
 	
@@ -33,7 +33,9 @@ import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JSlider;
+import javax.swing.JSpinner;
 import javax.swing.JTextField;
+import javax.swing.SpinnerNumberModel;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
@@ -165,6 +167,15 @@ public class SwiftPanel extends JPanel {
     private final JCheckBox hideSegmentsContainer ;
     private final SegmentationSizeSlider segmentationSizeSlider ;
     private final JTextField preferredRegionTf = new JTextField();
+    private final JSpinner concurrentTransfersSpinner ;
+    private final JSpinner concurrentSegmentTransfersSpinner ;
+    private final JSpinner maxConnectionsSpinner ;
+    private final JSpinner maxConnectionsPerRouteSpinner ;
+    private final JSpinner connectionTimeoutSpinner ;
+    private final JSpinner socketTimeoutSpinner ;
+    private final JSpinner idleConnectionTimeoutSpinner ;
+    private final JSpinner socketBufferSizeSpinner ;
+    private final JCheckBox staleConnectionCheck ;
     
     private final HasSwiftSettings swiftSettings ;
     
@@ -200,6 +211,21 @@ public class SwiftPanel extends JPanel {
         String preferredRegion = this.swiftSettings.getPreferredRegion() ;
         preferredRegionTf.setText((preferredRegion == null)?(""):(preferredRegion)) ;
         
+        int concurrentTransfers = Math.max(SwiftParameters.MIN_CONCURRENT_TRANSFERS, Math.min(this.swiftSettings.getNumberOfConcurrentTransfers(), SwiftParameters.MAX_CONCURRENT_TRANSFERS)) ;
+        concurrentTransfersSpinner = new JSpinner (new SpinnerNumberModel (concurrentTransfers, SwiftParameters.MIN_CONCURRENT_TRANSFERS, SwiftParameters.MAX_CONCURRENT_TRANSFERS, 1)) ;
+        int concurrentSegmentTransfers = Math.max(SwiftParameters.MIN_CONCURRENT_SEGMENT_TRANSFERS, Math.min(this.swiftSettings.getNumberOfConcurrentSegmentTransfers(), SwiftParameters.MAX_CONCURRENT_SEGMENT_TRANSFERS)) ;
+        concurrentSegmentTransfersSpinner = new JSpinner (new SpinnerNumberModel (concurrentSegmentTransfers, SwiftParameters.MIN_CONCURRENT_SEGMENT_TRANSFERS, SwiftParameters.MAX_CONCURRENT_SEGMENT_TRANSFERS, 1)) ;
+        
+        maxConnectionsSpinner = newBoundedSpinner (this.swiftSettings.getMaxConnections(), SwiftParameters.MIN_MAX_CONNECTIONS, SwiftParameters.MAX_MAX_CONNECTIONS, 1) ;
+        maxConnectionsPerRouteSpinner = newBoundedSpinner (this.swiftSettings.getMaxConnectionsPerRoute(), SwiftParameters.MIN_MAX_CONNECTIONS_PER_ROUTE, SwiftParameters.MAX_MAX_CONNECTIONS_PER_ROUTE, 1) ;
+        connectionTimeoutSpinner = newBoundedSpinner (this.swiftSettings.getConnectionTimeout(), SwiftParameters.MIN_CONNECTION_TIMEOUT, SwiftParameters.MAX_CONNECTION_TIMEOUT, 5) ;
+        socketTimeoutSpinner = newBoundedSpinner (this.swiftSettings.getSocketTimeout(), SwiftParameters.MIN_SOCKET_TIMEOUT, SwiftParameters.MAX_SOCKET_TIMEOUT, 5) ;
+        idleConnectionTimeoutSpinner = newBoundedSpinner (this.swiftSettings.getIdleConnectionTimeout(), SwiftParameters.MIN_IDLE_CONNECTION_TIMEOUT, SwiftParameters.MAX_IDLE_CONNECTION_TIMEOUT, 5) ;
+        // the buffer size is shown in KB
+        socketBufferSizeSpinner = newBoundedSpinner (this.swiftSettings.getSocketBufferSize() / 1024, SwiftParameters.MIN_SOCKET_BUFFER_SIZE / 1024, SwiftParameters.MAX_SOCKET_BUFFER_SIZE / 1024, 8) ;
+        staleConnectionCheck = new JCheckBox (getLocalizedString("Stale_Connection_Check")) ;
+        staleConnectionCheck.setSelected(this.swiftSettings.isStaleConnectionCheckEnabled());
+        
         initSegmentationSizeSelection () ;
 
         setBorder(BorderFactory.createEmptyBorder(4, 4, 4, 4));
@@ -236,6 +262,45 @@ public class SwiftPanel extends JPanel {
         
         box.add(Box.createVerticalStrut(15)) ;
         box.add(boxPreferredRegion) ;
+        
+        Box boxTransfers = Box.createHorizontalBox();
+        boxTransfers.setBorder(BorderFactory.createTitledBorder(getLocalizedString("Transfers")));
+        boxTransfers.add(new JLabel(getLocalizedString("Concurrent_Transfers"))) ;
+        boxTransfers.add(Box.createHorizontalStrut(8)) ;
+        boxTransfers.add(concurrentTransfersSpinner) ;
+        boxTransfers.add(Box.createHorizontalStrut(16)) ;
+        boxTransfers.add(new JLabel(getLocalizedString("Concurrent_Segment_Transfers"))) ;
+        boxTransfers.add(Box.createHorizontalStrut(8)) ;
+        boxTransfers.add(concurrentSegmentTransfersSpinner) ;
+        
+        box.add(Box.createVerticalStrut(15)) ;
+        box.add(boxTransfers) ;
+        
+        Box boxConnections = Box.createVerticalBox();
+        boxConnections.setBorder(BorderFactory.createTitledBorder(getLocalizedString("Connections")));
+        
+        Box boxPool = Box.createHorizontalBox();
+        addLabeledComponent (boxPool, getLocalizedString("Max_Connections"), maxConnectionsSpinner, false) ;
+        addLabeledComponent (boxPool, getLocalizedString("Max_Connections_Per_Route"), maxConnectionsPerRouteSpinner, true) ;
+        
+        Box boxTimeouts = Box.createHorizontalBox();
+        addLabeledComponent (boxTimeouts, getLocalizedString("Connection_Timeout"), connectionTimeoutSpinner, false) ;
+        addLabeledComponent (boxTimeouts, getLocalizedString("Socket_Timeout"), socketTimeoutSpinner, true) ;
+        addLabeledComponent (boxTimeouts, getLocalizedString("Idle_Connection_Timeout"), idleConnectionTimeoutSpinner, true) ;
+        
+        Box boxSockets = Box.createHorizontalBox();
+        addLabeledComponent (boxSockets, getLocalizedString("Socket_Buffer_Size"), socketBufferSizeSpinner, false) ;
+        boxSockets.add(Box.createHorizontalStrut(16)) ;
+        boxSockets.add(staleConnectionCheck) ;
+        
+        boxConnections.add(boxPool) ;
+        boxConnections.add(Box.createVerticalStrut(6)) ;
+        boxConnections.add(boxTimeouts) ;
+        boxConnections.add(Box.createVerticalStrut(6)) ;
+        boxConnections.add(boxSockets) ;
+        
+        box.add(Box.createVerticalStrut(15)) ;
+        box.add(boxConnections) ;
 
         outer.add(box);
         this.add(outer, BorderLayout.NORTH);
@@ -243,6 +308,22 @@ public class SwiftPanel extends JPanel {
     }
   
     
+    private static JSpinner newBoundedSpinner (int value, int min, int max, int step)
+    {
+    	return new JSpinner (new SpinnerNumberModel (Math.max(min, Math.min(value, max)), min, max, step)) ;
+    }
+    
+    
+    private static void addLabeledComponent (Box box, String label, JComponent comp, boolean separate)
+    {
+    	if (separate)
+    		box.add(Box.createHorizontalStrut(16)) ;
+        box.add(new JLabel(label)) ;
+        box.add(Box.createHorizontalStrut(8)) ;
+        box.add(comp) ;
+    }
+    
+    
     private void initSegmentationSizeSelection ()
     {
     	if (segmentationSizeSlider == null || segmentationSizeTf == null)
@@ -338,6 +419,15 @@ public class SwiftPanel extends JPanel {
         }
         
         SwiftParameters.Builder paramBuilder = new SwiftParameters.Builder (segmentationSize, hideSegmentsContainer.isSelected(), preferredRegion) ;
+        paramBuilder.setNumberOfConcurrentTransfers(((Number) concurrentTransfersSpinner.getValue()).intValue()) ;
+        paramBuilder.setNumberOfConcurrentSegmentTransfers(((Number) concurrentSegmentTransfersSpinner.getValue()).intValue()) ;
+        paramBuilder.setMaxConnections(((Number) maxConnectionsSpinner.getValue()).intValue()) ;
+        paramBuilder.setMaxConnectionsPerRoute(((Number) maxConnectionsPerRouteSpinner.getValue()).intValue()) ;
+        paramBuilder.setConnectionTimeout(((Number) connectionTimeoutSpinner.getValue()).intValue()) ;
+        paramBuilder.setSocketTimeout(((Number) socketTimeoutSpinner.getValue()).intValue()) ;
+        paramBuilder.setIdleConnectionTimeout(((Number) idleConnectionTimeoutSpinner.getValue()).intValue()) ;
+        paramBuilder.setSocketBufferSize(((Number) socketBufferSizeSpinner.getValue()).intValue() * 1024) ;
+        paramBuilder.setStaleConnectionCheck(staleConnectionCheck.isSelected()) ;
     	callback.setSwiftParameters(paramBuilder.build());
     }
     
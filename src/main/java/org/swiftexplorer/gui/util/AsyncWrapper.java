@@ -15,6 +15,7 @@
  */
 package org.swiftexplorer.gui.util;
 
+import org.swiftexplorer.gui.util.JobScheduler.Priority;
 import org.swiftexplorer.swift.operations.SwiftOperations;
 import org.swiftexplorer.swift.operations.SwiftOperations.SwiftCallback;
 
@@ -22,16 +23,45 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.javaswift.joss.exception.CommandException;
 
 /**
  * AsyncWrapper, wraps cloudie operations to make it asynchronous.
+ * The operations are run as jobs of a {@link JobScheduler}.
  * @author E.Hooijmeijer
  */
 public class AsyncWrapper {
 
+	// the operations that the user is waiting for
+	private static final Set<String> interactiveOperations = new HashSet<String> (Arrays.asList(
+			"login", "logout", "getMetadata", "createContainer", "createDirectory", "listStoredObjects")) ;
+	
+	// the operations that may take a long time
+	private static final Set<String> transferOperations = new HashSet<String> (Arrays.asList(
+			"createStoredObjects", "deleteContainer", "deleteStoredObjects", "downloadStoredObject", "purgeContainer", "emptyContainer", 
+			"uploadDirectory", "uploadFiles", "deleteDirectory", "findDifferences")) ;
+	
+	
+	static Priority getPriority (Method method)
+	{
+		if (interactiveOperations.contains(method.getName()))
+			return Priority.INTERACTIVE ;
+		if (transferOperations.contains(method.getName()))
+			return Priority.TRANSFER ;
+		return Priority.NORMAL ;
+	}
+	
+	
     public static SwiftOperations async(final SwiftOperations target) {
+    	return async (target, JobScheduler.getDefault()) ;
+    }
+    
+    
+    public static SwiftOperations async(final SwiftOperations target, final JobScheduler scheduler) {
         return (SwiftOperations) Proxy.newProxyInstance(AsyncWrapper.class.getClassLoader(), new Class[] { SwiftOperations.class },
                 new InvocationHandler() {
 
@@ -41,7 +71,7 @@ public class AsyncWrapper {
                         if (cb == null) {
                             throw new IllegalArgumentException("Callback must not be null.");
                         }
-                        new Thread(new Runnable() {
+                        scheduler.submit(method.getName(), getPriority(method), new Runnable() {
                             public void run() {
                                 try {
                                     cb.onStart();
@@ -58,7 +88,7 @@ public class AsyncWrapper {
                                     cb.onDone();
                                 }
                             }
-                        }).start();
+                        });
                         return null;
                     }
                 });
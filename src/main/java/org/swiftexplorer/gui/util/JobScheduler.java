@@ -0,0 +1,326 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.gui.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/*
+ * Runs jobs on a bounded number of worker threads, by order of priority (and by order of 
+ * submission for jobs of the same priority). 
+ * 
+ * The transfers cannot occupy all the workers: one of them is always left for the other jobs, 
+ * so that, e.g., a metadata request does not have to wait for the end of a long upload. 
+ * The listeners are notified (from the worker threads) whenever a job changes state.
+ */
+public class JobScheduler {
+
+	final Logger logger = LoggerFactory.getLogger(JobScheduler.class);
+	
+	
+	public enum Priority {
+		// the order matters: the first one is the most urgent
+		INTERACTIVE, NORMAL, TRANSFER ;
+	}
+	
+	
+	public enum State {
+		QUEUED, RUNNING, DONE, FAILED, CANCELLED ;
+	}
+	
+	
+	public interface Job {
+		public String getName () ;
+		public Priority getPriority () ;
+		public State getState () ;
+	}
+	
+	
+	public interface JobListener {
+		public void onJobStateChanged (Job job) ;
+	}
+	
+	
+	private final class JobImpl implements Job, Comparable<JobImpl>
+	{
+		private final String name ;
+		private final Priority priority ;
+		private final Runnable task ;
+		private final long sequence ;
+		private volatile State state = State.QUEUED ;
+		
+		JobImpl (String name, Priority priority, Runnable task)
+		{
+			super () ;
+			this.name = name ;
+			this.priority = priority ;
+			this.task = task ;
+			this.sequence = sequenceCount.incrementAndGet() ;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public Priority getPriority() {
+			return priority;
+		}
+
+		@Override
+		public State getState() {
+			return state;
+		}
+
+		@Override
+		public int compareTo(JobImpl o) {
+			int cmp = priority.compareTo(o.priority) ;
+			if (cmp != 0)
+				return cmp ;
+			return (sequence < o.sequence) ? (-1) : ((sequence == o.sequence) ? (0) : (1)) ;
+		}
+		
+		@Override
+		public String toString () {
+			return name ;
+		}
+	}
+	
+	
+	private static final int defaultNumberOfWorkers = 4 ;
+	private static volatile JobScheduler defaultScheduler = null ;
+	
+	private static final AtomicInteger schedulerCount = new AtomicInteger () ;
+	
+	private final AtomicLong sequenceCount = new AtomicLong () ;
+	private final int maxWorkers ;
+	private final int maxTransferWorkers ;
+	private final ExecutorService executor ;
+	private final List<JobListener> listeners = new CopyOnWriteArrayList<JobListener> () ;
+	
+	// guarded by this
+	private final PriorityQueue<JobImpl> queuedJobs = new PriorityQueue<JobImpl> () ;
+	private final Set<JobImpl> runningJobs = new LinkedHashSet<JobImpl> () ;
+	private int runningTransfers = 0 ;
+	
+	
+	public JobScheduler (int maxWorkers)
+	{
+		super () ;
+		this.maxWorkers = Math.max(2, maxWorkers) ;
+		this.maxTransferWorkers = this.maxWorkers - 1 ;
+		final int schedulerId = schedulerCount.incrementAndGet() ;
+		final AtomicInteger threadCount = new AtomicInteger () ;
+		// the number of threads is bounded by the dispatching, not by the executor
+		// platform threads: virtual threads need Java 21 (the build targets 1.8, and 1.7 with the BuildHive profile)
+		this.executor = Executors.newCachedThreadPool(new ThreadFactory () {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread (r, String.format("job-%d-%d", schedulerId, threadCount.incrementAndGet())) ;
+				t.setDaemon(true);
+				return t ;
+			}}) ;
+	}
+	
+	
+	public static JobScheduler getDefault ()
+	{
+		if (defaultScheduler == null)
+		{
+			synchronized (JobScheduler.class)
+			{
+				if (defaultScheduler == null)
+					defaultScheduler = new JobScheduler (defaultNumberOfWorkers) ;
+			}
+		}
+		return defaultScheduler ;
+	}
+	
+	
+	public static synchronized void setDefault (JobScheduler scheduler)
+	{
+		defaultScheduler = scheduler ;
+	}
+	
+	
+	public int getMaxWorkers ()
+	{
+		return maxWorkers ;
+	}
+	
+	
+	public void addJobListener (JobListener listener)
+	{
+		listeners.add(listener) ;
+	}
+	
+	
+	public void removeJobListener (JobListener listener)
+	{
+		listeners.remove(listener) ;
+	}
+	
+	
+	public Job submit (String name, Priority priority, Runnable task)
+	{
+		JobImpl job = new JobImpl (name, (priority == null) ? (Priority.NORMAL) : (priority), task) ;
+		synchronized (this)
+		{
+			queuedJobs.add(job) ;
+		}
+		fireJobStateChanged (job) ;
+		dispatch () ;
+		return job ;
+	}
+	
+	
+	/**
+	 * Cancels a job that has not started yet.
+	 * @param job
+	 * @return true if the job has been cancelled
+	 */
+	public boolean cancel (Job job)
+	{
+		JobImpl jobImpl ;
+		synchronized (this)
+		{
+			if (!(job instanceof JobImpl) || !queuedJobs.remove(job))
+				return false ;
+			jobImpl = (JobImpl) job ;
+			jobImpl.state = State.CANCELLED ;
+		}
+		fireJobStateChanged (jobImpl) ;
+		return true ;
+	}
+	
+	
+	/**
+	 * @return the running jobs followed by the queued ones, in the order they will be run
+	 */
+	public synchronized List<Job> getJobs ()
+	{
+		List<Job> ret = new ArrayList<Job> (runningJobs) ;
+		List<JobImpl> queued = new ArrayList<JobImpl> (queuedJobs) ;
+		Collections.sort(queued) ;
+		ret.addAll(queued) ;
+		return ret ;
+	}
+	
+	
+	private void dispatch ()
+	{
+		List<JobImpl> started = new ArrayList<JobImpl> () ;
+		synchronized (this)
+		{
+			while (runningJobs.size() < maxWorkers)
+			{
+				JobImpl job = pollNextJob () ;
+				if (job == null)
+					break ;
+				job.state = State.RUNNING ;
+				runningJobs.add(job) ;
+				if (job.priority == Priority.TRANSFER)
+					++runningTransfers ;
+				started.add(job) ;
+			}
+		}
+		for (final JobImpl job : started)
+		{
+			fireJobStateChanged (job) ;
+			executor.execute(new Runnable () {
+				@Override
+				public void run() {
+					runJob (job) ;
+				}}) ;
+		}
+	}
+	
+	
+	private JobImpl pollNextJob ()
+	{
+		if (runningTransfers < maxTransferWorkers)
+			return queuedJobs.poll() ;
+		// the transfers must wait, but not the other jobs
+		JobImpl next = null ;
+		Iterator<JobImpl> it = queuedJobs.iterator() ;
+		while (it.hasNext())
+		{
+			JobImpl job = it.next() ;
+			if (job.priority != Priority.TRANSFER && (next == null || job.compareTo(next) < 0))
+				next = job ;
+		}
+		if (next != null)
+			queuedJobs.remove(next) ;
+		return next ;
+	}
+	
+	
+	private void runJob (JobImpl job)
+	{
+		try
+		{
+			job.task.run();
+			job.state = State.DONE ;
+		}
+		catch (RuntimeException | Error e)
+		{
+			job.state = State.FAILED ;
+			throw e ;
+		}
+		finally
+		{
+			synchronized (this)
+			{
+				runningJobs.remove(job) ;
+				if (job.priority == Priority.TRANSFER)
+					--runningTransfers ;
+			}
+			fireJobStateChanged (job) ;
+			dispatch () ;
+		}
+	}
+	
+	
+	private void fireJobStateChanged (Job job)
+	{
+		for (JobListener listener : listeners)
+		{
+			try
+			{
+				listener.onJobStateChanged(job);
+			}
+			catch (RuntimeException e)
+			{
+				logger.error("Error occurred while notifying a job state change", e);
+			}
+		}
+	}
+}
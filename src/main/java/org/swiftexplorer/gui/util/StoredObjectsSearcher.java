@@ -0,0 +1,287 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.gui.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+
+import org.javaswift.joss.model.StoredObject;
+import org.swiftexplorer.swift.util.StoredObjectsIndex;
+
+
+/*
+ * Searches the objects whose name contains a given string in a background thread, and streams 
+ * the results back to the GUI thread by batches. 
+ * 
+ * Only one search runs at a time: starting a new search cancels the previous one, whose pending 
+ * results are then discarded. The objects loaded while a search runs are matched by the caller
+ * through the append method, instead of restarting the search. The methods of this class, and 
+ * those of the callback, are meant to be called in the GUI thread.
+ */
+public class StoredObjectsSearcher {
+
+	public interface SearchCallback {
+		
+		/**
+		 * Is called with each batch of results, in the order the objects have been indexed
+		 * @param results
+		 */
+		public void onSearchResults (List<StoredObject> results) ;
+		
+		/**
+		 * Is called once all the results have been delivered.
+		 * @param results all the results, sorted
+		 * @param isReordered whether the results have not been delivered in sorted order
+		 */
+		public void onSearchDone (List<StoredObject> results, boolean isReordered) ;
+	}
+	
+	
+	/*
+	 * The state of a search, shared by the search thread and the objects appended in the GUI thread
+	 */
+	private static final class Search
+	{
+		private final String filter ;
+		private final boolean isPrefix ;
+		private final Set<String> names = new HashSet<String> () ;
+		private final List<StoredObject> appended = new ArrayList<StoredObject> () ;
+		private boolean done = false ;
+		
+		Search (String filter, boolean isPrefix)
+		{
+			super () ;
+			this.filter = filter ;
+			this.isPrefix = isPrefix ;
+		}
+		
+		synchronized boolean addName (String name)
+		{
+			return names.add(name) ;
+		}
+	}
+	
+	
+	private static final AtomicInteger searcherCount = new AtomicInteger () ;
+	
+	private final StoredObjectsIndex index ;
+	private final int batchSize ;
+	private final ExecutorService executor ;
+	private final AtomicInteger generation = new AtomicInteger () ;
+	private Future<?> currentSearch = null ;
+	private Search current = null ;
+	
+	
+	public StoredObjectsSearcher (StoredObjectsIndex index, int batchSize)
+	{
+		super () ;
+		this.index = index ;
+		this.batchSize = Math.max(1, batchSize) ;
+		final int searcherId = searcherCount.incrementAndGet() ;
+		this.executor = Executors.newSingleThreadExecutor(new ThreadFactory () {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread (r, String.format("search-%d", searcherId)) ;
+				t.setDaemon(true);
+				return t ;
+			}}) ;
+	}
+	
+	
+	/**
+	 * Starts a search, cancelling the current one if any.
+	 * @param filter the string that the names must contain
+	 * @param storedObjects the objects currently loaded; the indexed objects that are not contained anymore are ignored
+	 * @param callback
+	 */
+	public void search (final String filter, final Collection<StoredObject> storedObjects, final SearchCallback callback)
+	{
+		search (filter, false, storedObjects, callback) ;
+	}
+	
+	
+	/**
+	 * Starts a search, cancelling the current one if any.
+	 * @param filter the string that the names must contain
+	 * @param isPrefix whether the names must start with the filter
+	 * @param storedObjects the objects currently loaded; the indexed objects that are not contained anymore are ignored
+	 * @param callback
+	 */
+	public void search (String filter, boolean isPrefix, final Collection<StoredObject> storedObjects, final SearchCallback callback)
+	{
+		cancel () ;
+		final int searchGeneration = generation.get() ;
+		final Search search = new Search (filter, isPrefix) ;
+		current = search ;
+		currentSearch = executor.submit(new Runnable () {
+			@Override
+			public void run() {
+				doSearch (searchGeneration, search, storedObjects, callback) ;
+			}}) ;
+	}
+	
+	
+	/**
+	 * Matches the objects loaded while a search runs. The matching objects are not delivered by 
+	 * onSearchResults (the caller displays them), but they are part of the results given to onSearchDone.
+	 * @param objs the objects just loaded (and indexed)
+	 * @return the objects matching the current search, or null if there is no search in progress
+	 */
+	public List<StoredObject> append (Collection<StoredObject> objs)
+	{
+		if (!isSearching ())
+			return null ;
+		List<StoredObject> ret = new ArrayList<StoredObject> () ;
+		synchronized (current)
+		{
+			for (StoredObject obj : objs)
+			{
+				if (isIncluded (obj, current.filter, current.isPrefix, null) && current.names.add(obj.getName()))
+				{
+					ret.add(obj) ;
+					current.appended.add(obj) ;
+				}
+			}
+		}
+		return ret ;
+	}
+	
+	
+	public void cancel ()
+	{
+		generation.incrementAndGet() ;
+		if (currentSearch != null)
+			currentSearch.cancel(true) ;
+		currentSearch = null ;
+		current = null ;
+	}
+	
+	
+	public boolean isSearching ()
+	{
+		// the search is over once its results have been handed over in the GUI thread
+		return current != null && !current.done ;
+	}
+	
+	
+	private boolean isCancelled (int searchGeneration)
+	{
+		return searchGeneration != generation.get() || Thread.currentThread().isInterrupted() ;
+	}
+	
+	
+	private void doSearch (final int searchGeneration, final Search search, Collection<StoredObject> storedObjects, final SearchCallback callback)
+	{
+		final List<StoredObject> results = new ArrayList<StoredObject> () ;
+		List<StoredObject> batch = new ArrayList<StoredObject> () ;
+		StoredObject previous = null ;
+		boolean isReordered = false ;
+		
+		for (StoredObject obj : index.getCandidates(search.filter))
+		{
+			if (isCancelled (searchGeneration))
+				return ;
+			// the objects appended in the meantime are already displayed
+			if (!isIncluded (obj, search.filter, search.isPrefix, storedObjects) || !search.addName(obj.getName()))
+				continue ;
+			if (previous != null && previous.compareTo(obj) > 0)
+				isReordered = true ;
+			previous = obj ;
+			results.add(obj) ;
+			batch.add(obj) ;
+			if (batch.size() >= batchSize)
+			{
+				publishResults (searchGeneration, batch, callback) ;
+				batch = new ArrayList<StoredObject> () ;
+			}
+		}
+		if (!batch.isEmpty())
+			publishResults (searchGeneration, batch, callback) ;
+		
+		if (isReordered)
+			Collections.sort(results) ;
+		final boolean reordered = isReordered ;
+		SwingUtilities.invokeLater(new Runnable () {
+			@Override
+			public void run() {
+				if (searchGeneration != generation.get())
+					return ;
+				boolean isAppended ;
+				synchronized (search)
+				{
+					search.done = true ;
+					isAppended = !search.appended.isEmpty() ;
+					results.addAll(search.appended) ;
+				}
+				if (isAppended)
+					Collections.sort(results) ;
+				callback.onSearchDone(results, reordered || isAppended) ;
+			}}) ;
+	}
+	
+	
+	private void publishResults (final int searchGeneration, final List<StoredObject> batch, final SearchCallback callback)
+	{
+		SwingUtilities.invokeLater(new Runnable () {
+			@Override
+			public void run() {
+				// the search may have been cancelled in the meantime
+				if (searchGeneration == generation.get())
+					callback.onSearchResults(batch) ;
+			}}) ;
+	}
+	
+	
+	private static boolean isIncluded (StoredObject obj, String filter, boolean isPrefix, Collection<StoredObject> storedObjects)
+	{
+		if (isPrefix && !obj.getName().startsWith(filter))
+			return false ;
+		if (!obj.getName().contains(filter))
+			return false ;
+		return storedObjects == null || storedObjects.contains(obj) ;
+	}
+	
+	
+	/**
+	 * Searches synchronously, in the calling thread.
+	 * @param index
+	 * @param filter
+	 * @param storedObjects the objects currently loaded; the indexed objects that are not contained anymore are ignored
+	 * @return the sorted results
+	 */
+	public static List<StoredObject> search (StoredObjectsIndex index, String filter, Collection<StoredObject> storedObjects)
+	{
+		List<StoredObject> results = new ArrayList<StoredObject> () ;
+		Set<String> names = new HashSet<String> () ;
+		for (StoredObject obj : index.getCandidates(filter))
+		{
+			if (isIncluded (obj, filter, false, storedObjects) && names.add(obj.getName()))
+				results.add(obj) ;
+		}
+		Collections.sort(results) ;
+		return results ;
+	}
+}
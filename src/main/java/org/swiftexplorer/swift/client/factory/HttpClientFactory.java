@@ -16,7 +16,9 @@ package org.swiftexplorer.swift.client.factory;
 
 import org.javaswift.joss.client.factory.AccountConfig;
 import org.swiftexplorer.config.proxy.HasProxySettings;
+import org.swiftexplorer.config.swift.HasSwiftSettings;
 
 public interface HttpClientFactory {
 	public org.apache.http.client.HttpClient getHttpClient (AccountConfig accountConfig, HasProxySettings proxySettings) ;
+	public org.apache.http.client.HttpClient getHttpClient (AccountConfig accountConfig, HasSwiftSettings swiftSettings, HasProxySettings proxySettings) ;
 }
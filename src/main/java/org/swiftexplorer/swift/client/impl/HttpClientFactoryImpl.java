@@ -40,6 +40,7 @@ import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
@@ -49,28 +50,44 @@ import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.params.ClientPNames;
 import org.apache.http.conn.params.ConnRoutePNames;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.ssl.SSLSocketFactory;
 import org.apache.http.impl.client.AbstractHttpClient;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
 import org.javaswift.joss.client.factory.AccountConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.swiftexplorer.config.proxy.HasProxySettings;
+import org.swiftexplorer.config.swift.HasSwiftSettings;
+import org.swiftexplorer.config.swift.SwiftParameters;
 import org.swiftexplorer.swift.client.factory.HttpClientFactory;
 
 public class HttpClientFactoryImpl implements HttpClientFactory {
 
 	final private Logger logger = LoggerFactory.getLogger(HttpClientFactoryImpl.class);
 	
+	// even a busy connection gets renewed from time to time (in seconds)
+	private static final long connectionTimeToLive = 600 ;
+	
 	@Override
 	public HttpClient getHttpClient(AccountConfig accountConfig, HasProxySettings proxySettings) {
+		return getHttpClient(accountConfig, null, proxySettings) ;
+	}
+	
+	
+	@Override
+	public HttpClient getHttpClient(AccountConfig accountConfig, HasSwiftSettings swiftSettings, HasProxySettings proxySettings) {
     	
-        PoolingClientConnectionManager connectionManager = initConnectionManager();
+		if (swiftSettings == null)
+			swiftSettings = new SwiftParameters.Builder (SwiftParameters.MAX_SEGMENTATION_SIZE, true).build() ;
+		
+        PoolingClientConnectionManager connectionManager = initConnectionManager(swiftSettings);
         
         if(accountConfig.isDisableSslValidation()) {
             disableSslValidation(connectionManager);
@@ -78,13 +95,18 @@ public class HttpClientFactoryImpl implements HttpClientFactory {
         
         org.apache.http.client.HttpClient httpClient = newHttpClient (connectionManager) ;
         
+        HttpParams params = httpClient.getParams();
+        setConnectionParams (params, swiftSettings) ;
+        
+        // the socket timeout of the account configuration, if any, takes precedence
         int socketTimeout = accountConfig.getSocketTimeout() ;
         if (socketTimeout != -1) {
         	logger.info("Set socket timeout on HttpClient: " + socketTimeout);
-            HttpParams params = httpClient.getParams();
             HttpConnectionParams.setSoTimeout(params, socketTimeout);
         }
         
+        IdleConnectionReaper.getDefault().register(connectionManager, swiftSettings.getIdleConnectionTimeout());
+        
         // proxy setting
         if (proxySettings != null)
 	        setProxySettings (httpClient, proxySettings, "http") ;
@@ -93,6 +115,18 @@ public class HttpClientFactoryImpl implements HttpClientFactory {
 	}
 	
 	
+	private void setConnectionParams (HttpParams params, HasSwiftSettings swiftSettings)
+	{
+		HttpConnectionParams.setConnectionTimeout(params, swiftSettings.getConnectionTimeout() * 1000);
+		HttpConnectionParams.setSoTimeout(params, swiftSettings.getSocketTimeout() * 1000);
+		HttpConnectionParams.setSocketBufferSize(params, swiftSettings.getSocketBufferSize());
+		HttpConnectionParams.setTcpNoDelay(params, true);
+		HttpConnectionParams.setStaleCheckingEnabled(params, swiftSettings.isStaleConnectionCheckEnabled());
+		// wait for the pool as long as for the connection itself
+		params.setLongParameter(ClientPNames.CONN_MANAGER_TIMEOUT, swiftSettings.getConnectionTimeout() * 1000L);
+	}
+	
+	
 	private void setProxySettings (org.apache.http.client.HttpClient client, HasProxySettings proxySettings, String prot)
 	{
 		if (client == null)
@@ -114,14 +148,20 @@ public class HttpClientFactoryImpl implements HttpClientFactory {
 	
 	private org.apache.http.client.HttpClient newHttpClient (PoolingClientConnectionManager connectionManager)
 	{
-		return new DefaultHttpClient(connectionManager);
+		DefaultHttpClient httpClient = new DefaultHttpClient(connectionManager);
+		// the retry policy honors the delay requested by the server
+		httpClient.addResponseInterceptor(new RetryAfterInterceptor ());
+		// the uploads are checked against the etag returned by the server
+		httpClient.addResponseInterceptor(new UploadEtagInterceptor ());
+		return httpClient ;
 	}
 	
 	
-    protected PoolingClientConnectionManager initConnectionManager() {
-        PoolingClientConnectionManager connectionManager = new PoolingClientConnectionManager();
-        connectionManager.setMaxTotal(50);
-        connectionManager.setDefaultMaxPerRoute(25);
+    protected PoolingClientConnectionManager initConnectionManager(HasSwiftSettings swiftSettings) {
+        PoolingClientConnectionManager connectionManager = new PoolingClientConnectionManager(SchemeRegistryFactory.createDefault(), connectionTimeToLive, TimeUnit.SECONDS);
+        int maxTotal = Math.max(1, swiftSettings.getMaxConnections()) ;
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(Math.max(1, Math.min(swiftSettings.getMaxConnectionsPerRoute(), maxTotal)));
         return connectionManager;
     }
     
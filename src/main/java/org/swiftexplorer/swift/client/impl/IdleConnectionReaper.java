@@ -0,0 +1,146 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.client.impl;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.conn.ClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/*
+ * Periodically closes the expired connections and the connections that have been idle for longer
+ * than their timeout, so that the pools do not hand out connections the server has already dropped.
+ * 
+ * The connection managers are only weakly referenced: a manager that is not used anymore (e.g., after
+ * a new login) is unregistered once it has been garbage collected. 
+ */
+class IdleConnectionReaper {
+
+	final private Logger logger = LoggerFactory.getLogger(IdleConnectionReaper.class);
+	
+	private static final IdleConnectionReaper instance = new IdleConnectionReaper (5) ;
+	
+	
+	private static class Registration
+	{
+		final WeakReference<ClientConnectionManager> manager ;
+		final long idleTimeout ;
+		
+		Registration (ClientConnectionManager manager, long idleTimeout)
+		{
+			this.manager = new WeakReference<ClientConnectionManager> (manager) ;
+			this.idleTimeout = idleTimeout ;
+		}
+	}
+	
+	
+	private final long period ;
+	private final List<Registration> registrations = new CopyOnWriteArrayList<Registration> () ;
+	private ScheduledExecutorService executor = null ;
+	
+	
+	IdleConnectionReaper (long periodInSeconds)
+	{
+		super () ;
+		this.period = Math.max(1, periodInSeconds) ;
+	}
+	
+	
+	static IdleConnectionReaper getDefault ()
+	{
+		return instance ;
+	}
+	
+	
+	/**
+	 * registers a connection manager; its idle connections will be closed after 
+	 * idleTimeoutInSeconds seconds (or never if the timeout is not positive).
+	 * @param manager
+	 * @param idleTimeoutInSeconds
+	 */
+	synchronized void register (ClientConnectionManager manager, long idleTimeoutInSeconds)
+	{
+		if (manager == null)
+			return ;
+		registrations.add(new Registration (manager, idleTimeoutInSeconds)) ;
+		if (executor == null)
+		{
+			executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory () {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread (r, "idle-connection-reaper") ;
+					t.setDaemon(true);
+					return t ;
+				}}) ;
+			executor.scheduleWithFixedDelay(new Runnable () {
+				@Override
+				public void run() {
+					reap () ;
+				}}, period, period, TimeUnit.SECONDS) ;
+		}
+	}
+	
+	
+	synchronized int size ()
+	{
+		return registrations.size() ;
+	}
+	
+	
+	void reap ()
+	{
+		Iterator<Registration> it = registrations.iterator() ;
+		while (it.hasNext())
+		{
+			Registration reg = it.next() ;
+			ClientConnectionManager manager = reg.manager.get() ;
+			if (manager == null)
+			{
+				registrations.remove(reg) ;
+				continue ;
+			}
+			try
+			{
+				manager.closeExpiredConnections();
+				if (reg.idleTimeout > 0)
+					manager.closeIdleConnections(reg.idleTimeout, TimeUnit.SECONDS);
+			}
+			catch (RuntimeException e)
+			{
+				logger.error("Error occurred while closing the idle connections", e);
+			}
+		}
+		stopIfEmpty () ;
+	}
+	
+	
+	private synchronized void stopIfEmpty ()
+	{
+		if (registrations.isEmpty() && executor != null)
+		{
+			executor.shutdown();
+			executor = null ;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.client.impl;
+
+import java.io.IOException;
+import java.util.Date;
+
+import org.apache.http.Header;
+import org.apache.http.HttpException;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.protocol.HttpContext;
+
+
+/*
+ * Records the Retry-After header of the 429 (Too Many Requests) and 503 (Service Unavailable) 
+ * responses. Joss does not expose the headers of a failed response, but it executes the requests 
+ * in the calling thread, hence the delay is kept per thread, and can be read right after the
+ * CommandException has been caught.
+ */
+public class RetryAfterInterceptor implements HttpResponseInterceptor {
+
+	private static final ThreadLocal<Long> retryAfter = new ThreadLocal<Long> () ;
+	
+	
+	@Override
+	public void process(HttpResponse response, HttpContext context) throws HttpException, IOException {
+		int status = response.getStatusLine().getStatusCode() ;
+		Header header = (status == 429 || status == 503) ? (response.getFirstHeader("Retry-After")) : (null) ;
+		long delay = (header == null) ? (-1) : (parseRetryAfter (header.getValue(), System.currentTimeMillis())) ;
+		if (delay < 0)
+			retryAfter.remove();
+		else
+			retryAfter.set(delay);
+	}
+	
+	
+	/**
+	 * returns the delay (in milliseconds) requested by the last response received by the current
+	 * thread, or -1 if it did not request any. The delay is cleared.
+	 * @return
+	 */
+	public static long getRetryAfter ()
+	{
+		Long delay = retryAfter.get() ;
+		retryAfter.remove();
+		return (delay == null) ? (-1) : (delay) ;
+	}
+	
+	
+	/**
+	 * parses the value of a Retry-After header, which is either a number of seconds or an HTTP date
+	 * @param value
+	 * @param now
+	 * @return the delay in milliseconds, or -1 if the value is invalid
+	 */
+	static long parseRetryAfter (String value, long now)
+	{
+		if (value == null || value.trim().isEmpty())
+			return -1 ;
+		value = value.trim() ;
+		try
+		{
+			long seconds = Long.parseLong(value) ;
+			return (seconds < 0) ? (-1) : (seconds * 1000) ;
+		}
+		catch (NumberFormatException e)
+		{
+			Date date = DateUtils.parseDate(value) ;
+			return (date == null) ? (-1) : (Math.max(0, date.getTime() - now)) ;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.client.impl;
+
+import java.io.IOException;
+
+import org.apache.http.Header;
+import org.apache.http.HttpException;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.protocol.HttpContext;
+
+
+/*
+ * Records the ETag header of the 201 (Created) responses, i.e., the md5 value computed by the server 
+ * of the content it has just stored. Joss does not expose the headers of the upload response, but it
+ * executes the requests in the calling thread, hence the etag is kept per thread, and can be read 
+ * right after the upload has returned.
+ */
+public class UploadEtagInterceptor implements HttpResponseInterceptor {
+
+	private static final ThreadLocal<String> etag = new ThreadLocal<String> () ;
+	
+	
+	@Override
+	public void process(HttpResponse response, HttpContext context) throws HttpException, IOException {
+		Header header = (response.getStatusLine().getStatusCode() == 201) ? (response.getFirstHeader("ETag")) : (null) ;
+		if (header == null)
+			etag.remove();
+		else
+			etag.set(header.getValue());
+	}
+	
+	
+	/**
+	 * returns the etag of the object created by the last response received by the current
+	 * thread, or null if it did not create any (or if the requests do not go through an http 
+	 * client with this interceptor). The etag is cleared.
+	 * @return
+	 */
+	public static String getEtag ()
+	{
+		String ret = etag.get() ;
+		etag.remove();
+		return ret ;
+	}
+}
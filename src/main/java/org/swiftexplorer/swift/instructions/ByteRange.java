@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.instructions;
+
+import org.javaswift.joss.headers.object.range.AbstractRange;
+
+
+/*
+ * Range of bytes [first, last] (both inclusive, as in the HTTP Range header). 
+ * Unlike MidPartRange, the bounds are not limited to int values, so that 
+ * parts of objects larger than 2GB can be requested.
+ */
+public class ByteRange extends AbstractRange {
+
+	public ByteRange (long first, long last)
+	{
+		super (first, last) ;
+		if (first < 0 || last < first)
+			throw new IllegalArgumentException (String.format("Invalid range [%d, %d]", first, last)) ;
+	}
+	
+	
+	@Override
+	public long getFrom(int byteArrayLength) {
+		return offset ;
+	}
+	
+
+	// exclusive (used to copy the range out of an array)
+	@Override
+	public long getTo(int byteArrayLength) {
+		return Math.min(length + 1, byteArrayLength) ;
+	}
+	
+	
+	public long getLength ()
+	{
+		return length - offset + 1 ;
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+import org.javaswift.joss.exception.CommandException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.swiftexplorer.config.swift.SwiftParameters;
+import org.swiftexplorer.util.BandwidthLimiter;
+
+
+/*
+ * Bounds the number of transfers running simultaneously, and adapts this bound to the 
+ * conditions of the network (AIMD): the bound is increased by one after each window of 
+ * successful transfers that did not lower the throughput, and it is halved when the 
+ * server shows signs of congestion (5xx responses, timeouts). 
+ * 
+ * The bound never exceeds the maximum, which can be changed at any time (e.g., from the 
+ * progress panel). The throughput is measured on the bytes going through the default
+ * bandwidth limiter.
+ */
+public class AdaptiveConcurrencyController {
+
+	final private Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyController.class);
+	
+	private static volatile AdaptiveConcurrencyController instance = new AdaptiveConcurrencyController (SwiftParameters.DEFAULT_CONCURRENT_TRANSFERS) ;
+	
+	// a window with a throughput lower than this fraction of the previous one is not good enough to grow
+	private static final double throughputTolerance = 0.9 ;
+	
+	private int maximum ;
+	private int limit ;
+	private int active = 0 ;
+	
+	private int windowCompletions = 0 ;
+	private long windowStart ;
+	private long windowBytes ;
+	private boolean windowCongested = false ;
+	private double lastThroughput = 0 ;
+	
+	
+	public AdaptiveConcurrencyController (int maximum)
+	{
+		super () ;
+		this.maximum = Math.max(1, maximum) ;
+		this.limit = this.maximum ;
+		startWindow () ;
+	}
+	
+	
+	public static AdaptiveConcurrencyController getDefault ()
+	{
+		return instance ;
+	}
+	
+	
+	public static void setDefault (AdaptiveConcurrencyController controller)
+	{
+		if (controller == null)
+			throw new IllegalArgumentException ("The controller cannot be null") ;
+		instance = controller ;
+	}
+	
+	
+	/**
+	 * returns true if the given exception suggests that the server or the network is overloaded
+	 * @param e
+	 * @return
+	 */
+	public static boolean isCongestionSignal (CommandException e)
+	{
+		if (e == null)
+			return false ;
+		int status = e.getHttpStatusCode() ;
+		if (status >= 500 || status == 429)
+			return true ;
+		for (Throwable cause = e.getCause() ; cause != null ; cause = cause.getCause())
+		{
+			// SocketTimeoutException and ConnectTimeoutException
+			if (cause instanceof InterruptedIOException)
+				return true ;
+		}
+		return false ;
+	}
+	
+	
+	public synchronized int getMaximum ()
+	{
+		return maximum ;
+	}
+	
+	
+	public synchronized void setMaximum (int maximum)
+	{
+		this.maximum = Math.max(1, maximum) ;
+		// we start again from the maximum, and let the congestion signals bring it down
+		this.limit = this.maximum ;
+		startWindow () ;
+		notifyAll () ;
+	}
+	
+	
+	public synchronized int getLimit ()
+	{
+		return limit ;
+	}
+	
+	
+	public synchronized int getActiveCount ()
+	{
+		return active ;
+	}
+	
+	
+	/**
+	 * waits until a new transfer can start; each call must be followed by a call to release.
+	 * @throws InterruptedIOException
+	 */
+	public synchronized void acquire () throws InterruptedIOException
+	{
+		try 
+		{
+			while (active >= limit)
+				wait () ;
+		} 
+		catch (InterruptedException e) 
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException ("Interrupted while waiting for a transfer slot") ;
+		}
+		++active ;
+	}
+	
+	
+	public synchronized void release (boolean success)
+	{
+		active = Math.max(0, active - 1) ;
+		if (success && ++windowCompletions >= limit)
+			endWindow () ;
+		notifyAll () ;
+	}
+	
+	
+	/**
+	 * halves the limit, at most once per window, so that a burst of failures 
+	 * from the same transfers does not bring it down to one straight away.
+	 */
+	public synchronized void onCongestion ()
+	{
+		if (windowCongested)
+			return ;
+		int newLimit = Math.max(1, limit / 2) ;
+		if (newLimit != limit)
+			logger.info("Congestion detected, reducing the number of concurrent transfers to {}", newLimit);
+		limit = newLimit ;
+		startWindow () ;
+		windowCongested = true ;
+	}
+	
+	
+	private void endWindow ()
+	{
+		long elapsed = Math.max(1, System.nanoTime() - windowStart) ;
+		double throughput = (getTransferredBytes () - windowBytes) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed ;
+		if (!windowCongested && throughput >= lastThroughput * throughputTolerance && limit < maximum)
+			++limit ;
+		lastThroughput = throughput ;
+		startWindow () ;
+	}
+	
+	
+	private void startWindow ()
+	{
+		windowCompletions = 0 ;
+		windowStart = System.nanoTime() ;
+		windowBytes = getTransferredBytes () ;
+		windowCongested = false ;
+	}
+	
+	
+	protected long getTransferredBytes ()
+	{
+		return BandwidthLimiter.getDefault().getTotalBytes() ;
+	}
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.javaswift.joss.exception.CommandException;
+import org.javaswift.joss.exception.CommandExceptionError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.swiftexplorer.swift.client.impl.RetryAfterInterceptor;
+
+
+/*
+ * Retries the commands that failed for a transient reason, after a delay drawn at random between 
+ * zero and an exponentially growing bound (full jitter), so that the clients that failed together 
+ * do not retry together. When the server specifies a delay (Retry-After on 429 and 503), it is honored.
+ * 
+ * Each class of errors has its own budget of retries per command: a command may be throttled several
+ * times, but a command that keeps failing with 5xx errors is given up on sooner. All the commands 
+ * share a circuit breaker, so that a server that keeps failing is left alone for a while.
+ */
+public class BackoffRetryPolicy extends RetryPolicy {
+
+	final private Logger logger = LoggerFactory.getLogger(BackoffRetryPolicy.class);
+	
+	
+	public enum ErrorClass {
+		// connection lost, timeout
+		CONNECTION,
+		// 429, 503
+		THROTTLED,
+		// other 5xx
+		SERVER,
+		// 401: the token may have expired (Joss authenticates again)
+		UNAUTHORIZED,
+		// other errors, retrying would not help
+		PERMANENT
+	}
+	
+	
+	private final Map<ErrorClass, Integer> budgets = new EnumMap<ErrorClass, Integer> (ErrorClass.class) ;
+	private final long baseDelay ;
+	private final long maxDelay ;
+	private final long maxRetryAfter ;
+	private final CircuitBreaker circuitBreaker ;
+	private final Random random = new Random () ;
+	
+	
+	public BackoffRetryPolicy ()
+	{
+		this (250, 30000, 120000, TimeUnit.MILLISECONDS, new CircuitBreaker (10, 15, 120, TimeUnit.SECONDS)) ;
+		setBudget (ErrorClass.CONNECTION, 5) ;
+		setBudget (ErrorClass.THROTTLED, 8) ;
+		setBudget (ErrorClass.SERVER, 4) ;
+		setBudget (ErrorClass.UNAUTHORIZED, 1) ;
+	}
+	
+	
+	BackoffRetryPolicy (long baseDelay, long maxDelay, long maxRetryAfter, TimeUnit unit, CircuitBreaker circuitBreaker)
+	{
+		super () ;
+		this.baseDelay = Math.max(1, unit.toMillis(baseDelay)) ;
+		this.maxDelay = Math.max(this.baseDelay, unit.toMillis(maxDelay)) ;
+		this.maxRetryAfter = unit.toMillis(maxRetryAfter) ;
+		this.circuitBreaker = circuitBreaker ;
+		for (ErrorClass c : ErrorClass.values())
+			budgets.put(c, 0) ;
+	}
+	
+	
+	/**
+	 * sets the number of times a command may be retried after errors of the given class
+	 * @param errorClass
+	 * @param budget
+	 */
+	public synchronized void setBudget (ErrorClass errorClass, int budget)
+	{
+		if (errorClass == ErrorClass.PERMANENT && budget > 0)
+			throw new IllegalArgumentException ("Permanent errors cannot be retried") ;
+		budgets.put(errorClass, Math.max(0, budget)) ;
+	}
+	
+	
+	public synchronized int getBudget (ErrorClass errorClass)
+	{
+		return budgets.get(errorClass) ;
+	}
+	
+	
+	public static ErrorClass classify (CommandException e)
+	{
+		if (e instanceof CircuitBreaker.CircuitOpenException)
+			return ErrorClass.THROTTLED ;
+		int status = e.getHttpStatusCode() ;
+		if (status == 429 || status == 503)
+			return ErrorClass.THROTTLED ;
+		if (status >= 500)
+			return ErrorClass.SERVER ;
+		if (e.getError() == CommandExceptionError.UNAUTHORIZED)
+			return ErrorClass.UNAUTHORIZED ;
+		// no response at all (the IOException, if any, is the cause), or 408 (Request Timeout)
+		if ((status == 0 && (e.getError() == null || e.getError() == CommandExceptionError.UNKNOWN)) || status == 408)
+			return ErrorClass.CONNECTION ;
+		return ErrorClass.PERMANENT ;
+	}
+	
+	
+	@Override
+	public <T, E extends Exception> T execute(String description, Command<T, E> command) throws E {
+		
+		Map<ErrorClass, Integer> failures = new EnumMap<ErrorClass, Integer> (ErrorClass.class) ;
+		int attempt = 0 ;
+		while (true)
+		{
+			long retryAfter = -1 ;
+			try
+			{
+				if (circuitBreaker != null)
+					circuitBreaker.acquire();
+				T ret = command.call() ;
+				if (circuitBreaker != null)
+					circuitBreaker.onSuccess();
+				return ret ;
+			}
+			catch (CircuitBreaker.CircuitOpenException e)
+			{
+				retryAfter = e.getRemainingMillis() ;
+				giveUpIfOverBudget (e, ErrorClass.THROTTLED, failures) ;
+			}
+			catch (CommandException e)
+			{
+				retryAfter = RetryAfterInterceptor.getRetryAfter() ;
+				ErrorClass errorClass = classify (e) ;
+				if (circuitBreaker != null)
+				{
+					if (errorClass == ErrorClass.PERMANENT || errorClass == ErrorClass.UNAUTHORIZED)
+						circuitBreaker.onSuccess();
+					else
+						circuitBreaker.onFailure();
+				}
+				giveUpIfOverBudget (e, errorClass, failures) ;
+				logger.info("{} failed ({}), it will be retried: {}", description, errorClass, e.toString()) ;
+			}
+			catch (Exception e)
+			{
+				// not a Swift error (e.g., a local file cannot be read)
+				if (circuitBreaker != null)
+					circuitBreaker.onCancel();
+				throw e ;
+			}
+			
+			long delay = getDelay (attempt++, retryAfter) ;
+			try
+			{
+				Thread.sleep(delay);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new CommandException (String.format("Interrupted while waiting to retry %s", description)) ;
+			}
+		}
+	}
+	
+	
+	private void giveUpIfOverBudget (CommandException e, ErrorClass errorClass, Map<ErrorClass, Integer> failures)
+	{
+		Integer n = failures.get(errorClass) ;
+		int count = (n == null) ? (1) : (n + 1) ;
+		failures.put(errorClass, count) ;
+		if (count > getBudget (errorClass))
+			throw e ;
+	}
+	
+	
+	/**
+	 * returns the delay (in milliseconds) before the next attempt
+	 * @param attempt the number of retries so far
+	 * @param retryAfter the delay requested by the server, or -1
+	 * @return
+	 */
+	long getDelay (int attempt, long retryAfter)
+	{
+		long bound = (attempt >= 30) ? (maxDelay) : (Math.min(maxDelay, baseDelay << attempt)) ;
+		long jitter = (long) (random.nextDouble() * bound) ;
+		if (retryAfter < 0)
+			return jitter ;
+		// a little jitter, so that the throttled clients are not all back at once
+		return Math.min(maxRetryAfter, retryAfter) + jitter / 4 ;
+	}
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.javaswift.joss.client.core.AbstractStoredObject;
+import org.javaswift.joss.exception.CommandException;
+import org.javaswift.joss.exception.CommandExceptionError;
+import org.javaswift.joss.model.Account;
+import org.javaswift.joss.model.StoredObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+
+/*
+ * Deletes objects by batches, using the bulk-delete middleware of Swift (POST ?bulk-delete, with 
+ * one URL-encoded "/container/object" path per line). Joss does not support it, hence the requests 
+ * are sent directly through the HTTP client of the account.
+ * 
+ * Whether the cluster supports bulk deletes, and how many objects a request may delete, is read 
+ * from its capabilities (GET /info), once.
+ */
+class BulkDeleter {
+
+	final Logger logger = LoggerFactory.getLogger(BulkDeleter.class);
+	
+	public static final int DEFAULT_MAX_DELETES_PER_REQUEST = 10000 ;
+	
+	private static final JsonParser jsonParser = new JsonParser () ;
+	
+	private final Account account ;
+	private final HttpClient httpClient ;
+	
+	private Integer maxDeletesPerRequest = null ;
+	
+	
+	BulkDeleter (Account account, HttpClient httpClient)
+	{
+		super () ;
+		this.account = account ;
+		this.httpClient = httpClient ;
+	}
+	
+	
+	/**
+	 * @return the maximum number of objects per request, or 0 if the cluster does not support bulk deletes
+	 */
+	public synchronized int getMaxDeletesPerRequest ()
+	{
+		if (maxDeletesPerRequest == null)
+			maxDeletesPerRequest = detectMaxDeletesPerRequest () ;
+		return maxDeletesPerRequest ;
+	}
+	
+	
+	private int detectMaxDeletesPerRequest ()
+	{
+		try
+		{
+			HttpGet get = new HttpGet (getInfoUrl (account.getPublicURL())) ;
+			get.setHeader("Accept", "application/json");
+			HttpResponse response = httpClient.execute(get) ;
+			String body = readBody (response) ;
+			if (response.getStatusLine().getStatusCode() != 200)
+			{
+				logger.info("The capabilities of the cluster are not available (status {}), the objects are deleted one by one", response.getStatusLine().getStatusCode()) ;
+				return 0 ;
+			}
+			int ret = parseMaxDeletesPerRequest (body) ;
+			logger.info((ret > 0) ? ("Bulk delete supported, up to {} objects per request") : ("Bulk delete not supported ({})"), ret) ;
+			return ret ;
+		}
+		catch (IOException | RuntimeException e)
+		{
+			logger.info("Failed to get the capabilities of the cluster, the objects are deleted one by one", e) ;
+			return 0 ;
+		}
+	}
+	
+	
+	/**
+	 * the capabilities are published at the root of the cluster, e.g., http://host:8080/info for the
+	 * storage URL http://host:8080/v1/AUTH_account
+	 */
+	static String getInfoUrl (String storageUrl)
+	{
+		try
+		{
+			URI uri = new URI (storageUrl) ;
+			String path = (uri.getPath() == null) ? ("") : (uri.getPath()) ;
+			int index = path.indexOf("/v1") ;
+			String root = (index < 0) ? ("") : (path.substring(0, index)) ;
+			return new URI (uri.getScheme(), uri.getAuthority(), root + "/info", null, null).toString() ;
+		}
+		catch (URISyntaxException e)
+		{
+			throw new IllegalArgumentException ("Invalid storage URL: " + storageUrl, e) ;
+		}
+	}
+	
+	
+	static int parseMaxDeletesPerRequest (String info)
+	{
+		JsonElement root = jsonParser.parse(info) ;
+		if (root == null || !root.isJsonObject())
+			return 0 ;
+		JsonElement bulkDelete = root.getAsJsonObject().get("bulk_delete") ;
+		if (bulkDelete == null || !bulkDelete.isJsonObject())
+			return 0 ;
+		JsonElement max = bulkDelete.getAsJsonObject().get("max_deletes_per_request") ;
+		if (max == null || !max.isJsonPrimitive())
+			return DEFAULT_MAX_DELETES_PER_REQUEST ;
+		return Math.max(0, max.getAsInt()) ;
+	}
+	
+	
+	/**
+	 * Deletes the given objects in a single request (their number must not exceed the maximum). 
+	 * The objects that do not exist are deemed deleted.
+	 * @param objects
+	 * @return the objects that could not be deleted
+	 * @throws CommandException if the request failed as a whole
+	 */
+	public List<StoredObject> delete (Collection<StoredObject> objects)
+	{
+		List<StoredObject> failed = new ArrayList<StoredObject> () ;
+		if (objects == null || objects.isEmpty())
+			return failed ;
+		
+		Map<String, StoredObject> objectsByPath = new LinkedHashMap<String, StoredObject> () ;
+		StringBuilder sb = new StringBuilder () ;
+		for (StoredObject obj : objects)
+		{
+			String path = getObjectPath (obj) ;
+			objectsByPath.put(path, obj) ;
+			sb.append(encodePath (path)) ;
+			sb.append("\n") ;
+		}
+		
+		HttpPost post = new HttpPost (account.getPublicURL() + "?bulk-delete") ;
+		post.setEntity(new StringEntity (sb.toString(), ContentType.create("text/plain", "UTF-8")));
+		String body = execute (post) ;
+		
+		JsonObject result = jsonParser.parse(body).getAsJsonObject() ;
+		int status = parseStatus (result.get("Response Status")) ;
+		int errorCount = 0 ;
+		JsonElement errors = result.get("Errors") ;
+		if (errors != null && errors.isJsonArray())
+		{
+			for (JsonElement error : errors.getAsJsonArray())
+			{
+				JsonArray pair = error.getAsJsonArray() ;
+				if (pair.size() == 0)
+					continue ;
+				++errorCount ;
+				StoredObject obj = objectsByPath.get(decodePath (pair.get(0).getAsString())) ;
+				if (obj == null)
+					logger.error("Bulk delete: unexpected path in the errors ({})", pair.get(0).getAsString()) ;
+				else
+					failed.add(obj) ;
+			}
+		}
+		if (status >= 400 && errorCount == 0)
+			// the request was rejected as a whole (e.g., 503, it may be retried)
+			throw new CommandException (status, (status == 401) ? (CommandExceptionError.UNAUTHORIZED) : (CommandExceptionError.UNKNOWN)) ;
+		if (errorCount > failed.size())
+			// we cannot tell which objects were not deleted
+			throw new CommandException (String.format("Bulk delete: %d object(s) out of %d could not be deleted (%d)", errorCount, objects.size(), status)) ;
+		if (!failed.isEmpty())
+			logger.info("Bulk delete: {} object(s) out of {} could not be deleted ({})", failed.size(), objects.size(), status) ;
+		return failed ;
+	}
+	
+	
+	/**
+	 * @return the decoded path of the given object, i.e., "/container/object"
+	 */
+	static String getObjectPath (StoredObject obj)
+	{
+		if (obj instanceof AbstractStoredObject)
+			return "/" + ((AbstractStoredObject) obj).getContainer().getName() + "/" + obj.getName() ;
+		// the path given by joss is URL-encoded, including the slashes of the object name
+		return decodePath (obj.getPath()) ;
+	}
+	
+	
+	private String execute (HttpRequestBase request)
+	{
+		try
+		{
+			request.setHeader("X-Auth-Token", account.getAccess().getToken());
+			request.setHeader("Accept", "application/json");
+			HttpResponse response = httpClient.execute(request) ;
+			String body = readBody (response) ;
+			int status = response.getStatusLine().getStatusCode() ;
+			if (status == 401)
+			{
+				// the token has expired, the retry will use a new one
+				account.authenticate() ;
+				throw new CommandException (status, CommandExceptionError.UNAUTHORIZED) ;
+			}
+			if (status < 200 || status >= 300)
+				throw new CommandException (status, CommandExceptionError.UNKNOWN) ;
+			return body ;
+		}
+		catch (IOException e)
+		{
+			throw new CommandException ("Bulk delete request failed", e) ;
+		}
+		finally
+		{
+			request.releaseConnection();
+		}
+	}
+	
+	
+	private static String readBody (HttpResponse response) throws IOException
+	{
+		HttpEntity entity = response.getEntity() ;
+		return (entity == null) ? ("") : (EntityUtils.toString(entity, "UTF-8")) ;
+	}
+	
+	
+	private static int parseStatus (JsonElement status)
+	{
+		// e.g., "200 OK", "400 Bad Request"
+		if (status == null || !status.isJsonPrimitive())
+			return 0 ;
+		String str = status.getAsString().trim() ;
+		int index = str.indexOf(' ') ;
+		try
+		{
+			return Integer.parseInt((index < 0) ? (str) : (str.substring(0, index))) ;
+		}
+		catch (NumberFormatException e)
+		{
+			return 0 ;
+		}
+	}
+	
+	
+	/**
+	 * URL-encodes each segment of the given path ("/container/object"), the slashes are kept as is
+	 */
+	static String encodePath (String path)
+	{
+		try
+		{
+			return URLEncoder.encode(path, "UTF-8").replace("+", "%20").replace("%2F", "/") ;
+		}
+		catch (UnsupportedEncodingException e)
+		{
+			throw new AssertionError (e) ;
+		}
+	}
+	
+	
+	private static String decodePath (String path)
+	{
+		try
+		{
+			String decoded = URLDecoder.decode(path, "UTF-8") ;
+			return (decoded.startsWith("/")) ? (decoded) : ("/" + decoded) ;
+		}
+		catch (UnsupportedEncodingException e)
+		{
+			throw new AssertionError (e) ;
+		}
+	}
+}
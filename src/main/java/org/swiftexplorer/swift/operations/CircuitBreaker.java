@@ -0,0 +1,167 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import java.util.concurrent.TimeUnit;
+
+import org.javaswift.joss.exception.CommandException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/*
+ * Stops sending commands to a server that keeps failing. After a given number of consecutive 
+ * failures (connection errors, 5xx, 429), the circuit opens: the commands are rejected without 
+ * being sent until the open duration has elapsed. Then a single command is let through (half-open);
+ * its success closes the circuit, and its failure opens it again, for twice as long (up to a maximum).
+ */
+class CircuitBreaker {
+
+	final private Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+	
+	
+	/*
+	 * Thrown instead of sending a command while the circuit is open.
+	 */
+	public static class CircuitOpenException extends CommandException
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final long remainingMillis ;
+
+		public CircuitOpenException (long remainingMillis) 
+		{
+			super (String.format("The server keeps failing, no command is sent for %d ms", remainingMillis));
+			this.remainingMillis = remainingMillis ;
+		}
+		
+		public long getRemainingMillis ()
+		{
+			return remainingMillis ;
+		}
+	}
+	
+	
+	private enum State { CLOSED, OPEN, HALF_OPEN } ;
+	
+	private final int failureThreshold ;
+	private final long minOpenMillis ;
+	private final long maxOpenMillis ;
+	
+	private State state = State.CLOSED ;
+	private int consecutiveFailures = 0 ;
+	private long openMillis ;
+	private long openUntil = 0 ;
+	private boolean probing = false ;
+	
+	
+	CircuitBreaker (int failureThreshold, long openDuration, long maxOpenDuration, TimeUnit unit)
+	{
+		super () ;
+		this.failureThreshold = Math.max(1, failureThreshold) ;
+		this.minOpenMillis = unit.toMillis(openDuration) ;
+		this.maxOpenMillis = Math.max(minOpenMillis, unit.toMillis(maxOpenDuration)) ;
+		this.openMillis = minOpenMillis ;
+	}
+	
+	
+	/**
+	 * must be called before sending a command
+	 * @throws CircuitOpenException if the command must not be sent
+	 */
+	public synchronized void acquire () 
+	{
+		long now = currentTimeMillis () ;
+		switch (state)
+		{
+		case CLOSED:
+			return ;
+		case OPEN:
+			if (now < openUntil)
+				throw new CircuitOpenException (openUntil - now) ;
+			logger.info("Circuit half-open, probing the server") ;
+			state = State.HALF_OPEN ;
+			probing = true ;
+			return ;
+		case HALF_OPEN:
+			if (probing)
+				// the probe is not over yet, we check again in a while
+				throw new CircuitOpenException (Math.min(1000, minOpenMillis)) ;
+			probing = true ;
+			return ;
+		}
+	}
+	
+	
+	/**
+	 * must be called when a command has succeeded, or has failed for a reason that does not 
+	 * involve the health of the server (e.g., 404)
+	 */
+	public synchronized void onSuccess ()
+	{
+		if (state != State.CLOSED)
+			logger.info("Circuit closed") ;
+		state = State.CLOSED ;
+		consecutiveFailures = 0 ;
+		openMillis = minOpenMillis ;
+		probing = false ;
+	}
+	
+	
+	/**
+	 * must be called when a command has failed because of the server or the network
+	 */
+	public synchronized void onFailure ()
+	{
+		if (state == State.HALF_OPEN)
+		{
+			openMillis = Math.min(maxOpenMillis, 2 * openMillis) ;
+			open () ;
+			return ;
+		}
+		if (++consecutiveFailures >= failureThreshold && state == State.CLOSED)
+			open () ;
+	}
+	
+	
+	/**
+	 * must be called when a command has been interrupted before its outcome was known
+	 */
+	public synchronized void onCancel ()
+	{
+		probing = false ;
+	}
+	
+	
+	private void open ()
+	{
+		logger.info("Circuit open for {} ms after {} consecutive failure(s)", openMillis, consecutiveFailures) ;
+		state = State.OPEN ;
+		probing = false ;
+		openUntil = currentTimeMillis () + openMillis ;
+	}
+	
+	
+	public synchronized boolean isOpen ()
+	{
+		return state != State.CLOSED ;
+	}
+	
+	
+	protected long currentTimeMillis ()
+	{
+		return System.currentTimeMillis() ;
+	}
+}
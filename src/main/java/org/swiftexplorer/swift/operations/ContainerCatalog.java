@@ -0,0 +1,580 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.javaswift.joss.client.core.AbstractStoredObject;
+import org.javaswift.joss.model.Container;
+import org.javaswift.joss.model.StoredObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.hash.Hashing;
+
+
+/*
+ * Keeps on disk the listings of the containers (name, size, etag, content type and last modification 
+ * date of each object), so that a container can be displayed at once, without being listed again. 
+ * 
+ * There is one catalog per container, in a sub-directory per account. A catalog is a snapshot, written
+ * when the container is listed, followed by a log of the changes made since (objects uploaded, deleted, 
+ * ...), which are appended to it as they happen. The log is merged into a new snapshot when it becomes 
+ * large compared with the snapshot. A log only applies to the snapshot it was started with (they share 
+ * a generation number).
+ * 
+ * A catalog whose object count and bytes used are those of the container is deemed up to date (Swift 
+ * does not give any other key of the content of a container), otherwise only the changes are listed
+ * (see ContainerChangesLister).
+ */
+public class ContainerCatalog {
+
+	final static Logger logger = LoggerFactory.getLogger(ContainerCatalog.class);
+	
+	private static final int magic = 0x53454343 ;
+	private static final int version = 2 ;
+	private static final String extension = ".catalog" ;
+	private static final String logExtension = ".log" ;
+	private static final int compactionThreshold = 1024 ;
+	
+	private static final int put = 'P' ;
+	private static final int putIfAbsent = 'A' ;
+	private static final int remove = 'R' ;
+	
+	private static final Random random = new Random () ;
+	
+	private static volatile ContainerCatalog defaultCatalog = new ContainerCatalog () ;
+	
+	
+	public static class Entry
+	{
+		private final String name ;
+		private final long size ;
+		private final String etag ;
+		private final String contentType ;
+		private final long lastModified ;
+		
+		Entry (String name, long size, String etag, String contentType, long lastModified)
+		{
+			super () ;
+			this.name = name ;
+			this.size = size ;
+			this.etag = etag ;
+			this.contentType = contentType ;
+			this.lastModified = lastModified ;
+		}
+		
+		static Entry fromStoredObject (StoredObject obj)
+		{
+			// the metadata of an object just uploaded are not known, reading them would require a request
+			if (obj instanceof AbstractStoredObject && ((AbstractStoredObject) obj).isStale(true))
+				return new Entry (obj.getName(), -1, null, null, -1) ;
+			Date date = obj.getLastModifiedAsDate() ;
+			return new Entry (obj.getName(), obj.getContentLength(), obj.getEtag(), obj.getContentType(), (date == null) ? (-1) : (date.getTime())) ;
+		}
+		
+		public String getName () 
+		{
+			return name ;
+		}
+		
+		public long getSize () 
+		{
+			return size ;
+		}
+		
+		public String getEtag () 
+		{
+			return etag ;
+		}
+		
+		/**
+		 * Gets the object of the given container corresponding to this entry. The object 
+		 * information is set from the entry, hence no request is sent to the server.
+		 * @param container
+		 * @return the stored object
+		 */
+		public StoredObject toStoredObject (Container container)
+		{
+			StoredObject obj = container.getObject(name) ;
+			if (!hasMetadata ())
+				return obj ;
+			obj.setContentLength(size);
+			obj.setEtag(etag);
+			obj.setContentTypeWithoutSaving(contentType);
+			obj.setLastModified(new Date (lastModified));
+			if (obj instanceof AbstractStoredObject)
+				((AbstractStoredObject) obj).metadataSetFromHeaders();
+			return obj ;
+		}
+		
+		/**
+		 * @return false if the object was cataloged without all the metadata of a listing (e.g., after
+		 * an upload, only its size and etag are known)
+		 */
+		public boolean hasMetadata ()
+		{
+			return size >= 0 && lastModified >= 0 ;
+		}
+		
+		/**
+		 * @param other
+		 * @return true if both entries describe the same content (the metadata unknown to 
+		 * either entry are not compared)
+		 */
+		boolean isSame (Entry other)
+		{
+			return name.equals(other.name) && size == other.size && Objects.equals(etag, other.etag) 
+					&& (lastModified < 0 || other.lastModified < 0 || lastModified == other.lastModified) 
+					&& (contentType == null || other.contentType == null || contentType.equals(other.contentType)) ;
+		}
+	}
+	
+	
+	public static class Snapshot
+	{
+		private final int count ;
+		private final long bytesUsed ;
+		private final List<Entry> entries ;
+		
+		Snapshot (List<Entry> entries)
+		{
+			super () ;
+			long bytes = 0 ;
+			for (Entry entry : entries)
+				bytes += Math.max(0, entry.size) ;
+			this.count = entries.size() ;
+			this.bytesUsed = bytes ;
+			this.entries = Collections.unmodifiableList(entries) ;
+		}
+		
+		/**
+		 * @return the number of cataloged objects
+		 */
+		public int getCount ()
+		{
+			return count ;
+		}
+		
+		/**
+		 * @return the sum of the sizes of the cataloged objects (the unknown sizes are not counted)
+		 */
+		public long getBytesUsed ()
+		{
+			return bytesUsed ;
+		}
+		
+		/**
+		 * @return the entries, in name order
+		 */
+		public List<Entry> getEntries ()
+		{
+			return entries ;
+		}
+		
+		/**
+		 * @param container
+		 * @return the objects of the given container corresponding to the entries (see {@link Entry#toStoredObject(Container)})
+		 */
+		public List<StoredObject> toStoredObjects (Container container)
+		{
+			List<StoredObject> ret = new ArrayList<StoredObject> (entries.size()) ;
+			for (Entry entry : entries)
+				ret.add(entry.toStoredObject(container)) ;
+			return ret ;
+		}
+		
+		/**
+		 * @param container
+		 * @return true if the object count and the bytes used of the given container are those of the catalog
+		 */
+		public boolean matches (Container container)
+		{
+			return count == container.getCount() && bytesUsed == container.getBytesUsed() ;
+		}
+	}
+	
+	
+	private final File directory ;
+	
+	
+	private ContainerCatalog ()
+	{
+		super () ;
+		this.directory = null ;
+	}
+	
+	
+	/**
+	 * Creates a catalog stored in the given directory.
+	 * @param directory
+	 */
+	public ContainerCatalog (File directory)
+	{
+		super () ;
+		if (directory == null)
+			throw new AssertionError ("directory cannot be null") ;
+		this.directory = directory ;
+	}
+	
+	
+	/**
+	 * @return the catalog to be used by default (it does not keep anything, unless another default catalog has been set)
+	 */
+	public static ContainerCatalog getDefault ()
+	{
+		return defaultCatalog ;
+	}
+	
+	
+	public static void setDefault (ContainerCatalog catalog)
+	{
+		defaultCatalog = (catalog == null) ? (new ContainerCatalog ()) : (catalog) ;
+	}
+	
+	
+	public boolean isEnabled ()
+	{
+		return directory != null ;
+	}
+	
+	
+	private static String hash (String str)
+	{
+		return Hashing.md5().hashString((str == null) ? ("") : (str), StandardCharsets.UTF_8).toString() ;
+	}
+	
+	
+	private File getFile (String accountKey, String containerName)
+	{
+		return new File (new File (directory, hash (accountKey)), hash (containerName) + extension) ;
+	}
+	
+	
+	private static File getLogFile (File file)
+	{
+		return new File (file.getPath() + logExtension) ;
+	}
+	
+	
+	/**
+	 * Loads the catalog of the given container, i.e., its last snapshot along with the changes logged since.
+	 * @param accountKey identifies the account (e.g., its storage url)
+	 * @param containerName
+	 * @return the catalog, or null if there is none (or if it cannot be read)
+	 */
+	public synchronized Snapshot load (String accountKey, String containerName)
+	{
+		if (!isEnabled ())
+			return null ;
+		File file = getFile (accountKey, containerName) ;
+		if (!file.exists())
+			return null ;
+		long generation ;
+		List<Entry> entries ;
+		try (DataInputStream in = new DataInputStream (new BufferedInputStream (new GZIPInputStream (new FileInputStream (file)))))
+		{
+			if (in.readInt() != magic || in.readInt() != version)
+			{
+				logger.info("Unsupported container catalog (ignored): {}", file.getPath());
+				return null ;
+			}
+			String name = in.readUTF() ;
+			if (!name.equals(containerName))
+				return null ;
+			generation = in.readLong() ;
+			int numberOfEntries = in.readInt() ;
+			entries = new ArrayList<Entry> (numberOfEntries) ;
+			for (int i = 0 ; i < numberOfEntries ; ++i)
+				entries.add(readEntry (in)) ;
+		}
+		catch (EOFException e)
+		{
+			logger.info("Truncated container catalog (ignored): {}", file.getPath());
+			return null ;
+		}
+		catch (IOException e) 
+		{
+			logger.error("Error occurred while loading the container catalog", e);
+			return null ;
+		}
+		
+		File logFile = getLogFile (file) ;
+		if (logFile.exists())
+			entries = applyLog (logFile, generation, accountKey, containerName, entries) ;
+		return new Snapshot (entries) ;
+	}
+	
+	
+	private List<Entry> applyLog (File logFile, long generation, String accountKey, String containerName, List<Entry> entries)
+	{
+		TreeMap<String, Entry> map = new TreeMap<String, Entry> () ;
+		for (Entry entry : entries)
+			map.put(entry.name, entry) ;
+		int numberOfRecords = 0 ;
+		boolean complete = false ;
+		try (DataInputStream in = new DataInputStream (new BufferedInputStream (new FileInputStream (logFile))))
+		{
+			if (in.readInt() != magic || in.readInt() != version || in.readLong() != generation)
+			{
+				// the log of a previous snapshot
+				logFile.delete() ;
+				return entries ;
+			}
+			int op ;
+			while ((op = in.read()) != -1)
+			{
+				if (op == remove)
+					map.remove(in.readUTF()) ;
+				else if (op == put || op == putIfAbsent)
+				{
+					Entry entry = readEntry (in) ;
+					if (op == put || !map.containsKey(entry.name))
+						map.put(entry.name, entry) ;
+				}
+				else
+					throw new IOException ("Invalid record in the container catalog log") ;
+				++numberOfRecords ;
+			}
+			complete = true ;
+		}
+		catch (EOFException e)
+		{
+			// the application may have been killed while appending a record
+			logger.info("Truncated container catalog log: {}", logFile.getPath());
+		}
+		catch (IOException e) 
+		{
+			logger.error("Error occurred while loading the container catalog log", e);
+		}
+		List<Entry> ret = new ArrayList<Entry> (map.values()) ;
+		// an incomplete log cannot be appended to anymore
+		if (!complete || numberOfRecords > ret.size() / 2 + compactionThreshold)
+			write (accountKey, containerName, ret) ;
+		return ret ;
+	}
+	
+	
+	/**
+	 * Saves the catalog of the given container. The file is replaced atomically.
+	 * @param accountKey identifies the account (e.g., its storage url)
+	 * @param container the container
+	 * @param objects the objects of the container, in name order
+	 */
+	public synchronized void save (String accountKey, Container container, Collection<StoredObject> objects)
+	{
+		if (!isEnabled ())
+			return ;
+		List<Entry> entries = new ArrayList<Entry> (objects.size()) ;
+		for (StoredObject obj : objects)
+			entries.add(Entry.fromStoredObject(obj)) ;
+		write (accountKey, container.getName(), entries) ;
+	}
+	
+	
+	/**
+	 * Logs the objects added or removed since the catalog of the given container (if any) was saved, 
+	 * so that it does not have to be listed again. The catalog is not read.
+	 * @param accountKey identifies the account (e.g., its storage url)
+	 * @param container the container
+	 * @param added the objects uploaded (or overwritten), may be null. The objects whose metadata are 
+	 * not known do not replace the entries already in the catalog (see {@link #setUploaded(String, StoredObject, long, String)})
+	 * @param removed the objects deleted, may be null
+	 */
+	public synchronized void update (String accountKey, Container container, Collection<StoredObject> added, Collection<StoredObject> removed)
+	{
+		if (!isEnabled ())
+			return ;
+		try (DataOutputStream out = openLog (accountKey, container.getName()))
+		{
+			if (out == null)
+				return ;
+			if (removed != null)
+			{
+				for (StoredObject obj : removed)
+				{
+					out.writeByte(remove) ;
+					out.writeUTF(obj.getName()) ;
+				}
+			}
+			if (added != null)
+			{
+				for (StoredObject obj : added)
+				{
+					Entry entry = Entry.fromStoredObject(obj) ;
+					out.writeByte((entry.size < 0) ? (putIfAbsent) : (put)) ;
+					writeEntry (out, entry) ;
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			logger.error("Error occurred while updating the container catalog", e);
+		}
+	}
+	
+	
+	/**
+	 * Logs an object just uploaded, with the size and the md5 value of the uploaded content.
+	 * @param accountKey identifies the account (e.g., its storage url)
+	 * @param obj the object uploaded
+	 * @param size
+	 * @param md5
+	 */
+	public synchronized void setUploaded (String accountKey, StoredObject obj, long size, String md5)
+	{
+		if (!isEnabled () || !(obj instanceof AbstractStoredObject))
+			return ;
+		try (DataOutputStream out = openLog (accountKey, ((AbstractStoredObject) obj).getContainer().getName()))
+		{
+			if (out == null)
+				return ;
+			out.writeByte(put) ;
+			writeEntry (out, new Entry (obj.getName(), size, md5, null, -1)) ;
+		}
+		catch (IOException e)
+		{
+			logger.error("Error occurred while updating the container catalog", e);
+		}
+	}
+	
+	
+	/*
+	 * Opens the log of the given catalog for appending, or returns null if there is no catalog.
+	 */
+	private DataOutputStream openLog (String accountKey, String containerName) throws IOException
+	{
+		File file = getFile (accountKey, containerName) ;
+		if (!file.exists())
+			return null ;
+		File logFile = getLogFile (file) ;
+		long generation = 0 ;
+		boolean isNew = !logFile.exists() ;
+		if (isNew)
+		{
+			try (DataInputStream in = new DataInputStream (new BufferedInputStream (new GZIPInputStream (new FileInputStream (file)))))
+			{
+				if (in.readInt() != magic || in.readInt() != version)
+					return null ;
+				in.readUTF() ;
+				generation = in.readLong() ;
+			}
+		}
+		DataOutputStream out = new DataOutputStream (new BufferedOutputStream (new FileOutputStream (logFile, true))) ;
+		if (isNew)
+		{
+			out.writeInt(magic);
+			out.writeInt(version);
+			out.writeLong(generation);
+		}
+		return out ;
+	}
+	
+	
+	private void write (String accountKey, String containerName, List<Entry> entries)
+	{
+		File file = getFile (accountKey, containerName) ;
+		File tmp = new File (file.getPath() + ".tmp") ;
+		try
+		{
+			file.getParentFile().mkdirs() ;
+			try (DataOutputStream out = new DataOutputStream (new BufferedOutputStream (new GZIPOutputStream (new FileOutputStream (tmp)))))
+			{
+				out.writeInt(magic);
+				out.writeInt(version);
+				out.writeUTF(containerName);
+				out.writeLong(random.nextLong());
+				out.writeInt(entries.size());
+				for (Entry entry : entries)
+					writeEntry (out, entry) ;
+			}
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE) ;
+			// the changes logged so far are part of the new snapshot (the log would be ignored anyway, its generation differs)
+			getLogFile (file).delete() ;
+		}
+		catch (IOException e)
+		{
+			logger.error("Error occurred while saving the container catalog", e);
+			tmp.delete() ;
+		}
+	}
+	
+	
+	/**
+	 * Removes the catalog of the given container.
+	 * @param accountKey
+	 * @param containerName
+	 */
+	public synchronized void remove (String accountKey, String containerName)
+	{
+		if (!isEnabled ())
+			return ;
+		File file = getFile (accountKey, containerName) ;
+		if (file.exists() && !file.delete())
+			logger.info("Could not delete the container catalog {}", file.getPath());
+		getLogFile (file).delete() ;
+	}
+	
+	
+	private static void writeEntry (DataOutputStream out, Entry entry) throws IOException
+	{
+		out.writeUTF(entry.name);
+		out.writeLong(entry.size);
+		writeNullableString (out, entry.etag) ;
+		writeNullableString (out, entry.contentType) ;
+		out.writeLong(entry.lastModified);
+	}
+	
+	
+	private static Entry readEntry (DataInputStream in) throws IOException
+	{
+		return new Entry (in.readUTF(), in.readLong(), readNullableString (in), readNullableString (in), in.readLong()) ;
+	}
+	
+	
+	private static void writeNullableString (DataOutputStream out, String str) throws IOException
+	{
+		out.writeBoolean(str != null);
+		if (str != null)
+			out.writeUTF(str);
+	}
+	
+	
+	private static String readNullableString (DataInputStream in) throws IOException
+	{
+		return (in.readBoolean()) ? (in.readUTF()) : (null) ;
+	}
+}
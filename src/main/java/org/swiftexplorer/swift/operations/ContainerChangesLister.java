@@ -0,0 +1,250 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.javaswift.joss.exception.CommandException;
+import org.javaswift.joss.model.Container;
+import org.javaswift.joss.model.StoredObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.swiftexplorer.swift.operations.ContainerCatalog.Entry;
+import org.swiftexplorer.swift.operations.SwiftOperations.StopRequester;
+import org.swiftexplorer.util.Pair;
+
+
+/*
+ * Lists the changes of a container since its catalog was saved. The catalog entries are split into
+ * ranges of names (one page of entries per range), which are listed concurrently and compared with 
+ * the entries. The ranges still to be listed are skipped as soon as the changes found account for the 
+ * object count and the bytes used of the container (which is the best guess one can make, as Swift 
+ * does not give any other key of the content of a container).
+ */
+class ContainerChangesLister {
+
+	final Logger logger = LoggerFactory.getLogger(ContainerChangesLister.class);
+	
+	
+	public static class Changes
+	{
+		private final List<StoredObject> added = new ArrayList<StoredObject> () ;
+		private final List<StoredObject> changed = new ArrayList<StoredObject> () ;
+		private final List<StoredObject> removed = new ArrayList<StoredObject> () ;
+		
+		/**
+		 * @return the objects which are not in the catalog
+		 */
+		public List<StoredObject> getAdded ()
+		{
+			return added ;
+		}
+		
+		/**
+		 * @return the objects whose catalog entry is out of date (or incomplete)
+		 */
+		public List<StoredObject> getChanged ()
+		{
+			return changed ;
+		}
+		
+		/**
+		 * @return the cataloged objects which are not in the container anymore
+		 */
+		public List<StoredObject> getRemoved ()
+		{
+			return removed ;
+		}
+		
+		public boolean isEmpty ()
+		{
+			return added.isEmpty() && changed.isEmpty() && removed.isEmpty() ;
+		}
+	}
+	
+	
+	private final int numberOfWorkers ;
+	private final int pageSize ;
+	
+	
+	ContainerChangesLister (int numberOfWorkers, int pageSize)
+	{
+		super () ;
+		this.numberOfWorkers = Math.max(1, numberOfWorkers) ;
+		this.pageSize = pageSize ;
+	}
+	
+	
+	/**
+	 * Lists the changes of the given container since the given catalog was saved. The container 
+	 * object count and bytes used must be up to date.
+	 * @param container
+	 * @param snapshot the catalog of the container
+	 * @param progInfo if not null, its total progress is updated as the ranges are listed
+	 * @return the changes
+	 */
+	public Changes list (final Container container, ContainerCatalog.Snapshot snapshot, final ProgressInformation progInfo)
+	{
+		List<Entry> entries = snapshot.getEntries() ;
+		final int numberOfRanges = entries.size() / pageSize + 1 ;
+		final Changes changes = new Changes () ;
+		final long [] counters = new long [] {snapshot.getCount(), snapshot.getBytesUsed()} ;
+		final AtomicInteger listedRanges = new AtomicInteger () ;
+		final StopRequester explained = new StopRequester () {
+			@Override
+			public boolean isStopRequested() {
+				synchronized (changes) 
+				{
+					return counters[0] == container.getCount() && counters[1] == container.getBytesUsed() ;
+				}
+			}} ;
+		
+		TransferWorkerPool pool = new TransferWorkerPool (Math.min(numberOfWorkers, numberOfRanges), explained) ;
+		try
+		{
+			try
+			{
+				for (int i = 0 ; i < numberOfRanges ; ++i)
+				{
+					if (explained.isStopRequested())
+						break ;
+					
+					final String marker = (i == 0) ? (null) : (entries.get(i * pageSize - 1).getName()) ;
+					final String last = (i == numberOfRanges - 1) ? (null) : (entries.get((i + 1) * pageSize - 1).getName()) ;
+					final List<Entry> rangeEntries = entries.subList(i * pageSize, Math.min(entries.size(), (i + 1) * pageSize)) ;
+					pool.submit(String.format("listing after '%s'", (marker == null) ? ("") : (marker)), new TransferWorkerPool.Transfer () {
+						@Override
+						public void execute() throws IOException {
+							List<StoredObject> objects = listRange (container, marker, last) ;
+							synchronized (changes)
+							{
+								compare (container, rangeEntries, objects, changes, counters) ;
+							}
+							updateProgress (progInfo, listedRanges.incrementAndGet(), numberOfRanges) ;
+						}}) ;
+				}
+			}
+			finally
+			{
+				pool.awaitCompletion();
+			}
+		}
+		catch (IOException e)
+		{
+			throw new CommandException (e.getMessage()) ;
+		}
+		
+		List<Pair<String, Exception> > failures = pool.getFailures() ;
+		if (!failures.isEmpty())
+		{
+			Exception e = failures.get(0).getSecond() ;
+			if (e instanceof RuntimeException)
+				throw (RuntimeException) e ;
+			throw new CommandException (e.getMessage()) ;
+		}
+		Collections.sort(changes.added) ;
+		Collections.sort(changes.changed) ;
+		Collections.sort(changes.removed) ;
+		return changes ;
+	}
+	
+	
+	/*
+	 * Lists the objects whose name is after the marker, up to the given last name (included, or 
+	 * up to the end of the container if null)
+	 */
+	private List<StoredObject> listRange (Container container, String marker, String last)
+	{
+		List<StoredObject> ret = new ArrayList<StoredObject> () ;
+		Collection<StoredObject> page = listPage (container, marker) ;
+		while (!page.isEmpty())
+		{
+			String lastListed = null ;
+			for (StoredObject obj : page)
+			{
+				if (last != null && obj.getName().compareTo(last) > 0)
+					return ret ;
+				ret.add(obj) ;
+				lastListed = obj.getName() ;
+			}
+			page = listPage (container, lastListed) ;
+		}
+		return ret ;
+	}
+	
+	
+	/*
+	 * Merges the cataloged entries of a range with the objects listed in this range (both in name order)
+	 */
+	private static void compare (Container container, List<Entry> entries, List<StoredObject> objects, Changes changes, long [] counters)
+	{
+		int i = 0 ;
+		int j = 0 ;
+		while (i < entries.size() || j < objects.size())
+		{
+			Entry entry = (i < entries.size()) ? (entries.get(i)) : (null) ;
+			StoredObject obj = (j < objects.size()) ? (objects.get(j)) : (null) ;
+			int cmp = (entry == null) ? (1) : ((obj == null) ? (-1) : (entry.getName().compareTo(obj.getName()))) ;
+			if (cmp < 0)
+			{
+				changes.removed.add(entry.toStoredObject(container)) ;
+				counters[0] -= 1 ;
+				counters[1] -= Math.max(0, entry.getSize()) ;
+				++i ;
+			}
+			else if (cmp > 0)
+			{
+				changes.added.add(obj) ;
+				counters[0] += 1 ;
+				counters[1] += obj.getContentLength() ;
+				++j ;
+			}
+			else
+			{
+				if (!entry.hasMetadata() || !entry.isSame(Entry.fromStoredObject(obj)))
+				{
+					changes.changed.add(obj) ;
+					counters[1] += obj.getContentLength() - Math.max(0, entry.getSize()) ;
+				}
+				++i ;
+				++j ;
+			}
+		}
+	}
+	
+	
+	private Collection<StoredObject> listPage (final Container container, final String marker)
+	{
+		return RetryPolicy.getDefault().execute(String.format("Listing after '%s'", (marker == null) ? ("") : (marker)), new RetryPolicy.Command<Collection<StoredObject>, RuntimeException> () {
+			@Override
+			public Collection<StoredObject> call() {
+				return container.list("", marker, pageSize) ;
+			}}) ;
+	}
+	
+	
+	private static void updateProgress (ProgressInformation progInfo, long count, long total)
+	{
+		if (progInfo == null || total <= 0)
+			return ;
+		progInfo.setTotalProgress(Math.min(1.0, count / (double) total)) ;
+		progInfo.report();
+	}
+}
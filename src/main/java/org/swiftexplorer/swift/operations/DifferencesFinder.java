@@ -24,6 +24,7 @@ import org.javaswift.joss.model.Container;
 import org.javaswift.joss.model.StoredObject;
 import org.swiftexplorer.swift.operations.SwiftOperations.ComparisonItem;
 import org.swiftexplorer.swift.util.SwiftUtils;
+import org.swiftexplorer.util.FileHashCache;
 import org.swiftexplorer.util.FileUtils;
 
 public class DifferencesFinder {
@@ -99,9 +100,9 @@ public class DifferencesFinder {
 			{
 				long size = FileUtils.getFileAttr(filePath).size() ;
 				if (segmentSize <= 0 || size <= segmentSize)
-					this.md5 = FileUtils.getMD5(filePath.toFile()) ;
+					this.md5 = FileHashCache.getDefault().getMD5(filePath.toFile()) ;
 				else
-					this.md5 = FileUtils.getSumOfSegmentsMd5(filePath.toFile(), segmentSize) ;
+					this.md5 = FileHashCache.getDefault().getSumOfSegmentsMd5(filePath.toFile(), segmentSize) ;
 			}
 		}
 
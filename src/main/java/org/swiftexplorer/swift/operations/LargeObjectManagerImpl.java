@@ -39,13 +39,23 @@ package org.swiftexplorer.swift.operations;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.input.BoundedInputStream;
 
 import org.javaswift.joss.client.core.AbstractContainer;
 import org.javaswift.joss.client.core.AbstractStoredObject;
@@ -59,10 +69,17 @@ import org.javaswift.joss.model.PaginationMap;
 import org.javaswift.joss.model.StoredObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.swiftexplorer.swift.client.impl.UploadEtagInterceptor;
 import org.swiftexplorer.swift.instructions.FastSegmentationPlanFile;
 import org.swiftexplorer.swift.operations.SwiftOperations.SwiftCallback;
 import org.swiftexplorer.swift.util.SwiftUtils;
+import org.swiftexplorer.util.FileHashCache;
 import org.swiftexplorer.util.FileUtils;
+import org.swiftexplorer.util.Pair;
+import org.swiftexplorer.util.SegmentsHasher;
+
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
 
 
 class LargeObjectManagerImpl implements LargeObjectManager {
@@ -71,34 +88,71 @@ class LargeObjectManagerImpl implements LargeObjectManager {
 
     private final Account account ;
     private final boolean checkExistingSegments = true ;
+    private final int numberOfConcurrentSegmentTransfers ;
  
     private static final int MAX_PAGE_SIZE = 9999;
     
 	LargeObjectManagerImpl (Account account) { 
+		this (account, 1) ; 
+	} ;
+	
+	
+	LargeObjectManagerImpl (Account account, int numberOfConcurrentSegmentTransfers) { 
 		super () ; 
 		this.account = account ;
+		this.numberOfConcurrentSegmentTransfers = Math.max(1, numberOfConcurrentSegmentTransfers) ;
 	} ;
 	
 	
     // Code taken from Joss, package org.javaswift.joss.client.core, class AbstractStoredObject.java 
     // and adapted here.
 	@Override
-    public void uploadObjectAsSegments(StoredObject obj, File file, UploadInstructions uploadInstructions, long size, ProgressInformation progInfo, SwiftCallback callback) 
+    public void uploadObjectAsSegments(final StoredObject obj, File file, UploadInstructions uploadInstructions, long size, ProgressInformation progInfo, SwiftCallback callback) 
     {    	
     	Container segmentsContainer = getSegmentsContainer (obj, true) ;
     	
     	AbstractContainer abstractContainer = (AbstractContainer)segmentsContainer ;
-    	uploadSegmentedObjects(abstractContainer, (AbstractStoredObject)obj, file, uploadInstructions, size, progInfo, callback);
+    	BasicFileAttributes attr = null ;
+    	try
+    	{
+    		// read before the upload, so that a modification during the upload is noticed
+    		attr = (file == null) ? (null) : (FileUtils.getFileAttr(file.toPath())) ;
+    	}
+    	catch (IOException err)
+    	{
+        	logger.error("Failed to read the attributes of " + file.getPath() + ": " + err.getMessage());
+        	callback.onError(new CommandException("Unable to upload segments", err));
+        	return ;
+    	}
+    	List<String> segmentsMd5 = uploadSegmentedObjects(abstractContainer, (AbstractStoredObject)obj, file, attr, uploadInstructions, size, progInfo, callback) ;
+    	if (segmentsMd5 == null)
+    		return ;
     	
     	StringBuilder sb = new StringBuilder () ;
     	sb.append(segmentsContainer.getName()) ;
     	sb.append(obj.getPath().replaceFirst(((AbstractStoredObject)obj).getContainer().getPath(), "")) ;
     	
-        UploadInstructions manifest = new UploadInstructions(new byte[] {})
+        final UploadInstructions manifest = new UploadInstructions(new byte[] {})
 				        .setObjectManifest(new ObjectManifest(sb.toString())) // Manifest does not accept preceding slash
 				        .setContentType(uploadInstructions.getContentType()
 	        		);
-        obj.uploadObject(manifest);
+        RetryPolicy.getDefault().execute(String.format("Uploading the manifest of %s", obj.getName()), new RetryPolicy.Command<Void, RuntimeException> () {
+			@Override
+			public Void call() {
+				obj.uploadObject(manifest);
+				return null ;
+			}}) ;
+        
+        try
+        {
+        	// the etag of the manifest is the md5 of the concatenated md5 values of the segments
+        	String etag = (segmentsMd5.contains(null)) ? (null) : (FileUtils.getSumOfSegmentsMd5(segmentsMd5)) ;
+        	TransferJournal.getDefault().setUploaded(getAccountKey (), obj, file, attr, etag) ;
+        }
+        catch (IOException err)
+        {
+        	logger.error("Failed to record the upload of " + obj.getName() + " in the transfer journal", err);
+        }
     }
     
     
@@ -191,7 +245,7 @@ class LargeObjectManagerImpl implements LargeObjectManager {
     }
     
     
-    private List<StoredObject> getSegmentsListFromManifest (Container segCont, StoredObject obj, long offset, long nobj)
+    private List<StoredObject> getSegmentsListFromManifest (final Container segCont, StoredObject obj, long offset, long nobj)
     {
     	List<StoredObject> ret = new ArrayList<StoredObject> () ;
     	if (!obj.exists())
@@ -205,11 +259,17 @@ class LargeObjectManagerImpl implements LargeObjectManager {
 		if (index > 0)
 		{
 			long segCount = 1 ;
-			String prefix = manifest.substring(index) ;
-	        PaginationMap map = segCont.getPaginationMap(MAX_PAGE_SIZE);
+			final String prefix = manifest.substring(index) ;
+	        final PaginationMap map = segCont.getPaginationMap(MAX_PAGE_SIZE);
 	        for (int page = 0; page < map.getNumberOfPages(); page++) 
 	        {
-	        	for (StoredObject so : segCont.list(prefix, map.getMarker(page), map.getPageSize()))
+	        	final int currentPage = page ;
+	        	Collection<StoredObject> segments = RetryPolicy.getDefault().execute(String.format("Listing the segments of %s", obj.getName()), new RetryPolicy.Command<Collection<StoredObject>, RuntimeException> () {
+					@Override
+					public Collection<StoredObject> call() {
+						return segCont.list(prefix, map.getMarker(currentPage), map.getPageSize()) ;
+					}}) ;
+	        	for (StoredObject so : segments)
 	        	{
 	        		if (segCount >= (offset + 1))
 	        			ret.add (so) ;
@@ -278,11 +338,23 @@ class LargeObjectManagerImpl implements LargeObjectManager {
     	else
     		logger.info("Segment objects container obtained from the manifest: " + containerName) ;
     	
-    	Container segmentsContainer = account.getContainer(containerName) ;
-    	if (createIfNeeded && !segmentsContainer.exists())
+    	final Container segmentsContainer = account.getContainer(containerName) ;
+    	if (createIfNeeded)
     	{
-    		segmentsContainer.create() ;
-    		segmentsContainer.makePrivate();
+    		// several large files may be uploaded concurrently
+    		synchronized (this)
+    		{
+    			RetryPolicy.getDefault().execute(String.format("Creating container %s", containerName), new RetryPolicy.Command<Void, RuntimeException> () {
+					@Override
+					public Void call() {
+			    		if (!segmentsContainer.exists())
+			    		{
+				    		segmentsContainer.create() ;
+				    		segmentsContainer.makePrivate();
+			    		}
+			    		return null ;
+					}}) ;
+    		}
     	}
     	return segmentsContainer ;
     }
@@ -290,7 +362,13 @@ class LargeObjectManagerImpl implements LargeObjectManager {
     
     // Code taken from Joss, package org.javaswift.joss.client.core, class AbstractContainer.java 
     // and adapted here.
-    private void uploadSegmentedObjects(AbstractContainer abstractContainer, AbstractStoredObject obj, File file, UploadInstructions uploadInstructions, long size, ProgressInformation progInfo, SwiftCallback callback) 
+    /*
+     * Returns the md5 values of the segments (null when unknown) if all the segments have been uploaded 
+     * (or were already up to date), i.e., if the manifest can be written, and null otherwise. Each segment is retried according to the retry policy; a 
+     * CommandException still raised while uploading a segment is rethrown once all the other segments 
+     * are done (the segments successfully uploaded won't be uploaded again if the upload is restarted).
+     */
+    private List<String> uploadSegmentedObjects(final AbstractContainer abstractContainer, final AbstractStoredObject obj, final File file, final BasicFileAttributes attr, UploadInstructions uploadInstructions, final long size, final ProgressInformation progInfo, SwiftCallback callback) 
     {
     	if (size < uploadInstructions.getSegmentationSize())
     		throw new AssertionError (String.format("The file size (%d) must be greater than the segmentation size (%d)", size, uploadInstructions.getSegmentationSize())) ;
@@ -299,60 +377,229 @@ class LargeObjectManagerImpl implements LargeObjectManager {
     	pathBuilder.append(abstractContainer.getName()) ;
     	pathBuilder.append(SwiftUtils.separator) ;
     	pathBuilder.append(obj.getName()) ;
-        String path = pathBuilder.toString()  ;
+        final String path = pathBuilder.toString()  ;
         Set<StoredObject> segmentsSet = new TreeSet<> () ;
         try 
         {
             logger.info("Setting up a segmentation plan for " + path);
             
+            final long segmentationSize = uploadInstructions.getSegmentationSize() ;
+            final long numSegments = getNumberOfSegments (size, uploadInstructions) ;
+            
+            // When the file is known, there is no hashing pass: the md5 of a segment is computed 
+            // while it is being uploaded, and existing segments are hashed only if their size matches 
+            // (see uploadSegment). Otherwise, the segmentation plan must be hashed beforehand.
             Map<Long, String> md5PlanMap = null ;
-            String currMsg = progInfo.getCurrentMessage() ;
+            Map<String, StoredObject> existingSegments = new HashMap<String, StoredObject> () ;
+            final String currMsg = progInfo.getCurrentMessage() ;
+            // the segments recorded in the transfer journal are neither hashed nor uploaded again, 
+            // as long as they are still in the segments container with the same etag
+            final TransferJournal journal = TransferJournal.getDefault() ;
+            final Map<Long, String> journaledSegments = new HashMap<Long, String> (journal.getUploadedSegments(getAccountKey (), obj, file, attr, segmentationSize)) ;
             if (checkExistingSegments /*&& !obj.exists()*/)
-            	md5PlanMap = getMd5PlanMap (uploadInstructions, obj, file, progInfo) ;
-            SegmentationPlan plan = uploadInstructions.getSegmentationPlan();
-            long numSegments = getNumberOfSegments (size, uploadInstructions) ;
-            InputStream segmentStream = FileUtils.getInputStreamWithProgressFilter(progInfo, uploadInstructions.getSegmentationSize(), plan.getNextSegment()) ;
-            while (segmentStream != null) 
             {
-            	Long planSeg = plan.getSegmentNumber() ;
-            	logger.info("Uploading segment " + planSeg);
-            	progInfo.setCurrentMessage(String.format("%s (segment %d / %d)", currMsg, planSeg, numSegments));
-                StoredObject segment = getObjectSegment(abstractContainer, obj, planSeg); 
-                segmentsSet.add(segment) ;
-                // check if this segment can be ignored
-                boolean ignore = false ;
-                if (md5PlanMap != null && !md5PlanMap.isEmpty())
-                {
-	                if (segment.exists() && md5PlanMap.containsKey(planSeg))
-	                {
-	        			String etag = segment.getEtag() ;
-	        			String md5 = md5PlanMap.get(planSeg) ;
-	        			if (etag != null && etag.equals(md5))
-	        				ignore = true ; 
-	                }
-	                if (ignore)
-	                	logger.info("{} already exists and has not changed (it won't be uploaded again)", String.format("Segment %d / %d", planSeg, numSegments)) ;
-                }
-                if (!ignore)
-                	segment.uploadObject(segmentStream);
-                segmentStream.close();
-                segmentStream = FileUtils.getInputStreamWithProgressFilter(progInfo, (planSeg + 1 != numSegments)?(uploadInstructions.getSegmentationSize()):(size % uploadInstructions.getSegmentationSize()), plan.getNextSegment());
+            	if (file == null)
+            		md5PlanMap = getMd5PlanMap (uploadInstructions, obj, null, progInfo) ;
+            	else
+            	{
+            		existingSegments.putAll(listSegments (abstractContainer, obj)) ;
+            		md5PlanMap = getCachedMd5PlanMap (file, segmentationSize) ;
+            	}
+            }
+            Iterator<Map.Entry<Long, String> > journaledIterator = journaledSegments.entrySet().iterator() ;
+            while (journaledIterator.hasNext())
+            {
+            	Map.Entry<Long, String> entry = journaledIterator.next() ;
+            	StoredObject existing = existingSegments.get(getSegmentName (obj, entry.getKey())) ;
+            	if (existing == null || !SwiftUtils.isSameMd5(existing.getEtag(), entry.getValue()))
+            	{
+            		logger.info("Segment {} of {} is not in the cloud anymore, or has changed (it will be uploaded again)", entry.getKey(), path) ;
+            		journaledIterator.remove();
+            	}
+            }
+            if (!journaledSegments.isEmpty())
+            	logger.info("Resuming the upload of {}: {} / {} segment(s) already uploaded", path, journaledSegments.size(), numSegments) ;
+            final Map<Long, String> md5Map = md5PlanMap ;
+            final Map<String, StoredObject> existingSegmentsMap = existingSegments ;
+            final String [] segmentsMd5 = new String [(int) numSegments] ;
+            
+            // When the file is known, each segment is read through its own channel, and therefore 
+            // the segments can be uploaded concurrently. Otherwise, we must stick to the segmentation 
+            // plan, which can only be consumed sequentially.
+            final SegmentationPlan plan = (file == null) ? (uploadInstructions.getSegmentationPlan()) : (null) ;
+            final PartsProgress segmentsProgress = new PartsProgress (progInfo, numSegments, size) ;
+            final AtomicLong completedSegments = new AtomicLong () ;
+            
+            TransferWorkerPool pool = new TransferWorkerPool ((plan == null) ? (numberOfConcurrentSegmentTransfers) : (1), null) ;
+            try
+            {
+	            for (long planSeg = 1 ; planSeg <= numSegments ; ++planSeg)
+	            {
+	                final StoredObject segment = getObjectSegment(abstractContainer, obj, planSeg); 
+	                segmentsSet.add(segment) ;
+	                
+	                final long segmentNumber = planSeg ;
+	                final long offset = (planSeg - 1) * segmentationSize ;
+	                final long length = Math.min(segmentationSize, size - offset) ;
+	                final InputStream planStream = (plan == null) ? (null) : (plan.getNextSegment()) ;
+	                
+	                pool.submit(String.format("segment %d / %d", segmentNumber, numSegments), new TransferWorkerPool.Transfer () {
+						@Override
+						public void execute() throws IOException {
+							
+							if (planStream == null)
+							{
+								String md5 = journaledSegments.get(segmentNumber) ;
+								if (md5 == null)
+								{
+									md5 = RetryPolicy.getDefault().execute(String.format("Uploading segment %d / %d of %s", segmentNumber, numSegments, path), new RetryPolicy.Command<String, IOException> () {
+										@Override
+										public String call() throws IOException {
+											return uploadSegment (segment, existingSegmentsMap.get(segment.getName()), segmentNumber, numSegments, 
+													(md5Map == null) ? (null) : (md5Map.get(segmentNumber)), file, offset, length, segmentsProgress) ;
+										}}) ;
+									journal.setSegmentUploaded(getAccountKey (), obj, file, attr, segmentationSize, segmentNumber, md5) ;
+								}
+								segmentsMd5[(int) (segmentNumber - 1)] = md5 ;
+							}
+							else
+							{
+								try
+								{
+									uploadSegment (segment, segmentNumber, numSegments, md5Map, 
+											FileUtils.getInputStreamWithProgressFilter(segmentsProgress.getCallback(segmentNumber, length), length, planStream)) ;
+								}
+								finally
+								{
+									planStream.close();
+								}
+							}
+							segmentsProgress.setDone(segmentNumber, length) ;
+							progInfo.setCurrentMessage(String.format("%s (segment %d / %d)", currMsg, completedSegments.incrementAndGet(), numSegments));
+						}}) ;
+	            }
+            }
+            finally
+            {
+            	pool.awaitCompletion();
+            }
+            
+            List<Pair<String, Exception> > failures = pool.getFailures() ;
+            if (!failures.isEmpty())
+            {
+            	// the manifest must not be written
+            	logger.error("{} segment(s) of {} could not be uploaded", failures.size(), path);
+            	Exception e = failures.get(0).getSecond() ;
+            	if (e instanceof RuntimeException)
+            		throw (RuntimeException) e ;
+            	throw (IOException) e ;
             }
+            
+            if (attr != null)
+            	FileHashCache.getDefault().put(file, attr, null, segmentationSize, Arrays.asList(segmentsMd5)) ;
+            
             // we must remove extra segments that might remain from a previous large object with the same name
             cleanUpExtraSegments (obj, segmentsSet) ;
+            return Arrays.asList(segmentsMd5) ;
         } 
         catch (IOException err) 
         {
         	logger.error("Failed to set up a segmentation plan for " + path + ": " + err.getMessage());
         	callback.onError(new CommandException("Unable to upload segments", err));
         }
+        return null ;
     }
     
-
+    
+    private void uploadSegment (StoredObject segment, long segmentNumber, long numSegments, Map<Long, String> md5PlanMap, InputStream segmentStream)
+    {
+    	logger.info("Uploading segment " + segmentNumber);
+        // check if this segment can be ignored
+        boolean ignore = false ;
+        if (md5PlanMap != null && !md5PlanMap.isEmpty())
+        {
+            if (md5PlanMap.containsKey(segmentNumber) && segment.exists())
+            {
+    			String etag = segment.getEtag() ;
+    			String md5 = md5PlanMap.get(segmentNumber) ;
+    			if (etag != null && etag.equals(md5))
+    				ignore = true ; 
+            }
+            if (ignore)
+            	logger.info("{} already exists and has not changed (it won't be uploaded again)", String.format("Segment %d / %d", segmentNumber, numSegments)) ;
+        }
+        if (!ignore)
+        	segment.uploadObject(segmentStream);
+    }
+    
+    
+    /*
+     * Uploads the given segment of the file, unless an identical segment already exists, 
+     * and returns its md5 value.
+     */
+    private String uploadSegment (StoredObject segment, StoredObject existing, long segmentNumber, long numSegments, String knownMd5, File file, long offset, long length, PartsProgress segmentsProgress) throws IOException
+    {
+    	String md5 = knownMd5 ;
+    	// cheap preliminary check: a segment of a different size cannot be identical
+    	if (existing != null && existing.getContentLength() == length)
+    	{
+    		if (md5 == null)
+    			md5 = SegmentsHasher.getMd5(file, offset, length) ;
+    		if (SwiftUtils.isSameMd5(existing.getEtag(), md5))
+    		{
+    			logger.info("{} already exists and has not changed (it won't be uploaded again)", String.format("Segment %d / %d", segmentNumber, numSegments)) ;
+    			return md5 ;
+    		}
+    	}
+    	
+    	logger.info("Uploading segment " + segmentNumber);
+    	// the segment is read once: its md5 is computed while it is being uploaded, and checked against 
+    	// the etag returned by Swift. When the md5 is already known, it is sent as the etag, and Swift 
+    	// rejects a corrupted segment itself (422 Unprocessable Entity)
+    	HashingInputStream in = new HashingInputStream (Hashing.md5(), FileUtils.getInputStreamWithProgressFilter(segmentsProgress.getCallback(segmentNumber, length), length, openSegment (file, offset, length))) ;
+    	try
+    	{
+    		UploadInstructions ui = new UploadInstructions (in) ;
+    		if (md5 != null)
+    			ui.setMd5(md5) ;
+    		segment.uploadObject(ui);
+    	}
+    	finally
+    	{
+    		in.close();
+    	}
+    	String uploadedMd5 = in.hash().toString() ;
+    	String etag = UploadEtagInterceptor.getEtag() ;
+    	if (etag != null && !SwiftUtils.isSameMd5(etag, uploadedMd5))
+    	{
+    		delete (segment) ;
+    		throw new IOException (String.format("Segment %d / %d is corrupted (md5 %s, etag %s)", segmentNumber, numSegments, uploadedMd5, etag)) ;
+    	}
+    	return uploadedMd5 ;
+    }
+    
+    
+    private static InputStream openSegment (File file, long offset, long length) throws IOException
+    {
+    	FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ) ;
+    	try
+    	{
+    		channel.position(offset) ;
+    	}
+    	catch (IOException e)
+    	{
+    		channel.close();
+    		throw e ;
+    	}
+    	// closing the stream closes the channel
+    	return new BoundedInputStream (Channels.newInputStream(channel), length) ;
+    }
+    
+    
     @SuppressWarnings("unused")
 	private void uploadSegmentedObjects(AbstractContainer abstractContainer, AbstractStoredObject obj, UploadInstructions uploadInstructions, long size, ProgressInformation progInfo, SwiftCallback callback) 
     {
-    	uploadSegmentedObjects (abstractContainer, obj, null, uploadInstructions, size, progInfo, callback) ;
+    	uploadSegmentedObjects (abstractContainer, obj, null, null, uploadInstructions, size, progInfo, callback) ;
     }
     
     
@@ -364,7 +611,7 @@ class LargeObjectManagerImpl implements LargeObjectManager {
     		if (toKeep != null && toKeep.contains(so))
     			continue ;
     		logger.info("Delete unused segment ({})", so.getBareName()) ;
-    		so.delete(); 
+    		delete (so) ;
     	}
     }
     
@@ -376,11 +623,28 @@ class LargeObjectManagerImpl implements LargeObjectManager {
     	for (StoredObject so : list)
     	{
     		logger.info("Delete unused segment ({})", so.getBareName()) ;
-    		so.delete(); 
+    		delete (so) ;
     	}
     }
     
     
+    private void delete (final StoredObject obj)
+    {
+    	RetryPolicy.getDefault().execute(String.format("Deleting %s", obj.getName()), new RetryPolicy.Command<Void, RuntimeException> () {
+			@Override
+			public Void call() {
+				obj.delete();
+				return null ;
+			}}) ;
+    }
+    
+    
+    private String getAccountKey ()
+    {
+    	return account.getPublicURL() ;
+    }
+    
+    
     private long getNumberOfSegments (long totalSize, UploadInstructions uploadInstructions)
     {
     	return totalSize / uploadInstructions.getSegmentationSize() + (long)((totalSize % uploadInstructions.getSegmentationSize() == 0)?(0):(1)) ;
@@ -434,6 +698,19 @@ class LargeObjectManagerImpl implements LargeObjectManager {
     }
 	
 	
+	private Map<Long, String> getCachedMd5PlanMap (File file, long segmentSize) throws IOException
+	{
+    	Map<Long, String> ret = new HashMap<Long, String> () ;
+		List<String> cached = FileHashCache.getDefault().getCachedSegmentsMd5(file, segmentSize) ;
+		if (cached != null)
+		{
+			for (int i = 0 ; i < cached.size() ; ++i)
+				ret.put(Long.valueOf(i + 1), cached.get(i)) ;
+		}
+		return ret ;
+	}
+	
+	
 	@SuppressWarnings("unused")
 	private Map<Long, String> getMd5PlanMap (UploadInstructions uploadInstructions, AbstractStoredObject obj, ProgressInformation progInfo) throws IOException
     {
@@ -444,6 +721,12 @@ class LargeObjectManagerImpl implements LargeObjectManager {
     // Code taken from Joss, package org.javaswift.joss.client.core, class AbstractContainer.java 
     // and adapted here.
     private StoredObject getObjectSegment(Container segmentsContainer, AbstractStoredObject obj, Long part) 
+    {
+        return segmentsContainer.getObject(getSegmentName (obj, part));
+    }
+    
+    
+    private static String getSegmentName (StoredObject obj, Long part) 
     {
     	if (part <= 0)
     		throw new AssertionError ("Segments are 1-indexed.") ;
@@ -452,6 +735,34 @@ class LargeObjectManagerImpl implements LargeObjectManager {
     	segmentNameBuilder.append (obj.getName()) ;
     	segmentNameBuilder.append (SwiftUtils.separator) ;
     	segmentNameBuilder.append (String.format("%08d", part.intValue())) ;
-        return segmentsContainer.getObject(segmentNameBuilder.toString());
+        return segmentNameBuilder.toString() ;
+    }
+    
+    
+    /*
+     * Lists the segments of the given object in the given segments container, by name (one listing, 
+     * page after page, no request per segment).
+     */
+    private Map<String, StoredObject> listSegments (final Container segCont, StoredObject obj)
+    {
+    	Map<String, StoredObject> ret = new HashMap<String, StoredObject> () ;
+    	final String prefix = obj.getName() + SwiftUtils.separator ;
+    	String marker = null ;
+    	while (true)
+    	{
+    		final String currentMarker = marker ;
+    		Collection<StoredObject> page = RetryPolicy.getDefault().execute(String.format("Listing the segments of %s", obj.getName()), new RetryPolicy.Command<Collection<StoredObject>, RuntimeException> () {
+				@Override
+				public Collection<StoredObject> call() {
+					return segCont.list(prefix, currentMarker, MAX_PAGE_SIZE) ;
+				}}) ;
+    		for (StoredObject so : page)
+    		{
+    			ret.put(so.getName(), so) ;
+    			marker = so.getName() ;
+    		}
+    		if (page.size() < MAX_PAGE_SIZE)
+    			return ret ;
+    	}
     }
 }
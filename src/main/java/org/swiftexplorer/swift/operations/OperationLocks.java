@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.javaswift.joss.model.Container;
+
+
+/*
+ * The locks that let independent operations run concurrently.
+ * 
+ * The session (i.e., the account and the objects built upon it) is shared by all the operations: 
+ * it is only replaced by the login and the logout, which must therefore wait for the other operations 
+ * to complete. Likewise, the operations that delete or empty a container must wait for the other operations
+ * on that container, while the operations on different containers, or that only read or add objects, 
+ * run concurrently.
+ * 
+ * The locks are released by closing the returned object, so that they can be held in a try-with-resources 
+ * statement. They are reentrant, but a shared lock cannot be upgraded to an exclusive one.
+ */
+class OperationLocks {
+
+	public interface Held extends AutoCloseable {
+		@Override
+		public void close () ;
+	}
+	
+	
+	private final ReentrantReadWriteLock sessionLock = new ReentrantReadWriteLock () ;
+	private final ConcurrentMap<String, ReentrantReadWriteLock> containerLocks = new ConcurrentHashMap<String, ReentrantReadWriteLock> () ;
+	
+	
+	public Held lockSession (boolean exclusive)
+	{
+		final Lock lock = (exclusive) ? (sessionLock.writeLock()) : (sessionLock.readLock()) ;
+		lock.lock();
+		return new Held () {
+			@Override
+			public void close() {
+				lock.unlock();
+			}} ;
+	}
+	
+	
+	/**
+	 * Locks the session (shared), and then the given container.
+	 * @param containerName
+	 * @param exclusive
+	 * @return the held locks, to be closed
+	 */
+	public Held lockContainer (String containerName, boolean exclusive)
+	{
+		if (containerName == null)
+			containerName = "" ;
+		final Held session = lockSession (false) ;
+		ReentrantReadWriteLock rwLock = containerLocks.get(containerName) ;
+		if (rwLock == null)
+		{
+			ReentrantReadWriteLock newLock = new ReentrantReadWriteLock () ;
+			rwLock = containerLocks.putIfAbsent(containerName, newLock) ;
+			if (rwLock == null)
+				rwLock = newLock ;
+		}
+		final Lock lock = (exclusive) ? (rwLock.writeLock()) : (rwLock.readLock()) ;
+		try
+		{
+			lock.lock();
+		}
+		catch (RuntimeException | Error e)
+		{
+			session.close();
+			throw e ;
+		}
+		return new Held () {
+			@Override
+			public void close() {
+				lock.unlock();
+				session.close();
+			}} ;
+	}
+	
+	
+	public Held lockContainer (Container container, boolean exclusive)
+	{
+		return lockContainer ((container == null) ? (null) : (container.getName()), exclusive) ;
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.javaswift.joss.model.Container;
+import org.javaswift.joss.model.StoredObject;
+
+
+/*
+ * Iterates over the objects of a container whose name starts with a given prefix, in name order.
+ * 
+ * The objects are listed lazily, one page at a time: a new page is requested (using the name of 
+ * the last object as marker) only once the previous one has been consumed. At most one page is 
+ * held in memory, regardless of the size of the container. Objects deleted once they have been
+ * iterated over do not disturb the listing.
+ */
+class PagedStoredObjectIterator implements Iterator<StoredObject> {
+
+	private final Container container ;
+	private final String prefix ;
+	private final int pageSize ;
+	
+	private List<StoredObject> page = Collections.emptyList() ;
+	private int index = 0 ;
+	private String marker = null ;
+	private boolean lastPage = false ;
+	private long numberOfListedObjects = 0 ;
+	
+	
+	PagedStoredObjectIterator (Container container, String prefix, int pageSize)
+	{
+		super () ;
+		if (container == null)
+			throw new AssertionError ("container cannot be null") ;
+		this.container = container ;
+		this.prefix = (prefix == null) ? ("") : (prefix) ;
+		this.pageSize = pageSize ;
+	}
+	
+	
+	public static Iterable<StoredObject> iterable (final Container container, final String prefix, final int pageSize)
+	{
+		return new Iterable<StoredObject> () {
+			@Override
+			public Iterator<StoredObject> iterator() {
+				return new PagedStoredObjectIterator (container, prefix, pageSize) ;
+			}} ;
+	}
+	
+	
+	private void fetchNextPage ()
+	{
+		Collection<StoredObject> list = RetryPolicy.getDefault().execute(String.format("Listing '%s'", prefix), new RetryPolicy.Command<Collection<StoredObject>, RuntimeException> () {
+			@Override
+			public Collection<StoredObject> call() {
+				return container.list(prefix, marker, pageSize) ;
+			}}) ;
+		page = (list == null) ? (Collections.<StoredObject>emptyList()) : (new ArrayList<StoredObject> (list)) ;
+		index = 0 ;
+		if (page.isEmpty())
+			lastPage = true ;
+		else
+		{
+			marker = page.get(page.size() - 1).getName() ;
+			numberOfListedObjects += page.size() ;
+		}
+	}
+	
+	
+	@Override
+	public boolean hasNext() 
+	{
+		while (index >= page.size() && !lastPage)
+			fetchNextPage () ;
+		return index < page.size() ;
+	}
+
+	
+	@Override
+	public StoredObject next() 
+	{
+		if (!hasNext ())
+			throw new NoSuchElementException () ;
+		return page.get(index++) ;
+	}
+	
+	
+	/**
+	 * Returns the objects of the current page that have not been iterated over yet (a new page 
+	 * is requested if the current one has been entirely consumed).
+	 * @return the next objects
+	 */
+	public List<StoredObject> nextPage ()
+	{
+		if (!hasNext ())
+			throw new NoSuchElementException () ;
+		List<StoredObject> ret = new ArrayList<StoredObject> (page.subList(index, page.size())) ;
+		index = page.size() ;
+		return ret ;
+	}
+	
+	
+	/**
+	 * @return the number of objects listed so far
+	 */
+	public long getNumberOfListedObjects ()
+	{
+		return numberOfListedObjects ;
+	}
+	
+
+	@Override
+	public void remove() 
+	{
+		throw new UnsupportedOperationException () ;
+	}
+}
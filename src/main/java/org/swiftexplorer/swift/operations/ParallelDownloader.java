@@ -0,0 +1,399 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.javaswift.joss.instructions.DownloadInstructions;
+import org.javaswift.joss.model.StoredObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.swiftexplorer.swift.instructions.ByteRange;
+import org.swiftexplorer.swift.operations.SwiftOperations.StopRequester;
+import org.swiftexplorer.util.FileUtils;
+import org.swiftexplorer.util.Pair;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+
+
+/*
+ * Downloads an object by parts, concurrently. The parts of a segmented object are its segments,
+ * and the parts of a large non-segmented object are byte ranges. Each part is written at its 
+ * offset into a (preallocated) ".part" file next to the target, which is renamed to the target 
+ * once all the parts have been received and checked.
+ * 
+ * The parts received are recorded next to the ".part" file (see {@link PartialDownload}), so 
+ * that an interrupted download only requests the missing parts when it is resumed, provided 
+ * that the etag of the object has not changed.
+ * 
+ * The md5 of each segment is checked against its etag. For ranged downloads, the etag of the object
+ * is the md5 of the whole content: the parts are hashed in order, as soon as the parts before them 
+ * have been received, while the following parts are still being downloaded.
+ */
+class ParallelDownloader {
+
+	final Logger logger = LoggerFactory.getLogger(ParallelDownloader.class);
+	
+	private static final int bufferSize = 1048576 ;
+	
+	private final LargeObjectManager largeObjectManager ;
+	private final int numberOfWorkers ;
+	private final long partSize ;
+	
+	
+	private static class Part
+	{
+		private final long number ;
+		private final StoredObject source ;
+		private final ByteRange range ;
+		private final long offset ;
+		private final long length ;
+		private final String expectedMd5 ;
+		
+		Part (long number, StoredObject source, ByteRange range, long offset, long length, String expectedMd5)
+		{
+			super () ;
+			this.number = number ;
+			this.source = source ;
+			this.range = range ;
+			this.offset = offset ;
+			this.length = length ;
+			this.expectedMd5 = expectedMd5 ;
+		}
+	}
+	
+	
+	ParallelDownloader (LargeObjectManager largeObjectManager, int numberOfWorkers, long partSize)
+	{
+		super () ;
+		this.largeObjectManager = largeObjectManager ;
+		this.numberOfWorkers = numberOfWorkers ;
+		this.partSize = partSize ;
+	}
+	
+	
+	/**
+	 * Downloads the given object by parts, provided that it is worth it.
+	 * @param obj
+	 * @param target
+	 * @param progInfo
+	 * @param stopRequester if not null, the parts not started yet are skipped once a stop is requested
+	 * @return false if nothing was done, in which case the object should be downloaded as a single stream
+	 * @throws IOException (InterruptedIOException if the download has been stopped, the parts received are then kept)
+	 */
+	public boolean download (StoredObject obj, File target, ProgressInformation progInfo, StopRequester stopRequester) throws IOException
+	{
+		if (obj == null || target == null || numberOfWorkers <= 1)
+			return false ;
+		
+		final boolean segmented = largeObjectManager != null && largeObjectManager.isSegmented(obj) ;
+		List<Part> parts = (segmented) ? (getSegmentParts (obj)) : (getRangeParts (obj)) ;
+		if (parts.size() < 2)
+			return false ;
+		
+		Part lastPart = parts.get(parts.size() - 1) ;
+		final long totalSize = lastPart.offset + lastPart.length ;
+		final PartsProgress partsProgress = new PartsProgress (progInfo, parts.size(), totalSize) ;
+		
+		logger.info("Downloading {} in {} parts", obj.getName(), parts.size()) ;
+		
+		final String etag = obj.getEtag() ;
+		final String layout = String.format("%s:%d:%d", (segmented) ? ("segments") : ("ranges"), parts.size(), totalSize) ;
+		final PartialDownload partial = new PartialDownload (target) ;
+		final File partFile = partial.getPartFile() ;
+		Set<Long> receivedParts = Collections.emptySet() ;
+		if (partial.isResumable(etag) && layout.equals(partial.getLayout()) && partFile.length() == totalSize)
+			receivedParts = partial.getReceivedParts() ;
+		else
+			partial.start(etag, layout) ;
+		
+		final SequentialHasher hasher = (segmented) ? (null) : (new SequentialHasher (parts)) ;
+		boolean corrupted = false ;
+		RandomAccessFile raf = new RandomAccessFile (partFile, "rw") ;
+		try
+		{
+			raf.setLength(totalSize) ;
+			final FileChannel channel = raf.getChannel() ;
+			
+			List<Part> receivedPartsList = new ArrayList<Part> () ;
+			final AtomicInteger downloadedParts = new AtomicInteger () ;
+			TransferWorkerPool pool = new TransferWorkerPool (numberOfWorkers, stopRequester) ;
+			try
+			{
+				for (final Part part : parts)
+				{
+					if (receivedParts.contains(part.number))
+					{
+						receivedPartsList.add(part) ;
+						continue ;
+					}
+					pool.submit(String.format("part %d of %s", part.number, obj.getName()), new TransferWorkerPool.Transfer () {
+						@Override
+						public void execute() throws IOException {
+							downloadPart (part, channel, partsProgress) ;
+							// the part is only recorded once it is on the disk
+							channel.force(false) ;
+							partial.setReceived(part.number) ;
+							downloadedParts.incrementAndGet() ;
+							if (hasher != null)
+								hasher.setReceived(part, channel) ;
+						}}) ;
+				}
+				if (!receivedPartsList.isEmpty())
+					logger.info("Resuming the download of {}, {} part(s) out of {} already received", obj.getName(), receivedPartsList.size(), parts.size()) ;
+				for (Part part : receivedPartsList)
+				{
+					// the bytes already received are not expected anymore
+					if (progInfo != null)
+						progInfo.addExpectedBytes(-part.length) ;
+					partsProgress.setAlreadyReceived(part.number, part.length) ;
+					if (hasher != null)
+						hasher.setReceived(part, channel) ;
+				}
+			}
+			finally
+			{
+				pool.awaitCompletion();
+			}
+			
+			// the parts received so far are kept, the download may be resumed
+			List<Pair<String, Exception> > failures = pool.getFailures() ;
+			if (!failures.isEmpty())
+			{
+				Exception e = failures.get(0).getSecond() ;
+				if (e instanceof RuntimeException)
+					throw (RuntimeException) e ;
+				throw (IOException) e ;
+			}
+			if (receivedPartsList.size() + downloadedParts.get() < parts.size())
+				throw new InterruptedIOException (String.format("The download of %s has been stopped", obj.getName())) ;
+			
+			if (hasher != null)
+			{
+				corrupted = true ;
+				checkMd5 (obj.getName(), trimEtag (etag), hasher.hash()) ;
+				corrupted = false ;
+			}
+		}
+		finally
+		{
+			raf.close();
+			// we cannot tell which parts are corrupted, the whole content must be downloaded again
+			if (corrupted)
+				partial.discard() ;
+		}
+		partial.complete(target) ;
+		return true ;
+	}
+	
+	
+	private List<Part> getSegmentParts (StoredObject obj)
+	{
+		List<Part> ret = new ArrayList<Part> () ;
+		long offset = 0 ;
+		long number = 1 ;
+		for (StoredObject segment : largeObjectManager.getSegmentsList(obj))
+		{
+			long length = segment.getContentLength() ;
+			ret.add(new Part (number, segment, null, offset, length, trimEtag (segment.getEtag()))) ;
+			offset += length ;
+			++number ;
+		}
+		// Swift reports the total size of the segments as the length of the manifest
+		final long manifestLength = obj.getContentLength() ;
+		if (manifestLength > 0 && offset != manifestLength)
+		{
+			// the segments do not match the manifest (e.g., the object is being overwritten)
+			logger.info("The segments of {} do not match its size, it won't be downloaded by parts", obj.getName()) ;
+			ret.clear();
+		}
+		return ret ;
+	}
+	
+	
+	private List<Part> getRangeParts (StoredObject obj)
+	{
+		List<Part> ret = new ArrayList<Part> () ;
+		final long size = obj.getContentLength() ;
+		if (partSize <= 0 || size < 2 * partSize)
+			return ret ;
+		long number = 1 ;
+		for (long offset = 0 ; offset < size ; offset += partSize)
+		{
+			long length = Math.min(partSize, size - offset) ;
+			ret.add(new Part (number, obj, new ByteRange (offset, offset + length - 1), offset, length, null)) ;
+			++number ;
+		}
+		return ret ;
+	}
+	
+	
+	private void downloadPart (Part part, FileChannel channel, PartsProgress partsProgress) throws IOException
+	{
+		InputStream in = (part.range == null) ? (part.source.downloadObjectAsInputStream()) : (part.source.downloadObjectAsInputStream(new DownloadInstructions ().setRange(part.range))) ;
+		HashingInputStream his = new HashingInputStream (Hashing.md5(), FileUtils.getInputStreamWithProgressFilter(partsProgress.getCallback(part.number, part.length), part.length, in)) ;
+		try
+		{
+			ReadableByteChannel inputChannel = Channels.newChannel(his) ;
+			ByteBuffer buffer = ByteBuffer.allocate(bufferSize) ;
+			long position = part.offset ;
+			while (inputChannel.read(buffer) != -1)
+			{
+				buffer.flip() ;
+				while (buffer.hasRemaining())
+					position += channel.write(buffer, position) ;
+				buffer.clear() ;
+			}
+			long received = position - part.offset ;
+			if (received != part.length)
+				throw new IOException (String.format("Part %d of %s: %d bytes received, %d bytes expected", part.number, part.source.getName(), received, part.length)) ;
+		}
+		finally
+		{
+			his.close();
+		}
+		if (part.expectedMd5 != null)
+			checkMd5 (part.source.getName(), part.expectedMd5, his.hash().toString()) ;
+		partsProgress.setDone(part.number, part.length) ;
+	}
+	
+	
+	/*
+	 * Hashes the parts in order, from the file, as soon as all the parts before them have been 
+	 * received. The parts are hashed by the worker that received the next part to hash, the other 
+	 * workers go on with their next part.
+	 */
+	private static class SequentialHasher
+	{
+		private final Hasher hasher = Hashing.md5().newHasher() ;
+		private final List<Part> parts ;
+		private final boolean [] received ;
+		private int next = 0 ;
+		private boolean hashing = false ;
+		
+		
+		SequentialHasher (List<Part> parts)
+		{
+			super () ;
+			this.parts = parts ;
+			this.received = new boolean [parts.size()] ;
+		}
+		
+		
+		public void setReceived (Part part, FileChannel channel) throws IOException
+		{
+			synchronized (this)
+			{
+				received[(int) (part.number - 1)] = true ;
+				if (hashing)
+					return ;
+				hashing = true ;
+			}
+			boolean released = false ;
+			try
+			{
+				Part nextPart ;
+				while ((nextPart = getNextPart ()) != null)
+				{
+					hash (nextPart, channel) ;
+					synchronized (this)
+					{
+						++next ;
+					}
+				}
+				released = true ;
+			}
+			finally
+			{
+				if (!released)
+				{
+					synchronized (this)
+					{
+						hashing = false ;
+					}
+				}
+			}
+		}
+		
+		
+		private synchronized Part getNextPart ()
+		{
+			if (next < parts.size() && received[next])
+				return parts.get(next) ;
+			// released under the same lock as the check, otherwise a part received 
+			// in between would never be hashed
+			hashing = false ;
+			return null ;
+		}
+		
+		
+		private void hash (Part part, FileChannel channel) throws IOException
+		{
+			ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(bufferSize, part.length)) ;
+			long position = part.offset ;
+			final long end = part.offset + part.length ;
+			while (position < end)
+			{
+				buffer.clear() ;
+				buffer.limit((int) Math.min(buffer.capacity(), end - position)) ;
+				int n = channel.read(buffer, position) ;
+				if (n < 0)
+					throw new IOException (String.format("Unexpected end of file while hashing part %d", part.number)) ;
+				hasher.putBytes(buffer.array(), 0, n) ;
+				position += n ;
+			}
+		}
+		
+		
+		public synchronized String hash ()
+		{
+			if (next < parts.size())
+				throw new IllegalStateException ("Some parts have not been hashed") ;
+			return hasher.hash().toString() ;
+		}
+	}
+	
+	
+	private static void checkMd5 (String name, String expected, String actual) throws IOException
+	{
+		if (expected == null || expected.isEmpty())
+			return ;
+		if (!expected.equalsIgnoreCase(actual))
+			throw new IOException (String.format("The content of %s is corrupted (md5 %s, etag %s)", name, actual, expected)) ;
+	}
+	
+	
+	private static String trimEtag (String etag)
+	{
+		if (etag == null)
+			return null ;
+		return etag.replace("\"", "").trim() ;
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.javaswift.joss.exception.CommandException;
+import org.javaswift.joss.model.Container;
+import org.javaswift.joss.model.DirectoryOrObject;
+import org.javaswift.joss.model.StoredObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.swiftexplorer.swift.util.SwiftUtils;
+import org.swiftexplorer.util.Pair;
+
+
+/*
+ * Lists the objects of a container by shards. The sub-prefixes of the listed prefix are first 
+ * discovered using a delimiter listing (as for browsing a directory); these sub-prefixes define
+ * disjoint ranges of names, which are then listed concurrently. The objects found directly under 
+ * the listed prefix are part of the delimiter listing. 
+ * 
+ * If the namespace is flat (fewer than two sub-prefixes), the objects are simply listed page after page.
+ */
+class ParallelLister {
+
+	final Logger logger = LoggerFactory.getLogger(ParallelLister.class);
+	
+	private final int numberOfWorkers ;
+	private final int pageSize ;
+	
+	
+	ParallelLister (int numberOfWorkers, int pageSize)
+	{
+		super () ;
+		this.numberOfWorkers = Math.max(1, numberOfWorkers) ;
+		this.pageSize = pageSize ;
+	}
+	
+	
+	/**
+	 * Lists all the objects whose name starts with the given prefix.
+	 * @param container
+	 * @param prefix
+	 * @param progInfo if not null, its total progress is updated as the objects are listed
+	 * @param expectedTotal the expected number of objects (used for the progress)
+	 * @return the objects, in name order
+	 */
+	public Collection<StoredObject> list (final Container container, String prefix, final ProgressInformation progInfo, final long expectedTotal)
+	{
+		final String listedPrefix = (prefix == null) ? ("") : (prefix) ;
+		final AtomicLong count = new AtomicLong () ;
+		
+		if (numberOfWorkers <= 1)
+			return listSerially (container, listedPrefix, progInfo, count, expectedTotal) ;
+		
+		// discovery of the sub-prefixes
+		final Character delimiter = SwiftUtils.separator.charAt(0) ;
+		final Set<StoredObject> results = new TreeSet<StoredObject> () ;
+		final List<String> subPrefixes = new ArrayList<String> () ;
+		Collection<DirectoryOrObject> page = listDirectoryPage (container, listedPrefix, delimiter, null) ;
+		while (!page.isEmpty())
+		{
+			String marker = null ;
+			for (DirectoryOrObject dirOrObj : page)
+			{
+				if (dirOrObj == null)
+					continue ;
+				marker = dirOrObj.getName() ;
+				if (dirOrObj.isObject())
+					results.add(dirOrObj.getAsObject()) ;
+				else
+					subPrefixes.add(dirOrObj.getName()) ;
+			}
+			if (marker == null)
+				break ;
+			page = listDirectoryPage (container, listedPrefix, delimiter, marker) ;
+		}
+		
+		if (subPrefixes.size() < 2)
+		{
+			logger.debug("Flat namespace under '{}', the objects are listed serially", listedPrefix) ;
+			return listSerially (container, listedPrefix, progInfo, count, expectedTotal) ;
+		}
+		
+		updateProgress (progInfo, count.addAndGet(results.size()), expectedTotal) ;
+		
+		final Set<StoredObject> shardsResults = Collections.synchronizedSet(results) ;
+		TransferWorkerPool pool = new TransferWorkerPool (Math.min(numberOfWorkers, subPrefixes.size()), null) ;
+		try
+		{
+			try
+			{
+				for (final String subPrefix : subPrefixes)
+				{
+					pool.submit(String.format("listing of '%s'", subPrefix), new TransferWorkerPool.Transfer () {
+						@Override
+						public void execute() throws IOException {
+							List<StoredObject> shard = listSerially (container, subPrefix, progInfo, count, expectedTotal) ;
+							shardsResults.addAll(shard) ;
+						}}) ;
+				}
+			}
+			finally
+			{
+				pool.awaitCompletion();
+			}
+		}
+		catch (IOException e)
+		{
+			throw new CommandException (e.getMessage()) ;
+		}
+		
+		List<Pair<String, Exception> > failures = pool.getFailures() ;
+		if (!failures.isEmpty())
+		{
+			Exception e = failures.get(0).getSecond() ;
+			if (e instanceof RuntimeException)
+				throw (RuntimeException) e ;
+			throw new CommandException (e.getMessage()) ;
+		}
+		return results ;
+	}
+	
+	
+	private List<StoredObject> listSerially (Container container, String prefix, ProgressInformation progInfo, AtomicLong count, long expectedTotal)
+	{
+		List<StoredObject> ret = new ArrayList<StoredObject> () ;
+		Collection<StoredObject> page = listPage (container, prefix, null) ;
+		while (!page.isEmpty())
+		{
+			StoredObject last = null ;
+			for (StoredObject obj : page)
+			{
+				ret.add(obj) ;
+				last = obj ;
+			}
+			updateProgress (progInfo, count.addAndGet(page.size()), expectedTotal) ;
+			page = listPage (container, prefix, last.getName()) ;
+		}
+		return ret ;
+	}
+	
+	
+	private Collection<StoredObject> listPage (final Container container, final String prefix, final String marker)
+	{
+		return RetryPolicy.getDefault().execute(String.format("Listing '%s'", prefix), new RetryPolicy.Command<Collection<StoredObject>, RuntimeException> () {
+			@Override
+			public Collection<StoredObject> call() {
+				return container.list(prefix, marker, pageSize) ;
+			}}) ;
+	}
+	
+	
+	private Collection<DirectoryOrObject> listDirectoryPage (final Container container, final String prefix, final Character delimiter, final String marker)
+	{
+		return RetryPolicy.getDefault().execute(String.format("Listing '%s'", prefix), new RetryPolicy.Command<Collection<DirectoryOrObject>, RuntimeException> () {
+			@Override
+			public Collection<DirectoryOrObject> call() {
+				return container.listDirectory(prefix, delimiter, marker, pageSize) ;
+			}}) ;
+	}
+	
+	
+	private static void updateProgress (ProgressInformation progInfo, long count, long expectedTotal)
+	{
+		if (progInfo == null || expectedTotal <= 0)
+			return ;
+		progInfo.setTotalProgress(Math.min(1.0, count / (double) expectedTotal)) ;
+		progInfo.report();
+	}
+}
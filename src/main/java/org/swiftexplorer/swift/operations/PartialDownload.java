@@ -0,0 +1,221 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/*
+ * The state of a partial download: the ".part" file that receives the content, and a ".part.info"
+ * file next to it, which records the etag of the object being downloaded and, for the downloads
+ * by parts, the layout of the parts and the parts already received. 
+ * 
+ * A partial download is only resumed if the etag of the object has not changed since it started. 
+ */
+class PartialDownload {
+
+	final static Logger logger = LoggerFactory.getLogger(PartialDownload.class);
+	
+	public static final String partFileSuffix = ".part" ;
+	public static final String infoFileSuffix = ".part.info" ;
+	
+	private static final String etagKey = "etag" ;
+	private static final String layoutKey = "layout" ;
+	private static final String partsKey = "parts" ;
+	
+	private final File partFile ;
+	private final File infoFile ;
+	private final Properties info = new Properties () ;
+	
+	
+	PartialDownload (File target)
+	{
+		super () ;
+		this.partFile = getPartFile (target) ;
+		this.infoFile = new File (target.getPath() + infoFileSuffix) ;
+		load () ;
+	}
+	
+	
+	public static File getPartFile (File target)
+	{
+		return new File (target.getPath() + partFileSuffix) ;
+	}
+	
+	
+	public File getPartFile ()
+	{
+		return partFile ;
+	}
+	
+	
+	/**
+	 * @param etag the current etag of the object
+	 * @return true if the ".part" file holds the content of the object with the given etag
+	 */
+	public synchronized boolean isResumable (String etag)
+	{
+		return partFile.isFile() && etag != null && !etag.isEmpty() && etag.equals(info.getProperty(etagKey)) ;
+	}
+	
+	
+	/**
+	 * @return the layout of the parts, or null if the object is downloaded as a single stream
+	 */
+	public synchronized String getLayout ()
+	{
+		return info.getProperty(layoutKey) ;
+	}
+	
+	
+	/**
+	 * @return the numbers of the parts already received
+	 */
+	public synchronized Set<Long> getReceivedParts ()
+	{
+		Set<Long> ret = new TreeSet<Long> () ;
+		String parts = info.getProperty(partsKey, "") ;
+		for (String part : parts.split(","))
+		{
+			if (part.trim().isEmpty())
+				continue ;
+			try
+			{
+				ret.add(Long.valueOf(part.trim())) ;
+			}
+			catch (NumberFormatException e)
+			{
+				logger.error("Invalid part number in " + infoFile.getPath(), e) ;
+			}
+		}
+		return ret ;
+	}
+	
+	
+	/**
+	 * Starts a new partial download, the previous one (if any) is discarded
+	 * @param etag the etag of the object
+	 * @param layout the layout of the parts, or null if the object is downloaded as a single stream
+	 * @throws IOException
+	 */
+	public synchronized void start (String etag, String layout) throws IOException
+	{
+		discard () ;
+		if (etag != null)
+			info.setProperty(etagKey, etag) ;
+		if (layout != null)
+			info.setProperty(layoutKey, layout) ;
+		save () ;
+	}
+	
+	
+	/**
+	 * Records that the given part has been received (the part must have been written to the disk)
+	 * @param partNumber
+	 * @throws IOException
+	 */
+	public synchronized void setReceived (long partNumber) throws IOException
+	{
+		String parts = info.getProperty(partsKey) ;
+		info.setProperty(partsKey, (parts == null || parts.isEmpty()) ? (String.valueOf(partNumber)) : (parts + "," + partNumber)) ;
+		save () ;
+	}
+	
+	
+	/**
+	 * Deletes the ".part" file and its info
+	 * @throws IOException
+	 */
+	public synchronized void discard () throws IOException
+	{
+		info.clear() ;
+		Files.deleteIfExists(partFile.toPath()) ;
+		Files.deleteIfExists(infoFile.toPath()) ;
+	}
+	
+	
+	/**
+	 * Renames the ".part" file to the given target, atomically if possible, and deletes its info
+	 * @param target
+	 * @throws IOException
+	 */
+	public synchronized void complete (File target) throws IOException
+	{
+		try
+		{
+			Files.move(partFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE) ;
+		}
+		catch (AtomicMoveNotSupportedException e)
+		{
+			logger.info("Atomic move not supported, {} is moved non-atomically", target.getPath()) ;
+			Files.move(partFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING) ;
+		}
+		info.clear() ;
+		Files.deleteIfExists(infoFile.toPath()) ;
+	}
+	
+	
+	private void load ()
+	{
+		if (!infoFile.isFile())
+			return ;
+		try
+		{
+			InputStream in = new FileInputStream (infoFile) ;
+			try
+			{
+				info.load(in) ;
+			}
+			finally
+			{
+				in.close() ;
+			}
+		}
+		catch (IOException | IllegalArgumentException e)
+		{
+			// the partial download will not be resumed
+			logger.error("Failed to read " + infoFile.getPath(), e) ;
+			info.clear() ;
+		}
+	}
+	
+	
+	private void save () throws IOException
+	{
+		OutputStream out = new FileOutputStream (infoFile) ;
+		try
+		{
+			info.store(out, null) ;
+		}
+		finally
+		{
+			out.close() ;
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.swiftexplorer.util.FileUtils.InputStreamProgressFilter;
+
+
+/*
+ * Combines the progress of the parts of an object (segments, ranges) being 
+ * transferred concurrently into the progress of the whole object.
+ */
+class PartsProgress {
+	
+	private final ProgressInformation progInfo ;
+	private final long totalSize ;
+	private final AtomicLongArray partsBytes ;
+	private final AtomicLong bytes = new AtomicLong () ;
+	
+	
+	PartsProgress (ProgressInformation progInfo, long numberOfParts, long totalSize)
+	{
+		super () ;
+		this.progInfo = progInfo ;
+		this.totalSize = totalSize ;
+		this.partsBytes = new AtomicLongArray ((int) numberOfParts) ;
+	}
+	
+	
+	/**
+	 * @param partNumber the 1-indexed number of the part
+	 * @param length the size of the part
+	 * @return a callback to be given to the stream of the part
+	 */
+	public InputStreamProgressFilter.StreamProgressCallback getCallback (final long partNumber, final long length)
+	{
+		return new InputStreamProgressFilter.StreamProgressCallback () {
+			@Override
+			public void onStreamProgress(double progress) {
+				update (partNumber, (long) (Math.min(1.0, progress) * length)) ;
+			}} ;
+	}
+	
+	
+	public void setDone (long partNumber, long length)
+	{
+		update (partNumber, length) ;
+	}
+	
+	
+	/**
+	 * sets the progress of a part received by a former attempt, its bytes are not counted as streamed
+	 * @param partNumber the 1-indexed number of the part
+	 * @param length the size of the part
+	 */
+	public void setAlreadyReceived (long partNumber, long length)
+	{
+		long previous = partsBytes.getAndSet((int) (partNumber - 1), length) ;
+		bytes.addAndGet(length - previous) ;
+	}
+	
+	
+	public long getBytes ()
+	{
+		return bytes.get() ;
+	}
+	
+	
+	private void update (long partNumber, long partBytes)
+	{
+		long previous = partsBytes.getAndSet((int) (partNumber - 1), partBytes) ;
+		long current = bytes.addAndGet(partBytes - previous) ;
+		if (progInfo == null)
+			return ;
+		progInfo.onStreamBytes(partBytes - previous) ;
+		progInfo.onStreamProgress((totalSize <= 0) ? (1.0) : (current / (double) totalSize)) ;
+	}
+}
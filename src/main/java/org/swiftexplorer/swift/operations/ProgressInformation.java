@@ -12,19 +12,63 @@
  * the License.
  */
 
+
 package org.swiftexplorer.swift.operations;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.swiftexplorer.swift.operations.SwiftOperations.SwiftCallback;
+import org.swiftexplorer.util.FileUtils;
 import org.swiftexplorer.util.FileUtils.InputStreamProgressFilter;
 
-public class ProgressInformation implements InputStreamProgressFilter.StreamProgressCallback
+
+/*
+ * Collects the progress of an operation, possibly from many concurrent transfers, and
+ * reports it to the callback. 
+ * 
+ * The updates are cheap (volatile writes and atomic counters, no lock), and the reports are 
+ * coalesced to a fixed frame rate: a report requested less than one frame after the previous 
+ * one is deferred to the end of the frame, and all the reports requested in between are 
+ * merged into it. Hence the latest state always reaches the callback, within one frame.
+ */
+public class ProgressInformation implements InputStreamProgressFilter.StreamBytesCallback
 {
-	private double totalProgress = 0 ;
-	private double currentProgress = 0 ;
-	private String totalMessage = null ;
-	private String currentMessage = null ;
+	private static final long frameInterval = TimeUnit.MILLISECONDS.toNanos(50) ; // 20 frames per second
+	
+	// the weight of the latest frame in the transfer rate
+	private static final double rateSmoothing = 0.2 ;
+	
+	private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory () {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread (r, "progress-reporter") ;
+			t.setDaemon(true);
+			return t ;
+		}}) ;
+	
+	private volatile double totalProgress = 0 ;
+	private volatile double currentProgress = 0 ;
+	private volatile String totalMessage = null ;
+	private volatile String currentMessage = null ;
 	private final boolean isSingleTask ;
 	
+	private final long startTime = System.nanoTime() ;
+	private final AtomicLong streamedBytes = new AtomicLong () ;
+	private final AtomicLong expectedBytes = new AtomicLong () ;
+	
+	private final AtomicLong lastReport = new AtomicLong (startTime - frameInterval) ;
+	private final AtomicBoolean reportPending = new AtomicBoolean () ;
+	
+	// only updated when reporting
+	private long rateTime = startTime ;
+	private long rateBytes = 0 ;
+	private volatile double bytesPerSecond = 0 ;
+	
 	private final SwiftCallback callback ;
 	
 	public ProgressInformation (SwiftCallback callback, boolean isSingleTask)
@@ -34,41 +78,158 @@ public class ProgressInformation implements InputStreamProgressFilter.StreamProg
 		this.isSingleTask = isSingleTask ;
 	}
 	
-	public synchronized void report ()
+	/**
+	 * reports the progress to the callback, now or at the end of the current frame.
+	 */
+	public void report ()
 	{
 		if (callback == null)
 			return ;
-		callback.onProgress(totalProgress, totalMessage, (isSingleTask)?(totalProgress):(currentProgress), (isSingleTask)?(totalMessage):(currentMessage));
+		long now = System.nanoTime() ;
+		long last = lastReport.get() ;
+		if (now - last >= frameInterval && lastReport.compareAndSet(last, now))
+		{
+			emit (now) ;
+			return ;
+		}
+		if (!reportPending.compareAndSet(false, true))
+			return ;
+		scheduler.schedule(new Runnable () {
+			@Override
+			public void run() {
+				reportPending.set(false);
+				long now = System.nanoTime() ;
+				lastReport.set(now);
+				emit (now) ;
+			}}, Math.max(0, last + frameInterval - now), TimeUnit.NANOSECONDS) ;
+	}
+	
+	/**
+	 * reports the progress to the callback immediately.
+	 */
+	public void flush ()
+	{
+		if (callback == null)
+			return ;
+		long now = System.nanoTime() ;
+		lastReport.set(now);
+		emit (now) ;
+	}
+	
+	private void emit (long now)
+	{
+		updateRate (now) ;
+		String totalMsg = appendRate (totalMessage) ;
+		double total = totalProgress ;
+		callback.onProgress(total, totalMsg, (isSingleTask)?(total):(currentProgress), (isSingleTask)?(totalMsg):(currentMessage));
+	}
+	
+	private synchronized void updateRate (long now)
+	{
+		long elapsed = now - rateTime ;
+		if (elapsed < frameInterval)
+			return ;
+		long bytes = streamedBytes.get() ;
+		double rate = (bytes - rateBytes) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed ;
+		bytesPerSecond = (rateBytes == 0 && bytesPerSecond == 0) ? (rate) : (rateSmoothing * rate + (1 - rateSmoothing) * bytesPerSecond) ;
+		rateTime = now ;
+		rateBytes = bytes ;
+	}
+	
+	private String appendRate (String msg)
+	{
+		if (msg == null || streamedBytes.get() == 0)
+			return msg ;
+		StringBuilder sb = new StringBuilder (msg) ;
+		sb.append(" - ") ;
+		sb.append(FileUtils.humanReadableByteCount((long) bytesPerSecond, true)) ;
+		sb.append("/s") ;
+		long eta = getEstimatedRemainingSeconds () ;
+		if (eta >= 0)
+		{
+			sb.append(", ") ;
+			sb.append(String.format("%d:%02d:%02d left", eta / 3600, (eta / 60) % 60, eta % 60)) ;
+		}
+		return sb.toString() ;
 	}
 
 	@Override
-	public synchronized void onStreamProgress(double progress) {
+	public void onStreamProgress(double progress) {
 		setCurrentProgress(progress) ;
 		report () ;
 	}
 	
-	public synchronized void setCurrentProgress (double p)
+	@Override
+	public void onStreamBytes(long bytes) {
+		streamedBytes.addAndGet(bytes) ;
+	}
+	
+	public void setCurrentProgress (double p)
 	{
 		currentProgress = p ;
 	}
 	
-	public synchronized void setTotalProgress (double p)
+	public void setTotalProgress (double p)
 	{
 		totalProgress = p ;
 	}
 	
-	public synchronized void setTotalMessage (String msg)
+	public void setTotalMessage (String msg)
 	{
 		totalMessage = msg ;
 	}
 	
-	public synchronized void setCurrentMessage (String msg)
+	public void setCurrentMessage (String msg)
 	{
 		currentMessage = msg ;
 	}
 	
-	public synchronized String getCurrentMessage ()
+	public String getCurrentMessage ()
 	{
 		return currentMessage ;
 	}
+	
+	/**
+	 * adds the size of a transfer to the total, so that the remaining time can be estimated.
+	 * @param n
+	 */
+	public void addExpectedBytes (long n)
+	{
+		expectedBytes.addAndGet(n) ;
+	}
+	
+	public long getExpectedBytes ()
+	{
+		return expectedBytes.get() ;
+	}
+	
+	/**
+	 * @return the number of bytes read or written by the transfer streams so far.
+	 */
+	public long getStreamedBytes ()
+	{
+		return streamedBytes.get() ;
+	}
+	
+	/**
+	 * @return the recent number of bytes streamed per second, as of the latest report.
+	 */
+	public double getBytesPerSecond ()
+	{
+		return bytesPerSecond ;
+	}
+	
+	/**
+	 * @return the estimated number of seconds before all the expected bytes are transferred, 
+	 * or -1 if it cannot be estimated.
+	 */
+	public long getEstimatedRemainingSeconds ()
+	{
+		long expected = expectedBytes.get() ;
+		double rate = bytesPerSecond ;
+		if (expected <= 0 || rate <= 0)
+			return -1 ;
+		long remaining = Math.max(0, expected - streamedBytes.get()) ;
+		return (long) Math.ceil(remaining / rate) ;
+	}
 }
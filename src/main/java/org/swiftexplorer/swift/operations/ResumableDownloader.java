@@ -0,0 +1,286 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.javaswift.joss.exception.CommandException;
+import org.javaswift.joss.instructions.DownloadInstructions;
+import org.javaswift.joss.model.StoredObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.swiftexplorer.swift.instructions.ByteRange;
+import org.swiftexplorer.swift.util.SwiftUtils;
+import org.swiftexplorer.util.FileUtils;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+
+/*
+ * Downloads an object as a single stream into a ".part" file next to the target. If the
+ * transfer is interrupted, the ".part" file is kept, and the next attempt (retry or restart)
+ * only requests the missing bytes (HTTP Range). Once complete, the content is checked against 
+ * the etag, and the ".part" file is atomically renamed to the target.
+ * 
+ * The etag of the object is recorded next to the ".part" file (see {@link PartialDownload}), 
+ * and a ".part" file downloaded from another version of the object is discarded. 
+ * The etag of a segmented object is not the md5 of its content: each segment is hashed on its 
+ * own, and the sum of their md5 is checked against the etags of the segments.
+ */
+class ResumableDownloader {
+
+	final Logger logger = LoggerFactory.getLogger(ResumableDownloader.class);
+	
+	private static final int bufferSize = 65536 ;
+	
+	private final LargeObjectManager largeObjectManager ;
+	
+	
+	ResumableDownloader (LargeObjectManager largeObjectManager)
+	{
+		super () ;
+		this.largeObjectManager = largeObjectManager ;
+	}
+	
+	
+	public static File getPartFile (File target)
+	{
+		return PartialDownload.getPartFile (target) ;
+	}
+	
+	
+	/**
+	 * @param obj
+	 * @param target
+	 * @return true if a partial download (as a single stream) of the given object to the given target exists
+	 */
+	public static boolean hasPartialDownload (StoredObject obj, File target)
+	{
+		PartialDownload partial = new PartialDownload (target) ;
+		File part = partial.getPartFile() ;
+		return partial.isResumable(obj.getEtag()) && partial.getLayout() == null && part.length() > 0 && part.length() < obj.getContentLength() ;
+	}
+	
+	
+	/**
+	 * Downloads the given object into the given target, resuming the partial download if any.
+	 * A CommandException is thrown if the connection is lost while the content is being 
+	 * received, so that the caller may retry (the received bytes are kept).
+	 * @param obj
+	 * @param target
+	 * @param progInfo
+	 * @throws IOException
+	 */
+	public void download (StoredObject obj, File target, ProgressInformation progInfo) throws IOException
+	{
+		if (obj == null || target == null)
+			throw new AssertionError () ;
+		
+		final PartialDownload partial = new PartialDownload (target) ;
+		final File part = partial.getPartFile() ;
+		final long size = obj.getContentLength() ;
+		final String etag = obj.getEtag() ;
+		long offset = getResumeOffset (obj, partial, etag, size) ;
+		
+		final List<StoredObject> segments = (largeObjectManager != null && largeObjectManager.isSegmented(obj)) ? (largeObjectManager.getSegmentsList(obj)) : (null) ;
+		final ContentHasher hasher = new ContentHasher (segments) ;
+		if (offset > 0)
+		{
+			logger.info("Resuming the download of {} at byte {}", obj.getName(), offset) ;
+			hash (part, hasher) ;
+			// the bytes already received are not expected anymore
+			progInfo.addExpectedBytes(-offset) ;
+		}
+		else
+			partial.start(etag, null) ;
+		if (offset < size || size == 0)
+			receive (obj, part, offset, size, hasher, progInfo) ;
+		
+		String md5 = hasher.hash() ;
+		String expected = (segments == null) ? (etag) : (hasher.getExpectedMd5()) ;
+		if (!SwiftUtils.isSameMd5(expected, md5))
+		{
+			// we cannot tell which bytes are corrupted, the whole content must be downloaded again
+			partial.discard() ;
+			throw new CommandException (String.format("The etag of %s does not match the md5 of the downloaded content", obj.getName())) ;
+		}
+		partial.complete(target) ;
+	}
+	
+	
+	private long getResumeOffset (StoredObject obj, PartialDownload partial, String etag, long size) throws IOException
+	{
+		File part = partial.getPartFile() ;
+		if (!part.isFile())
+			return 0 ;
+		long length = part.length() ;
+		if (!partial.isResumable(etag) || partial.getLayout() != null || length > size)
+		{
+			logger.info("Discarding the partial download of {}", obj.getName()) ;
+			partial.discard() ;
+			return 0 ;
+		}
+		return length ;
+	}
+	
+	
+	private void receive (StoredObject obj, File part, long offset, long size, ContentHasher hasher, ProgressInformation progInfo) throws IOException
+	{
+		InputStream in = null ;
+		OutputStream out = new FileOutputStream (part, offset > 0) ;
+		try
+		{
+			in = (offset > 0) ? (obj.downloadObjectAsInputStream(new DownloadInstructions ().setRange(new ByteRange (offset, size - 1)))) : (obj.downloadObjectAsInputStream()) ;
+			in = FileUtils.getInputStreamWithProgressFilter(progInfo, size - offset, in) ;
+			byte [] buffer = new byte [bufferSize] ;
+			long received = offset ;
+			int n ;
+			while ((n = read (obj, in, buffer)) != -1)
+			{
+				out.write(buffer, 0, n) ;
+				hasher.putBytes(buffer, 0, n) ;
+				received += n ;
+			}
+			// the length of a manifest may not reflect the size of its segments, only a truncated stream is an error
+			if (received < size)
+				throw new CommandException (String.format("%s: %d bytes received, %d bytes expected", obj.getName(), received, size)) ;
+		}
+		finally
+		{
+			out.close() ;
+			if (in != null)
+				in.close() ;
+		}
+	}
+	
+	
+	private static int read (StoredObject obj, InputStream in, byte [] buffer)
+	{
+		try
+		{
+			return in.read(buffer) ;
+		}
+		catch (IOException e)
+		{
+			// the connection was lost: the caller may retry, and the download will then resume
+			throw new CommandException (String.format("Error occurred while downloading %s", obj.getName()), e) ;
+		}
+	}
+	
+	
+	private static void hash (File file, ContentHasher hasher) throws IOException
+	{
+		InputStream in = new FileInputStream (file) ;
+		try
+		{
+			byte [] buffer = new byte [bufferSize] ;
+			int n ;
+			while ((n = in.read(buffer)) != -1)
+				hasher.putBytes(buffer, 0, n) ;
+		}
+		finally
+		{
+			in.close() ;
+		}
+	}
+	
+	
+	/*
+	 * Hashes the content of the object. The content of a segmented object is hashed segment 
+	 * by segment (the lengths of the segments are known from the listing).
+	 */
+	private static class ContentHasher
+	{
+		private final List<StoredObject> segments ;
+		private final List<String> segmentsMd5 = new ArrayList<String> () ;
+		private Hasher hasher = Hashing.md5().newHasher() ;
+		private long remaining ;
+		
+		
+		ContentHasher (List<StoredObject> segments)
+		{
+			super () ;
+			this.segments = segments ;
+			this.remaining = getSegmentLength (0) ;
+		}
+		
+		
+		private long getSegmentLength (int index)
+		{
+			// the bytes beyond the last segment are hashed as an extra segment, the check then fails
+			if (segments == null || index >= segments.size())
+				return Long.MAX_VALUE ;
+			return segments.get(index).getContentLength() ;
+		}
+		
+		
+		public void putBytes (byte [] bytes, int off, int len)
+		{
+			while (len > 0)
+			{
+				while (remaining == 0)
+				{
+					segmentsMd5.add(hasher.hash().toString()) ;
+					hasher = Hashing.md5().newHasher() ;
+					remaining = getSegmentLength (segmentsMd5.size()) ;
+				}
+				int n = (int) Math.min(len, remaining) ;
+				hasher.putBytes(bytes, off, n) ;
+				off += n ;
+				len -= n ;
+				remaining -= n ;
+			}
+		}
+		
+		
+		/**
+		 * @return the md5 of the content, or the sum of the md5 of the segments for a segmented object
+		 * @throws IOException
+		 */
+		public String hash () throws IOException
+		{
+			String md5 = hasher.hash().toString() ;
+			if (segments == null)
+				return md5 ;
+			List<String> ret = new ArrayList<String> (segmentsMd5) ;
+			ret.add(md5) ;
+			// the trailing empty segments
+			while (ret.size() < segments.size())
+				ret.add(FileUtils.emptyMd5) ;
+			return FileUtils.getSumOfSegmentsMd5(ret) ;
+		}
+		
+		
+		/**
+		 * @return the sum of the etags of the segments
+		 * @throws IOException
+		 */
+		public String getExpectedMd5 () throws IOException
+		{
+			List<String> etags = new ArrayList<String> () ;
+			for (StoredObject segment : segments)
+				etags.add(segment.getEtag().replace("\"", "").trim()) ;
+			return FileUtils.getSumOfSegmentsMd5(etags) ;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+
+/*
+ * Decides whether, and when, a failed Swift command is sent again. The commands are run through 
+ * execute, which returns the result of the first successful attempt, or rethrows the failure that
+ * the policy has given up on.
+ * 
+ * The default policy (exponential backoff with jitter) can be replaced, e.g., by a policy that 
+ * never retries.
+ */
+public abstract class RetryPolicy {
+
+	public interface Command<T, E extends Exception> {
+		public T call () throws E ;
+	}
+	
+	
+	private static volatile RetryPolicy instance = new BackoffRetryPolicy () ;
+	
+	
+	public static RetryPolicy getDefault ()
+	{
+		return instance ;
+	}
+	
+	
+	public static void setDefault (RetryPolicy policy)
+	{
+		if (policy == null)
+			throw new IllegalArgumentException ("The retry policy cannot be null") ;
+		instance = policy ;
+	}
+	
+	
+	/**
+	 * a policy that runs each command once
+	 */
+	public static final RetryPolicy noRetry = new RetryPolicy () {
+		@Override
+		public <T, E extends Exception> T execute(String description, Command<T, E> command) throws E {
+			return command.call() ;
+		}} ;
+	
+	
+	/**
+	 * runs the given command, and runs it again when it fails, as long as the policy allows it
+	 * @param description the description of the command (for logging)
+	 * @param command
+	 * @return the result of the command
+	 * @throws E
+	 */
+	public abstract <T, E extends Exception> T execute (String description, Command<T, E> command) throws E ;
+}
@@ -412,6 +412,20 @@ public interface SwiftOperations {
     void deleteDirectory(Container container, StoredObject storedObject, StopRequester stopRequester, SwiftCallback callback);
     
     
+    /**
+     * lists the objects of the given container whose name starts with the given prefix. 
+     * The objects are listed lazily, page after page, and each page is passed on to the page 
+     * callback as soon as it arrives (in name order), so that the memory used does not depend on 
+     * the size of the container.
+     * @param container the container.
+     * @param prefix the prefix (all the objects are listed if it is null or empty).
+     * @param pageCallback the callback to call for each page of objects.
+     * @param stopRequester to stop the task.
+     * @param callback the callback to call.
+     */
+    void listStoredObjects(Container container, String prefix, ResultCallback<Collection<StoredObject> > pageCallback, StopRequester stopRequester, SwiftCallback callback);
+    
+    
     /**
      * refreshes the directories and stored object list in the given container under the given parent.
      * @param container the container.
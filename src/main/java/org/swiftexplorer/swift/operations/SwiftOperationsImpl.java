@@ -35,14 +35,17 @@ package org.swiftexplorer.swift.operations;
 import org.swiftexplorer.config.proxy.HasProxySettings;
 import org.swiftexplorer.config.swift.HasSwiftSettings;
 import org.swiftexplorer.swift.client.impl.HttpClientFactoryImpl;
+import org.swiftexplorer.swift.client.impl.UploadEtagInterceptor;
 import org.swiftexplorer.swift.operations.DifferencesFinder.LocalItem;
 import org.swiftexplorer.swift.operations.DifferencesFinder.RemoteItem;
 import org.swiftexplorer.swift.util.SwiftUtils;
+import org.swiftexplorer.util.FileHashCache;
 import org.swiftexplorer.util.FileUtils;
 import org.swiftexplorer.util.Pair;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.InputStream;
 import java.nio.file.AccessDeniedException;
 import java.nio.file.Files;
@@ -53,18 +56,22 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.http.client.HttpClient;
 import org.javaswift.joss.client.factory.AccountConfig;
 import org.javaswift.joss.client.factory.AccountFactory;
 import org.javaswift.joss.exception.CommandException;
-import org.javaswift.joss.exception.CommandExceptionError;
+import org.javaswift.joss.exception.NotFoundException;
 import org.javaswift.joss.instructions.UploadInstructions;
 import org.javaswift.joss.model.Account;
 import org.javaswift.joss.model.Container;
@@ -75,6 +82,9 @@ import org.javaswift.joss.model.StoredObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+
 
 public class SwiftOperationsImpl implements SwiftOperations {
 	
@@ -85,11 +95,22 @@ public class SwiftOperationsImpl implements SwiftOperations {
     private volatile Account account = null;
     
     private LargeObjectManager largeObjectManager = null ;
+    private ParallelDownloader parallelDownloader = null ;
+    private ResumableDownloader resumableDownloader = null ;
+    private volatile BulkDeleter bulkDeleter = null ;
     
     private volatile boolean useCustomSegmentation = false ;
     private volatile long segmentationSize = 104857600 ; // 100MB
     
-    private final int numberOfCommandErrorRetry = 5 ;
+    private volatile int numberOfConcurrentTransfers = 1 ;
+    private volatile int numberOfConcurrentSegmentTransfers = 1 ;
+    private final int maxReportedTransferFailures = 10 ;
+    
+    // the operations are not serialized, see OperationLocks
+    private final OperationLocks locks = new OperationLocks () ;
+    
+    // set once the user settings are known; the file transfers are then adaptively bounded
+    private volatile AdaptiveConcurrencyController concurrencyController = null ;
 
     public SwiftOperationsImpl() {
     	super () ;
@@ -102,6 +123,12 @@ public class SwiftOperationsImpl implements SwiftOperations {
     }
     
     
+    void setBulkDeleter (BulkDeleter bulkDeleter)
+    {
+    	this.bulkDeleter = bulkDeleter ;
+    }
+    
+    
     private void CheckAccount ()
     {
     	if (account == null)
@@ -114,9 +141,11 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * {@inheritDoc}.
      */
 	@Override
-	public synchronized void login(AccountConfig accConf, SwiftCallback callback) {
-
-		this.login(accConf, null, null, callback);
+	public void login(AccountConfig accConf, SwiftCallback callback) {
+		try (OperationLocks.Held lock = locks.lockSession(true))
+		{
+			this.login(accConf, null, null, callback);
+		}
 	}
 	
 	
@@ -124,9 +153,11 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * {@inheritDoc}.
      */
 	@Override
-	public synchronized void login(AccountConfig accConf, HasProxySettings proxySettings, SwiftCallback callback) {
-
-		this.login(accConf, null, proxySettings, callback);
+	public void login(AccountConfig accConf, HasProxySettings proxySettings, SwiftCallback callback) {
+		try (OperationLocks.Held lock = locks.lockSession(true))
+		{
+			this.login(accConf, null, proxySettings, callback);
+		}
 	}
     
     
@@ -134,9 +165,11 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * {@inheritDoc}.
      */
 	@Override
-	public synchronized void login(AccountConfig accConf, HasSwiftSettings swiftSettings, SwiftCallback callback) {
-
-		this.login(accConf, swiftSettings, null, callback);
+	public void login(AccountConfig accConf, HasSwiftSettings swiftSettings, SwiftCallback callback) {
+		try (OperationLocks.Held lock = locks.lockSession(true))
+		{
+			this.login(accConf, swiftSettings, null, callback);
+		}
 	}
 	
 	
@@ -144,33 +177,44 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * {@inheritDoc}.
      */
 	@Override
-	public synchronized void login(AccountConfig accConf, HasSwiftSettings swiftSettings, HasProxySettings proxySettings, SwiftCallback callback) {
-
-		String preferredRegion = null ;
-		if (swiftSettings != null) {
+	public void login(AccountConfig accConf, HasSwiftSettings swiftSettings, HasProxySettings proxySettings, SwiftCallback callback) {
+		try (OperationLocks.Held lock = locks.lockSession(true))
+		{
+			String preferredRegion = null ;
+			if (swiftSettings != null) {
 			
-	    	this.segmentationSize = swiftSettings.getSegmentationSize() ;
-	    	useCustomSegmentation = true ;
-	    	preferredRegion = swiftSettings.getPreferredRegion() ;
-	    	preferredRegion = ((preferredRegion == null || preferredRegion.trim().isEmpty()) ? (null) : (preferredRegion.trim())) ;
-		}
+		    	this.segmentationSize = swiftSettings.getSegmentationSize() ;
+		    	useCustomSegmentation = true ;
+		    	preferredRegion = swiftSettings.getPreferredRegion() ;
+		    	preferredRegion = ((preferredRegion == null || preferredRegion.trim().isEmpty()) ? (null) : (preferredRegion.trim())) ;
+		    	if (swiftSettings.getNumberOfConcurrentTransfers() > 0)
+		    		numberOfConcurrentTransfers = swiftSettings.getNumberOfConcurrentTransfers() ;
+		    	concurrencyController = AdaptiveConcurrencyController.getDefault() ;
+		    	concurrencyController.setMaximum(numberOfConcurrentTransfers);
+		    	if (swiftSettings.getNumberOfConcurrentSegmentTransfers() > 0)
+		    		numberOfConcurrentSegmentTransfers = swiftSettings.getNumberOfConcurrentSegmentTransfers() ;
+			}
 		
-		if (swiftSettings == null && proxySettings == null) {
-			
-			account = new AccountFactory(accConf).setAuthUrl("").createAccount();
-		} else if (swiftSettings == null) {
+			HttpClient httpClient = null ;
+			if (swiftSettings == null && proxySettings == null) {
 			
-			account = new AccountFactory(accConf).setAuthUrl("").setHttpClient(new HttpClientFactoryImpl ().getHttpClient(accConf, proxySettings)).createAccount();
-		} else if (proxySettings == null) {
+				account = new AccountFactory(accConf).setAuthUrl("").createAccount();
+			} else if (swiftSettings == null) {
 			
-			account = new AccountFactory(accConf).setAuthUrl("").setPreferredRegion(preferredRegion).createAccount();
-		} else {
+				httpClient = new HttpClientFactoryImpl ().getHttpClient(accConf, proxySettings) ;
+				account = new AccountFactory(accConf).setAuthUrl("").setHttpClient(httpClient).createAccount();
+			} else {
 				
-			account = new AccountFactory(accConf).setAuthUrl("").setPreferredRegion(preferredRegion).setHttpClient(new HttpClientFactoryImpl ().getHttpClient(accConf, proxySettings)).createAccount();
+				httpClient = new HttpClientFactoryImpl ().getHttpClient(accConf, swiftSettings, proxySettings) ;
+				account = new AccountFactory(accConf).setAuthUrl("").setPreferredRegion(preferredRegion).setHttpClient(httpClient).createAccount();
+			}
+			largeObjectManager = new LargeObjectManagerImpl (account, numberOfConcurrentSegmentTransfers) ;
+			parallelDownloader = new ParallelDownloader (largeObjectManager, numberOfConcurrentSegmentTransfers, segmentationSize) ;
+			resumableDownloader = new ResumableDownloader (largeObjectManager) ;
+			bulkDeleter = newBulkDeleter (accConf, httpClient, swiftSettings, proxySettings) ;
+	        callback.onLoginSuccess();
+	        callback.onNumberOfCalls(account.getNumberOfCalls());
 		}
-		largeObjectManager = new LargeObjectManagerImpl (account) ;
-        callback.onLoginSuccess();
-        callback.onNumberOfCalls(account.getNumberOfCalls());
 	}
 	
 	
@@ -178,9 +222,11 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * {@inheritDoc}.
      */
     @Override
-    public synchronized void login(AccountConfig accConf, String url, String tenant, String user, String pass, SwiftCallback callback) {
-
-    	this.login(accConf, null, url, tenant, user, pass, callback) ;
+    public void login(AccountConfig accConf, String url, String tenant, String user, String pass, SwiftCallback callback) {
+    	try (OperationLocks.Held lock = locks.lockSession(true))
+    	{
+	    	this.login(accConf, null, url, tenant, user, pass, callback) ;
+    	}
     }
     
 	
@@ -188,35 +234,71 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * {@inheritDoc}.
      */
     @Override
-    public synchronized void login(AccountConfig accConf, HasSwiftSettings swiftSettings, String url, String tenant, String user, String pass, SwiftCallback callback) {
-
-		String preferredRegion = null ;
-		if (swiftSettings != null) {
+    public void login(AccountConfig accConf, HasSwiftSettings swiftSettings, String url, String tenant, String user, String pass, SwiftCallback callback) {
+    	try (OperationLocks.Held lock = locks.lockSession(true))
+    	{
+			String preferredRegion = null ;
+			if (swiftSettings != null) {
 			
-	    	this.segmentationSize = swiftSettings.getSegmentationSize() ;
-	    	useCustomSegmentation = true ;
-	    	preferredRegion = swiftSettings.getPreferredRegion() ;
-	    	preferredRegion = ((preferredRegion == null || preferredRegion.trim().isEmpty()) ? (null) : (preferredRegion.trim())) ;
-		}
+		    	this.segmentationSize = swiftSettings.getSegmentationSize() ;
+		    	useCustomSegmentation = true ;
+		    	preferredRegion = swiftSettings.getPreferredRegion() ;
+		    	preferredRegion = ((preferredRegion == null || preferredRegion.trim().isEmpty()) ? (null) : (preferredRegion.trim())) ;
+		    	if (swiftSettings.getNumberOfConcurrentTransfers() > 0)
+		    		numberOfConcurrentTransfers = swiftSettings.getNumberOfConcurrentTransfers() ;
+		    	concurrencyController = AdaptiveConcurrencyController.getDefault() ;
+		    	concurrencyController.setMaximum(numberOfConcurrentTransfers);
+		    	if (swiftSettings.getNumberOfConcurrentSegmentTransfers() > 0)
+		    		numberOfConcurrentSegmentTransfers = swiftSettings.getNumberOfConcurrentSegmentTransfers() ;
+			}
 		
-    	account = new AccountFactory(accConf).setPreferredRegion(preferredRegion).setUsername(user).setPassword(pass).setTenantName(tenant).setAuthUrl(url).createAccount();
-    	largeObjectManager = new LargeObjectManagerImpl (account) ;
+	    	AccountFactory accountFactory = new AccountFactory(accConf).setPreferredRegion(preferredRegion).setUsername(user).setPassword(pass).setTenantName(tenant).setAuthUrl(url) ;
+	    	HttpClient httpClient = null ;
+	    	if (swiftSettings != null)
+	    	{
+	    		httpClient = new HttpClientFactoryImpl ().getHttpClient(accConf, swiftSettings, null) ;
+	    		accountFactory.setHttpClient(httpClient) ;
+	    	}
+	    	account = accountFactory.createAccount();
+	    	largeObjectManager = new LargeObjectManagerImpl (account, numberOfConcurrentSegmentTransfers) ;
+	    	parallelDownloader = new ParallelDownloader (largeObjectManager, numberOfConcurrentSegmentTransfers, segmentationSize) ;
+	    	resumableDownloader = new ResumableDownloader (largeObjectManager) ;
+	    	bulkDeleter = newBulkDeleter (accConf, httpClient, swiftSettings, null) ;
         
-        callback.onLoginSuccess();
-        callback.onNumberOfCalls(account.getNumberOfCalls());
+	        callback.onLoginSuccess();
+	        callback.onNumberOfCalls(account.getNumberOfCalls());
+    	}
     }
 
 
+    private BulkDeleter newBulkDeleter (AccountConfig accConf, HttpClient httpClient, HasSwiftSettings swiftSettings, HasProxySettings proxySettings)
+    {
+    	// there is no cluster behind the mock account
+    	if (accConf == null || accConf.isMock())
+    		return null ;
+    	// Joss does not give access to the client it creates by default
+    	if (httpClient == null)
+    		httpClient = new HttpClientFactoryImpl ().getHttpClient(accConf, swiftSettings, proxySettings) ;
+    	return new BulkDeleter (account, httpClient) ;
+    }
+    
+    
     /**
      * {@inheritDoc}.
      */
     @Override
-    public synchronized void logout(SwiftCallback callback) {
-        account = null;
-        largeObjectManager = null ;
+    public void logout(SwiftCallback callback) {
+    	try (OperationLocks.Held lock = locks.lockSession(true))
+    	{
+	        account = null;
+	        largeObjectManager = null ;
+	        parallelDownloader = null ;
+	        resumableDownloader = null ;
+	        bulkDeleter = null ;
         
-        callback.onLogoutSuccess();
-        callback.onNumberOfCalls(0);
+	        callback.onLogoutSuccess();
+	        callback.onNumberOfCalls(0);
+    	}
     }
     
     
@@ -224,71 +306,73 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * {@inheritDoc}.
      */
     @Override
-    public synchronized void createContainer(ContainerSpecification spec, SwiftCallback callback) {
-    	
-    	CheckAccount () ;
+    public void createContainer(ContainerSpecification spec, SwiftCallback callback) {
+    	try (OperationLocks.Held lock = locks.lockContainer((spec == null) ? (null) : (spec.getName()), false))
+    	{
+	    	CheckAccount () ;
     	
-        if (spec != null) {
+	        if (spec != null) {
         	
-        	if (spec.getName().endsWith(SwiftUtils.segmentsContainerPostfix))
-        		throw new AssertionError ("A container name cannot end with \"" + SwiftUtils.segmentsContainerPostfix + "\"") ;
+	        	if (spec.getName().endsWith(SwiftUtils.segmentsContainerPostfix))
+	        		throw new AssertionError ("A container name cannot end with \"" + SwiftUtils.segmentsContainerPostfix + "\"") ;
         	
-            Container c = account.getContainer(spec.getName());
-            if (!c.exists()) {
-                c.create();
-                if (spec.isPrivateContainer()) {
-                    c.makePrivate();
-                } else {
-                    c.makePublic();
-                }
-            }
-            callback.onUpdateContainers(eagerFetchContainers(account));
-            callback.onNumberOfCalls(account.getNumberOfCalls());
-        }
+	            final Container c = account.getContainer(spec.getName());
+	            final boolean privateContainer = spec.isPrivateContainer() ;
+	            withRetries (String.format("Creating container %s", spec.getName()), new RetryPolicy.Command<Void, RuntimeException> () {
+					@Override
+					public Void call() {
+			            if (!c.exists()) {
+			                c.create();
+			                if (privateContainer) {
+			                    c.makePrivate();
+			                } else {
+			                    c.makePublic();
+			                }
+			            }
+			            return null ;
+					}}) ;
+	            callback.onUpdateContainers(eagerFetchContainers(account));
+	            callback.onNumberOfCalls(account.getNumberOfCalls());
+	        }
+    	}
     }
 
     
-    private Collection<Container> eagerFetchContainers(Account parent) {   	
+    private Collection<Container> eagerFetchContainers(final Account parent) {   	
     	
-    	parent.reload();
+    	withRetries ("Reloading the account", new RetryPolicy.Command<Void, RuntimeException> () {
+			@Override
+			public Void call() {
+				parent.reload();
+				return null ;
+			}}) ;
     	
         List<Container> results = new ArrayList<Container>(parent.getCount());
-        PaginationMap map = parent.getPaginationMap(MAX_PAGE_SIZE);
+        final PaginationMap map = parent.getPaginationMap(MAX_PAGE_SIZE);
         for (int page = 0; page < map.getNumberOfPages(); page++) {
-            results.addAll(parent.list(map, page));
+        	final int currentPage = page ;
+            results.addAll(withRetries ("Listing the containers", new RetryPolicy.Command<Collection<Container>, RuntimeException> () {
+				@Override
+				public Collection<Container> call() {
+					return parent.list(map, currentPage) ;
+				}}));
         }
         return results;
     }
     
 
-    private Collection<StoredObject> eagerFetchStoredObjects(Container parent) {
-    	 
-        Set<StoredObject> results = new TreeSet<StoredObject>();
-        PaginationMap map = parent.getPaginationMap(MAX_PAGE_SIZE);
-        for (int page = 0; page < map.getNumberOfPages(); page++) 
-        {
-        	for (StoredObject obj : parent.list(map, page))
-        	{
-        		if (!results.add (obj)) 
-        			logger.debug("Object listed twice: " + obj.getName());
-        	}
-        }
-        return results;
+    private Iterable<StoredObject> lazyFetchStoredObjects(Container parent) {
+    	return lazyFetchStoredObjects(parent, "") ;
     }
     
     
-    private Collection<StoredObject> eagerFetchStoredObjects(Container parent, String prefix) {
-        Set<StoredObject> results = new TreeSet<StoredObject>();
-        PaginationMap map = parent.getPaginationMap(MAX_PAGE_SIZE);
-        for (int page = 0; page < map.getNumberOfPages(); page++) 
-        {
-        	for (StoredObject obj : parent.list(prefix, map.getMarker(page), map.getPageSize()))
-        	{
-        		if (!results.add (obj)) 
-        			logger.debug(String.format("Object listed twice: %s (prefix used: %s)", obj.getName(), prefix));
-        	}
-        }
-        return results;
+    private Iterable<StoredObject> lazyFetchStoredObjects(Container parent, String prefix) {
+    	return PagedStoredObjectIterator.iterable(parent, prefix, MAX_PAGE_SIZE) ;
+    }
+    
+    
+    private ParallelLister newParallelLister () {
+    	return new ParallelLister (numberOfConcurrentTransfers, MAX_PAGE_SIZE) ;
     }
     
 
@@ -297,36 +381,38 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * @throws IOException 
      */
     @Override
-    public synchronized void createStoredObjects(Container container, File[] selectedFiles, StopRequester stopRequester, SwiftCallback callback) throws IOException {
-    	
-    	CheckAccount () ;
+    public void createStoredObjects(Container container, File[] selectedFiles, StopRequester stopRequester, SwiftCallback callback) throws IOException {
+    	try (OperationLocks.Held lock = locks.lockContainer(container, false))
+    	{
+	    	CheckAccount () ;
     	
-		int totalFiles = selectedFiles.length ;
-		int currentUplodedFilesCount = 0 ;
-		ProgressInformation progInfo = new ProgressInformation (callback, false) ;
+			int totalFiles = selectedFiles.length ;
+			int currentUplodedFilesCount = 0 ;
+			ProgressInformation progInfo = new ProgressInformation (callback, false) ;
 		
-		List<StoredObject> newObjects = new ArrayList<> () ;
+			List<StoredObject> newObjects = new ArrayList<> () ;
 		
-        for (File selected : selectedFiles) {
+	        for (File selected : selectedFiles) {
         	
-        	if (!keepGoing (stopRequester, callback))
-        		break ;
+	        	if (!keepGoing (stopRequester, callback))
+	        		break ;
         	
-        	++currentUplodedFilesCount ;
+	        	++currentUplodedFilesCount ;
         	
-            if (selected.isFile() && selected.exists()) {
+	            if (selected.isFile() && selected.exists()) {
             	                
-				totalProgress (currentUplodedFilesCount, totalFiles, Paths.get(selected.getPath()), progInfo, true) ;
+					totalProgress (currentUplodedFilesCount, totalFiles, Paths.get(selected.getPath()), progInfo, true) ;
 
-                StoredObject obj = container.getObject(selected.getName());
-                uploadObject(obj, selected, progInfo, callback) ;
+	                StoredObject obj = container.getObject(selected.getName());
+	                uploadObject(obj, selected, progInfo, callback) ;
                 
-                newObjects.add(obj) ;
-            }
-        }
-    	//reloadContainer(container, callback);
-    	addedObjectToContainer(container, newObjects, callback);
-        callback.onNumberOfCalls(account.getNumberOfCalls());
+	                newObjects.add(obj) ;
+	            }
+	        }
+	    	//reloadContainer(container, callback);
+	    	addedObjectToContainer(container, newObjects, callback);
+	        callback.onNumberOfCalls(account.getNumberOfCalls());
+    	}
     }
 
     
@@ -334,65 +420,226 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * {@inheritDoc}.
      */
     @Override
-    public synchronized void deleteContainer(Container container, SwiftCallback callback) {
-    	
-    	CheckAccount () ;
+    public void deleteContainer(Container container, SwiftCallback callback) {
+    	try (OperationLocks.Held lock = locks.lockContainer(container, true))
+    	{
+	    	CheckAccount () ;
     	
-        container.delete();
-        callback.onUpdateContainers(eagerFetchContainers(account));
-        callback.onNumberOfCalls(account.getNumberOfCalls());
+	        delete (container) ;
+	        ContainerCatalog.getDefault().remove(getAccountKey (), container.getName());
+	        callback.onUpdateContainers(eagerFetchContainers(account));
+	        callback.onNumberOfCalls(account.getNumberOfCalls());
+    	}
     }
 
     
-    private void deleteStoredObjects(Container container, List<StoredObject> storedObjects, StopRequester stopRequester, boolean notify, SwiftCallback callback) {
+    /*
+     * Deletes the given objects (and their segments), and returns the objects deleted. 
+     */
+    private List<StoredObject> deleteStoredObjects(Container container, List<StoredObject> storedObjects, StopRequester stopRequester, boolean notify, SwiftCallback callback) {
 	
+    	List<StoredObject> deletedObjects = new ArrayList<StoredObject> () ;
+    	// segmented objects should be deleted as well
+    	Map<StoredObject, List<StoredObject>> segmentsByManifest = new HashMap<StoredObject, List<StoredObject>> () ;
+    	List<StoredObject> segments = new ArrayList<StoredObject> () ;
         for (StoredObject storedObject : storedObjects) 
         {
         	if (!keepGoing (stopRequester, callback))
-        		break ;
+        		return deletedObjects ;
         	
-			// segmented objects should be deleted as well
 			if (largeObjectManager.isSegmented (storedObject))
 			{				
-				List<StoredObject> segments = largeObjectManager.getSegmentsList (storedObject) ;
-				// we delete each segment, starting by the last one, so that if something
-				// unexpected happen at the middle of the iteration, the getSegmentsList method
-				// will still be able to get the list of the remaining segments. 
-	            ListIterator<StoredObject> segmentsIter = segments.listIterator(segments.size()) ;
-				while (segmentsIter.hasPrevious()) 
-				{
-					StoredObject segment = segmentsIter.previous() ;
-					if (segment == null || !segment.exists())
-						continue ;
-					logger.info("Deleting segment " + segment.getPath());
-					segment.delete();
-				}
-			}
-			if (storedObject.exists())
-			{
-				storedObject.delete();
-				logger.info("Deleted object: " + storedObject.getName());
-			}
-			else
-			{
-				logger.debug("Attempt at deleting a non-existing object: " + storedObject.getName());
-				continue ;
+				List<StoredObject> objectSegments = largeObjectManager.getSegmentsList (storedObject) ;
+				segmentsByManifest.put(storedObject, objectSegments) ;
+				segments.addAll(objectSegments) ;
 			}
-			if (notify)
-				callback.onStoredObjectDeleted(container, storedObject);
+        }
+        
+		// we delete the segments before the manifests, and a manifest is only deleted if all its 
+		// segments were, so that the getSegmentsList method will still be able to get the list 
+		// of the remaining segments if something unexpected happens in the middle of the deletion. 
+        Set<StoredObject> failedSegments = Collections.synchronizedSet(new HashSet<StoredObject> ()) ;
+        if (deleteObjects (null, segments, stopRequester, false, failedSegments, callback))
+        {
+	        List<StoredObject> deletableObjects = new ArrayList<StoredObject> (storedObjects.size()) ;
+	        for (StoredObject storedObject : storedObjects)
+	        {
+	        	List<StoredObject> objectSegments = segmentsByManifest.get(storedObject) ;
+	        	if (objectSegments != null && !Collections.disjoint(objectSegments, failedSegments))
+	        	{
+	        		logger.info("Some segments of {} could not be deleted, the manifest is kept", storedObject.getName());
+	        		continue ;
+	        	}
+	        	deletableObjects.add(storedObject) ;
+	        }
+	        Set<StoredObject> failedObjects = Collections.synchronizedSet(new HashSet<StoredObject> ()) ;
+	        if (deleteObjects (container, deletableObjects, stopRequester, notify, failedObjects, callback))
+	        {
+	        	for (StoredObject storedObject : deletableObjects)
+	        	{
+	        		if (!failedObjects.contains(storedObject))
+	        			deletedObjects.add(storedObject) ;
+	        	}
+	        }
         }
         callback.onNumberOfCalls(account.getNumberOfCalls());
+        return deletedObjects ;
 	}
     
     
+    /*
+     * Deletes the given objects, by batches (bulk delete) if the cluster supports it, or concurrently
+     * one by one otherwise. The objects are consumed lazily, so that a whole container can be deleted 
+     * while it is being listed. The objects that could not be deleted are added to failedObjects 
+     * (if not null). Returns false if the deletion was stopped.
+     */
+    private boolean deleteObjects (final Container container, Iterable<StoredObject> objects, StopRequester stopRequester, final boolean notify, final Collection<StoredObject> failedObjects, SwiftCallback callback)
+    {
+    	final BulkDeleter deleter = bulkDeleter ;
+    	final int batchSize = (deleter == null) ? (0) : (deleter.getMaxDeletesPerRequest()) ;
+    	if (batchSize > 0)
+    	{
+    		List<StoredObject> batch = new ArrayList<StoredObject> (Math.min(batchSize, MAX_PAGE_SIZE)) ;
+    		for (StoredObject obj : objects)
+    		{
+            	if (!keepGoing (stopRequester, callback))
+            		return false ;
+    			if (obj == null)
+    				continue ;
+    			batch.add(obj) ;
+    			if (batch.size() >= batchSize)
+    			{
+    				bulkDelete (deleter, container, batch, notify, failedObjects, callback) ;
+    				batch.clear();
+    			}
+    		}
+    		bulkDelete (deleter, container, batch, notify, failedObjects, callback) ;
+    		return true ;
+    	}
+    	
+    	final List<StoredObject> deletedObjects = Collections.synchronizedList(new ArrayList<StoredObject> ()) ;
+    	TransferWorkerPool pool = newTransferPool (stopRequester) ;
+    	try
+    	{
+	    	try
+	    	{
+	    		for (final StoredObject obj : objects)
+	    		{
+	            	if (!keepGoing (stopRequester, callback))
+	            		return false ;
+	    			if (obj == null)
+	    				continue ;
+	    			pool.submit(obj.getName(), new TransferWorkerPool.Transfer () {
+						@Override
+						public void execute() throws IOException {
+							boolean existed = false ;
+							boolean failed = true ;
+							try
+							{
+								existed = deleteIfExists (obj) ;
+								failed = false ;
+							}
+							finally
+							{
+								if (failed && failedObjects != null)
+									failedObjects.add(obj) ;
+							}
+							if (existed)
+							{
+								TransferJournal.getDefault().forget(getAccountKey (), obj);
+								logger.info("Deleted object: " + obj.getName());
+								if (notify)
+									deletedObjects.add(obj) ;
+							}
+							else
+								logger.debug("Attempt at deleting a non-existing object: " + obj.getName());
+						}}) ;
+	    		}
+	    	}
+	    	finally
+	    	{
+	    		pool.awaitCompletion();
+	    		reportTransferFailures ("deleted", pool, callback) ;
+	    		// the callback is notified from the calling thread
+	    		synchronized (deletedObjects)
+	    		{
+	    			for (StoredObject obj : deletedObjects)
+	    				callback.onStoredObjectDeleted(container, obj);
+	    		}
+	    	}
+    	}
+    	catch (IOException e)
+    	{
+    		throw new CommandException (e.getMessage()) ;
+    	}
+    	return true ;
+    }
+    
+    
+    private void bulkDelete (final BulkDeleter deleter, Container container, final List<StoredObject> batch, boolean notify, Collection<StoredObject> failedObjects, SwiftCallback callback)
+    {
+    	if (batch.isEmpty())
+    		return ;
+    	Set<StoredObject> failed = new HashSet<StoredObject> (withRetries (String.format("Deleting %d objects", batch.size()), new RetryPolicy.Command<List<StoredObject>, RuntimeException> () {
+			@Override
+			public List<StoredObject> call() {
+				return deleter.delete(batch) ;
+			}})) ;
+    	List<String> failedNames = new ArrayList<String> () ;
+    	for (StoredObject obj : batch)
+    	{
+    		if (failed.contains(obj))
+    		{
+    			if (failedObjects != null)
+    				failedObjects.add(obj) ;
+    			failedNames.add(obj.getName()) ;
+    			continue ;
+    		}
+    		TransferJournal.getDefault().forget(getAccountKey (), obj);
+    		if (notify)
+    			callback.onStoredObjectDeleted(container, obj);
+    	}
+    	logger.info("Deleted {} object(s)", batch.size() - failedNames.size());
+    	if (!failedNames.isEmpty())
+    	{
+    		StringBuilder sb = new StringBuilder () ;
+    		sb.append(String.format("%d file(s) could not be deleted: ", failedNames.size())) ;
+    		for (int i = 0 ; i < failedNames.size() && i < maxReportedTransferFailures ; ++i)
+    		{
+    			if (i > 0)
+    				sb.append(", ") ;
+    			sb.append(failedNames.get(i)) ;
+    		}
+    		if (failedNames.size() > maxReportedTransferFailures)
+    			sb.append(", ...") ;
+    		callback.onError(new CommandException (sb.toString())) ;
+    	}
+    }
+    
+    
     /**
      * {@inheritDoc}.
      */
     @Override
-    public synchronized void deleteStoredObjects(Container container, List<StoredObject> storedObjects, StopRequester stopRequester, SwiftCallback callback) {
-    	
-    	CheckAccount () ;
-    	deleteStoredObjects (container, storedObjects, stopRequester, true, callback) ;
+    public void deleteStoredObjects(Container container, List<StoredObject> storedObjects, StopRequester stopRequester, SwiftCallback callback) {
+    	try (OperationLocks.Held lock = locks.lockContainer(container, false))
+    	{
+	    	CheckAccount () ;
+	    	List<StoredObject> deletedObjects = deleteStoredObjects (container, storedObjects, stopRequester, true, callback) ;
+	    	ContainerCatalog.getDefault().update(getAccountKey (), container, null, deletedObjects);
+    	}
+    }
+    
+    
+    /*
+     * Deletes the given objects and adds those actually deleted to deletedObjects. Returns true if 
+     * they have all been deleted.
+     */
+    private boolean deleteBatch (Container container, List<StoredObject> batch, StopRequester stopRequester, List<StoredObject> deletedObjects, SwiftCallback callback)
+    {
+    	List<StoredObject> deleted = deleteStoredObjects (container, batch, stopRequester, false, callback) ;
+    	deletedObjects.addAll(deleted) ;
+    	return deleted.size() == batch.size() ;
     }
     
     
@@ -421,75 +668,69 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * @throws IOException 
      */
     @Override
-    public synchronized void downloadStoredObject(Container container, StoredObject storedObject, File target, StopRequester stopRequester, SwiftCallback callback) throws IOException {
-        
-    	CheckAccount () ;
-    	    	
-    	// First, we check whether we want to download a full directory (i.e., "recursively")
-    	if (SwiftUtils.isDirectory(storedObject) && target.isDirectory())
+    public void downloadStoredObject(Container container, StoredObject storedObject, File target, StopRequester stopRequester, SwiftCallback callback) throws IOException {
+    	try (OperationLocks.Held lock = locks.lockContainer(container, false))
     	{
-    		try
-    		{
-    			// Create the root destination directory
-    			// If storedObject does not contain any files (if it is an empty directory), then 
-    			// we still need to create an empty directory as a result of the download
-            	File destDirRoot = getDestinationFile (storedObject, target, storedObject) ;
-            	destDirRoot.mkdirs();
+	    	CheckAccount () ;
+    	    	
+	    	// First, we check whether we want to download a full directory (i.e., "recursively")
+	    	if (SwiftUtils.isDirectory(storedObject) && target.isDirectory())
+	    	{
+	    		try
+	    		{
+	    			// Create the root destination directory
+	    			// If storedObject does not contain any files (if it is an empty directory), then 
+	    			// we still need to create an empty directory as a result of the download
+	            	File destDirRoot = getDestinationFile (storedObject, target, storedObject) ;
+	            	destDirRoot.mkdirs();
     			
-	    		String prefix = storedObject.getName() + SwiftUtils.separator ;
-	    		Collection<StoredObject> listObj = eagerFetchStoredObjects(container, prefix) ;
-	    		
-	    		int currentUplodedFilesCount = 0 ;
-	    		int totalFiles = listObj.size() ;
-	    		ProgressInformation progInfo = new ProgressInformation (callback, false) ;
-	    		
-	            for (StoredObject so : listObj) 
-	            {
-	            	if (!keepGoing (stopRequester, callback))
-	            	{
+		    		// the objects are downloaded as their pages are listed
+		    		String prefix = storedObject.getName() + SwiftUtils.separator ;
+		    		final StoredObject rootObject = storedObject ;
+		    		final File rootTarget = target ;
+		    		final Iterator<StoredObject> objIterator = lazyFetchStoredObjects(container, prefix).iterator() ;
+		    		Iterator<Pair<StoredObject, File> > pairIterator = new Iterator<Pair<StoredObject, File> > () {
+						@Override
+						public boolean hasNext() {
+							return objIterator.hasNext() ;
+						}
+						@Override
+						public Pair<StoredObject, File> next() {
+							StoredObject so = objIterator.next() ;
+							return (so == null) ? (null) : (Pair.newPair(so, getDestinationFile (rootObject, rootTarget, so))) ;
+						}
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException () ;
+						}} ;
+		            if (downloadObjects (pairIterator, -1, true, stopRequester, callback) == null)
+		            {
 		        		callback.onNumberOfCalls(account.getNumberOfCalls());
 		        		return ;
-		        	}
-		        	
-	            	++currentUplodedFilesCount ;
-	            	
-	            	if (so == null)
-	            		continue ;
-	            	
-	            	totalProgress (currentUplodedFilesCount, totalFiles, so, progInfo, true) ;
-	            	
-	            	File destFile = getDestinationFile (storedObject, target, so) ;
-	            	if (SwiftUtils.isDirectory(so))
-	            		destFile.mkdirs();
-	            	else
-	            	{
-	            		File parent = destFile.getParentFile() ;
-	            		if (parent != null)
-	            			parent.mkdirs() ;
-	            		downloadObject (so, destFile, progInfo, callback) ;
-	            	}
-	            }
-	    		logger.info("Downloaded directory '{}' into '{}'", storedObject.getName(), target.getPath());
-    		}
-    	    catch (OutOfMemoryError ome)
-    	    {
-    	    	dealWithOutOfMemoryError (ome, "downloadStoredObject", callback) ;
-    	    }
-    	}
-    	else if (SwiftUtils.isDirectory(storedObject))
-    	{
-    		// here target cannot be a directory
-    		throw new AssertionError ("An object directory can only be downloaded in a directory.") ;
-    	}
-    	else
-    	{
-        	if (!keepGoing (stopRequester, callback))
-        		return ;
-    		ProgressInformation progInfo = new ProgressInformation (callback, false) ;
-    		totalProgress (1, 1, storedObject, progInfo, true) ;
-    		downloadObject (storedObject, target, progInfo, callback) ;
+		            }
+		    		logger.info("Downloaded directory '{}' into '{}'", storedObject.getName(), target.getPath());
+	    		}
+	    	    catch (OutOfMemoryError ome)
+	    	    {
+	    	    	dealWithOutOfMemoryError (ome, "downloadStoredObject", callback) ;
+	    	    }
+	    	}
+	    	else if (SwiftUtils.isDirectory(storedObject))
+	    	{
+	    		// here target cannot be a directory
+	    		throw new AssertionError ("An object directory can only be downloaded in a directory.") ;
+	    	}
+	    	else
+	    	{
+	        	if (!keepGoing (stopRequester, callback))
+	        		return ;
+	    		ProgressInformation progInfo = new ProgressInformation (callback, false) ;
+	    		progInfo.addExpectedBytes(storedObject.getContentLength()) ;
+	    		totalProgress (1, 1, storedObject, progInfo, true) ;
+	    		downloadObject (storedObject, target, progInfo, stopRequester, callback) ;
+	    	}
+	        callback.onNumberOfCalls(account.getNumberOfCalls());
     	}
-        callback.onNumberOfCalls(account.getNumberOfCalls());
     }
     
     
@@ -498,79 +739,187 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * @throws IOException 
      */
 	@Override
-	public synchronized void downloadStoredObject(Container container, Collection<Pair<? extends StoredObject, ? extends File> > pairObjectFiles, boolean overwriteAll, StopRequester stopRequester, SwiftCallback callback) throws IOException
+	public void downloadStoredObject(Container container, Collection<Pair<? extends StoredObject, ? extends File> > pairObjectFiles, boolean overwriteAll, StopRequester stopRequester, SwiftCallback callback) throws IOException
 	{
-		CheckAccount () ;
+		try (OperationLocks.Held lock = locks.lockContainer(container, false))
+		{
+			CheckAccount () ;
 		
-		if (pairObjectFiles == null || pairObjectFiles.isEmpty())
-			return ;
+			if (pairObjectFiles == null || pairObjectFiles.isEmpty())
+				return ;
 		
-		int totalFiles = pairObjectFiles.size() ;
-		int currentDownloadedFilesCount = 0 ;
-		ProgressInformation progInfo = new ProgressInformation (callback, false) ;
+			List<StoredObject> newObjects = null ;
+			try
+			{
+				newObjects = downloadObjects (pairObjectFiles.iterator(), pairObjectFiles.size(), overwriteAll, stopRequester, callback) ;
+			}
+			finally
+			{
+	        	//reloadContainer(container, callback);
+	        	addedObjectToContainer(container, newObjects, callback);
+				callback.onNumberOfCalls(account.getNumberOfCalls());
+			}
+		}
+	}
+	
+	
+	/*
+	 * Downloads the given objects into their paired files, using up to numberOfConcurrentTransfers
+	 * simultaneous downloads. The pairs are consumed as the workers become available, hence they can be 
+	 * produced lazily (totalFiles is negative when their number is not known in advance). 
+	 * Returns the list of downloaded objects, or null if the task has been stopped.
+	 */
+	private List<StoredObject> downloadObjects (Iterator<? extends Pair<? extends StoredObject, ? extends File> > pairObjectFiles, final int totalFiles, boolean overwriteAll, final StopRequester stopRequester, final SwiftCallback callback) throws IOException
+	{
+		final AtomicInteger completedFilesCount = new AtomicInteger () ;
+		final ProgressInformation progInfo = new ProgressInformation (callback, false) ;
 		
-		List<StoredObject> newObjects = new ArrayList<> () ;
+		final List<StoredObject> newObjects = Collections.synchronizedList(new ArrayList<StoredObject> ()) ;
+		TransferWorkerPool pool = newTransferPool (stopRequester) ;
 		
 		try
 		{
-			for (Pair<? extends StoredObject, ? extends File> pair : pairObjectFiles)
+			while (pairObjectFiles.hasNext())
 			{			
 				if (!keepGoing (stopRequester, callback))
-	        		return ;
-	        	
-				++currentDownloadedFilesCount ;
+	        		return null ;
 				
+				Pair<? extends StoredObject, ? extends File> pair = pairObjectFiles.next() ;
 				if (pair == null)
+				{
+					transferProgress (completedFilesCount.incrementAndGet(), totalFiles, progInfo) ;
 					continue ;
-				File file = pair.getSecond() ;
-				if (pair.getSecond() == null) 
-					continue ;
-				StoredObject obj = pair.getFirst() ;
-				if (obj == null)
-					continue ;
-				
-				if (!overwriteAll && file.exists())
+				}
+				final File file = pair.getSecond() ;
+				final StoredObject obj = pair.getFirst() ;
+				if (file == null || obj == null || (!overwriteAll && file.exists()) || TransferJournal.getDefault().isDownloaded(getAccountKey (), obj, file))
+				{
+					transferProgress (completedFilesCount.incrementAndGet(), totalFiles, progInfo) ;
 					continue ;
-			
-				// Progress notification
-				totalProgress (currentDownloadedFilesCount, totalFiles, obj, progInfo, true) ;
-				
-				downloadObject (obj, file, progInfo, callback) ;
+				}
 				
-				newObjects.add(obj) ;
+				progInfo.addExpectedBytes(obj.getContentLength()) ;
+				pool.submit(obj.getName(), new TransferWorkerPool.Transfer () {
+					@Override
+					public void execute() throws IOException {
+						try
+						{
+			            	if (SwiftUtils.isDirectory(obj))
+			            		file.mkdirs();
+			            	else
+			            	{
+			            		File parent = file.getParentFile() ;
+			            		if (parent != null)
+			            			parent.mkdirs() ;
+			            		downloadObject (obj, file, progInfo, stopRequester, callback) ;
+			            	}
+							newObjects.add(obj) ;
+						}
+						finally
+						{
+							transferProgress (completedFilesCount.incrementAndGet(), totalFiles, progInfo) ;
+						}
+					}}) ;
 			}
 		}
 		finally
 		{
-        	//reloadContainer(container, callback);
-        	addedObjectToContainer(container, newObjects, callback);
-			callback.onNumberOfCalls(account.getNumberOfCalls());
+			pool.awaitCompletion() ;
+			reportTransferFailures ("downloaded", pool, callback) ;
 		}
+		return newObjects ;
 	}
     
 	
-	private boolean isRetryable (CommandException e)
+	private TransferWorkerPool newTransferPool (StopRequester stopRequester)
 	{
-		return ((e.getHttpStatusCode() == 0 && e.getError() == null)
-				|| e.getError() == CommandExceptionError.UNKNOWN
-				|| e.getError() == CommandExceptionError.UNAUTHORIZED) ;
+		AdaptiveConcurrencyController controller = concurrencyController ;
+		if (controller == null)
+			return new TransferWorkerPool (numberOfConcurrentTransfers, stopRequester) ;
+		// the pool grows with the limit of the controller (e.g., when the maximum is raised from the progress panel)
+		return new TransferWorkerPool (controller.getLimit(), stopRequester, controller) ;
 	}
 	
 	
-	private void dealWithCommandException (CommandException e, AtomicInteger counter)
-	{		
-		if (isRetryable (e))
-		{
-			if (counter.getAndIncrement() >= numberOfCommandErrorRetry)
-				throw e ;
-			logger.info(String.format("Command Error: %s", e.toString()));
-		}
-		else
-			throw e ;
+	/*
+	 * Runs the command through the retry policy. The failures suggesting a congestion are 
+	 * also reported to the concurrency controller.
+	 */
+	private <T, E extends Exception> T withRetries (String description, final RetryPolicy.Command<T, E> command) throws E
+	{
+		return RetryPolicy.getDefault().execute(description, new RetryPolicy.Command<T, E> () {
+			@Override
+			public T call() throws E {
+				try
+				{
+					return command.call() ;
+				}
+				catch (CommandException e)
+				{
+					AdaptiveConcurrencyController controller = concurrencyController ;
+					if (controller != null && AdaptiveConcurrencyController.isCongestionSignal(e))
+						controller.onCongestion();
+					throw e ;
+				}
+			}}) ;
+	}
+	
+	
+	private void reload (final Container container)
+	{
+		withRetries (String.format("Reloading container %s", container.getName()), new RetryPolicy.Command<Void, RuntimeException> () {
+			@Override
+			public Void call() {
+				container.reload();
+				return null ;
+			}}) ;
+	}
+	
+	
+	private void delete (final Container container)
+	{
+		withRetries (String.format("Deleting container %s", container.getName()), new RetryPolicy.Command<Void, RuntimeException> () {
+			@Override
+			public Void call() {
+				container.delete();
+				return null ;
+			}}) ;
+	}
+	
+	
+	private Collection<DirectoryOrObject> listDirectoryPage (final Container container, final String prefix, final Character delimiter, final String marker)
+	{
+		return withRetries (String.format("Listing container %s", container.getName()), new RetryPolicy.Command<Collection<DirectoryOrObject>, RuntimeException> () {
+			@Override
+			public Collection<DirectoryOrObject> call() {
+				return container.listDirectory(prefix, delimiter, marker, MAX_PAGE_SIZE) ;
+			}}) ;
+	}
+	
+	
+	/*
+	 * Deletes the object, unless it does not exist (anymore), and returns true if it has been deleted.
+	 * There is no preliminary existence check (HEAD), a missing object is reported by the deletion itself.
+	 */
+	private boolean deleteIfExists (final StoredObject obj)
+	{
+		return withRetries (String.format("Deleting %s", obj.getName()), new RetryPolicy.Command<Boolean, RuntimeException> () {
+			@Override
+			public Boolean call() {
+				try
+				{
+					obj.delete();
+					return true ;
+				}
+				catch (NotFoundException e)
+				{
+					return false ;
+				}
+			}}) ;
 	}
 	
     
-    private void downloadObject (StoredObject storedObject, File target, ProgressInformation progInfo, SwiftCallback callback) throws IOException
+    private void downloadObject (final StoredObject storedObject, final File target, final ProgressInformation progInfo, final StopRequester stopRequester, SwiftCallback callback) throws IOException
     {		
     	if (storedObject == null || target == null)
     		return ;
@@ -591,22 +940,23 @@ public class SwiftOperationsImpl implements SwiftOperations {
     	
     	try
     	{    
-    		AtomicInteger tryCounter = new AtomicInteger () ;
-    		while (true)
-    		{
-	    		try
-	    		{
+    		withRetries (String.format("Downloading %s", storedObject.getName()), new RetryPolicy.Command<Void, IOException> () {
+				@Override
+				public Void call() throws IOException {
 		    		progInfo.setCurrentMessage(String.format("Downloading %s", storedObject.getName()));
-		    		InputStream in = FileUtils.getInputStreamWithProgressFilter(progInfo, storedObject.getContentLength(), storedObject.downloadObjectAsInputStream()) ;	    		
-		
-		    		FileUtils.saveInputStreamInFile (in, target, true) ;
-		    		break ;
-	    		}
-	    		catch (CommandException e) 
-	    		{
-	    			dealWithCommandException (e, tryCounter) ;
-	    		}
-    		}
+		    		// a partial download as a single stream is resumed as such (the downloads by parts resume their own)
+		    		if (ResumableDownloader.hasPartialDownload(storedObject, target) || !parallelDownloader.download(storedObject, target, progInfo, stopRequester))
+		    			resumableDownloader.download(storedObject, target, progInfo) ;
+		    		TransferJournal.getDefault().setDownloaded(getAccountKey (), storedObject, target, storedObject.getEtag()) ;
+		    		return null ;
+				}}) ;
+    	}
+    	catch (InterruptedIOException e)
+    	{
+    		// the parts received are kept, the download will be resumed
+    		if (stopRequester == null || !stopRequester.isStopRequested())
+    			throw e ;
+    		logger.info("The download of {} has been stopped", storedObject.getName());
     	}
 	    catch (OutOfMemoryError ome)
 	    {
@@ -615,109 +965,84 @@ public class SwiftOperationsImpl implements SwiftOperations {
     }
     
     
-    private void uploadObject (StoredObject storedObject, File file, ProgressInformation progInfo, SwiftCallback callback) throws IOException
+    private void uploadObject (final StoredObject storedObject, final File file, final ProgressInformation progInfo, SwiftCallback callback) throws IOException
     {			
     	if (storedObject == null || file == null)
     		return ;
     	
-    	InputStream in = null ;
     	try
     	{
-    		AtomicInteger tryCounter = new AtomicInteger () ;
-    		while (true)
-    		{
-	    		try
+    		progInfo.setCurrentMessage(String.format("Uploading %s", file.getPath()));
+    		final BasicFileAttributes attr = FileUtils.getFileAttr(Paths.get(file.getPath())) ;
+	    	if (useCustomSegmentation)	
+	    	{
+	    		UploadInstructions ui = new UploadInstructions (file).setSegmentationSize(segmentationSize) ;
+	    		if (ui.requiresSegmentation())
 	    		{
-		    		progInfo.setCurrentMessage(String.format("Uploading %s", file.getPath()));
-		    		BasicFileAttributes attr = FileUtils.getFileAttr(Paths.get(file.getPath())) ;
-			    	if (useCustomSegmentation)	
-			    	{
-			    		UploadInstructions ui = new UploadInstructions (file).setSegmentationSize(segmentationSize) ;
-			    		if (ui.requiresSegmentation())
-			    		{
-			    			//largeObjectManager.uploadObjectAsSegments(storedObject, ui, attr.size(), progInfo, callback) ;
-			    			largeObjectManager.uploadObjectAsSegments(storedObject, file, ui, attr.size(), progInfo, callback) ;
-				    		return ;
-			    		}
-			    	}	    	
-			    	in = FileUtils.getInputStreamWithProgressFilter(progInfo, attr.size(), Paths.get(file.getPath())) ;
-			    	storedObject.uploadObject(in) ;
-			    	break ;
+	    			// each segment is retried by the large object manager
+	    			largeObjectManager.uploadObjectAsSegments(storedObject, file, ui, attr.size(), progInfo, callback) ;
+		    		return ;
 	    		}
-	    		catch (CommandException e) 
-	    		{
-	    			dealWithCommandException (e, tryCounter) ;
-	    		}
-    		}
+	    	}
+	    	withRetries (String.format("Uploading %s", file.getPath()), new RetryPolicy.Command<Void, IOException> () {
+				@Override
+				public Void call() throws IOException {
+			    	// the file is read once: its md5 is computed while it is being uploaded, and checked 
+			    	// against the etag returned by Swift. When the md5 is already known, it is sent as 
+			    	// the etag, and Swift rejects a corrupted upload itself (422 Unprocessable Entity)
+			    	String cachedMd5 = FileHashCache.getDefault().getCachedMD5(file) ;
+			    	HashingInputStream in = new HashingInputStream (Hashing.md5(), FileUtils.getInputStreamWithProgressFilter(progInfo, attr.size(), Paths.get(file.getPath()))) ;
+			    	try
+			    	{
+			    		UploadInstructions ui = new UploadInstructions (in) ;
+			    		if (cachedMd5 != null)
+			    			ui.setMd5(cachedMd5) ;
+			    		storedObject.uploadObject(ui) ;
+			    	}
+			    	finally
+			    	{
+			    		in.close() ;
+			    	}
+			    	String md5 = in.hash().toString() ;
+			    	String etag = UploadEtagInterceptor.getEtag() ;
+			    	if (etag != null && !SwiftUtils.isSameMd5(etag, md5))
+			    	{
+			    		storedObject.delete() ;
+			    		throw new IOException (String.format("The upload of %s is corrupted (md5 %s, etag %s)", file.getPath(), md5, etag)) ;
+			    	}
+			    	FileHashCache.getDefault().put(file, attr, md5, 0, null) ;
+			    	TransferJournal.getDefault().setUploaded(getAccountKey (), storedObject, file, attr, md5) ;
+			    	ContainerCatalog.getDefault().setUploaded(getAccountKey (), storedObject, attr.size(), md5) ;
+			    	return null ;
+				}}) ;
     	}
 	    catch (OutOfMemoryError ome)
 	    {
 	    	dealWithOutOfMemoryError (ome, "uploadObject", callback) ;
 	    }
-    	finally
-    	{
-    		if (in != null)
-    			in.close();
-    	}
     }
     
     
     /**
-     * {@inheritDoc}.
-     */
-    @Override
-    public synchronized void emptyContainer(Container container, StopRequester stopRequester, SwiftCallback callback) {
-    	
-    	CheckAccount () ;
-    	
-    	try
-    	{
-	        for (StoredObject so : eagerFetchStoredObjects(container)) 
-	        {
-	        	if (!keepGoing (stopRequester, callback))
-	        		return ;
-	        	
-	        	if (so.exists())
-	        		so.delete();
-	            callback.onNumberOfCalls(account.getNumberOfCalls());
-	        }
-	        logger.info(String.format("Container %s has been emptied", container.getName()));
-    	}
-    	finally
-    	{
-	        reloadContainer(container, callback);
-	        callback.onNumberOfCalls(account.getNumberOfCalls());
-    	}
-        
-    }
-
-    
-    /**
-     * {@inheritDoc}.
-     */
-    @Override
-    public synchronized void purgeContainer(Container container, StopRequester stopRequester, SwiftCallback callback) {
-    	
-    	CheckAccount () ;
-    	
-    	try
-    	{
-	        for (StoredObject so : eagerFetchStoredObjects(container)) 
-	        {
-	        	if (!keepGoing (stopRequester, callback))
-	        		return ;
-	        	
-	        	if (so.exists())
-	        		so.delete();
-	            callback.onNumberOfCalls(account.getNumberOfCalls());
-	        }
-	        container.delete();
-	        logger.info(String.format("Container %s has been removed", container.getName()));
-    	}
-    	finally
+     * {@inheritDoc}.
+     */
+    @Override
+    public void emptyContainer(Container container, StopRequester stopRequester, SwiftCallback callback) {
+    	try (OperationLocks.Held lock = locks.lockContainer(container, true))
     	{
-	        callback.onUpdateContainers(eagerFetchContainers(account));
-	        callback.onNumberOfCalls(account.getNumberOfCalls());
+	    	CheckAccount () ;
+    	
+	    	try
+	    	{
+		        if (!deleteObjects (container, lazyFetchStoredObjects(container), stopRequester, false, null, callback))
+		        	return ;
+		        logger.info(String.format("Container %s has been emptied", container.getName()));
+	    	}
+	    	finally
+	    	{
+		        reloadContainer(container, callback);
+		        callback.onNumberOfCalls(account.getNumberOfCalls());
+	    	}
     	}
     }
 
@@ -726,11 +1051,39 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * {@inheritDoc}.
      */
     @Override
-    public synchronized void refreshContainers(SwiftCallback callback) {
+    public void purgeContainer(Container container, StopRequester stopRequester, SwiftCallback callback) {
+    	try (OperationLocks.Held lock = locks.lockContainer(container, true))
+    	{
+	    	CheckAccount () ;
     	
-    	CheckAccount () ;    	
-        callback.onUpdateContainers(eagerFetchContainers(account));
-        callback.onNumberOfCalls(account.getNumberOfCalls());
+	    	try
+	    	{
+		        if (!deleteObjects (container, lazyFetchStoredObjects(container), stopRequester, false, null, callback))
+		        	return ;
+		        delete (container) ;
+		        ContainerCatalog.getDefault().remove(getAccountKey (), container.getName());
+		        logger.info(String.format("Container %s has been removed", container.getName()));
+	    	}
+	    	finally
+	    	{
+		        callback.onUpdateContainers(eagerFetchContainers(account));
+		        callback.onNumberOfCalls(account.getNumberOfCalls());
+	    	}
+    	}
+    }
+
+    
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void refreshContainers(SwiftCallback callback) {
+    	try (OperationLocks.Held lock = locks.lockSession(false))
+    	{
+	    	CheckAccount () ;    	
+	        callback.onUpdateContainers(eagerFetchContainers(account));
+	        callback.onNumberOfCalls(account.getNumberOfCalls());
+    	}
     }
     
 
@@ -738,12 +1091,14 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * {@inheritDoc}.
      */
     @Override
-    public synchronized void refreshStoredObjects(Container container, SwiftCallback callback) {
-    	
-    	CheckAccount () ;
+    public void refreshStoredObjects(Container container, SwiftCallback callback) {
+    	try (OperationLocks.Held lock = locks.lockContainer(container, false))
+    	{
+	    	CheckAccount () ;
     	
-        reloadContainer(container, callback);
-        callback.onNumberOfCalls(account.getNumberOfCalls());
+	        reloadContainer(container, callback);
+	        callback.onNumberOfCalls(account.getNumberOfCalls());
+    	}
     }
 
     
@@ -757,29 +1112,65 @@ public class SwiftOperationsImpl implements SwiftOperations {
     	if (container == null)
     		throw new AssertionError ("container cannot be null") ;
     	
-    	container.reload();
+    	reload (container) ;
     	
     	int total = container.getCount() ;
-    	int current = 0 ;
     	ProgressInformation progInfo = new ProgressInformation (callback, true) ;
     	progInfo.setTotalMessage("Refreshing the list of documents") ;
     	
-        int page = 0;
-        List<StoredObject> list = (List<StoredObject>) container.list("", null, MAX_PAGE_SIZE);
+    	// the catalog is displayed at once; only the changes are then listed, if any 
+    	ContainerCatalog catalog = ContainerCatalog.getDefault() ;
+    	ContainerCatalog.Snapshot snapshot = catalog.load(getAccountKey (), container.getName()) ;
+    	if (snapshot == null || snapshot.getEntries().isEmpty())
+    	{
+	    	List<StoredObject> list = new ArrayList<StoredObject> (newParallelLister ().list(container, "", (showProgress) ? (progInfo) : (null), total)) ;
+	    	catalog.save(getAccountKey (), container, list);
+	    	appendStoredObjects (container, list, callback) ;
+	    	return ;
+    	}
+    	appendStoredObjects (container, snapshot.toStoredObjects(container), callback) ;
+    	if (snapshot.matches(container))
+    		return ;
+    	
+    	logger.info("The catalog of the container {} is out of date", container.getName());
+    	ContainerChangesLister.Changes changes = new ContainerChangesLister (numberOfConcurrentTransfers, MAX_PAGE_SIZE).list(container, snapshot, (showProgress) ? (progInfo) : (null)) ;
+    	if (changes.isEmpty())
+    		return ;
+    	
+    	List<StoredObject> updated = new ArrayList<StoredObject> (changes.getAdded()) ;
+    	updated.addAll(changes.getChanged()) ;
+    	catalog.update(getAccountKey (), container, updated, changes.getRemoved());
+    	
+    	// the changed objects are replaced
+    	List<StoredObject> deleted = new ArrayList<StoredObject> (changes.getRemoved()) ;
+    	deleted.addAll(changes.getChanged()) ;
+    	if (!deleted.isEmpty())
+    		callback.onStoredObjectDeleted(container, deleted) ;
+    	Collections.sort(updated) ;
+		int page = 0;
+		while (page * MAX_PAGE_SIZE < updated.size())
+		{
+			callback.onAppendStoredObjects(container, page, updated.subList(page * MAX_PAGE_SIZE, Math.min(updated.size(), (page + 1) * MAX_PAGE_SIZE))) ;
+			++page ;
+		}
+    }
+    
+    
+    private void appendStoredObjects (Container container, List<StoredObject> list, SwiftCallback callback)
+    {
         callback.onNewStoredObjects();
-        while (!list.isEmpty()) {
-        	
-        	if (showProgress)
-        	{
-        		current += list.size() ;
-        		
-        		progInfo.setTotalProgress(current / (double)total);
-        		progInfo.report();
-        	}
-        	
-            callback.onAppendStoredObjects(container, page++, list);
-            list = (List<StoredObject>) container.list("", list.get(list.size() - 1).getName(), MAX_PAGE_SIZE);
-        }
+		int page = 0;
+		while (page * MAX_PAGE_SIZE < list.size())
+		{
+			callback.onAppendStoredObjects(container, page, list.subList(page * MAX_PAGE_SIZE, Math.min(list.size(), (page + 1) * MAX_PAGE_SIZE))) ;
+			++page ;
+		}
+    }
+    
+    
+    private String getAccountKey ()
+    {
+    	return account.getPublicURL() ;
     }
     
     
@@ -788,7 +1179,8 @@ public class SwiftOperationsImpl implements SwiftOperations {
     	if (container == null)
     		throw new AssertionError ("container cannot be null") ;
     	
-    	container.reload();
+    	reload (container) ;
+    	ContainerCatalog.getDefault().update(getAccountKey (), container, newObjects, null);
 
     	if (newObjects == null || newObjects.isEmpty())
     		return ;
@@ -807,7 +1199,8 @@ public class SwiftOperationsImpl implements SwiftOperations {
     	if (container == null)
     		throw new AssertionError ("container cannot be null") ;
     	
-    	container.reload();
+    	reload (container) ;
+    	ContainerCatalog.getDefault().update(getAccountKey (), container, null, deletedObjects);
 
     	if (deletedObjects == null || deletedObjects.isEmpty())
     		return ;
@@ -820,32 +1213,61 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * {@inheritDoc}.
      */
 	@Override
-	public void refreshDirectoriesOrStoredObjects(Container container, Directory parent, /*long depth,*/ SwiftCallback callback) {
-		
-		CheckAccount () ;
-		
-		try
+	public void listStoredObjects(Container container, String prefix, ResultCallback<Collection<StoredObject> > pageCallback, StopRequester stopRequester, SwiftCallback callback) {
+		try (OperationLocks.Held lock = locks.lockContainer(container, false))
 		{
-			//if (depth <= 0)
-				loadContainerDirectory (container, parent, callback) ;
-			/*else 
+			CheckAccount () ;
+		
+			try
 			{
-				if (parent == null)
-					callback.onNewStoredObjects();
-				List<StoredObject> list = getContainedStoredObject (container, parent, depth) ;
-				int page = 0;
-				while (page * MAX_PAGE_SIZE < list.size())
+				PagedStoredObjectIterator objIterator = new PagedStoredObjectIterator (container, prefix, MAX_PAGE_SIZE) ;
+				while (objIterator.hasNext())
 				{
-					callback.onAppendStoredObjects(container, page, list.subList(page * MAX_PAGE_SIZE, Math.min(list.size(), (page + 1) * MAX_PAGE_SIZE))) ;
-					++page ;
+		        	if (!keepGoing (stopRequester, callback))
+		        		return ;
+		        	pageCallback.onResult(objIterator.nextPage());
 				}
-			}*/
-			callback.onNumberOfCalls(account.getNumberOfCalls());
-    	}
-	    catch (OutOfMemoryError ome)
-	    {
-	    	dealWithOutOfMemoryError (ome, "refreshDirectoriesOrStoredObjects", callback) ;
-	    }
+			}
+			finally
+			{
+				callback.onNumberOfCalls(account.getNumberOfCalls());
+			}
+		}
+	}
+	
+	
+    /**
+     * {@inheritDoc}.
+     */
+	@Override
+	public void refreshDirectoriesOrStoredObjects(Container container, Directory parent, /*long depth,*/ SwiftCallback callback) {
+		try (OperationLocks.Held lock = locks.lockContainer(container, false))
+		{
+			CheckAccount () ;
+		
+			try
+			{
+				//if (depth <= 0)
+					loadContainerDirectory (container, parent, callback) ;
+				/*else 
+				{
+					if (parent == null)
+						callback.onNewStoredObjects();
+					List<StoredObject> list = getContainedStoredObject (container, parent, depth) ;
+					int page = 0;
+					while (page * MAX_PAGE_SIZE < list.size())
+					{
+						callback.onAppendStoredObjects(container, page, list.subList(page * MAX_PAGE_SIZE, Math.min(list.size(), (page + 1) * MAX_PAGE_SIZE))) ;
+						++page ;
+					}
+				}*/
+				callback.onNumberOfCalls(account.getNumberOfCalls());
+	    	}
+		    catch (OutOfMemoryError ome)
+		    {
+		    	dealWithOutOfMemoryError (ome, "refreshDirectoriesOrStoredObjects", callback) ;
+		    }
+		}
 	}
 	
 	
@@ -899,7 +1321,7 @@ public class SwiftOperationsImpl implements SwiftOperations {
     		throw new AssertionError ("container cannot be null") ;
     	
     	final String prefix ;
-    	Character delimiter = SwiftUtils.separator.charAt(0) ;
+    	final Character delimiter = SwiftUtils.separator.charAt(0) ;
     	List<DirectoryOrObject> directoriesOrObjects = new ArrayList<DirectoryOrObject> () ;
     	if (parent == null)
     	{
@@ -910,7 +1332,7 @@ public class SwiftOperationsImpl implements SwiftOperations {
     		prefix = parent.getName() + delimiter ;
     	
     	int page = 0;
-    	directoriesOrObjects.addAll(container.listDirectory(prefix, delimiter, null, MAX_PAGE_SIZE)) ;
+    	directoriesOrObjects.addAll(listDirectoryPage (container, prefix, delimiter, null)) ;
         while (!directoriesOrObjects.isEmpty()) 
         {	        	
         	List<StoredObject> listStoredObjects = new ArrayList<StoredObject> (directoriesOrObjects.size()) ;
@@ -937,7 +1359,7 @@ public class SwiftOperationsImpl implements SwiftOperations {
             
             String marker = directoriesOrObjects.get(directoriesOrObjects.size() - 1).getName() ;
             directoriesOrObjects.clear () ;
-            directoriesOrObjects.addAll(container.listDirectory(prefix, delimiter, marker, MAX_PAGE_SIZE)) ;
+            directoriesOrObjects.addAll(listDirectoryPage (container, prefix, delimiter, marker)) ;
         }
     }
     
@@ -966,13 +1388,20 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * {@inheritDoc}.
      */
     @Override
-    public synchronized void getMetadata(Container c, SwiftCallback callback) {
-    	
-    	CheckAccount () ;
+    public void getMetadata(final Container c, SwiftCallback callback) {
+    	try (OperationLocks.Held lock = locks.lockContainer(c, false))
+    	{
+	    	CheckAccount () ;
     	
-        c.getMetadata();
-        callback.onContainerUpdate(c);
-        callback.onNumberOfCalls(account.getNumberOfCalls());
+	        withRetries (String.format("Getting the metadata of %s", c.getName()), new RetryPolicy.Command<Void, RuntimeException> () {
+				@Override
+				public Void call() {
+					c.getMetadata();
+					return null ;
+				}}) ;
+	        callback.onContainerUpdate(c);
+	        callback.onNumberOfCalls(account.getNumberOfCalls());
+    	}
     }
     
 
@@ -980,13 +1409,20 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * {@inheritDoc}.
      */
     @Override
-    public synchronized void getMetadata(StoredObject obj, SwiftCallback callback) {
-    	
-    	CheckAccount () ;
+    public void getMetadata(final StoredObject obj, SwiftCallback callback) {
+    	try (OperationLocks.Held lock = locks.lockSession(false))
+    	{
+	    	CheckAccount () ;
     	
-        obj.getMetadata();
-        callback.onStoredObjectUpdate(obj);
-        callback.onNumberOfCalls(account.getNumberOfCalls());
+	        withRetries (String.format("Getting the metadata of %s", obj.getName()), new RetryPolicy.Command<Void, RuntimeException> () {
+				@Override
+				public Void call() {
+					obj.getMetadata();
+					return null ;
+				}}) ;
+	        callback.onStoredObjectUpdate(obj);
+	        callback.onNumberOfCalls(account.getNumberOfCalls());
+    	}
     }
 
     
@@ -1010,8 +1446,25 @@ public class SwiftOperationsImpl implements SwiftOperations {
 				return true ;
 			}
 			
+			// cheap preliminary check: the content must differ if the size does
+			boolean segmented = largeObjectManager != null && largeObjectManager.isSegmented(obj) ;
+			if (!segmented && obj.getContentLength() != Files.size(path))
+			{
+				logger.info("A different version of the file '{}' already exists in the cloud. It will be overwritten.", path.toString());
+				return false ;
+			}
+			
 			String etag = obj.getEtag() ;
-			String md5 = FileUtils.getMD5(path.toFile()) ;
+			// an upload interrupted earlier is resumed without hashing again the files it has already 
+			// done, but only if the object still has the content recorded in the journal
+			String journaledMd5 = TransferJournal.getDefault().getUploadedMd5(getAccountKey (), obj, path.toFile()) ;
+			if (SwiftUtils.isSameMd5(etag, journaledMd5))
+			{
+				logger.info("The file '{}' already exists in the cloud (according to the transfer journal).", path.toString());
+				return true ;
+			}
+			
+			String md5 = FileHashCache.getDefault().getMD5(path.toFile()) ;
 			// the file is already uploaded, unless this is a collision... But we would then be quite unlucky
 			// TODO: check other information in order to increase the confidence that the file is the same. 
 			// ...
@@ -1022,9 +1475,9 @@ public class SwiftOperationsImpl implements SwiftOperations {
 			}
 			else
 			{
-				if (largeObjectManager != null && largeObjectManager.isSegmented(obj))
+				if (segmented)
 				{
-					md5 = FileUtils.getSumOfSegmentsMd5(path.toFile(), getActualSegmentSize (obj)) ;
+					md5 = FileHashCache.getDefault().getSumOfSegmentsMd5(path.toFile(), getActualSegmentSize (obj)) ;
 					if (etag.startsWith("\"")) ;
 						etag = etag.replace("\"", "") ;
 					if (etag != null && etag.equals(md5))
@@ -1060,6 +1513,8 @@ public class SwiftOperationsImpl implements SwiftOperations {
 		// Progress notification
 		double progress = currentUplodedFilesCount / (double)totalFiles ;
 		BasicFileAttributes attr = FileUtils.getFileAttr(currentFile) ;
+		if (attr.isRegularFile())
+			progInfo.addExpectedBytes(attr.size()) ;
 		progInfo.setTotalProgress(progress);
 		progInfo.setTotalMessage(String.format("%d / %d files processed (current file size: %s)", currentUplodedFilesCount, totalFiles, FileUtils.humanReadableByteCount(attr.size(),  true)));
 		
@@ -1068,6 +1523,27 @@ public class SwiftOperationsImpl implements SwiftOperations {
 	}
 	
 	
+	private void transferProgress (int completedFilesCount, int totalFiles, ProgressInformation progInfo) 
+	{
+		if (progInfo == null)
+			return;
+		// Progress notification, the transfers may complete concurrently
+		synchronized (progInfo)
+		{
+			// the transfer rate and the remaining time are appended by progInfo
+			String transferred = FileUtils.humanReadableByteCount(progInfo.getStreamedBytes(), true) ;
+			if (totalFiles > 0)
+			{
+				progInfo.setTotalProgress(completedFilesCount / (double)totalFiles);
+				progInfo.setTotalMessage(String.format("%d / %d objects processed (%s)", completedFilesCount, totalFiles, transferred));
+			}
+			else
+				progInfo.setTotalMessage(String.format("%d objects processed (%s)", completedFilesCount, transferred));
+			progInfo.report();
+		}
+	}
+	
+	
 	private void totalProgress (int currentUplodedFilesCount, int totalFiles, StoredObject so, ProgressInformation progInfo, boolean report) 
 	{
 		if (progInfo == null)
@@ -1087,24 +1563,27 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * @throws IOException 
      */
 	@Override
-	public synchronized void findDifferences (Container container, StoredObject remote, File local, ResultCallback<Collection<Pair<? extends ComparisonItem, ? extends ComparisonItem> > > resultCallback, StopRequester stopRequester, SwiftCallback callback) throws IOException
+	public void findDifferences (Container container, StoredObject remote, File local, ResultCallback<Collection<Pair<? extends ComparisonItem, ? extends ComparisonItem> > > resultCallback, StopRequester stopRequester, SwiftCallback callback) throws IOException
 	{
-		CheckAccount () ;
+		try (OperationLocks.Held lock = locks.lockContainer(container, false))
+		{
+			CheckAccount () ;
 		
-		if (!remote.getBareName().equals(local.getName()))
-			throw new IllegalArgumentException ("The local and the remote items must have the same name") ; 
+			if (!remote.getBareName().equals(local.getName()))
+				throw new IllegalArgumentException ("The local and the remote items must have the same name") ; 
 		
-    	if (SwiftUtils.isDirectory(remote) && Files.isDirectory(Paths.get(local.getPath()))) {
-    		// here we compare two folders
-    		findDirectoriesDifferences (container, remote, local, resultCallback, stopRequester, callback) ;
-    	}
-    	else if (SwiftUtils.isDirectory(remote)) {
-    		throw new AssertionError ("A remote directory can only be compared with a local directory") ;
-    	}
-    	else{
-    		// here we only compare two "files"
-    		findFilesDifferences (container, remote, local, resultCallback, stopRequester, callback) ;
-    	}
+	    	if (SwiftUtils.isDirectory(remote) && Files.isDirectory(Paths.get(local.getPath()))) {
+	    		// here we compare two folders
+	    		findDirectoriesDifferences (container, remote, local, resultCallback, stopRequester, callback) ;
+	    	}
+	    	else if (SwiftUtils.isDirectory(remote)) {
+	    		throw new AssertionError ("A remote directory can only be compared with a local directory") ;
+	    	}
+	    	else{
+	    		// here we only compare two "files"
+	    		findFilesDifferences (container, remote, local, resultCallback, stopRequester, callback) ;
+	    	}
+		}
 	}
 	
 	
@@ -1297,64 +1776,75 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * @throws IOException 
      */
 	@Override
-	public synchronized void uploadDirectory(Container container, StoredObject parentObject, File directory, boolean overwriteAll, StopRequester stopRequester, SwiftCallback callback) throws IOException {
-
-		CheckAccount () ;
+	public void uploadDirectory(Container container, StoredObject parentObject, File directory, final boolean overwriteAll, StopRequester stopRequester, final SwiftCallback callback) throws IOException {
+		try (OperationLocks.Held lock = locks.lockContainer(container, false))
+		{
+			CheckAccount () ;
     	
-		Path source = Paths.get(directory.getPath()) ;
-		Queue<Path> filesQueue = getAllFilesPath(source, true) ;
+			Path source = Paths.get(directory.getPath()) ;
+			Queue<Path> filesQueue = getAllFilesPath(source, true) ;
 		
-		String parentDir = SwiftUtils.getParentDirectory(parentObject) ;
+			String parentDir = SwiftUtils.getParentDirectory(parentObject) ;
 		
-		int totalFiles = filesQueue.size() ;
-		int currentUplodedFilesCount = 0 ;
-		ProgressInformation progInfo = new ProgressInformation (callback, false) ;
+			int totalFiles = filesQueue.size() ;
+			int currentUplodedFilesCount = 0 ;
+			final ProgressInformation progInfo = new ProgressInformation (callback, false) ;
 		
-		List<StoredObject> newObjects = new ArrayList<> () ;
+			final List<StoredObject> newObjects = Collections.synchronizedList(new ArrayList<StoredObject> ()) ;
+			TransferWorkerPool pool = newTransferPool (stopRequester) ;
 		
-		try
-		{
-			for (Path path : filesQueue)
-			{		
-				if (!keepGoing (stopRequester, callback))
-	        		return ;
+			try
+			{
+				for (final Path path : filesQueue)
+				{		
+					if (!keepGoing (stopRequester, callback))
+		        		return ;
 	        	
-				++currentUplodedFilesCount ;
+					++currentUplodedFilesCount ;
 	
-				if (!isPathValid (path))
-					continue ;
+					if (!isPathValid (path))
+						continue ;
 	
-				// Progress notification
-				totalProgress (currentUplodedFilesCount, totalFiles, path, progInfo, true) ;
-				
-				StoredObject obj = getObjectRelativelyInDirectory (container, parentDir, source, path) ;
+					// Progress notification
+					totalProgress (currentUplodedFilesCount, totalFiles, path, progInfo, true) ;
 				
-				if (shouldBeIgnored (obj, path, overwriteAll))
-					continue ;
+					final StoredObject obj = getObjectRelativelyInDirectory (container, parentDir, source, path) ;
 				
-				if (Files.isDirectory(path))
-				{				
-					// here we create a directory
-					createDirectory (obj) ;
-				}
-				else
-				{
-					uploadObject (obj, path.toFile(), progInfo, callback) ;
+					pool.submit(path.toString(), new TransferWorkerPool.Transfer () {
+						@Override
+						public void execute() throws IOException {
+						
+							if (shouldBeIgnored (obj, path, overwriteAll))
+								return ;
+						
+							if (Files.isDirectory(path))
+							{				
+								// here we create a directory
+								createDirectory (obj) ;
+							}
+							else
+							{
+								uploadObject (obj, path.toFile(), progInfo, callback) ;
+							}
+							newObjects.add(obj) ;
+							callback.onNumberOfCalls(account.getNumberOfCalls());
+						}}) ;
 				}
-				newObjects.add(obj) ;
-				callback.onNumberOfCalls(account.getNumberOfCalls());
+			
+				logger.info(
+						"Uploaded directory '{}', in directory '{}', in container '{}'. Number of files: {}",
+						directory.getPath(), parentDir, container.getPath(),
+						String.valueOf(filesQueue.size()));
 			}
+			finally
+			{
+				pool.awaitCompletion() ;
+				reportTransferFailures ("uploaded", pool, callback) ;
 			
-			logger.info(
-					"Uploaded directory '{}', in directory '{}', in container '{}'. Number of files: {}",
-					directory.getPath(), parentDir, container.getPath(),
-					String.valueOf(filesQueue.size()));
-		}
-		finally
-		{
-        	//reloadContainer(container, callback);
-        	addedObjectToContainer(container, newObjects, callback);
-			callback.onNumberOfCalls(account.getNumberOfCalls());
+	        	//reloadContainer(container, callback);
+	        	addedObjectToContainer(container, newObjects, callback);
+				callback.onNumberOfCalls(account.getNumberOfCalls());
+			}
 		}
 	}
 
@@ -1364,53 +1854,63 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * @throws IOException 
      */
 	@Override
-	public synchronized void uploadFiles(Container container, StoredObject parentObject, File[] files, boolean overwriteAll, StopRequester stopRequester, SwiftCallback callback) throws IOException 
-	{	
-		CheckAccount () ;
+	public void uploadFiles(Container container, StoredObject parentObject, File[] files, final boolean overwriteAll, StopRequester stopRequester, final SwiftCallback callback) throws IOException 
+	{
+		try (OperationLocks.Held lock = locks.lockContainer(container, false))
+		{
+			CheckAccount () ;
     	
-		if (files == null || files.length == 0)
-			return ;
+			if (files == null || files.length == 0)
+				return ;
 		
-		String parentDir = SwiftUtils.getParentDirectory(parentObject) ;
+			String parentDir = SwiftUtils.getParentDirectory(parentObject) ;
 		
-		int totalFiles = files.length ;
-		int currentUplodedFilesCount = 0 ;
-		ProgressInformation progInfo = new ProgressInformation (callback, false) ;
+			int totalFiles = files.length ;
+			int currentUplodedFilesCount = 0 ;
+			final ProgressInformation progInfo = new ProgressInformation (callback, false) ;
 		
-		List<StoredObject> newObjects = new ArrayList<> () ;
+			final List<StoredObject> newObjects = Collections.synchronizedList(new ArrayList<StoredObject> ()) ;
+			TransferWorkerPool pool = newTransferPool (stopRequester) ;
 		
-		try
-		{
-			for (File file : files)
-			{			
-				if (!keepGoing (stopRequester, callback))
-	        		return ;
+			try
+			{
+				for (final File file : files)
+				{			
+					if (!keepGoing (stopRequester, callback))
+		        		return ;
 	        	
-				++currentUplodedFilesCount ;
+					++currentUplodedFilesCount ;
 				
-				if (file == null || !file.exists()) 
-					continue ;
+					if (file == null || !file.exists()) 
+						continue ;
 	
-				// Progress notification
-				totalProgress (currentUplodedFilesCount, totalFiles, Paths.get(file.toURI()), progInfo, true) ;
+					// Progress notification
+					totalProgress (currentUplodedFilesCount, totalFiles, Paths.get(file.toURI()), progInfo, true) ;
 				
-				StringBuilder objectPathBuilder = new StringBuilder () ;
-				objectPathBuilder.append (parentDir) ;
-				objectPathBuilder.append (file.getName()) ;
-				String objectPath = objectPathBuilder.toString() ;		
+					StringBuilder objectPathBuilder = new StringBuilder () ;
+					objectPathBuilder.append (parentDir) ;
+					objectPathBuilder.append (file.getName()) ;
+					String objectPath = objectPathBuilder.toString() ;		
 				
-				StoredObject obj = container.getObject(objectPath.toString());
+					final StoredObject obj = container.getObject(objectPath.toString());
 				
-				uploadFile (obj, file, progInfo, overwriteAll, callback) ;
-				
-				newObjects.add(obj) ;
+					pool.submit(file.getPath(), new TransferWorkerPool.Transfer () {
+						@Override
+						public void execute() throws IOException {
+							uploadFile (obj, file, progInfo, overwriteAll, callback) ;
+							newObjects.add(obj) ;
+						}}) ;
+				}
+			}
+			finally
+			{
+				pool.awaitCompletion() ;
+				reportTransferFailures ("uploaded", pool, callback) ;
+			
+	        	//reloadContainer(container, callback);
+	        	addedObjectToContainer(container, newObjects, callback);
+				callback.onNumberOfCalls(account.getNumberOfCalls());
 			}
-		}
-		finally
-		{
-        	//reloadContainer(container, callback);
-        	addedObjectToContainer(container, newObjects, callback);
-			callback.onNumberOfCalls(account.getNumberOfCalls());
 		}
 	}
 	
@@ -1420,51 +1920,86 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * @throws IOException 
      */
 	@Override
-	public synchronized void uploadFiles(Container container, Collection<Pair<? extends StoredObject, ? extends File> > pairObjectFiles, boolean overwriteAll, StopRequester stopRequester, SwiftCallback callback) throws IOException
+	public void uploadFiles(Container container, Collection<Pair<? extends StoredObject, ? extends File> > pairObjectFiles, final boolean overwriteAll, StopRequester stopRequester, final SwiftCallback callback) throws IOException
 	{
-		CheckAccount () ;
+		try (OperationLocks.Held lock = locks.lockContainer(container, false))
+		{
+			CheckAccount () ;
 		
-		if (pairObjectFiles == null || pairObjectFiles.isEmpty())
-			return ;
+			if (pairObjectFiles == null || pairObjectFiles.isEmpty())
+				return ;
 		
-		int totalFiles = pairObjectFiles.size() ;
-		int currentUplodedFilesCount = 0 ;
-		ProgressInformation progInfo = new ProgressInformation (callback, false) ;
+			int totalFiles = pairObjectFiles.size() ;
+			int currentUplodedFilesCount = 0 ;
+			final ProgressInformation progInfo = new ProgressInformation (callback, false) ;
 		
-		List<StoredObject> newObjects = new ArrayList<> () ;
+			final List<StoredObject> newObjects = Collections.synchronizedList(new ArrayList<StoredObject> ()) ;
+			TransferWorkerPool pool = newTransferPool (stopRequester) ;
 		
-		try
-		{
-			for (Pair<? extends StoredObject, ? extends File> pair : pairObjectFiles)
-			{			
-				if (!keepGoing (stopRequester, callback))
-	        		return ;
+			try
+			{
+				for (Pair<? extends StoredObject, ? extends File> pair : pairObjectFiles)
+				{			
+					if (!keepGoing (stopRequester, callback))
+		        		return ;
 	        	
-				++currentUplodedFilesCount ;
+					++currentUplodedFilesCount ;
 				
-				if (pair == null)
-					continue ;
-				File file = pair.getSecond() ;
-				if (pair.getSecond() == null || !pair.getSecond().exists()) 
-					continue ;
-				StoredObject obj = pair.getFirst() ;
-				if (obj == null)
-					continue ;
+					if (pair == null)
+						continue ;
+					final File file = pair.getSecond() ;
+					if (pair.getSecond() == null || !pair.getSecond().exists()) 
+						continue ;
+					final StoredObject obj = pair.getFirst() ;
+					if (obj == null)
+						continue ;
 	
-				// Progress notification
-				totalProgress (currentUplodedFilesCount, totalFiles, Paths.get(file.toURI()), progInfo, true) ;
+					// Progress notification
+					totalProgress (currentUplodedFilesCount, totalFiles, Paths.get(file.toURI()), progInfo, true) ;
 				
-				uploadFile (obj, file, progInfo, overwriteAll, callback) ;
-				
-				newObjects.add(obj) ;
+					pool.submit(file.getPath(), new TransferWorkerPool.Transfer () {
+						@Override
+						public void execute() throws IOException {
+							uploadFile (obj, file, progInfo, overwriteAll, callback) ;
+							newObjects.add(obj) ;
+						}}) ;
+				}
+			}
+			finally
+			{
+				pool.awaitCompletion() ;
+				reportTransferFailures ("uploaded", pool, callback) ;
+			
+	        	//reloadContainer(container, callback);
+	        	addedObjectToContainer(container, newObjects, callback);
+				callback.onNumberOfCalls(account.getNumberOfCalls());
 			}
 		}
-		finally
+	}
+	
+	
+	private void reportTransferFailures (String action, TransferWorkerPool pool, SwiftCallback callback)
+	{
+		List<Pair<String, Exception> > failures = pool.getFailures() ;
+		if (failures.isEmpty())
+			return ;
+		
+		StringBuilder sb = new StringBuilder () ;
+		sb.append(String.format("%d file(s) could not be %s: ", failures.size(), action)) ;
+		int count = 0 ;
+		for (Pair<String, Exception> failure : failures)
 		{
-        	//reloadContainer(container, callback);
-        	addedObjectToContainer(container, newObjects, callback);
-			callback.onNumberOfCalls(account.getNumberOfCalls());
+			if (count >= maxReportedTransferFailures)
+			{
+				sb.append(", ...") ;
+				break ;
+			}
+			if (count > 0)
+				sb.append(", ") ;
+			sb.append(failure.getFirst()) ;
+			++count ;
 		}
+		callback.onError(new CommandException (sb.toString())) ;
 	}
 	
 	
@@ -1487,42 +2022,50 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * @throws IOException 
      */
 	@Override
-	public synchronized void createDirectory(Container container, StoredObject parentObject, String directoryName, SwiftCallback callback)
+	public void createDirectory(Container container, StoredObject parentObject, String directoryName, SwiftCallback callback)
 	{
-		CheckAccount () ;
+		try (OperationLocks.Held lock = locks.lockContainer(container, false))
+		{
+			CheckAccount () ;
     	
-		if (directoryName == null || directoryName.isEmpty())
-			return ;
+			if (directoryName == null || directoryName.isEmpty())
+				return ;
 		
-		String parentDir = SwiftUtils.getParentDirectory(parentObject) ;
+			String parentDir = SwiftUtils.getParentDirectory(parentObject) ;
 		
-		StringBuilder objectPathBuilder = new StringBuilder () ;
-		objectPathBuilder.append (parentDir) ;
-		objectPathBuilder.append (directoryName) ;
+			StringBuilder objectPathBuilder = new StringBuilder () ;
+			objectPathBuilder.append (parentDir) ;
+			objectPathBuilder.append (directoryName) ;
 		
-		StoredObject obj = container.getObject(objectPathBuilder.toString());
-		if (obj.exists())
-		{
-			if (!SwiftUtils.directoryContentType.equalsIgnoreCase(obj.getContentType()))
-				callback.onError(new CommandException ("A non-directory file with the same name already exists")) ;
-		}
-		else
-		{
-			createDirectory (obj) ;
-        	//reloadContainer(container, callback);
-        	addedObjectToContainer(container, Arrays.asList(obj), callback);
+			StoredObject obj = container.getObject(objectPathBuilder.toString());
+			if (obj.exists())
+			{
+				if (!SwiftUtils.directoryContentType.equalsIgnoreCase(obj.getContentType()))
+					callback.onError(new CommandException ("A non-directory file with the same name already exists")) ;
+			}
+			else
+			{
+				createDirectory (obj) ;
+	        	//reloadContainer(container, callback);
+	        	addedObjectToContainer(container, Arrays.asList(obj), callback);
+			}
+			callback.onNumberOfCalls(account.getNumberOfCalls());
 		}
-		callback.onNumberOfCalls(account.getNumberOfCalls());
 	}
 	
 	
-	private void createDirectory (StoredObject obj)
+	private void createDirectory (final StoredObject obj)
 	{
 		//obj.uploadObject(new UploadInstructions (new byte[] {}).setContentType(SwiftUtils.directoryContentType)) ;
 		byte[] emptyfile = {} ; 
-		UploadInstructions inst = new UploadInstructions (emptyfile) ;
+		final UploadInstructions inst = new UploadInstructions (emptyfile) ;
 		inst.setContentType(SwiftUtils.directoryContentType) ;
-		obj.uploadObject(inst) ;
+		withRetries (String.format("Creating directory %s", obj.getName()), new RetryPolicy.Command<Void, RuntimeException> () {
+			@Override
+			public Void call() {
+				obj.uploadObject(inst) ;
+				return null ;
+			}}) ;
 	}
 
 
@@ -1530,59 +2073,78 @@ public class SwiftOperationsImpl implements SwiftOperations {
      * {@inheritDoc}.
      */
 	@Override
-	public synchronized void deleteDirectory(Container container, StoredObject storedObject, StopRequester stopRequester, SwiftCallback callback) {
-		
-		CheckAccount () ;
+	public void deleteDirectory(Container container, StoredObject storedObject, StopRequester stopRequester, SwiftCallback callback) {
+		try (OperationLocks.Held lock = locks.lockContainer(container, false))
+		{
+			CheckAccount () ;
     	
-    	if (!SwiftUtils.isDirectory(storedObject))
-    		throw new AssertionError ("The object to delete must be a directory.") ;
+	    	if (!SwiftUtils.isDirectory(storedObject))
+	    		throw new AssertionError ("The object to delete must be a directory.") ;
     	
-    	List<StoredObject> deletedObjects = new ArrayList<> () ;
+	    	List<StoredObject> deletedObjects = new ArrayList<> () ;
     	
-    	try
-    	{
-			String prefix = storedObject.getName() + SwiftUtils.separator ;
-			Collection<StoredObject> listObj = eagerFetchStoredObjects(container, prefix) ;
-			int currentUplodedFilesCount = 0 ;
-			int totalFiles = listObj.size() ;
-			ProgressInformation progInfo = new ProgressInformation (callback, false) ;
+	    	try
+	    	{
+				String prefix = storedObject.getName() + SwiftUtils.separator ;
+				PagedStoredObjectIterator objIterator = new PagedStoredObjectIterator (container, prefix, MAX_PAGE_SIZE) ;
+				int currentUplodedFilesCount = 0 ;
+				ProgressInformation progInfo = new ProgressInformation (callback, false) ;
+				List<StoredObject> batch = new ArrayList<StoredObject> () ;
+				boolean complete = true ;
 			
-	        for (StoredObject so : listObj) 
-	        {
-	        	if (!keepGoing (stopRequester, callback))
-	        		return ;
+		        while (objIterator.hasNext()) 
+		        {
+		        	if (!keepGoing (stopRequester, callback))
+		        		return ;
 	        	
-	        	++currentUplodedFilesCount ;
+		        	StoredObject so = objIterator.next() ;
+		        	++currentUplodedFilesCount ;
+		        	// the total is not known in advance, the progress is relative to the objects listed so far
+		        	int totalFiles = (int) objIterator.getNumberOfListedObjects() ;
 	        	
-	        	if (so == null)
-	        		continue ;
+		        	if (so == null)
+		        		continue ;
 	        	
-	        	// defensive check, it should not be necessary, provided that
-	        	// the prefix was given to eagerFetchStoredObjects 
-	        	if (!so.getName().startsWith(storedObject.getName()))
-	        		continue ;
+		        	// defensive check, it should not be necessary, provided that
+		        	// the prefix was given to the iterator 
+		        	if (!so.getName().startsWith(storedObject.getName()))
+		        		continue ;
 	        	
-	        	progInfo.setCurrentMessage(String.format ("Deleting %s", so.getName())) ;
-	        	progInfo.setCurrentProgress(1) ;
-	        	totalProgress (currentUplodedFilesCount, totalFiles, so, progInfo, true) ;
+		        	progInfo.setCurrentMessage(String.format ("Deleting %s", so.getName())) ;
+		        	progInfo.setCurrentProgress(1) ;
+		        	totalProgress (currentUplodedFilesCount, totalFiles, so, progInfo, true) ;
 	
-	        	deleteStoredObjects (container, Arrays.asList(so), stopRequester, false, callback) ;
-	        	deletedObjects.add(so) ;
-	        }
-	        logger.info("Deleted directory '{}'", storedObject.getName());
-	        deleteStoredObjects (container, Arrays.asList(storedObject), stopRequester, false, callback) ;
-	        deletedObjects.add(storedObject) ;
+		        	// the objects are deleted by pages (bulk delete, if supported)
+		        	batch.add(so) ;
+		        	if (batch.size() >= MAX_PAGE_SIZE)
+		        	{
+		        		complete &= deleteBatch (container, batch, stopRequester, deletedObjects, callback) ;
+		        		batch.clear();
+		        	}
+		        }
+		        if (!batch.isEmpty())
+		        	complete &= deleteBatch (container, batch, stopRequester, deletedObjects, callback) ;
+		        
+		        // the directory is kept as long as some of its content could not be deleted
+		        if (!complete)
+		        {
+		        	logger.info("Some objects in the directory '{}' could not be deleted, the directory is kept", storedObject.getName());
+		        	return ;
+		        }
+		        if (deleteBatch (container, Arrays.asList(storedObject), stopRequester, deletedObjects, callback))
+		        	logger.info("Deleted directory '{}'", storedObject.getName());
+			}
+		    catch (OutOfMemoryError ome)
+		    {
+		    	dealWithOutOfMemoryError (ome, "deleteDirectory", callback) ;
+		    }
+	    	finally
+	    	{
+	        	//reloadContainer(container, callback);
+	        	removedObjectFromContainer(container, deletedObjects, callback);
+		        callback.onNumberOfCalls(account.getNumberOfCalls());
+	    	}
 		}
-	    catch (OutOfMemoryError ome)
-	    {
-	    	dealWithOutOfMemoryError (ome, "deleteDirectory", callback) ;
-	    }
-    	finally
-    	{
-        	//reloadContainer(container, callback);
-        	removedObjectFromContainer(container, deletedObjects, callback);
-	        callback.onNumberOfCalls(account.getNumberOfCalls());
-    	}
 	}
 	
 	
@@ -0,0 +1,543 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.javaswift.joss.model.StoredObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.swiftexplorer.util.FileUtils;
+
+
+/*
+ * Records the completed transfers (files, and segments of large objects), so that an interrupted 
+ * job can be resumed without hashing again what has already been done. The journal only tells 
+ * what was transferred, the remote objects must still be checked (it cannot know about changes 
+ * made by other clients).
+ * 
+ * An entry binds an object of an account to a local file, and is only valid as long as the size 
+ * and the last modification time of the file are unchanged. The entries older than the retention 
+ * period are discarded, and those of an object are forgotten when it is deleted through the application.
+ * 
+ * The journal may be backed by an append-only log file (one line per completed transfer, the last 
+ * line for a given key wins, and the segment lines of an object are superseded by the completion
+ * of the whole upload), which is compacted when it becomes much larger than the number of entries.
+ */
+public class TransferJournal {
+
+	final static Logger logger = LoggerFactory.getLogger(TransferJournal.class);
+	
+	private static final long retentionMillis = TimeUnit.DAYS.toMillis(7) ;
+	
+	private static final String none = "-" ;
+	private static final int compactionThreshold = 1024 ;
+	
+	private static final char upload = 'U' ;
+	private static final char download = 'D' ;
+	private static final char segment = 'S' ;
+	
+	private static volatile TransferJournal defaultJournal = new TransferJournal (false) ;
+	
+	
+	private static class Entry
+	{
+		private final char kind ;
+		private final String objectKey ;
+		private final String localPath ;
+		private final long size ;
+		private final long lastModified ;
+		private final long segmentSize ;
+		private final long segmentNumber ;
+		private final String etag ;
+		private final long time ;
+		
+		Entry (char kind, String objectKey, String localPath, long size, long lastModified, long segmentSize, long segmentNumber, String etag, long time)
+		{
+			super () ;
+			this.kind = kind ;
+			this.objectKey = objectKey ;
+			this.localPath = localPath ;
+			this.size = size ;
+			this.lastModified = lastModified ;
+			this.segmentSize = segmentSize ;
+			this.segmentNumber = segmentNumber ;
+			this.etag = etag ;
+			this.time = time ;
+		}
+		
+		boolean matches (String localPath, BasicFileAttributes attr)
+		{
+			return this.localPath.equals(localPath) 
+					&& size == attr.size() 
+					&& lastModified == attr.lastModifiedTime().toMillis() 
+					&& System.currentTimeMillis() - time < retentionMillis ;
+		}
+	}
+	
+	
+	private final boolean enabled ;
+	private final File logFile ;
+	private final Map<String, Entry> files = new ConcurrentHashMap<String, Entry> () ;
+	private final ConcurrentMap<String, Map<Long, Entry> > segments = new ConcurrentHashMap<String, Map<Long, Entry> > () ;
+	private Writer logWriter = null ;
+	private int numberOfLogLines = 0 ;
+	
+	
+	private TransferJournal (boolean enabled)
+	{
+		super () ;
+		this.enabled = enabled ;
+		this.logFile = null ;
+	}
+	
+	
+	/**
+	 * Creates a journal persisted in the given file. If logFile is null, the journal is kept in memory only.
+	 * @param logFile
+	 */
+	public TransferJournal (File logFile)
+	{
+		super () ;
+		this.enabled = true ;
+		this.logFile = logFile ;
+		load () ;
+	}
+	
+	
+	/**
+	 * @return the journal to be used by default (it does not record anything, unless another default journal has been set)
+	 */
+	public static TransferJournal getDefault ()
+	{
+		return defaultJournal ;
+	}
+	
+	
+	public static void setDefault (TransferJournal journal)
+	{
+		TransferJournal previous = defaultJournal ;
+		defaultJournal = (journal == null) ? (new TransferJournal (false)) : (journal) ;
+		if (previous != null && previous != defaultJournal)
+			previous.close();
+	}
+	
+	
+	/**
+	 * returns the md5 value recorded when the given file was uploaded into the given object, 
+	 * provided that the file has not changed since. Whether the object still has this md5 value must 
+	 * be checked by the caller.
+	 * @param accountKey
+	 * @param obj
+	 * @param file
+	 * @return the md5 value, or null if it is unknown
+	 * @throws IOException
+	 */
+	public String getUploadedMd5 (String accountKey, StoredObject obj, File file) throws IOException
+	{
+		Entry entry = getEntry (upload, accountKey, obj, file) ;
+		return (entry == null) ? (null) : (entry.etag) ;
+	}
+	
+	
+	/**
+	 * returns true if the given object has been downloaded into the given file, and neither has changed since.
+	 * @param accountKey
+	 * @param obj
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public boolean isDownloaded (String accountKey, StoredObject obj, File file) throws IOException
+	{
+		Entry entry = getEntry (download, accountKey, obj, file) ;
+		// the object may have been modified since
+		return entry != null && entry.etag != null && entry.etag.equals(obj.getEtag()) ;
+	}
+	
+	
+	private Entry getEntry (char kind, String accountKey, StoredObject obj, File file) throws IOException
+	{
+		if (!enabled || obj == null || file == null || !file.exists())
+			return null ;
+		Entry entry = files.get(getKey (kind, getObjectKey (accountKey, obj))) ;
+		if (entry == null || !entry.matches(getLocalPath (file), FileUtils.getFileAttr(file.toPath())))
+			return null ;
+		return entry ;
+	}
+	
+	
+	/**
+	 * records that the given file has been uploaded into the given object.
+	 * @param accountKey
+	 * @param obj
+	 * @param file
+	 * @param attr the attributes of the file read before the upload (so that a modification during the upload invalidates the entry)
+	 * @param etag
+	 * @throws IOException
+	 */
+	public void setUploaded (String accountKey, StoredObject obj, File file, BasicFileAttributes attr, String etag) throws IOException
+	{
+		setDone (upload, accountKey, obj, file, attr, etag) ;
+	}
+	
+	
+	/**
+	 * records that the given object has been downloaded into the given file.
+	 * @param accountKey
+	 * @param obj
+	 * @param file
+	 * @param etag the etag of the downloaded object
+	 * @throws IOException
+	 */
+	public void setDownloaded (String accountKey, StoredObject obj, File file, String etag) throws IOException
+	{
+		setDone (download, accountKey, obj, file, null, etag) ;
+	}
+	
+	
+	private void setDone (char kind, String accountKey, StoredObject obj, File file, BasicFileAttributes attr, String etag) throws IOException
+	{
+		if (!enabled || obj == null || file == null)
+			return ;
+		if (attr == null)
+			attr = FileUtils.getFileAttr(file.toPath()) ;
+		Entry entry = new Entry (kind, getObjectKey (accountKey, obj), getLocalPath (file), attr.size(), attr.lastModifiedTime().toMillis(), 0, 0, etag, System.currentTimeMillis()) ;
+		files.put(getKey (kind, entry.objectKey), entry) ;
+		if (kind == upload)
+			segments.remove(entry.objectKey) ;
+		append (entry) ;
+	}
+	
+	
+	/**
+	 * returns the segments of the given file already uploaded for the given object, with the given
+	 * segment size, along with their md5 values.
+	 * @param accountKey
+	 * @param obj
+	 * @param file
+	 * @param attr
+	 * @param segmentSize
+	 * @return a map from the segment numbers (1-indexed) to the md5 values
+	 */
+	public Map<Long, String> getUploadedSegments (String accountKey, StoredObject obj, File file, BasicFileAttributes attr, long segmentSize) throws IOException
+	{
+		if (!enabled || obj == null || file == null || attr == null)
+			return Collections.emptyMap() ;
+		Map<Long, Entry> objectSegments = segments.get(getObjectKey (accountKey, obj)) ;
+		if (objectSegments == null)
+			return Collections.emptyMap() ;
+		String localPath = getLocalPath (file) ;
+		Map<Long, String> ret = new HashMap<Long, String> () ;
+		synchronized (objectSegments)
+		{
+			for (Entry entry : objectSegments.values())
+			{
+				if (entry.segmentSize == segmentSize && entry.matches(localPath, attr))
+					ret.put(entry.segmentNumber, entry.etag) ;
+			}
+		}
+		return ret ;
+	}
+	
+	
+	public void setSegmentUploaded (String accountKey, StoredObject obj, File file, BasicFileAttributes attr, long segmentSize, long segmentNumber, String md5) throws IOException
+	{
+		if (!enabled || obj == null || file == null || attr == null)
+			return ;
+		Entry entry = new Entry (segment, getObjectKey (accountKey, obj), getLocalPath (file), attr.size(), attr.lastModifiedTime().toMillis(), segmentSize, segmentNumber, md5, System.currentTimeMillis()) ;
+		putSegment (entry) ;
+		append (entry) ;
+	}
+	
+	
+	private void putSegment (Entry entry)
+	{
+		Map<Long, Entry> objectSegments = segments.get(entry.objectKey) ;
+		if (objectSegments == null)
+		{
+			segments.putIfAbsent(entry.objectKey, new HashMap<Long, Entry> ()) ;
+			objectSegments = segments.get(entry.objectKey) ;
+		}
+		synchronized (objectSegments)
+		{
+			objectSegments.put(entry.segmentNumber, entry) ;
+		}
+	}
+	
+	
+	/**
+	 * forgets all the transfers of the given object (e.g., because it has been deleted).
+	 * @param accountKey
+	 * @param obj
+	 */
+	public void forget (String accountKey, StoredObject obj)
+	{
+		if (!enabled || obj == null)
+			return ;
+		String objectKey = getObjectKey (accountKey, obj) ;
+		boolean removed = (files.remove(getKey (upload, objectKey)) != null) ;
+		removed |= (files.remove(getKey (download, objectKey)) != null) ;
+		removed |= (segments.remove(objectKey) != null) ;
+		// the log is not rewritten straight away, a line with no local file erases the entries
+		if (removed)
+			append (new Entry (upload, objectKey, "", -1, -1, 0, 0, null, System.currentTimeMillis())) ;
+	}
+	
+	
+	public int size ()
+	{
+		int size = files.size() ;
+		for (Map<Long, Entry> objectSegments : segments.values())
+		{
+			synchronized (objectSegments)
+			{
+				size += objectSegments.size() ;
+			}
+		}
+		return size ;
+	}
+	
+	
+	private static String getKey (char kind, String objectKey)
+	{
+		return kind + objectKey ;
+	}
+	
+	
+	// the same path may exist in several accounts
+	private static String getObjectKey (String accountKey, StoredObject obj)
+	{
+		return ((accountKey == null) ? ("") : (accountKey)) + obj.getPath() ;
+	}
+	
+	
+	private static String getLocalPath (File file) throws IOException
+	{
+		return file.getCanonicalPath() ;
+	}
+	
+	
+	private synchronized void load ()
+	{
+		if (logFile == null || !logFile.exists())
+			return ;
+		try (BufferedReader reader = new BufferedReader (new InputStreamReader (new FileInputStream (logFile), StandardCharsets.UTF_8)))
+		{
+			String line ;
+			while ((line = reader.readLine()) != null)
+			{
+				++numberOfLogLines ;
+				parseLine (line) ;
+			}
+		} 
+		catch (IOException e) 
+		{
+			logger.error("Error occurred while loading the transfer journal", e);
+		}
+		if (numberOfLogLines > 2 * size () + compactionThreshold)
+			compact () ;
+	}
+	
+	
+	private void parseLine (String line)
+	{
+		String [] fields = line.split("\t", -1) ;
+		// the last line may be incomplete if the application has been killed while writing it
+		if (fields.length != 9 || fields[0].length() != 1)
+			return ;
+		try
+		{
+			Entry entry = new Entry (fields[0].charAt(0), unescape (fields[1]), unescape (fields[2]), Long.parseLong(fields[3]), Long.parseLong(fields[4]), 
+					Long.parseLong(fields[5]), Long.parseLong(fields[6]), (none.equals(fields[7])) ? (null) : (fields[7]), Long.parseLong(fields[8])) ;
+			if (System.currentTimeMillis() - entry.time >= retentionMillis)
+				return ;
+			if (entry.localPath.isEmpty())
+			{
+				files.remove(getKey (upload, entry.objectKey)) ;
+				files.remove(getKey (download, entry.objectKey)) ;
+				segments.remove(entry.objectKey) ;
+			}
+			else if (entry.kind == segment)
+				putSegment (entry) ;
+			else if (entry.kind == upload || entry.kind == download)
+			{
+				files.put(getKey (entry.kind, entry.objectKey), entry) ;
+				if (entry.kind == upload)
+					segments.remove(entry.objectKey) ;
+			}
+		}
+		catch (NumberFormatException e)
+		{
+			logger.info("Invalid line in the transfer journal (ignored)");
+		}
+	}
+	
+	
+	private static String toLine (Entry entry)
+	{
+		StringBuilder sb = new StringBuilder () ;
+		sb.append(entry.kind) ;
+		sb.append('\t') ;
+		sb.append(escape (entry.objectKey)) ;
+		sb.append('\t') ;
+		sb.append(escape (entry.localPath)) ;
+		sb.append('\t') ;
+		sb.append(entry.size) ;
+		sb.append('\t') ;
+		sb.append(entry.lastModified) ;
+		sb.append('\t') ;
+		sb.append(entry.segmentSize) ;
+		sb.append('\t') ;
+		sb.append(entry.segmentNumber) ;
+		sb.append('\t') ;
+		sb.append((entry.etag == null || entry.etag.isEmpty()) ? (none) : (entry.etag)) ;
+		sb.append('\t') ;
+		sb.append(entry.time) ;
+		sb.append('\n') ;
+		return sb.toString() ;
+	}
+	
+	
+	private synchronized void append (Entry entry)
+	{
+		if (logFile == null)
+			return ;
+		try
+		{
+			if (logWriter == null)
+			{
+				File parent = logFile.getParentFile() ;
+				if (parent != null)
+					parent.mkdirs() ;
+				logWriter = new BufferedWriter (new OutputStreamWriter (new FileOutputStream (logFile, true), StandardCharsets.UTF_8)) ;
+			}
+			logWriter.write(toLine (entry)) ;
+			logWriter.flush();
+			++numberOfLogLines ;
+			if (numberOfLogLines > 2 * size () + compactionThreshold)
+				compact () ;
+		}
+		catch (IOException e)
+		{
+			logger.error("Error occurred while updating the transfer journal", e);
+		}
+	}
+	
+	
+	private synchronized void compact ()
+	{
+		if (logFile == null)
+			return ;
+		File tmpFile = new File (logFile.getPath() + ".tmp") ;
+		try
+		{
+			closeWriter () ;
+			int lines = 0 ;
+			try (Writer writer = new BufferedWriter (new OutputStreamWriter (new FileOutputStream (tmpFile), StandardCharsets.UTF_8)))
+			{
+				for (Entry entry : files.values())
+				{
+					writer.write(toLine (entry)) ;
+					++lines ;
+				}
+				for (Map<Long, Entry> objectSegments : segments.values())
+				{
+					synchronized (objectSegments)
+					{
+						for (Entry entry : objectSegments.values())
+						{
+							writer.write(toLine (entry)) ;
+							++lines ;
+						}
+					}
+				}
+			}
+			Files.move(tmpFile.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE) ;
+			numberOfLogLines = lines ;
+		}
+		catch (IOException e)
+		{
+			logger.error("Error occurred while compacting the transfer journal", e);
+		}
+	}
+	
+	
+	private void closeWriter () throws IOException
+	{
+		if (logWriter == null)
+			return ;
+		logWriter.close();
+		logWriter = null ;
+	}
+	
+	
+	/**
+	 * releases the log file. 
+	 */
+	public synchronized void close ()
+	{
+		try
+		{
+			closeWriter () ;
+		}
+		catch (IOException e)
+		{
+			logger.error("Error occurred while closing the transfer journal", e);
+		}
+	}
+	
+	
+	private static String escape (String str)
+	{
+		return str.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r") ;
+	}
+	
+	
+	private static String unescape (String str)
+	{
+		StringBuilder sb = new StringBuilder () ;
+		for (int i = 0 ; i < str.length() ; ++i)
+		{
+			char c = str.charAt(i) ;
+			if (c == '\\' && i + 1 < str.length())
+			{
+				char n = str.charAt(++i) ;
+				sb.append((n == 't') ? ('\t') : ((n == 'n') ? ('\n') : ((n == 'r') ? ('\r') : (n)))) ;
+			}
+			else
+				sb.append(c) ;
+		}
+		return sb.toString() ;
+	}
+}
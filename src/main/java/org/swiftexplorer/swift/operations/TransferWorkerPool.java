@@ -0,0 +1,253 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.swiftexplorer.swift.operations.SwiftOperations.StopRequester;
+import org.swiftexplorer.util.Pair;
+
+
+/*
+ * Runs a batch of transfers (uploads, downloads, ...) on a bounded number of worker threads.
+ *
+ * A failing transfer does not abort the batch: the failure is logged and recorded, and the
+ * caller can retrieve all the failures once the batch is complete. With a single worker, the
+ * transfers are run in the calling thread, in the order they are submitted.
+ * 
+ * When a concurrency controller is given, each transfer also waits for a slot from it, so that
+ * the controller can run fewer transfers than there are workers. Conversely, the pool grows up to 
+ * the current limit of the controller (e.g., when its maximum is raised during the batch).
+ */
+class TransferWorkerPool {
+
+	final Logger logger = LoggerFactory.getLogger(TransferWorkerPool.class);
+
+
+	public interface Transfer {
+		public void execute () throws IOException ;
+	}
+
+
+	private static final AtomicInteger poolCount = new AtomicInteger () ;
+
+	// only changed by the submitting thread, when the pool grows
+	private volatile int numberOfWorkers ;
+	private int maxPendingTransfers ;
+	private final ThreadPoolExecutor executor ;
+	private final Semaphore pendingTransfers ;
+	private final StopRequester stopRequester ;
+	private final AdaptiveConcurrencyController concurrencyController ;
+
+	private final List<Pair<String, Exception> > failures = Collections.synchronizedList(new ArrayList<Pair<String, Exception> > ()) ;
+	private final AtomicReference<Error> fatalError = new AtomicReference<Error> () ;
+
+	private volatile boolean terminated = false ;
+
+
+	TransferWorkerPool (int numberOfWorkers, StopRequester stopRequester)
+	{
+		this (numberOfWorkers, stopRequester, null) ;
+	}
+	
+	
+	TransferWorkerPool (int numberOfWorkers, StopRequester stopRequester, AdaptiveConcurrencyController concurrencyController)
+	{
+		super () ;
+		this.concurrencyController = concurrencyController ;
+		this.numberOfWorkers = Math.max(1, numberOfWorkers) ;
+		// we do not want to enqueue the whole batch at once (it may count hundreds
+		// of thousands of files), just enough to keep the workers busy
+		this.maxPendingTransfers = 2 * this.numberOfWorkers ;
+		this.pendingTransfers = new Semaphore (maxPendingTransfers) ;
+		this.stopRequester = stopRequester ;
+		// with a controller, a single worker may have to grow
+		this.executor = (this.numberOfWorkers > 1 || concurrencyController != null) ? (new ThreadPoolExecutor (this.numberOfWorkers, this.numberOfWorkers, 
+				0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable> (), newThreadFactory ())) : (null) ;
+	}
+
+
+	private static ThreadFactory newThreadFactory ()
+	{
+		final int poolId = poolCount.incrementAndGet() ;
+		final AtomicInteger threadCount = new AtomicInteger () ;
+		return new ThreadFactory () {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread (r, String.format("transfer-%d-%d", poolId, threadCount.incrementAndGet())) ;
+				t.setDaemon(true);
+				return t ;
+			}} ;
+	}
+
+
+	public int getNumberOfWorkers ()
+	{
+		return numberOfWorkers ;
+	}
+
+
+	public void submit (final String name, final Transfer transfer) throws IOException
+	{
+		if (terminated)
+			throw new IllegalStateException ("The transfer pool has already been terminated") ;
+
+		rethrowFatalError () ;
+
+		if (executor == null)
+		{
+			execute (name, transfer) ;
+			return ;
+		}
+		grow () ;
+
+		try
+		{
+			pendingTransfers.acquire();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException ("Interrupted while waiting for a transfer worker") ;
+		}
+		executor.execute(new Runnable () {
+			@Override
+			public void run() {
+				try
+				{
+					if (!isStopRequested ())
+						execute (name, transfer) ;
+				}
+				catch (Error e)
+				{
+					fatalError.compareAndSet(null, e) ;
+				}
+				finally
+				{
+					pendingTransfers.release();
+				}
+			}}) ;
+	}
+
+
+	private void grow ()
+	{
+		if (concurrencyController == null)
+			return ;
+		int limit = concurrencyController.getLimit() ;
+		if (limit <= numberOfWorkers)
+			return ;
+		logger.info("Increasing the number of transfer workers to {}", limit);
+		executor.setMaximumPoolSize(limit);
+		executor.setCorePoolSize(limit);
+		pendingTransfers.release(2 * limit - maxPendingTransfers);
+		maxPendingTransfers = 2 * limit ;
+		numberOfWorkers = limit ;
+	}
+	
+	
+	private void execute (String name, Transfer transfer)
+	{
+		boolean success = false ;
+		try
+		{
+			if (concurrencyController != null)
+				concurrencyController.acquire();
+			try
+			{
+				transfer.execute();
+				success = true ;
+			}
+			finally
+			{
+				if (concurrencyController != null)
+					concurrencyController.release(success);
+			}
+		}
+		catch (IOException | RuntimeException e)
+		{
+			logger.error(String.format("Error occurred while transferring %s", name), e);
+			failures.add(Pair.newPair(name, e)) ;
+		}
+	}
+
+
+	private boolean isStopRequested ()
+	{
+		return stopRequester != null && stopRequester.isStopRequested() ;
+	}
+
+
+	/**
+	 * waits for all the submitted transfers to complete, and releases the workers.
+	 * The pool cannot be used anymore once this method has been called.
+	 * @throws IOException
+	 */
+	public void awaitCompletion () throws IOException
+	{
+		if (terminated)
+			return ;
+		terminated = true ;
+
+		if (executor != null)
+		{
+			try
+			{
+				pendingTransfers.acquire(maxPendingTransfers);
+				pendingTransfers.release(maxPendingTransfers);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException ("Interrupted while waiting for the transfers to complete") ;
+			}
+			finally
+			{
+				executor.shutdown();
+			}
+		}
+		rethrowFatalError () ;
+	}
+
+
+	private void rethrowFatalError ()
+	{
+		Error e = fatalError.get() ;
+		if (e != null)
+			throw e ;
+	}
+
+
+	public List<Pair<String, Exception> > getFailures ()
+	{
+		synchronized (failures)
+		{
+			return new ArrayList<Pair<String, Exception> > (failures) ;
+		}
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.javaswift.joss.model.StoredObject;
+
+
+/*
+ * An in-memory index of object names, that finds the objects whose name contains a given string.
+ * 
+ * Each object is given an id in the order it is added, and each distinct trigram (three consecutive 
+ * characters) of its name refers to the id. The ids of a trigram are kept in increasing order, encoded
+ * as variable-length deltas, which keeps the lists of common trigrams (e.g., those of a shared 
+ * directory name) small. A search intersects the lists of the least frequent trigrams of the query; 
+ * the candidates must still be checked against the query, which is left to the caller (see getCandidates). 
+ * Queries shorter than three characters cannot use the index, all the objects are then candidates.
+ */
+public class StoredObjectsIndex {
+
+	private static final int gramLength = 3 ;
+	
+	
+	/*
+	 * The increasing ids of the names containing a trigram, delta encoded (7 bits per byte).
+	 */
+	private static final class Postings
+	{
+		private byte [] bytes = new byte [4] ;
+		private int length = 0 ;
+		private int lastId = -1 ;
+		private int count = 0 ;
+		
+		void add (int id)
+		{
+			if (id == lastId)
+				return ;
+			int delta = id - lastId ;
+			lastId = id ;
+			++count ;
+			if (length + 5 > bytes.length)
+				bytes = Arrays.copyOf(bytes, Math.max(length + 5, bytes.length * 2)) ;
+			while ((delta & ~0x7F) != 0)
+			{
+				bytes[length++] = (byte) ((delta & 0x7F) | 0x80) ;
+				delta >>>= 7 ;
+			}
+			bytes[length++] = (byte) delta ;
+		}
+		
+		int [] toArray ()
+		{
+			int [] ret = new int [count] ;
+			int id = -1 ;
+			int pos = 0 ;
+			for (int i = 0 ; i < count ; ++i)
+			{
+				int delta = 0 ;
+				int shift = 0 ;
+				byte b ;
+				do
+				{
+					b = bytes[pos++] ;
+					delta |= (b & 0x7F) << shift ;
+					shift += 7 ;
+				} while ((b & 0x80) != 0) ;
+				id += delta ;
+				ret[i] = id ;
+			}
+			return ret ;
+		}
+	}
+	
+	
+	private final List<StoredObject> objects = new ArrayList<StoredObject> () ;
+	private final Map<Long, Postings> postingsMap = new HashMap<Long, Postings> () ;
+	
+	
+	private static long getGramKey (String str, int index)
+	{
+		return ((long) str.charAt(index) << 32) | ((long) str.charAt(index + 1) << 16) | (long) str.charAt(index + 2) ;
+	}
+	
+	
+	public synchronized void add (StoredObject obj)
+	{
+		if (obj == null)
+			return ;
+		int id = objects.size() ;
+		objects.add(obj) ;
+		String name = obj.getName() ;
+		for (int i = 0 ; i + gramLength <= name.length() ; ++i)
+		{
+			Long key = getGramKey (name, i) ;
+			Postings postings = postingsMap.get(key) ;
+			if (postings == null)
+			{
+				postings = new Postings () ;
+				postingsMap.put(key, postings) ;
+			}
+			// a trigram repeated in the name is recorded once
+			postings.add(id) ;
+		}
+	}
+	
+	
+	public synchronized void addAll (Collection<StoredObject> objs)
+	{
+		if (objs == null)
+			return ;
+		for (StoredObject obj : objs)
+			add (obj) ;
+	}
+	
+	
+	public synchronized void clear ()
+	{
+		objects.clear();
+		postingsMap.clear();
+	}
+	
+	
+	public synchronized int size ()
+	{
+		return objects.size() ;
+	}
+	
+	
+	/**
+	 * Returns the objects whose name may contain the given query, in the order they were added. 
+	 * All the objects whose name does contain the query are returned, but the converse is not true.
+	 * @param query
+	 * @return the candidates
+	 */
+	public synchronized List<StoredObject> getCandidates (String query)
+	{
+		if (query == null || query.length() < gramLength)
+			return new ArrayList<StoredObject> (objects) ;
+		
+		// the least frequent trigrams are the most selective
+		Set<Long> keys = new HashSet<Long> () ;
+		for (int i = 0 ; i + gramLength <= query.length() ; ++i)
+			keys.add(getGramKey (query, i)) ;
+		Postings first = null ;
+		Postings second = null ;
+		for (Long key : keys)
+		{
+			Postings postings = postingsMap.get(key) ;
+			if (postings == null)
+				return Collections.emptyList() ;
+			if (first == null || postings.count < first.count)
+			{
+				second = first ;
+				first = postings ;
+			}
+			else if (second == null || postings.count < second.count)
+				second = postings ;
+		}
+		
+		int [] ids = first.toArray() ;
+		if (second != null)
+			ids = intersect (ids, second.toArray()) ;
+		List<StoredObject> ret = new ArrayList<StoredObject> (ids.length) ;
+		for (int id : ids)
+			ret.add(objects.get(id)) ;
+		return ret ;
+	}
+	
+	
+	private static int [] intersect (int [] a, int [] b)
+	{
+		int [] ret = new int [Math.min(a.length, b.length)] ;
+		int i = 0 ;
+		int j = 0 ;
+		int k = 0 ;
+		while (i < a.length && j < b.length)
+		{
+			if (a[i] < b[j])
+				++i ;
+			else if (a[i] > b[j])
+				++j ;
+			else
+			{
+				ret[k++] = a[i] ;
+				++i ;
+				++j ;
+			}
+		}
+		return Arrays.copyOf(ret, k) ;
+	}
+}
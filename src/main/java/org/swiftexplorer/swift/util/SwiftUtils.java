@@ -57,5 +57,17 @@ public class SwiftUtils {
 		}
 		return parentDir ;
 	}
-
+	
+	
+	/**
+	 * @param etag the etag of an object (possibly quoted, as for manifests)
+	 * @param md5
+	 * @return true if the etag corresponds to the given md5 value
+	 */
+	public static boolean isSameMd5 (String etag, String md5)
+	{
+		if (etag == null || md5 == null)
+			return false ;
+		return etag.replace("\"", "").trim().equalsIgnoreCase(md5) ;
+	}
 }
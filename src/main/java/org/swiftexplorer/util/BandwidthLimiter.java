@@ -0,0 +1,137 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.util;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/*
+ * Token bucket shared by the transfer streams, so that the overall transfer rate does not exceed 
+ * a given number of bytes per second (a non-positive rate means no limit). The bucket holds up to 
+ * one second worth of tokens, which allows short bursts after a pause.
+ * 
+ * The bucket can go into debt: a read that takes more tokens than available is allowed, and the 
+ * next readers wait until the debt is paid back. This way large reads are not starved, and the 
+ * lock is never held while sleeping. It also counts the bytes that go through it, limited or not.
+ */
+public class BandwidthLimiter {
+
+	private static volatile BandwidthLimiter instance = new BandwidthLimiter (0) ;
+	
+	private long bytesPerSecond ;
+	private double tokens ;
+	private long lastRefill ;
+	
+	private final AtomicLong totalBytes = new AtomicLong () ;
+	
+	
+	public BandwidthLimiter (long bytesPerSecond)
+	{
+		super () ;
+		this.lastRefill = System.nanoTime() ;
+		setRate (bytesPerSecond) ;
+	}
+	
+	
+	public static BandwidthLimiter getDefault ()
+	{
+		return instance ;
+	}
+	
+	
+	public static void setDefault (BandwidthLimiter limiter)
+	{
+		if (limiter == null)
+			throw new IllegalArgumentException ("The limiter cannot be null") ;
+		instance = limiter ;
+	}
+	
+	
+	public synchronized long getRate ()
+	{
+		return bytesPerSecond ;
+	}
+	
+	
+	/**
+	 * sets the maximum number of bytes per second; it takes effect immediately, 
+	 * including for the transfers in progress.
+	 * @param bytesPerSecond the rate, or 0 for no limit
+	 */
+	public synchronized void setRate (long bytesPerSecond)
+	{
+		refill (System.nanoTime()) ;
+		this.bytesPerSecond = Math.max(0, bytesPerSecond) ;
+		this.tokens = Math.min(tokens, this.bytesPerSecond) ;
+	}
+	
+	
+	public long getTotalBytes ()
+	{
+		return totalBytes.get() ;
+	}
+	
+	
+	/**
+	 * takes the given number of bytes from the bucket, and waits if the limit has been exceeded.
+	 * @param bytes
+	 * @throws InterruptedIOException
+	 */
+	public void acquire (long bytes) throws InterruptedIOException
+	{
+		if (bytes <= 0)
+			return ;
+		totalBytes.addAndGet(bytes) ;
+		long waitNanos = reserve (bytes, System.nanoTime()) ;
+		if (waitNanos <= 0)
+			return ;
+		try 
+		{
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		} 
+		catch (InterruptedException e) 
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException ("Interrupted while waiting for the bandwidth limiter") ;
+		}
+	}
+	
+	
+	/*
+	 * returns the time to wait (in nanoseconds) before the given bytes can be transferred
+	 */
+	synchronized long reserve (long bytes, long now)
+	{
+		if (bytesPerSecond <= 0)
+			return 0 ;
+		refill (now) ;
+		tokens -= bytes ;
+		if (tokens >= 0)
+			return 0 ;
+		return (long) (-tokens * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond) ;
+	}
+	
+	
+	private void refill (long now)
+	{
+		long elapsed = now - lastRefill ;
+		lastRefill = now ;
+		if (elapsed <= 0 || bytesPerSecond <= 0)
+			return ;
+		tokens = Math.min(bytesPerSecond, tokens + elapsed * (double) bytesPerSecond / TimeUnit.SECONDS.toNanos(1)) ;
+	}
+}
@@ -0,0 +1,471 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/*
+ * Keeps the md5 values of local files, so that they need not be computed again as long as 
+ * the files do not change. An entry is keyed by the canonical path of the file, and is valid 
+ * as long as the size and the last modification time of the file are unchanged. The per-segment
+ * md5 values (and their sum, i.e., the etag of the manifest) are only valid for the segment size 
+ * they were computed with.
+ * 
+ * The cache may be backed by an append-only log file (one line per update, the last line for a 
+ * given path wins), which is compacted when it becomes much larger than the number of entries.
+ */
+public class FileHashCache {
+
+	final static Logger logger = LoggerFactory.getLogger(FileHashCache.class);
+	
+	// files modified very recently may still be being written, 
+	// and a modification may go unnoticed if it happens within the mtime granularity
+	private static final long minAgeMillis = 2000 ;
+	
+	private static final String none = "-" ;
+	private static final int compactionThreshold = 1024 ;
+	
+	private static volatile FileHashCache defaultCache = new FileHashCache (false) ;
+	
+	
+	private static class Entry
+	{
+		private final long size ;
+		private final long lastModified ;
+		private final String md5 ;
+		private final long segmentSize ;
+		private final List<String> segmentsMd5 ;
+		
+		Entry (long size, long lastModified, String md5, long segmentSize, List<String> segmentsMd5)
+		{
+			super () ;
+			this.size = size ;
+			this.lastModified = lastModified ;
+			this.md5 = md5 ;
+			this.segmentSize = segmentSize ;
+			this.segmentsMd5 = (segmentsMd5 == null) ? (null) : (Collections.unmodifiableList(segmentsMd5)) ;
+		}
+		
+		boolean matches (long size, long lastModified)
+		{
+			return this.size == size && this.lastModified == lastModified ;
+		}
+		
+		List<String> getSegmentsMd5 (long segmentSize)
+		{
+			return (this.segmentSize == segmentSize) ? (segmentsMd5) : (null) ;
+		}
+	}
+	
+	
+	private final boolean enabled ;
+	private final File logFile ;
+	private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry> () ;
+	private Writer logWriter = null ;
+	private int numberOfLogLines = 0 ;
+	
+	
+	private FileHashCache (boolean enabled)
+	{
+		super () ;
+		this.enabled = enabled ;
+		this.logFile = null ;
+	}
+	
+	
+	/**
+	 * Creates a cache persisted in the given file. If logFile is null, the cache is kept in memory only.
+	 * @param logFile
+	 */
+	public FileHashCache (File logFile)
+	{
+		super () ;
+		this.enabled = true ;
+		this.logFile = logFile ;
+		load () ;
+	}
+	
+	
+	/**
+	 * @return the cache to be used by default (it does not cache anything, unless another default cache has been set)
+	 */
+	public static FileHashCache getDefault ()
+	{
+		return defaultCache ;
+	}
+	
+	
+	public static void setDefault (FileHashCache cache)
+	{
+		FileHashCache previous = defaultCache ;
+		defaultCache = (cache == null) ? (new FileHashCache (false)) : (cache) ;
+		if (previous != null && previous != defaultCache)
+			previous.close();
+	}
+	
+	
+	/**
+	 * returns the md5 value of the given file, computing it only if it is not known yet.
+	 * @param file
+	 * @return the md5 value
+	 * @throws IOException
+	 */
+	public String getMD5 (File file) throws IOException
+	{
+		if (!enabled || file.isDirectory())
+			return FileUtils.getMD5(file) ;
+		
+		BasicFileAttributes attr = FileUtils.getFileAttr(file.toPath()) ;
+		String key = getKey (file) ;
+		Entry entry = getValidEntry (key, attr) ;
+		if (entry != null && entry.md5 != null)
+			return entry.md5 ;
+		
+		String md5 = FileUtils.getMD5(file) ;
+		put (key, attr, md5, (entry == null) ? (0) : (entry.segmentSize), (entry == null) ? (null) : (entry.segmentsMd5)) ;
+		return md5 ;
+	}
+	
+	
+	/**
+	 * @param file
+	 * @return the md5 value of the given file if it is known, null otherwise
+	 * @throws IOException
+	 */
+	public String getCachedMD5 (File file) throws IOException
+	{
+		if (!enabled)
+			return null ;
+		Entry entry = getValidEntry (getKey (file), FileUtils.getFileAttr(file.toPath())) ;
+		return (entry == null) ? (null) : (entry.md5) ;
+	}
+	
+	
+	/**
+	 * returns the md5 values of the segments of the given file, computing them only if they are not known yet.
+	 * @param file
+	 * @param segmentSize
+	 * @return the md5 values of the segments, in order
+	 * @throws IOException
+	 */
+	public List<String> getSegmentsMd5 (File file, long segmentSize) throws IOException
+	{
+		if (!enabled)
+			return FileUtils.getSegmentsMd5(file, segmentSize) ;
+		
+		BasicFileAttributes attr = FileUtils.getFileAttr(file.toPath()) ;
+		String key = getKey (file) ;
+		Entry entry = getValidEntry (key, attr) ;
+		if (entry != null && entry.getSegmentsMd5(segmentSize) != null)
+			return entry.getSegmentsMd5(segmentSize) ;
+		
+		List<String> segmentsMd5 = FileUtils.getSegmentsMd5(file, segmentSize) ;
+		put (key, attr, (entry == null) ? (null) : (entry.md5), segmentSize, segmentsMd5) ;
+		return segmentsMd5 ;
+	}
+	
+	
+	/**
+	 * @param file
+	 * @param segmentSize
+	 * @return the md5 values of the segments of the given file if they are known, null otherwise
+	 * @throws IOException
+	 */
+	public List<String> getCachedSegmentsMd5 (File file, long segmentSize) throws IOException
+	{
+		if (!enabled)
+			return null ;
+		Entry entry = getValidEntry (getKey (file), FileUtils.getFileAttr(file.toPath())) ;
+		return (entry == null) ? (null) : (entry.getSegmentsMd5(segmentSize)) ;
+	}
+	
+	
+	/**
+	 * returns the etag that a segmented object uploaded from the given file would have (or the md5 of the file, 
+	 * if it does not need to be segmented).
+	 * @param file
+	 * @param segmentSize
+	 * @return the sum of the segments md5 values
+	 * @throws IOException
+	 */
+	public String getSumOfSegmentsMd5 (File file, long segmentSize) throws IOException
+	{
+    	if (file == null || segmentSize <= 0)
+    		throw new IllegalArgumentException () ;
+		if (FileUtils.getFileAttr(file.toPath()).size() <= segmentSize)
+			return getMD5 (file) ;
+		return FileUtils.getSumOfSegmentsMd5(getSegmentsMd5 (file, segmentSize)) ;
+	}
+	
+	
+	/**
+	 * records hash values computed elsewhere (e.g., while uploading the file). The values are ignored 
+	 * if the file has been modified since the given attributes were read.
+	 * @param file
+	 * @param attr the attributes of the file when the hash values started being computed
+	 * @param md5 the md5 value of the whole file, or null if unknown
+	 * @param segmentSize
+	 * @param segmentsMd5 the md5 values of the segments, or null if unknown
+	 * @throws IOException
+	 */
+	public void put (File file, BasicFileAttributes attr, String md5, long segmentSize, List<String> segmentsMd5) throws IOException
+	{
+		if (!enabled || file == null || attr == null)
+			return ;
+		BasicFileAttributes current = FileUtils.getFileAttr(file.toPath()) ;
+		if (current.size() != attr.size() || current.lastModifiedTime().toMillis() != attr.lastModifiedTime().toMillis())
+			return ;
+		String key = getKey (file) ;
+		Entry entry = getValidEntry (key, attr) ;
+		if (md5 == null && entry != null)
+			md5 = entry.md5 ;
+		if (segmentsMd5 == null && entry != null)
+		{
+			segmentSize = entry.segmentSize ;
+			segmentsMd5 = entry.segmentsMd5 ;
+		}
+		put (key, attr, md5, segmentSize, segmentsMd5) ;
+	}
+	
+	
+	public int size ()
+	{
+		return entries.size() ;
+	}
+	
+	
+	private static String getKey (File file) throws IOException
+	{
+		return file.getCanonicalPath() ;
+	}
+	
+	
+	private Entry getValidEntry (String key, BasicFileAttributes attr)
+	{
+		Entry entry = entries.get(key) ;
+		if (entry == null)
+			return null ;
+		if (!entry.matches(attr.size(), attr.lastModifiedTime().toMillis()))
+		{
+			entries.remove(key, entry) ;
+			return null ;
+		}
+		return entry ;
+	}
+	
+	
+	private void put (String key, BasicFileAttributes attr, String md5, long segmentSize, List<String> segmentsMd5)
+	{
+		long lastModified = attr.lastModifiedTime().toMillis() ;
+		if (System.currentTimeMillis() - lastModified < minAgeMillis)
+			return ;
+		Entry entry = new Entry (attr.size(), lastModified, md5, (segmentsMd5 == null) ? (0) : (segmentSize), segmentsMd5) ;
+		entries.put(key, entry) ;
+		append (key, entry) ;
+	}
+	
+	
+	private synchronized void load ()
+	{
+		if (logFile == null || !logFile.exists())
+			return ;
+		try (BufferedReader reader = new BufferedReader (new InputStreamReader (new FileInputStream (logFile), StandardCharsets.UTF_8)))
+		{
+			String line ;
+			while ((line = reader.readLine()) != null)
+			{
+				++numberOfLogLines ;
+				parseLine (line) ;
+			}
+		} 
+		catch (IOException e) 
+		{
+			logger.error("Error occurred while loading the hash cache", e);
+		}
+		if (numberOfLogLines > 2 * entries.size() + compactionThreshold)
+			compact () ;
+	}
+	
+	
+	private void parseLine (String line)
+	{
+		String [] fields = line.split("\t", -1) ;
+		if (fields.length != 6)
+			return ;
+		try
+		{
+			String key = unescape (fields[0]) ;
+			long size = Long.parseLong(fields[1]) ;
+			long lastModified = Long.parseLong(fields[2]) ;
+			String md5 = (none.equals(fields[3])) ? (null) : (fields[3]) ;
+			long segmentSize = Long.parseLong(fields[4]) ;
+			List<String> segmentsMd5 = (none.equals(fields[5])) ? (null) : (new ArrayList<String> (Arrays.asList(fields[5].split(",")))) ;
+			entries.put(key, new Entry (size, lastModified, md5, segmentSize, segmentsMd5)) ;
+		}
+		catch (NumberFormatException e)
+		{
+			logger.info("Invalid line in the hash cache (ignored)");
+		}
+	}
+	
+	
+	private static String toLine (String key, Entry entry)
+	{
+		StringBuilder sb = new StringBuilder () ;
+		sb.append(escape (key)) ;
+		sb.append('\t') ;
+		sb.append(entry.size) ;
+		sb.append('\t') ;
+		sb.append(entry.lastModified) ;
+		sb.append('\t') ;
+		sb.append((entry.md5 == null) ? (none) : (entry.md5)) ;
+		sb.append('\t') ;
+		sb.append(entry.segmentSize) ;
+		sb.append('\t') ;
+		if (entry.segmentsMd5 == null || entry.segmentsMd5.isEmpty())
+			sb.append(none) ;
+		else
+		{
+			for (int i = 0 ; i < entry.segmentsMd5.size() ; ++i)
+			{
+				if (i > 0)
+					sb.append(',') ;
+				sb.append(entry.segmentsMd5.get(i)) ;
+			}
+		}
+		sb.append('\n') ;
+		return sb.toString() ;
+	}
+	
+	
+	private synchronized void append (String key, Entry entry)
+	{
+		if (logFile == null)
+			return ;
+		try
+		{
+			if (logWriter == null)
+			{
+				File parent = logFile.getParentFile() ;
+				if (parent != null)
+					parent.mkdirs() ;
+				logWriter = new BufferedWriter (new OutputStreamWriter (new FileOutputStream (logFile, true), StandardCharsets.UTF_8)) ;
+			}
+			logWriter.write(toLine (key, entry)) ;
+			logWriter.flush();
+			++numberOfLogLines ;
+			if (numberOfLogLines > 2 * entries.size() + compactionThreshold)
+				compact () ;
+		}
+		catch (IOException e)
+		{
+			logger.error("Error occurred while updating the hash cache", e);
+		}
+	}
+	
+	
+	private synchronized void compact ()
+	{
+		if (logFile == null)
+			return ;
+		File tmpFile = new File (logFile.getPath() + ".tmp") ;
+		try
+		{
+			closeWriter () ;
+			try (Writer writer = new BufferedWriter (new OutputStreamWriter (new FileOutputStream (tmpFile), StandardCharsets.UTF_8)))
+			{
+				for (Map.Entry<String, Entry> e : entries.entrySet())
+					writer.write(toLine (e.getKey(), e.getValue())) ;
+			}
+			Files.move(tmpFile.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE) ;
+			numberOfLogLines = entries.size() ;
+		}
+		catch (IOException e)
+		{
+			logger.error("Error occurred while compacting the hash cache", e);
+		}
+	}
+	
+	
+	private void closeWriter () throws IOException
+	{
+		if (logWriter == null)
+			return ;
+		logWriter.close();
+		logWriter = null ;
+	}
+	
+	
+	/**
+	 * releases the log file. 
+	 */
+	public synchronized void close ()
+	{
+		try
+		{
+			closeWriter () ;
+		}
+		catch (IOException e)
+		{
+			logger.error("Error occurred while closing the hash cache", e);
+		}
+	}
+	
+	
+	private static String escape (String str)
+	{
+		return str.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r") ;
+	}
+	
+	
+	private static String unescape (String str)
+	{
+		StringBuilder sb = new StringBuilder () ;
+		for (int i = 0 ; i < str.length() ; ++i)
+		{
+			char c = str.charAt(i) ;
+			if (c == '\\' && i + 1 < str.length())
+			{
+				char n = str.charAt(++i) ;
+				sb.append((n == 't') ? ('\t') : ((n == 'n') ? ('\n') : ((n == 'r') ? ('\r') : (n)))) ;
+			}
+			else
+				sb.append(c) ;
+		}
+		return sb.toString() ;
+	}
+}
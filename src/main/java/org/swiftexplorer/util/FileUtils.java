@@ -16,7 +16,6 @@ package org.swiftexplorer.util;
 
 
 import org.swiftexplorer.gui.util.SwingUtils;
-import org.swiftexplorer.swift.instructions.FastSegmentationPlanFile;
 
 import java.awt.Component;
 import java.awt.Frame;
@@ -42,6 +41,7 @@ import com.google.common.hash.Hashing;
 
 import java.nio.file.*;
 import java.util.ArrayDeque;
+import java.util.List;
 import java.util.Queue;
 
 import javax.swing.ProgressMonitorInputStream;
@@ -108,21 +108,35 @@ public class FileUtils {
 			return FileUtils.getMD5(file) ;
 		}
 		else
-		{
-			StringBuilder sb = new StringBuilder () ;
-			FastSegmentationPlanFile segments = new FastSegmentationPlanFile (file, segmentSize) ;
-			InputStream segmentStream = segments.getNextSegment() ;
-			while (segmentStream != null)
-			{
-				// The last segment might  be empty
-				if (segmentStream.available() == 0)
-					break ;
-				sb.append(FileUtils.readAllAndgetMD5(segmentStream)) ;
-				segmentStream = segments.getNextSegment() ;
-			}
-	    	InputStream stream = new java.io.ByteArrayInputStream (sb.toString().getBytes(StandardCharsets.UTF_8));
-			return FileUtils.readAllAndgetMD5(stream) ;
-		}
+			return getSumOfSegmentsMd5 (getSegmentsMd5 (file, segmentSize)) ;
+    }
+    
+    
+    /**
+     * @param segmentsMd5 the md5 values of the segments, in order
+     * @return the etag of a manifest whose segments have the given md5 values
+     * @throws IOException
+     */
+    public static String getSumOfSegmentsMd5 (List<String> segmentsMd5) throws IOException
+    {
+		StringBuilder sb = new StringBuilder () ;
+		for (String md5 : segmentsMd5)
+			sb.append(md5) ;
+    	InputStream stream = new java.io.ByteArrayInputStream (sb.toString().getBytes(StandardCharsets.UTF_8));
+		return FileUtils.readAllAndgetMD5(stream) ;
+    }
+    
+    
+    /**
+     * computes the md5 value of each segment of the given file (the segments are hashed in parallel).
+     * @param file
+     * @param segmentSize
+     * @return the md5 values of the segments, in order
+     * @throws IOException
+     */
+    public static List<String> getSegmentsMd5 (File file, long segmentSize) throws IOException
+    {
+		return SegmentsHasher.getSegmentsMd5(file, segmentSize) ;
     }
 	
 	
@@ -205,6 +219,15 @@ public class FileUtils {
     		public void onStreamProgress (double progress) ;
     	}
     	
+    	/*
+    	 * Also notified of the number of bytes read, e.g., to aggregate the bytes of
+    	 * concurrent streams.
+    	 */
+    	public static interface StreamBytesCallback extends StreamProgressCallback
+    	{
+    		public void onStreamBytes (long bytes) ;
+    	}
+    	
     	private final long size ;
     	private volatile long read = 0 ;
     	private final StreamProgressCallback callback ;
@@ -234,36 +257,84 @@ public class FileUtils {
 				return ;
 			callback.onStreamProgress(getProgress());
 		}
+		
+		private void addRead (long r)
+		{
+			// r is -1 at the end of the stream
+			if (r <= 0)
+				return ;
+			read += r ;
+			if (callback instanceof StreamBytesCallback)
+				((StreamBytesCallback) callback).onStreamBytes(r) ;
+			checkProgress () ;
+		}
 
 		@Override
 		public int read() throws IOException {
 			int r = super.read();
-			read += r ;
-			checkProgress () ;
+			addRead ((r < 0) ? (-1) : (1)) ;
 			return r;
 		}
 
 		@Override
 		public int read(byte[] b) throws IOException {
-			int r = super.read(b);
-			read += r ;
-			checkProgress () ;
+			// FilterInputStream delegates to read(b, off, len), which does the accounting
+			return read(b, 0, b.length);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int r = super.read(b, off, len);
+			addRead (r) ;
+			return r;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long r = super.skip(n);
+			addRead (r) ;
+			return r;
+		}
+    }
+    
+    
+    /*
+     * Takes the bytes read from the limiter, hence the reader is slowed down when the 
+     * limit is exceeded. 
+     */
+    public static class InputStreamThrottleFilter extends FilterInputStream
+    {
+    	private final BandwidthLimiter limiter ;
+    	
+		protected InputStreamThrottleFilter(InputStream in, BandwidthLimiter limiter) {
+			super(in);
+			this.limiter = limiter ;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int r = super.read();
+			if (r >= 0)
+				limiter.acquire(1) ;
 			return r;
 		}
 
+		@Override
+		public int read(byte[] b) throws IOException {
+			return read(b, 0, b.length);
+		}
+
 		@Override
 		public int read(byte[] b, int off, int len) throws IOException {
 			int r = super.read(b, off, len);
-			read += r ;
-			checkProgress () ;
+			limiter.acquire(r) ;
 			return r;
 		}
 
 		@Override
 		public long skip(long n) throws IOException {
 			long r = super.skip(n);
-			read += r ;
-			checkProgress () ;
+			limiter.acquire(r) ;
 			return r;
 		}
     }
@@ -280,7 +351,7 @@ public class FileUtils {
 		if (input == null)
 			return null ;
 		InputStream in = new BufferedInputStream(
-				new InputStreamProgressFilter(input, size, callback));
+				new InputStreamThrottleFilter(new InputStreamProgressFilter(input, size, callback), BandwidthLimiter.getDefault()));
 		return in;
 	}
 	
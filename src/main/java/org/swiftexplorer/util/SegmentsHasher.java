@@ -0,0 +1,233 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import com.google.common.hash.HashCode;
+
+
+/*
+ * Computes the md5 values of the segments of a file in parallel, on a fork-join pool. 
+ * 
+ * Each segment is read independently, through positional reads on a shared channel, into a 
+ * buffer that belongs to the worker thread (the buffers are reused from one segment to the next).
+ * The values are identical to those obtained by hashing the segments one after another.
+ */
+public class SegmentsHasher {
+
+	private static final int bufferSize = 2097152 ;
+	
+	private static volatile ForkJoinPool pool = null ;
+	
+	private static final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer> () {
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocateDirect(bufferSize) ;
+		}} ;
+	
+		
+	private SegmentsHasher () { super () ; } ;
+	
+	
+	private static ForkJoinPool getPool ()
+	{
+		if (pool == null)
+		{
+			synchronized (SegmentsHasher.class)
+			{
+				if (pool == null)
+					pool = new ForkJoinPool (Runtime.getRuntime().availableProcessors()) ;
+			}
+		}
+		return pool ;
+	}
+	
+	
+	/**
+	 * computes the md5 value of each segment of the given file.
+	 * @param file
+	 * @param segmentSize
+	 * @return the md5 values of the segments, in order
+	 * @throws IOException
+	 */
+	public static List<String> getSegmentsMd5 (File file, long segmentSize) throws IOException
+	{
+		return getSegmentsMd5 (file, segmentSize, -1) ;
+	}
+	
+	
+	/**
+	 * computes the md5 value of the first segments of the given file.
+	 * @param file
+	 * @param segmentSize
+	 * @param maxSegments the maximum number of segments to be hashed (all of them if negative)
+	 * @return the md5 values of the segments, in order
+	 * @throws IOException
+	 */
+	public static List<String> getSegmentsMd5 (File file, long segmentSize, long maxSegments) throws IOException
+	{
+    	if (file == null || segmentSize <= 0)
+    		throw new IllegalArgumentException () ;
+    	
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			final long size = channel.size() ;
+			long numberOfSegments = size / segmentSize + ((size % segmentSize == 0) ? (0) : (1)) ;
+			if (maxSegments >= 0)
+				numberOfSegments = Math.min(numberOfSegments, maxSegments) ;
+			
+			List<SegmentHashTask> tasks = new ArrayList<SegmentHashTask> () ;
+			for (long i = 0 ; i < numberOfSegments ; ++i)
+			{
+				long offset = i * segmentSize ;
+				tasks.add(new SegmentHashTask (channel, offset, Math.min(segmentSize, size - offset))) ;
+			}
+			
+			List<String> ret = new ArrayList<String> () ;
+			for (SegmentHashTask task : getPool ().invoke(new AllSegmentsTask (tasks)))
+				ret.add(task.getRawResult()) ;
+			return ret ;
+		}
+		catch (HashingException e)
+		{
+			throw e.getCause() ;
+		}
+	}
+	
+	
+	/**
+	 * computes the md5 value of a single segment, in the calling thread.
+	 * @param file
+	 * @param offset
+	 * @param length
+	 * @return the md5 value of the segment
+	 * @throws IOException
+	 */
+	public static String getMd5 (File file, long offset, long length) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			return new SegmentHashTask (channel, offset, length).compute() ;
+		}
+		catch (HashingException e)
+		{
+			throw e.getCause() ;
+		}
+	}
+	
+	
+	private static class HashingException extends RuntimeException
+	{
+		private static final long serialVersionUID = 1L;
+
+		HashingException (IOException cause)
+		{
+			super (cause) ;
+		}
+		
+		@Override
+		public synchronized IOException getCause() {
+			return (IOException) super.getCause();
+		}
+	}
+	
+	
+	private static class AllSegmentsTask extends RecursiveTask<List<SegmentHashTask> >
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final List<SegmentHashTask> tasks ;
+		
+		AllSegmentsTask (List<SegmentHashTask> tasks)
+		{
+			super () ;
+			this.tasks = tasks ;
+		}
+		
+		@Override
+		protected List<SegmentHashTask> compute() {
+			ForkJoinTask.invokeAll(tasks) ;
+			return tasks ;
+		}
+	}
+	
+	
+	private static class SegmentHashTask extends RecursiveTask<String>
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final FileChannel channel ;
+		private final long offset ;
+		private final long length ;
+		
+		SegmentHashTask (FileChannel channel, long offset, long length)
+		{
+			super () ;
+			this.channel = channel ;
+			this.offset = offset ;
+			this.length = length ;
+		}
+
+		@Override
+		protected String compute() {
+			
+			MessageDigest md5 ;
+			try 
+			{
+				md5 = MessageDigest.getInstance("MD5") ;
+			} 
+			catch (NoSuchAlgorithmException e) 
+			{
+				throw new AssertionError (e) ;
+			}
+			
+			ByteBuffer buffer = buffers.get() ;
+			long position = offset ;
+			final long end = offset + length ;
+			try
+			{
+				while (position < end)
+				{
+					buffer.clear() ;
+					if (end - position < buffer.capacity())
+						buffer.limit((int) (end - position)) ;
+					int r = channel.read(buffer, position) ;
+					if (r < 0)
+						throw new IOException ("Unexpected end of file") ;
+					position += r ;
+					buffer.flip() ;
+					md5.update(buffer) ;
+				}
+			}
+			catch (IOException e)
+			{
+				throw new HashingException (e) ;
+			}
+			return HashCode.fromBytes(md5.digest()).toString() ;
+		}
+	}
+}
@@ -20,6 +20,7 @@ import java.nio.file.Paths;
 import java.util.Arrays;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.io.FileUtils;
+import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.rules.TemporaryFolder;
@@ -32,6 +33,9 @@ import org.swiftexplorer.config.proxy.HasProxySettings;
 import org.swiftexplorer.config.proxy.Proxy;
 import org.swiftexplorer.config.swift.HasSwiftSettings;
 import org.swiftexplorer.config.swift.SwiftParameters;
+import org.swiftexplorer.swift.operations.ContainerCatalog;
+import org.swiftexplorer.swift.operations.TransferJournal;
+import org.swiftexplorer.util.FileHashCache;
 import org.junit.Test;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -79,6 +83,15 @@ public class ConfigTest {
     }
     
     
+    @AfterClass
+    public static void cleanup() {
+    	// loading the configuration sets the default caches in the (temporary) settings folder
+    	FileHashCache.setDefault(null);
+    	ContainerCatalog.setDefault(null);
+    	TransferJournal.setDefault(null);
+    }
+    
+    
     @Test
     public void shouldHaveHttpProxy() {
     	verifyProxy (Configuration.INSTANCE.getHttpProxySettings(), false, "host-http", 9000, "user-http", "password-http") ;
@@ -199,6 +212,55 @@ public class ConfigTest {
 		assertTrue (50000000 == swiftSettings.getSegmentationSize()) ;
 		assertTrue (swiftSettings.hideSegmentsContainers()) ;
 		assertTrue (swiftSettings.getPreferredRegion() == null) ;
+		assertTrue (SwiftParameters.DEFAULT_CONCURRENT_TRANSFERS == swiftSettings.getNumberOfConcurrentTransfers()) ;
+		assertTrue (SwiftParameters.DEFAULT_CONCURRENT_SEGMENT_TRANSFERS == swiftSettings.getNumberOfConcurrentSegmentTransfers()) ;
+		assertTrue (SwiftParameters.DEFAULT_MAX_CONNECTIONS == swiftSettings.getMaxConnections()) ;
+		assertTrue (SwiftParameters.DEFAULT_MAX_CONNECTIONS_PER_ROUTE == swiftSettings.getMaxConnectionsPerRoute()) ;
+		assertTrue (SwiftParameters.DEFAULT_CONNECTION_TIMEOUT == swiftSettings.getConnectionTimeout()) ;
+		assertTrue (SwiftParameters.DEFAULT_SOCKET_TIMEOUT == swiftSettings.getSocketTimeout()) ;
+		assertTrue (SwiftParameters.DEFAULT_IDLE_CONNECTION_TIMEOUT == swiftSettings.getIdleConnectionTimeout()) ;
+		assertTrue (SwiftParameters.DEFAULT_SOCKET_BUFFER_SIZE == swiftSettings.getSocketBufferSize()) ;
+		assertTrue (SwiftParameters.DEFAULT_STALE_CONNECTION_CHECK == swiftSettings.isStaleConnectionCheckEnabled()) ;
+    }
+    
+    
+    @Test
+    public void shouldUpdateSwiftSettingConnections() throws IOException {
+    	
+		HasSwiftSettings swiftSettings = Configuration.INSTANCE.getSwiftSettings() ;
+		
+		SwiftParameters newParameters = new SwiftParameters.Builder(swiftSettings.getSegmentationSize(), swiftSettings.hideSegmentsContainers())
+				.setMaxConnections(SwiftParameters.MAX_MAX_CONNECTIONS + 1)
+				.setMaxConnectionsPerRoute(10)
+				.setConnectionTimeout(SwiftParameters.MIN_CONNECTION_TIMEOUT - 1)
+				.setSocketTimeout(120)
+				.setIdleConnectionTimeout(15)
+				.setSocketBufferSize(SwiftParameters.MAX_SOCKET_BUFFER_SIZE)
+				.setStaleConnectionCheck(false).build() ;
+		Configuration.INSTANCE.updateSwiftParameters(newParameters);
+		
+		assertTrue (SwiftParameters.MAX_MAX_CONNECTIONS == swiftSettings.getMaxConnections()) ;
+		assertTrue (10 == swiftSettings.getMaxConnectionsPerRoute()) ;
+		assertTrue (SwiftParameters.MIN_CONNECTION_TIMEOUT == swiftSettings.getConnectionTimeout()) ;
+		assertTrue (120 == swiftSettings.getSocketTimeout()) ;
+		assertTrue (15 == swiftSettings.getIdleConnectionTimeout()) ;
+		assertTrue (SwiftParameters.MAX_SOCKET_BUFFER_SIZE == swiftSettings.getSocketBufferSize()) ;
+		assertFalse (swiftSettings.isStaleConnectionCheckEnabled()) ;
+    }
+    
+    
+    @Test
+    public void shouldUpdateSwiftSettingConcurrentTransfers() throws IOException {
+    	
+		HasSwiftSettings swiftSettings = Configuration.INSTANCE.getSwiftSettings() ;
+		
+		int newConcurrentTransfers = SwiftParameters.MAX_CONCURRENT_TRANSFERS + 1 ;
+
+		SwiftParameters newParameters = new SwiftParameters.Builder(swiftSettings.getSegmentationSize(), swiftSettings.hideSegmentsContainers())
+				.setNumberOfConcurrentTransfers(newConcurrentTransfers).build() ;
+		Configuration.INSTANCE.updateSwiftParameters(newParameters);
+		
+		assertTrue (SwiftParameters.MAX_CONCURRENT_TRANSFERS == swiftSettings.getNumberOfConcurrentTransfers()) ;
     }
     
     
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.gui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ExpandedNodesCacheTest {
+
+	
+    @Test
+    public void shouldKeepLeastRecentlyExpandedFirst() {
+    	
+    	ExpandedNodesCache cache = new ExpandedNodesCache (100) ;
+    	cache.add("a");
+    	cache.add("b");
+    	cache.add("c");
+    	assertTrue (cache.contains("a")) ;
+    	assertFalse (cache.contains("d")) ;
+    	
+    	assertEquals (Arrays.asList("b", "c", "a"), cache.getLeastRecentlyExpanded()) ;
+    }
+    
+    
+    @Test
+    public void shouldCountLoadedObjects() {
+    	
+    	ExpandedNodesCache cache = new ExpandedNodesCache (100) ;
+    	cache.add("a");
+    	cache.addObjects("a", 60);
+    	// not loaded, ignored
+    	cache.addObjects("b", 60);
+    	assertFalse (cache.isFull()) ;
+    	
+    	cache.add("b");
+    	cache.addObjects("b", 60);
+    	assertTrue (cache.isFull()) ;
+    	
+    	cache.remove("a");
+    	assertFalse (cache.isFull()) ;
+    	assertFalse (cache.contains("a")) ;
+    }
+    
+    
+    @Test
+    public void shouldRemoveSubDirectories() {
+    	
+    	ExpandedNodesCache cache = new ExpandedNodesCache (100) ;
+    	cache.add("a");
+    	cache.add("a/b");
+    	cache.add("a/b/c");
+    	cache.add("ab");
+    	cache.addObjects("a/b", 200);
+    	assertTrue (cache.isFull()) ;
+    	
+    	cache.remove("a");
+    	assertEquals (Arrays.asList("ab"), cache.getLeastRecentlyExpanded()) ;
+    	assertFalse (cache.isFull()) ;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.gui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import org.javaswift.joss.client.factory.AccountConfig;
+import org.javaswift.joss.model.Account;
+import org.javaswift.joss.model.Container;
+import org.javaswift.joss.model.StoredObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.swiftexplorer.swift.client.factory.AccountConfigFactory;
+import org.swiftexplorer.swift.operations.SwiftOperations;
+import org.swiftexplorer.swift.operations.SwiftOperations.SwiftCallback;
+import org.swiftexplorer.swift.operations.SwiftOperationsImpl;
+
+public class StoredObjectsListModelTest {
+
+	private Container container ;
+	
+	
+    @Before
+    public void init() {
+    	AccountConfig accConf = AccountConfigFactory.getMockAccountConfig() ;
+    	SwiftOperations ops = new SwiftOperationsImpl();
+    	ops.login(accConf, "http://localhost:8080/", "user", "pass", "secret", Mockito.mock(SwiftCallback.class));
+        Account account = ((SwiftOperationsImpl)ops).getAccount() ;
+        container = account.getContainer("x").create();
+        
+        for (int i = 0 ; i < 20 ; ++i)
+        	container.getObject(String.format("dir/%02d-été.txt", i)).uploadObject(new byte[i]) ;
+    }
+    
+    
+    private Collection<StoredObject> list ()
+    {
+    	return container.list() ;
+    }
+    
+    
+    @Test
+    public void shouldReferToTheAddedObjects() {
+    	
+    	StoredObjectsListModel model = new StoredObjectsListModel () ;
+    	List<StoredObject> objs = new ArrayList<StoredObject> (list ()) ;
+    	model.addAll(objs);
+    	
+    	assertEquals (objs.size(), model.getSize()) ;
+    	for (int i = 0 ; i < objs.size() ; ++i)
+    		assertSame (objs.get(i), model.getElementAt(i)) ;
+    }
+    
+    
+    @Test
+    public void shouldFindAndRemoveElements() {
+    	
+    	StoredObjectsListModel model = new StoredObjectsListModel () ;
+    	List<StoredObject> objs = new ArrayList<StoredObject> (list ()) ;
+    	model.addAll(objs);
+    	
+    	assertEquals (5, model.indexOf(container.getObject(objs.get(5).getName()))) ;
+    	assertEquals (-1, model.indexOf(container.getObject("unknown"))) ;
+    	
+    	assertTrue (model.removeElement(objs.get(5))) ;
+    	assertFalse (model.removeElement(objs.get(5))) ;
+    	assertEquals (objs.size() - 1, model.getSize()) ;
+    	assertEquals (objs.get(6), model.getElementAt(5)) ;
+    	assertEquals (objs.get(19).getContentLength(), model.getElementAt(18).getContentLength()) ;
+    	assertEquals (6, model.indexOf(objs.get(7))) ;
+    	
+    	// not sorted anymore
+    	StoredObject obj = container.getObject("a") ;
+    	model.addElement(obj);
+    	assertEquals (objs.size() - 1, model.indexOf(obj)) ;
+    	assertEquals (6, model.indexOf(objs.get(7))) ;
+    }
+    
+    
+    @Test
+    public void shouldNotifyOnceForAllAddedElements() {
+    	
+    	final AtomicInteger added = new AtomicInteger () ;
+    	final AtomicInteger removed = new AtomicInteger () ;
+    	StoredObjectsListModel model = new StoredObjectsListModel () ;
+    	model.addListDataListener(new ListDataListener () {
+			@Override
+			public void intervalAdded(ListDataEvent e) {
+				added.incrementAndGet() ;
+				assertEquals (0, e.getIndex0()) ;
+				assertEquals (19, e.getIndex1()) ;
+			}
+			@Override
+			public void intervalRemoved(ListDataEvent e) {
+				removed.incrementAndGet() ;
+			}
+			@Override
+			public void contentsChanged(ListDataEvent e) {
+			}}) ;
+    	
+    	List<StoredObject> objs = new ArrayList<StoredObject> (list ()) ;
+    	objs.add(10, container.getObject("dir/the-longest-name.txt")) ;
+    	objs.remove(19) ;
+    	model.addAll(objs);
+    	assertEquals (1, added.get()) ;
+    	assertEquals (10, model.getLongestNameIndex()) ;
+    	
+    	model.clear();
+    	assertEquals (1, removed.get()) ;
+    	assertEquals (0, model.getSize()) ;
+    	assertEquals (-1, model.getLongestNameIndex()) ;
+    }
+}
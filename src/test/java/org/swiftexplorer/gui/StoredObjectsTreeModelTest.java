@@ -19,11 +19,15 @@ import static org.junit.Assert.*;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Deque;
 import java.util.List;
 import java.util.Queue;
 import java.util.Random;
 
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+
 import org.javaswift.joss.model.Container;
 import org.javaswift.joss.model.StoredObject;
 import org.junit.Before;
@@ -241,6 +245,156 @@ public class StoredObjectsTreeModelTest {
     }
     
     
+    private static class InsertionChecker implements TreeModelListener
+    {
+    	private final StoredObjectsTreeModel treeModel ;
+    	private int numberOfInsertedNodes = 0 ;
+    	private int numberOfStructureChanges = 0 ;
+    	
+    	InsertionChecker (StoredObjectsTreeModel treeModel)
+    	{
+    		this.treeModel = treeModel ;
+    	}
+    	
+		@Override
+		public void treeNodesChanged(TreeModelEvent e) {
+		}
+
+		@Override
+		public void treeNodesInserted(TreeModelEvent e) {
+			Object parent = e.getTreePath().getLastPathComponent() ;
+			int [] indices = e.getChildIndices() ;
+			Object [] children = e.getChildren() ;
+			assertEquals (indices.length, children.length) ;
+			for (int i = 0 ; i < indices.length ; ++i)
+			{
+				if (i > 0)
+					assertTrue (indices[i - 1] < indices[i]) ;
+				assertEquals (indices[i], treeModel.getIndexOfChild(parent, children[i])) ;
+				assertEquals (children[i], treeModel.getChild(parent, indices[i])) ;
+			}
+			numberOfInsertedNodes += indices.length ;
+		}
+
+		@Override
+		public void treeNodesRemoved(TreeModelEvent e) {
+		}
+
+		@Override
+		public void treeStructureChanged(TreeModelEvent e) {
+			++numberOfStructureChanges ;
+		}
+    }
+    
+    
+    @Test
+    public void shouldNotifyInsertedNodes() {
+    	
+    	int size = storedObjectList.size() ;
+    	int first = size / 3 ;
+    	int second = 2 * first ;
+    	
+    	StoredObjectsTreeModel treeModel = new StoredObjectsTreeModel (rootContainer, storedObjectList.subList(0, first)) ;
+    	InsertionChecker checker = new InsertionChecker (treeModel) ;
+    	treeModel.addTreeModelListener(checker);
+    	treeModel.addAll(storedObjectList.subList(first, second));
+    	treeModel.addAll(storedObjectList.subList(second, size));
+    	// nothing new
+    	treeModel.addAll(storedObjectList.subList(first, size));
+    	
+    	verifyTreeStructure (treeModel) ;
+    	assertEquals (0, checker.numberOfStructureChanges) ;
+    	assertTrue (checker.numberOfInsertedNodes > 0) ;
+    }
+    
+    
+    @Test
+    public void shouldNotifyAppendedNodes() {
+    	
+    	List<StoredObject> sortedList = new ArrayList<StoredObject> (storedObjectList) ;
+    	Collections.sort(sortedList, new Comparator<StoredObject> () {
+			@Override
+			public int compare(StoredObject o1, StoredObject o2) {
+				return o1.getName().compareTo(o2.getName());
+			}}) ;
+    	
+    	StoredObjectsTreeModel treeModel = new StoredObjectsTreeModel (rootContainer, null) ;
+    	InsertionChecker checker = new InsertionChecker (treeModel) ;
+    	treeModel.addTreeModelListener(checker);
+    	int pageSize = 100 ;
+    	for (int i = 0 ; i < sortedList.size() ; i += pageSize)
+    		treeModel.addAll(sortedList.subList(i, Math.min(sortedList.size(), i + pageSize)));
+    	
+    	verifyTreeStructure (treeModel) ;
+    	assertEquals (0, checker.numberOfStructureChanges) ;
+    }
+    
+    
+    @Test
+    public void shouldAcceptNodesOfAnotherTreeModel() {
+    	
+    	// e.g., the expansion state saved before the tree model was rebuilt
+    	StoredObjectsTreeModel previousTreeModel = new StoredObjectsTreeModel (rootContainer, storedObjectList) ;
+    	StoredObjectsTreeModel treeModel = new StoredObjectsTreeModel (rootContainer, storedObjectList) ;
+    	
+    	Object previousRoot = previousTreeModel.getRoot() ;
+    	Object previousChild = previousTreeModel.getChild(previousRoot, 3) ;
+    	Object previousGrandChild = previousTreeModel.getChild(previousChild, 5) ;
+    	
+    	assertEquals (numberOfChildren, treeModel.getChildCount(previousChild)) ;
+    	assertEquals (5, treeModel.getIndexOfChild(previousChild, previousGrandChild)) ;
+    	assertEquals (previousGrandChild, treeModel.getChild(previousChild, 5)) ;
+    	assertEquals (((TreeNode) previousGrandChild).getObjectName(), ((TreeNode) treeModel.getChild(previousChild, 5)).getObjectName()) ;
+    }
+    
+    
+    @Test
+    public void shouldSetObjectOfVirtualNode() {
+    	
+    	StoredObject child = Mockito.mock(StoredObject.class) ;
+    	Mockito.when(child.getName()).thenReturn("dir/child") ;
+    	StoredObject dir = Mockito.mock(StoredObject.class) ;
+    	Mockito.when(dir.getName()).thenReturn("dir") ;
+    	Mockito.when(dir.getContentType()).thenReturn(SwiftUtils.directoryContentType) ;
+    	
+    	StoredObjectsTreeModel treeModel = new StoredObjectsTreeModel (rootContainer, Collections.singletonList(child)) ;
+    	TreeNode dirNode = (TreeNode) treeModel.getChild(treeModel.getRoot(), 0) ;
+    	assertTrue (dirNode.isVirtual()) ;
+    	assertEquals ("dir/child", ((TreeNode) treeModel.getChild(dirNode, 0)).getObjectName()) ;
+    	
+    	treeModel.addAll(Collections.singletonList(dir));
+    	assertFalse (dirNode.isVirtual()) ;
+    	assertTrue (dirNode.getStoredObject() == dir) ;
+    	assertEquals (1, treeModel.getChildCount(treeModel.getRoot())) ;
+    }
+    
+    
+    @Test
+    public void shouldRemoveChildren() {
+    	
+    	StoredObjectsTreeModel treeModel = new StoredObjectsTreeModel (rootContainer, storedObjectList) ;
+    	TreeNode child = (TreeNode) treeModel.getChild(treeModel.getRoot(), 2) ;
+    	assertEquals (child, treeModel.getTreePath(child.getObjectName()).getLastPathComponent()) ;
+    	
+    	TreeModelListener listener = Mockito.mock(TreeModelListener.class) ;
+    	treeModel.addTreeModelListener(listener);
+    	
+    	// the whole sub-tree is removed
+    	List<StoredObject> removed = treeModel.removeChildren(child) ;
+    	int expectedSize = 0 ;
+    	for (int i = 1, n = numberOfChildren ; i < numberOfLevel ; ++i, n *= numberOfChildren)
+    		expectedSize += n ;
+    	assertEquals (expectedSize, removed.size()) ;
+    	assertEquals (0, treeModel.getChildCount(child)) ;
+    	assertEquals (numberOfChildren, treeModel.getChildCount(treeModel.getRoot())) ;
+    	Mockito.verify(listener, Mockito.times(1)).treeNodesRemoved(Mockito.any(TreeModelEvent.class));
+    	
+    	// and can be loaded again
+    	treeModel.addAll(removed);
+    	verifyTreeStructure (treeModel) ;
+    }
+    
+    
     @Test
     public void shouldCreateEmptyListTreeModel() {
     	
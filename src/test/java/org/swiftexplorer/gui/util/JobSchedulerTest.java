@@ -0,0 +1,145 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.gui.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.swiftexplorer.gui.util.JobScheduler.Job;
+import org.swiftexplorer.gui.util.JobScheduler.Priority;
+import org.swiftexplorer.gui.util.JobScheduler.State;
+
+public class JobSchedulerTest {
+
+	private Runnable newBlockingTask (final CountDownLatch started, final CountDownLatch release)
+	{
+		return new Runnable () {
+			@Override
+			public void run() {
+				started.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS) ;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}} ;
+	}
+	
+	
+	private Runnable newRecordingTask (final List<String> record, final String name, final CountDownLatch done)
+	{
+		return new Runnable () {
+			@Override
+			public void run() {
+				record.add(name) ;
+				done.countDown();
+			}} ;
+	}
+	
+	
+    @Test
+    public void shouldRunJobsByOrderOfPriority() throws InterruptedException {
+    	
+    	JobScheduler scheduler = new JobScheduler (2) ;
+    	CountDownLatch started = new CountDownLatch (2) ;
+    	CountDownLatch release = new CountDownLatch (1) ;
+    	scheduler.submit("blocking 1", Priority.INTERACTIVE, newBlockingTask (started, release)) ;
+    	scheduler.submit("blocking 2", Priority.INTERACTIVE, newBlockingTask (started, release)) ;
+    	assertTrue (started.await(5, TimeUnit.SECONDS)) ;
+    	
+    	List<String> record = Collections.synchronizedList(new ArrayList<String> ()) ;
+    	CountDownLatch done = new CountDownLatch (4) ;
+    	scheduler.submit("normal 1", Priority.NORMAL, newRecordingTask (record, "normal 1", done)) ;
+    	scheduler.submit("interactive 1", Priority.INTERACTIVE, newRecordingTask (record, "interactive 1", done)) ;
+    	scheduler.submit("normal 2", Priority.NORMAL, newRecordingTask (record, "normal 2", done)) ;
+    	scheduler.submit("interactive 2", Priority.INTERACTIVE, newRecordingTask (record, "interactive 2", done)) ;
+    	
+    	List<Job> jobs = scheduler.getJobs() ;
+    	assertEquals (6, jobs.size()) ;
+    	assertEquals (State.RUNNING, jobs.get(0).getState()) ;
+    	assertEquals ("interactive 1", jobs.get(2).getName()) ;
+    	assertEquals ("interactive 2", jobs.get(3).getName()) ;
+    	assertEquals ("normal 1", jobs.get(4).getName()) ;
+    	assertEquals (State.QUEUED, jobs.get(5).getState()) ;
+    	
+    	// once released, the two workers pick the jobs in that order, but may complete them in any order
+    	release.countDown();
+    	assertTrue (done.await(5, TimeUnit.SECONDS)) ;
+    	assertEquals (4, record.size()) ;
+    }
+    
+    
+    @Test
+    public void shouldKeepOneWorkerForNonTransferJobs() throws InterruptedException {
+    	
+    	JobScheduler scheduler = new JobScheduler (3) ;
+    	CountDownLatch started = new CountDownLatch (2) ;
+    	CountDownLatch release = new CountDownLatch (1) ;
+    	for (int i = 0 ; i < 4 ; ++i)
+    		scheduler.submit("transfer " + i, Priority.TRANSFER, newBlockingTask (started, release)) ;
+    	assertTrue (started.await(5, TimeUnit.SECONDS)) ;
+    	
+    	List<String> record = Collections.synchronizedList(new ArrayList<String> ()) ;
+    	CountDownLatch done = new CountDownLatch (1) ;
+    	Job job = scheduler.submit("metadata", Priority.INTERACTIVE, newRecordingTask (record, "metadata", done)) ;
+    	
+    	assertTrue (done.await(5, TimeUnit.SECONDS)) ;
+    	Thread.sleep(100);
+    	assertEquals (State.DONE, job.getState()) ;
+    	
+    	// meanwhile, only two transfers have been started
+    	int running = 0 ;
+    	for (Job j : scheduler.getJobs())
+    	{
+    		if (j.getState() == State.RUNNING)
+    			++running ;
+    	}
+    	assertEquals (2, running) ;
+    	assertEquals (4, scheduler.getJobs().size()) ;
+    	release.countDown();
+    }
+    
+    
+    @Test
+    public void shouldCancelQueuedJobs() throws InterruptedException {
+    	
+    	JobScheduler scheduler = new JobScheduler (2) ;
+    	CountDownLatch started = new CountDownLatch (2) ;
+    	CountDownLatch release = new CountDownLatch (1) ;
+    	Job running = scheduler.submit("blocking 1", Priority.NORMAL, newBlockingTask (started, release)) ;
+    	scheduler.submit("blocking 2", Priority.NORMAL, newBlockingTask (started, release)) ;
+    	assertTrue (started.await(5, TimeUnit.SECONDS)) ;
+    	
+    	List<String> record = Collections.synchronizedList(new ArrayList<String> ()) ;
+    	Job queued = scheduler.submit("queued", Priority.NORMAL, newRecordingTask (record, "queued", new CountDownLatch (1))) ;
+    	
+    	assertFalse (scheduler.cancel(running)) ;
+    	assertTrue (scheduler.cancel(queued)) ;
+    	assertEquals (State.CANCELLED, queued.getState()) ;
+    	
+    	release.countDown();
+    	Thread.sleep(100);
+    	assertTrue (record.isEmpty()) ;
+    	assertTrue (scheduler.getJobs().isEmpty()) ;
+    }
+}
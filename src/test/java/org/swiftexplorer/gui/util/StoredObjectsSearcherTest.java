@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.gui.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.SwingUtilities;
+
+import org.javaswift.joss.client.factory.AccountConfig;
+import org.javaswift.joss.client.factory.AccountFactory;
+import org.javaswift.joss.model.Container;
+import org.javaswift.joss.model.StoredObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.swiftexplorer.swift.client.factory.AccountConfigFactory;
+import org.swiftexplorer.swift.util.StoredObjectsIndex;
+
+public class StoredObjectsSearcherTest {
+
+	private Container container ;
+	private final StoredObjectsIndex index = new StoredObjectsIndex () ;
+	private final List<StoredObject> delivered = Collections.synchronizedList(new ArrayList<StoredObject> ()) ;
+	private final AtomicReference<List<StoredObject> > done = new AtomicReference<List<StoredObject> > () ;
+	private final AtomicBoolean reordered = new AtomicBoolean () ;
+	private final CountDownLatch latch = new CountDownLatch (1) ;
+	
+	private final StoredObjectsSearcher.SearchCallback callback = new StoredObjectsSearcher.SearchCallback () {
+		@Override
+		public void onSearchResults(List<StoredObject> results) {
+			delivered.addAll(results) ;
+		}
+		@Override
+		public void onSearchDone(List<StoredObject> results, boolean isReordered) {
+			done.set(results) ;
+			reordered.set(isReordered) ;
+			latch.countDown();
+		}} ;
+	
+	
+    @Before
+    public void init() {
+    	AccountConfig accConf = AccountConfigFactory.getMockAccountConfig() ;
+    	container = new AccountFactory(accConf).createAccount().getContainer("x") ;
+    	
+        for (int i = 0 ; i < 100 ; ++i)
+        {
+        	index.add(container.getObject(String.format("photos/2014/img_%03d.jpg", i))) ;
+        	index.add(container.getObject(String.format("docs/report_%03d.pdf", i))) ;
+        }
+    }
+    
+    
+    private static List<String> getNames (List<StoredObject> objs)
+    {
+    	List<String> ret = new ArrayList<String> () ;
+    	for (StoredObject obj : objs)
+    		ret.add(obj.getName()) ;
+    	return ret ;
+    }
+    
+    
+    @Test
+    public void shouldMatchTheObjectsAppendedDuringTheSearch() throws Exception {
+    	
+    	final StoredObjectsSearcher searcher = new StoredObjectsSearcher (index, 10) ;
+    	final AtomicReference<List<StoredObject> > appended = new AtomicReference<List<StoredObject> > () ;
+    	SwingUtilities.invokeAndWait(new Runnable () {
+			@Override
+			public void run() {
+				// the search thread waits for the index until the page is appended
+				synchronized (index)
+				{
+					searcher.search("img_0", false, null, callback) ;
+					assertTrue (searcher.isSearching()) ;
+					appended.set(searcher.append(Arrays.asList(container.getObject("photos/2014/img_0500.jpg"), 
+							container.getObject("photos/2014/img_001.jpg"), container.getObject("docs/other.pdf")))) ;
+				}
+			}}) ;
+    	assertEquals (Arrays.asList("photos/2014/img_0500.jpg", "photos/2014/img_001.jpg"), getNames (appended.get())) ;
+    	
+    	assertTrue (latch.await(10, TimeUnit.SECONDS)) ;
+    	// the appended objects are not delivered again, but they are part of the results
+    	assertEquals (99, delivered.size()) ;
+    	assertFalse (getNames (delivered).contains("photos/2014/img_001.jpg")) ;
+    	assertEquals (101, done.get().size()) ;
+    	assertTrue (reordered.get()) ;
+    	List<StoredObject> sorted = new ArrayList<StoredObject> (done.get()) ;
+    	Collections.sort(sorted) ;
+    	assertEquals (sorted, done.get()) ;
+    	assertFalse (searcher.isSearching()) ;
+    }
+    
+    
+    @Test
+    public void shouldSearchByPrefix() throws Exception {
+    	
+    	final StoredObjectsSearcher searcher = new StoredObjectsSearcher (index, 10) ;
+    	SwingUtilities.invokeAndWait(new Runnable () {
+			@Override
+			public void run() {
+				searcher.search("docs/report_01", true, null, callback) ;
+			}}) ;
+    	assertTrue (latch.await(10, TimeUnit.SECONDS)) ;
+    	assertEquals (10, done.get().size()) ;
+    	
+    	assertNull (searcher.append(Arrays.asList(container.getObject("docs/report_015.pdf")))) ;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.BasicHttpContext;
+import org.junit.Test;
+
+public class UploadEtagInterceptorTest {
+	
+	private final UploadEtagInterceptor interceptor = new UploadEtagInterceptor () ;
+	
+	
+	private HttpResponse newResponse (int status, String etag)
+	{
+		HttpResponse response = new BasicHttpResponse (HttpVersion.HTTP_1_1, status, null) ;
+		if (etag != null)
+			response.addHeader("ETag", etag) ;
+		return response ;
+	}
+	
+	
+    @Test
+    public void shouldRecordTheEtagOfCreatedObjects() throws HttpException, IOException 
+    {
+    	interceptor.process(newResponse (201, "d41d8cd98f00b204e9800998ecf8427e"), new BasicHttpContext ()) ;
+    	assertEquals ("d41d8cd98f00b204e9800998ecf8427e", UploadEtagInterceptor.getEtag()) ;
+    	// the etag is cleared once read
+    	assertNull (UploadEtagInterceptor.getEtag()) ;
+    }
+    
+    
+    @Test
+    public void shouldClearTheEtagOnOtherResponses() throws HttpException, IOException 
+    {
+    	interceptor.process(newResponse (201, "d41d8cd98f00b204e9800998ecf8427e"), new BasicHttpContext ()) ;
+    	interceptor.process(newResponse (200, "0cc175b9c0f1b6a831c399e269772661"), new BasicHttpContext ()) ;
+    	assertNull (UploadEtagInterceptor.getEtag()) ;
+    }
+}
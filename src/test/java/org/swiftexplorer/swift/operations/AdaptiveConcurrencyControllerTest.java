@@ -0,0 +1,109 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.javaswift.joss.exception.CommandException;
+import org.javaswift.joss.exception.CommandExceptionError;
+import org.junit.Test;
+
+public class AdaptiveConcurrencyControllerTest {
+
+	
+    @Test
+    public void shouldHalveTheLimitOncePerWindowOnCongestion() throws IOException {
+    	AdaptiveConcurrencyController controller = new AdaptiveConcurrencyController (8) ;
+    	assertEquals (8, controller.getLimit()) ;
+    	
+    	controller.onCongestion();
+    	controller.onCongestion();
+    	assertEquals (4, controller.getLimit()) ;
+    	
+    	// a window of successful transfers does not grow the limit right after a congestion
+    	for (int i = 0 ; i < 4 ; ++i)
+    	{
+    		controller.acquire();
+    		controller.release(true);
+    	}
+    	assertEquals (4, controller.getLimit()) ;
+    	
+    	controller.onCongestion();
+    	assertEquals (2, controller.getLimit()) ;
+    }
+    
+    
+    @Test
+    public void shouldGrowAdditivelyUpToTheMaximum() throws IOException {
+    	AdaptiveConcurrencyController controller = new AdaptiveConcurrencyController (4) ;
+    	controller.onCongestion();
+    	controller.onCongestion();
+    	assertEquals (2, controller.getLimit()) ;
+    	
+    	for (int i = 0 ; i < 50 ; ++i)
+    	{
+    		controller.acquire();
+    		controller.release(true);
+    		assertTrue (controller.getLimit() <= 4) ;
+    	}
+    	assertEquals (4, controller.getLimit()) ;
+    }
+    
+    
+    @Test
+    public void shouldBoundTheTransfersOfThePool() throws IOException {
+    	final AdaptiveConcurrencyController controller = new AdaptiveConcurrencyController (6) ;
+    	controller.onCongestion();
+    	final int limit = controller.getLimit() ;
+    	final AtomicInteger maxRunning = new AtomicInteger () ;
+    	
+    	TransferWorkerPool pool = new TransferWorkerPool (6, null, controller) ;
+    	for (int i = 0 ; i < 12 ; ++i)
+    	{
+    		pool.submit("transfer " + i, new TransferWorkerPool.Transfer () {
+				@Override
+				public void execute() throws IOException {
+					synchronized (maxRunning) {
+						maxRunning.set(Math.max(controller.getActiveCount(), maxRunning.get()));
+					}
+					try {
+						Thread.sleep(10);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					// fail so that the limit does not grow during the test
+					throw new CommandException ("failure") ;
+				}}) ;
+    	}
+    	pool.awaitCompletion();
+    	
+    	assertTrue (maxRunning.get() <= limit) ;
+    	assertEquals (0, controller.getActiveCount()) ;
+    }
+    
+    
+    @Test
+    public void shouldDetectCongestionSignals() {
+    	assertTrue (AdaptiveConcurrencyController.isCongestionSignal(new CommandException (503, CommandExceptionError.UNKNOWN))) ;
+    	assertTrue (AdaptiveConcurrencyController.isCongestionSignal(new CommandException ("timeout", new SocketTimeoutException ()))) ;
+    	assertFalse (AdaptiveConcurrencyController.isCongestionSignal(new CommandException (404, CommandExceptionError.ENTITY_DOES_NOT_EXIST))) ;
+    }
+}
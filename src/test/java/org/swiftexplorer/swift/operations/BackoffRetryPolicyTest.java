@@ -0,0 +1,247 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.message.BasicHttpResponse;
+import org.javaswift.joss.exception.CommandException;
+import org.javaswift.joss.exception.CommandExceptionError;
+import org.junit.Test;
+import org.swiftexplorer.swift.client.impl.RetryAfterInterceptor;
+
+public class BackoffRetryPolicyTest {
+
+	
+	private static class ManualClockCircuitBreaker extends CircuitBreaker
+	{
+		long now = 0 ;
+		
+		ManualClockCircuitBreaker (int failureThreshold, long openDuration, long maxOpenDuration) 
+		{
+			super (failureThreshold, openDuration, maxOpenDuration, TimeUnit.MILLISECONDS) ;
+		}
+
+		@Override
+		protected long currentTimeMillis() {
+			return now ;
+		}
+	}
+	
+	
+	private static BackoffRetryPolicy newPolicy (CircuitBreaker circuitBreaker)
+	{
+		return new BackoffRetryPolicy (1, 2, 5, TimeUnit.MILLISECONDS, circuitBreaker) ;
+	}
+	
+	
+	private static RetryPolicy.Command<String, RuntimeException> failingCommand (final AtomicInteger calls, final CommandException... failures)
+	{
+		return new RetryPolicy.Command<String, RuntimeException> () {
+			@Override
+			public String call() {
+				int n = calls.getAndIncrement() ;
+				if (n < failures.length)
+					throw failures[n] ;
+				return "done" ;
+			}} ;
+	}
+	
+	
+    @Test
+    public void shouldRetryTransientErrorsWithinBudget() {
+    	BackoffRetryPolicy policy = newPolicy (null) ;
+    	policy.setBudget(BackoffRetryPolicy.ErrorClass.CONNECTION, 2);
+    	
+    	AtomicInteger calls = new AtomicInteger () ;
+    	assertEquals ("done", policy.execute("test", failingCommand (calls, new CommandException ("lost"), new CommandException ("lost")))) ;
+    	assertEquals (3, calls.get()) ;
+    	
+    	calls.set(0);
+    	try
+    	{
+    		policy.execute("test", failingCommand (calls, new CommandException ("lost"), new CommandException ("lost"), new CommandException ("lost"))) ;
+    		fail ("The budget should have been exhausted") ;
+    	}
+    	catch (CommandException e)
+    	{
+    		assertEquals (3, calls.get()) ;
+    	}
+    }
+    
+    
+    @Test
+    public void shouldNotRetryPermanentErrors() {
+    	BackoffRetryPolicy policy = newPolicy (null) ;
+    	policy.setBudget(BackoffRetryPolicy.ErrorClass.CONNECTION, 5);
+    	
+    	AtomicInteger calls = new AtomicInteger () ;
+    	try
+    	{
+    		policy.execute("test", failingCommand (calls, new CommandException (404, CommandExceptionError.ENTITY_DOES_NOT_EXIST))) ;
+    		fail ("A 404 should not be retried") ;
+    	}
+    	catch (CommandException e)
+    	{
+    		assertEquals (1, calls.get()) ;
+    	}
+    }
+    
+    
+    @Test
+    public void shouldHaveOneBudgetPerErrorClass() {
+    	BackoffRetryPolicy policy = newPolicy (null) ;
+    	policy.setBudget(BackoffRetryPolicy.ErrorClass.THROTTLED, 1);
+    	policy.setBudget(BackoffRetryPolicy.ErrorClass.SERVER, 1);
+    	
+    	assertEquals (BackoffRetryPolicy.ErrorClass.THROTTLED, BackoffRetryPolicy.classify(new CommandException (429, CommandExceptionError.UNKNOWN))) ;
+    	assertEquals (BackoffRetryPolicy.ErrorClass.SERVER, BackoffRetryPolicy.classify(new CommandException (500, CommandExceptionError.UNKNOWN))) ;
+    	
+    	AtomicInteger calls = new AtomicInteger () ;
+    	assertEquals ("done", policy.execute("test", failingCommand (calls, new CommandException (503, CommandExceptionError.UNKNOWN), new CommandException (500, CommandExceptionError.UNKNOWN)))) ;
+    	assertEquals (3, calls.get()) ;
+    }
+    
+    
+    @Test
+    public void shouldHonorRetryAfter() throws Exception {
+    	RetryAfterInterceptor interceptor = new RetryAfterInterceptor () ;
+    	
+    	HttpResponse response = new BasicHttpResponse (HttpVersion.HTTP_1_1, 429, "Too Many Requests") ;
+    	response.setHeader("Retry-After", "2");
+    	interceptor.process(response, null);
+    	assertEquals (2000, RetryAfterInterceptor.getRetryAfter()) ;
+    	// the delay is only returned once
+    	assertEquals (-1, RetryAfterInterceptor.getRetryAfter()) ;
+    	
+    	response = new BasicHttpResponse (HttpVersion.HTTP_1_1, HttpStatus.SC_SERVICE_UNAVAILABLE, "Service Unavailable") ;
+    	response.setHeader("Retry-After", DateUtils.formatDate(new Date (System.currentTimeMillis() + 60000)));
+    	interceptor.process(response, null);
+    	long delay = RetryAfterInterceptor.getRetryAfter() ;
+    	assertTrue (delay > 50000 && delay <= 60000) ;
+    	
+    	BackoffRetryPolicy policy = new BackoffRetryPolicy (10, 100, 1000, TimeUnit.MILLISECONDS, null) ;
+    	for (int i = 0 ; i < 20 ; ++i)
+    	{
+    		long d = policy.getDelay(i, 500) ;
+    		assertTrue (d >= 500 && d <= 525) ;
+    		// the delay requested by the server is capped
+    		d = policy.getDelay(i, 5000) ;
+    		assertTrue (d >= 1000 && d <= 1025) ;
+    		// otherwise, the delay is bounded exponentially
+    		d = policy.getDelay(i, -1) ;
+    		assertTrue (d >= 0 && d <= Math.min(100, 10 << i)) ;
+    	}
+    }
+    
+    
+    @Test
+    public void shouldOpenTheCircuitAfterConsecutiveFailures() {
+    	ManualClockCircuitBreaker circuitBreaker = new ManualClockCircuitBreaker (3, 100, 1000) ;
+    	
+    	circuitBreaker.onFailure();
+    	circuitBreaker.onFailure();
+    	circuitBreaker.onSuccess();
+    	circuitBreaker.onFailure();
+    	circuitBreaker.onFailure();
+    	assertFalse (circuitBreaker.isOpen()) ;
+    	circuitBreaker.onFailure();
+    	assertTrue (circuitBreaker.isOpen()) ;
+    	
+    	try
+    	{
+    		circuitBreaker.acquire();
+    		fail ("The circuit should be open") ;
+    	}
+    	catch (CircuitBreaker.CircuitOpenException e)
+    	{
+    		assertEquals (100, e.getRemainingMillis()) ;
+    	}
+    	
+    	// a single probe is let through once the open duration has elapsed
+    	circuitBreaker.now = 100 ;
+    	circuitBreaker.acquire();
+    	try
+    	{
+    		circuitBreaker.acquire();
+    		fail ("Only one probe should be let through") ;
+    	}
+    	catch (CircuitBreaker.CircuitOpenException e)
+    	{
+    		// expected
+    	}
+    	
+    	// a failed probe opens the circuit for longer
+    	circuitBreaker.onFailure();
+    	try
+    	{
+    		circuitBreaker.acquire();
+    		fail ("The circuit should be open") ;
+    	}
+    	catch (CircuitBreaker.CircuitOpenException e)
+    	{
+    		assertEquals (200, e.getRemainingMillis()) ;
+    	}
+    	
+    	circuitBreaker.now = 300 ;
+    	circuitBreaker.acquire();
+    	circuitBreaker.onSuccess();
+    	assertFalse (circuitBreaker.isOpen()) ;
+    	circuitBreaker.acquire();
+    	circuitBreaker.acquire();
+    }
+    
+    
+    @Test
+    public void shouldNotSendCommandsWhileTheCircuitIsOpen() {
+    	ManualClockCircuitBreaker circuitBreaker = new ManualClockCircuitBreaker (2, 60000, 60000) ;
+    	BackoffRetryPolicy policy = newPolicy (circuitBreaker) ;
+    	policy.setBudget(BackoffRetryPolicy.ErrorClass.SERVER, 1);
+    	
+    	AtomicInteger calls = new AtomicInteger () ;
+    	try
+    	{
+    		policy.execute("test", failingCommand (calls, new CommandException (500, CommandExceptionError.UNKNOWN), new CommandException (500, CommandExceptionError.UNKNOWN))) ;
+    		fail ("The budget should have been exhausted") ;
+    	}
+    	catch (CommandException e)
+    	{
+    		assertEquals (2, calls.get()) ;
+    	}
+    	assertTrue (circuitBreaker.isOpen()) ;
+    	
+    	calls.set(0);
+    	try
+    	{
+    		policy.execute("test", failingCommand (calls)) ;
+    		fail ("The circuit should be open") ;
+    	}
+    	catch (CircuitBreaker.CircuitOpenException e)
+    	{
+    		assertEquals (0, calls.get()) ;
+    	}
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.javaswift.joss.client.core.AbstractStoredObject;
+import org.javaswift.joss.exception.CommandException;
+import org.javaswift.joss.model.Access;
+import org.javaswift.joss.model.Account;
+import org.javaswift.joss.model.Container;
+import org.javaswift.joss.model.StoredObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+public class BulkDeleterTest {
+
+	private static final String storageUrl = "https://swift.example.com:8080/v1/AUTH_test" ;
+	
+	private Account account ;
+	private HttpClient httpClient ;
+	
+	
+	@Before
+	public void init() {
+		Access access = Mockito.mock(Access.class) ;
+		Mockito.when(access.getToken()).thenReturn("token") ;
+		account = Mockito.mock(Account.class) ;
+		Mockito.when(account.getPublicURL()).thenReturn(storageUrl) ;
+		Mockito.when(account.getAccess()).thenReturn(access) ;
+		httpClient = Mockito.mock(HttpClient.class) ;
+	}
+	
+	
+	private static HttpResponse newResponse (int status, String body) throws IOException
+	{
+		HttpResponse response = new BasicHttpResponse (HttpVersion.HTTP_1_1, status, "") ;
+		response.setEntity(new StringEntity (body, "UTF-8"));
+		return response ;
+	}
+	
+	
+	private static StoredObject newObject (String containerName, String name)
+	{
+		Container container = Mockito.mock(Container.class) ;
+		Mockito.when(container.getName()).thenReturn(containerName) ;
+		AbstractStoredObject obj = Mockito.mock(AbstractStoredObject.class) ;
+		Mockito.when(obj.getContainer()).thenReturn(container) ;
+		Mockito.when(obj.getName()).thenReturn(name) ;
+		return obj ;
+	}
+	
+	
+    @Test
+    public void shouldDetectBulkDeleteFromClusterInfo() throws IOException {
+    	
+    	assertEquals ("https://swift.example.com:8080/info", BulkDeleter.getInfoUrl(storageUrl)) ;
+    	assertEquals ("http://host/swift/info", BulkDeleter.getInfoUrl("http://host/swift/v1/AUTH_test")) ;
+    	
+    	assertEquals (1000, BulkDeleter.parseMaxDeletesPerRequest("{\"swift\": {}, \"bulk_delete\": {\"max_deletes_per_request\": 1000}}")) ;
+    	assertEquals (BulkDeleter.DEFAULT_MAX_DELETES_PER_REQUEST, BulkDeleter.parseMaxDeletesPerRequest("{\"bulk_delete\": {}}")) ;
+    	assertEquals (0, BulkDeleter.parseMaxDeletesPerRequest("{\"swift\": {}}")) ;
+    	
+    	Mockito.when(httpClient.execute(Matchers.any(HttpUriRequest.class))).thenReturn(newResponse (200, "{\"bulk_delete\": {\"max_deletes_per_request\": 500}}")) ;
+    	BulkDeleter deleter = new BulkDeleter (account, httpClient) ;
+    	assertEquals (500, deleter.getMaxDeletesPerRequest()) ;
+    	// the capabilities are only requested once
+    	assertEquals (500, deleter.getMaxDeletesPerRequest()) ;
+    	Mockito.verify(httpClient, Mockito.times(1)).execute(Matchers.any(HttpUriRequest.class)) ;
+    }
+    
+    
+    @Test
+    public void shouldFallBackWhenInfoIsNotAvailable() throws IOException {
+    	
+    	Mockito.when(httpClient.execute(Matchers.any(HttpUriRequest.class))).thenReturn(newResponse (404, "")) ;
+    	assertEquals (0, new BulkDeleter (account, httpClient).getMaxDeletesPerRequest()) ;
+    }
+    
+    
+    @Test
+    public void shouldDeleteByBatchAndReportFailures() throws IOException {
+    	
+    	Mockito.when(httpClient.execute(Matchers.any(HttpUriRequest.class))).thenReturn(newResponse (200, 
+    			"{\"Number Not Found\": 0, \"Response Status\": \"400 Bad Request\", \"Response Body\": \"\", "
+    			+ "\"Errors\": [[\"/cont/dir/my%20file\", \"409 Conflict\"]], \"Number Deleted\": 1}")) ;
+    	
+    	StoredObject plus = newObject ("cont", "a+b.txt") ;
+    	StoredObject space = newObject ("cont", "dir/my file") ;
+    	BulkDeleter deleter = new BulkDeleter (account, httpClient) ;
+    	List<StoredObject> failed = deleter.delete(Arrays.asList(plus, space)) ;
+    	
+    	assertEquals (1, failed.size()) ;
+    	assertSame (space, failed.get(0)) ;
+    	
+    	ArgumentCaptor<HttpUriRequest> captor = ArgumentCaptor.forClass(HttpUriRequest.class) ;
+    	Mockito.verify(httpClient).execute(captor.capture()) ;
+    	HttpPost post = (HttpPost) captor.getValue() ;
+    	assertEquals (storageUrl + "?bulk-delete", post.getURI().toString()) ;
+    	assertEquals ("token", post.getFirstHeader("X-Auth-Token").getValue()) ;
+    	assertEquals ("/cont/a%2Bb.txt\n/cont/dir/my%20file\n", EntityUtils.toString(post.getEntity())) ;
+    }
+    
+    
+    @Test
+    public void shouldEncodeThePathsOnlyOnce() throws IOException {
+    	
+    	// the path given by joss is already encoded, slashes included
+    	StoredObject obj = newObject ("my cont", "dir/sub dir/file 1.txt") ;
+    	Mockito.when(obj.getPath()).thenReturn("/my%20cont/dir%2Fsub%20dir%2Ffile%201.txt") ;
+    	assertEquals ("/my cont/dir/sub dir/file 1.txt", BulkDeleter.getObjectPath(obj)) ;
+    	
+    	StoredObject other = Mockito.mock(StoredObject.class) ;
+    	Mockito.when(other.getPath()).thenReturn("/my%20cont/dir%2Fsub%20dir%2Ffile%201.txt") ;
+    	assertEquals ("/my cont/dir/sub dir/file 1.txt", BulkDeleter.getObjectPath(other)) ;
+    	
+    	Mockito.when(httpClient.execute(Matchers.any(HttpUriRequest.class))).thenReturn(newResponse (200, 
+    			"{\"Response Status\": \"400 Bad Request\", "
+    			+ "\"Errors\": [[\"my%20cont/dir/sub%20dir/file%201.txt\", \"409 Conflict\"]], \"Number Deleted\": 0}")) ;
+    	List<StoredObject> failed = new BulkDeleter (account, httpClient).delete(Arrays.asList(obj)) ;
+    	assertEquals (1, failed.size()) ;
+    	assertSame (obj, failed.get(0)) ;
+    	
+    	ArgumentCaptor<HttpUriRequest> captor = ArgumentCaptor.forClass(HttpUriRequest.class) ;
+    	Mockito.verify(httpClient).execute(captor.capture()) ;
+    	assertEquals ("/my%20cont/dir/sub%20dir/file%201.txt\n", EntityUtils.toString(((HttpPost) captor.getValue()).getEntity())) ;
+    }
+    
+    
+    @Test
+    public void shouldThrowWhenTheWholeRequestFails() throws IOException {
+    	
+    	Mockito.when(httpClient.execute(Matchers.any(HttpUriRequest.class))).thenReturn(newResponse (503, "")) ;
+    	try
+    	{
+    		new BulkDeleter (account, httpClient).delete(Arrays.asList(newObject ("cont", "obj"))) ;
+    		fail ("The request should have failed") ;
+    	}
+    	catch (CommandException e)
+    	{
+    		assertEquals (503, e.getHttpStatusCode()) ;
+    	}
+    }
+}
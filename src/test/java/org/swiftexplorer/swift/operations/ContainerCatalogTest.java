@@ -0,0 +1,267 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.javaswift.joss.client.factory.AccountConfig;
+import org.javaswift.joss.model.Account;
+import org.javaswift.joss.model.Container;
+import org.javaswift.joss.model.StoredObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.swiftexplorer.swift.client.factory.AccountConfigFactory;
+import org.swiftexplorer.swift.operations.SwiftOperations.SwiftCallback;
+
+public class ContainerCatalogTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+    
+    private SwiftOperations ops;
+    private SwiftCallback callback;
+    private Account account;
+    private Container container ;
+    private ContainerCatalog catalog ;
+    private final Set<String> displayedNames = new TreeSet<String> () ;
+    
+    
+    @Before
+    public void init() {
+    	catalog = new ContainerCatalog (tmpFolder.getRoot()) ;
+    	ContainerCatalog.setDefault(catalog);
+    	
+    	AccountConfig accConf = AccountConfigFactory.getMockAccountConfig() ;
+        ops = new SwiftOperationsImpl();
+        callback = Mockito.mock(SwiftCallback.class);
+        Mockito.doAnswer(new Answer<Void> () {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				displayedNames.clear();
+				return null;
+			}}).when(callback).onNewStoredObjects();
+        Mockito.doAnswer(new Answer<Void> () {
+			@SuppressWarnings("unchecked")
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				for (StoredObject obj : (Collection<StoredObject>) invocation.getArguments()[2])
+					displayedNames.add(obj.getName()) ;
+				return null;
+			}}).when(callback).onAppendStoredObjects(Mockito.any(Container.class), Mockito.anyInt(), Mockito.anyCollectionOf(StoredObject.class));
+        Mockito.doAnswer(new Answer<Void> () {
+			@SuppressWarnings("unchecked")
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				for (StoredObject obj : (Collection<StoredObject>) invocation.getArguments()[1])
+					displayedNames.remove(obj.getName()) ;
+				return null;
+			}}).when(callback).onStoredObjectDeleted(Mockito.any(Container.class), Mockito.anyCollectionOf(StoredObject.class));
+        
+        ops.login(accConf, "http://localhost:8080/", "user", "pass", "secret", callback);
+        account = ((SwiftOperationsImpl)ops).getAccount() ;
+        
+        container = account.getContainer("x").create();
+        for (int i = 0 ; i < 10 ; ++i)
+        	container.getObject(String.format("b/%02d", i)).uploadObject(new byte[i + 1]) ;
+    }
+    
+    
+    @After
+    public void cleanup() {
+    	ContainerCatalog.setDefault(null);
+    }
+    
+    
+    private List<String> getDisplayedNames ()
+    {
+    	return new ArrayList<String> (displayedNames) ;
+    }
+    
+    
+    private List<String> expectedNames ()
+    {
+    	List<String> ret = new ArrayList<String> () ;
+    	for (StoredObject obj : container.list())
+    		ret.add(obj.getName()) ;
+    	return ret ;
+    }
+    
+    
+    @Test
+    public void shouldSaveAndLoadCatalog() {
+    	
+    	container.reload();
+    	List<StoredObject> objects = new ArrayList<StoredObject> (container.list()) ;
+    	catalog.save(account.getPublicURL(), container, objects);
+    	
+    	ContainerCatalog.Snapshot snapshot = catalog.load(account.getPublicURL(), "x") ;
+    	assertNotNull (snapshot) ;
+    	assertEquals (10, snapshot.getCount()) ;
+    	assertEquals (55, snapshot.getBytesUsed()) ;
+    	assertEquals (10, snapshot.getEntries().size()) ;
+    	for (int i = 0 ; i < objects.size() ; ++i)
+    	{
+    		StoredObject obj = snapshot.getEntries().get(i).toStoredObject(container) ;
+    		assertEquals (objects.get(i).getName(), obj.getName()) ;
+    		assertEquals (objects.get(i).getContentLength(), obj.getContentLength()) ;
+    		assertEquals (objects.get(i).getEtag(), obj.getEtag()) ;
+    	}
+    	
+    	assertNull (catalog.load(account.getPublicURL(), "y")) ;
+    	catalog.remove(account.getPublicURL(), "x");
+    	assertNull (catalog.load(account.getPublicURL(), "x")) ;
+    }
+    
+    
+    @Test
+    public void shouldDisplayTheCatalogOfUnchangedContainer() {
+    	
+    	ops.refreshStoredObjects(container, callback);
+    	assertEquals (expectedNames (), getDisplayedNames ()) ;
+    	assertNotNull (catalog.load(account.getPublicURL(), "x")) ;
+    	
+    	// the catalog is displayed, and the container is not listed again (its count and bytes used have not changed)
+    	Container spy = Mockito.spy(container) ;
+    	ops.refreshStoredObjects(spy, callback);
+    	assertEquals (expectedNames (), getDisplayedNames ()) ;
+    	Mockito.verify(callback, Mockito.times(2)).onNewStoredObjects() ;
+    	Mockito.verify(spy, Mockito.never()).list(Mockito.anyString(), Mockito.anyString(), Mockito.anyInt()) ;
+    	Mockito.verify(callback, Mockito.never()).onStoredObjectDeleted(Mockito.any(Container.class), Mockito.anyCollectionOf(StoredObject.class)) ;
+    }
+    
+    
+    @Test
+    public void shouldDetectOverwrittenObjects() {
+    	
+    	ops.refreshStoredObjects(container, callback);
+    	
+    	// the object count does not change
+    	container.getObject("b/05").uploadObject(new byte[100]) ;
+    	ops.refreshStoredObjects(container, callback);
+    	assertEquals (expectedNames (), getDisplayedNames ()) ;
+    	assertEquals (expectedNames (), getCatalogedNames ()) ;
+    	assertEquals (100, getCatalogEntry ("b/05").getSize()) ;
+    	
+    	// only the overwritten object is displayed again
+    	Mockito.verify(callback).onStoredObjectDeleted(Mockito.any(Container.class), Mockito.eq(Arrays.asList(container.getObject("b/05")))) ;
+    }
+    
+    
+    @Test
+    public void shouldUpdateTheCatalog() throws IOException {
+    	
+    	ops.refreshStoredObjects(container, callback);
+    	
+    	ops.deleteStoredObjects(container, Arrays.asList(container.getObject("b/05")), Mockito.mock(SwiftOperations.StopRequester.class), callback);
+    	assertEquals (expectedNames (), getCatalogedNames ()) ;
+    	
+    	File file = tmpFolder.newFile("c") ;
+    	ops.uploadFiles(container, null, new File [] {file}, true, Mockito.mock(SwiftOperations.StopRequester.class), callback);
+    	assertEquals (expectedNames (), getCatalogedNames ()) ;
+    	assertEquals (10, catalog.load(account.getPublicURL(), "x").getCount()) ;
+    	
+    	// the size and the md5 of the uploaded content are known
+    	assertEquals (0, getCatalogEntry ("c").getSize()) ;
+    	assertEquals (container.getObject("c").getEtag(), getCatalogEntry ("c").getEtag()) ;
+    	container.reload();
+    	assertTrue (catalog.load(account.getPublicURL(), "x").matches(container)) ;
+    }
+    
+    
+    @Test
+    public void shouldCompactTheLog() throws IOException {
+    	
+    	ops.refreshStoredObjects(container, callback);
+    	
+    	StoredObject obj = container.getObject("b/05") ;
+    	for (int i = 0 ; i < 2000 ; ++i)
+    		catalog.setUploaded(account.getPublicURL(), obj, i, "etag") ;
+    	assertEquals (1, countLogFiles (tmpFolder.getRoot())) ;
+    	
+    	assertEquals (1999, getCatalogEntry ("b/05").getSize()) ;
+    	assertEquals (0, countLogFiles (tmpFolder.getRoot())) ;
+    	assertEquals (1999, getCatalogEntry ("b/05").getSize()) ;
+    	assertEquals (expectedNames (), getCatalogedNames ()) ;
+    }
+    
+    
+    private static int countLogFiles (File dir)
+    {
+    	int ret = 0 ;
+    	for (File file : dir.listFiles())
+    	{
+    		if (file.isDirectory())
+    			ret += countLogFiles (file) ;
+    		else if (file.getName().endsWith(".log"))
+    			++ret ;
+    	}
+    	return ret ;
+    }
+    
+    
+    private ContainerCatalog.Entry getCatalogEntry (String name)
+    {
+    	for (ContainerCatalog.Entry entry : catalog.load(account.getPublicURL(), "x").getEntries())
+    	{
+    		if (entry.getName().equals(name))
+    			return entry ;
+    	}
+    	return null ;
+    }
+    
+    
+    private List<String> getCatalogedNames ()
+    {
+    	List<String> ret = new ArrayList<String> () ;
+    	for (ContainerCatalog.Entry entry : catalog.load(account.getPublicURL(), "x").getEntries())
+    		ret.add(entry.getName()) ;
+    	return ret ;
+    }
+    
+    
+    @Test
+    public void shouldListAgainModifiedContainer() {
+    	
+    	ops.refreshStoredObjects(container, callback);
+    	container.getObject("a/00").uploadObject(new byte[100]) ;
+    	container.getObject("b/05").delete() ;
+    	
+    	ops.refreshStoredObjects(container, callback);
+    	assertEquals (expectedNames (), getDisplayedNames ()) ;
+    	assertEquals (10, catalog.load(account.getPublicURL(), "x").getCount()) ;
+    	
+    	// the changes are displayed, not the whole listing
+    	Mockito.verify(callback, Mockito.times(2)).onNewStoredObjects() ;
+    	Mockito.verify(callback).onStoredObjectDeleted(Mockito.any(Container.class), Mockito.eq(Arrays.asList(container.getObject("b/05")))) ;
+    }
+}
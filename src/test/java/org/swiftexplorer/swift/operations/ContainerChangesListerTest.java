@@ -0,0 +1,141 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.javaswift.joss.client.factory.AccountConfig;
+import org.javaswift.joss.model.Account;
+import org.javaswift.joss.model.Container;
+import org.javaswift.joss.model.StoredObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.swiftexplorer.config.swift.SwiftParameters;
+import org.swiftexplorer.swift.client.factory.AccountConfigFactory;
+import org.swiftexplorer.swift.operations.SwiftOperations.SwiftCallback;
+
+public class ContainerChangesListerTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+    
+    private Container container ;
+    private ContainerCatalog catalog ;
+    private String accountKey ;
+    
+    
+    @Before
+    public void init() {
+    	AccountConfig accConf = AccountConfigFactory.getMockAccountConfig() ;
+    	SwiftCallback callback = Mockito.mock(SwiftCallback.class);
+
+    	SwiftOperations ops = new SwiftOperationsImpl();
+    	ops.login(accConf, Mockito.mock(SwiftParameters.class), "http://localhost:8080/", "user", "pass", "secret", callback);
+        Account account = ((SwiftOperationsImpl)ops).getAccount() ;
+        accountKey = account.getPublicURL() ;
+        container = account.getContainer("x").create();
+        for (int i = 0 ; i < 50 ; ++i)
+        	container.getObject(String.format("o/%02d", i)).uploadObject(new byte[i + 1]) ;
+        
+        catalog = new ContainerCatalog (tmpFolder.getRoot()) ;
+        container.reload();
+        catalog.save(accountKey, container, new ArrayList<StoredObject> (container.list())) ;
+    }
+    
+    
+    private static List<String> getNames (Collection<StoredObject> objects)
+    {
+    	List<String> ret = new ArrayList<String> () ;
+    	for (StoredObject obj : objects)
+    		ret.add(obj.getName()) ;
+    	return ret ;
+    }
+    
+    
+    private ContainerChangesLister.Changes listChanges (Container container, int numberOfWorkers)
+    {
+    	container.reload();
+    	// small pages, so that the catalog is split into several ranges
+    	return new ContainerChangesLister (numberOfWorkers, 7).list(container, catalog.load(accountKey, "x"), null) ;
+    }
+    
+    
+    @Test
+    public void shouldListTheChangesOfEachRange() {
+    	
+    	container.getObject("a").uploadObject(new byte[1]) ;
+    	container.getObject("o/10").delete() ;
+    	container.getObject("o/20x").uploadObject(new byte[2]) ;
+    	container.getObject("o/30").uploadObject(new byte[100]) ;
+    	container.getObject("o/49").delete() ;
+    	container.getObject("z").uploadObject(new byte[3]) ;
+    	
+    	ContainerChangesLister.Changes changes = listChanges (container, 4) ;
+    	assertEquals (Arrays.asList("a", "o/20x", "z"), getNames (changes.getAdded())) ;
+    	assertEquals (Arrays.asList("o/30"), getNames (changes.getChanged())) ;
+    	assertEquals (100, changes.getChanged().get(0).getContentLength()) ;
+    	assertEquals (Arrays.asList("o/10", "o/49"), getNames (changes.getRemoved())) ;
+    }
+    
+    
+    @Test
+    public void shouldListTheChangesWithSingleWorker() {
+    	
+    	container.getObject("o/05").delete() ;
+    	container.getObject("o/45").uploadObject(new byte[1]) ;
+    	
+    	ContainerChangesLister.Changes changes = listChanges (container, 1) ;
+    	assertTrue (changes.getAdded().isEmpty()) ;
+    	assertEquals (Arrays.asList("o/45"), getNames (changes.getChanged())) ;
+    	assertEquals (Arrays.asList("o/05"), getNames (changes.getRemoved())) ;
+    }
+    
+    
+    @Test
+    public void shouldStopOnceTheChangesAreFound() {
+    	
+    	container.getObject("o/03").uploadObject(new byte[100]) ;
+    	
+    	Container spy = Mockito.spy(container) ;
+    	ContainerChangesLister.Changes changes = listChanges (spy, 1) ;
+    	assertEquals (Arrays.asList("o/03"), getNames (changes.getChanged())) ;
+    	// only the first range is listed (one page, plus the page which shows the end of the range)
+    	Mockito.verify(spy, Mockito.times(2)).list(Mockito.anyString(), Mockito.anyString(), Mockito.anyInt()) ;
+    }
+    
+    
+    @Test
+    public void shouldRefreshTheEntriesWithoutMetadata() {
+    	
+    	// only the size and the etag of an uploaded object are known
+    	StoredObject obj = container.getObject("o/07") ;
+    	catalog.setUploaded(accountKey, obj, obj.getContentLength(), obj.getEtag());
+    	container.getObject("o/40").delete() ;
+    	
+    	ContainerChangesLister.Changes changes = listChanges (container, 1) ;
+    	assertEquals (Arrays.asList("o/07"), getNames (changes.getChanged())) ;
+    	assertTrue (changes.getAdded().isEmpty()) ;
+    	assertEquals (Arrays.asList("o/40"), getNames (changes.getRemoved())) ;
+    }
+}
@@ -19,14 +19,17 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import org.javaswift.joss.client.factory.AccountConfig;
+import org.javaswift.joss.exception.CommandException;
 import org.javaswift.joss.instructions.UploadInstructions;
 import org.javaswift.joss.model.Account;
 import org.javaswift.joss.model.Container;
@@ -295,4 +298,106 @@ public class LargeObjectManagerTest {
     	assertTrue (obj.exists()) ;
     	assertTrue (-1 == largeObjectManager.getActualSegmentSize(obj)) ;
     }
+    
+    
+    @Test
+    public void shouldUploadSegmentsReadFromTheFile() throws IOException
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, objName, fileSize) ;
+    	StoredObject obj = container.getObject(objName);
+    	UploadInstructions ui = new UploadInstructions (file).setSegmentationSize(segmentSize) ;
+    	
+    	largeObjectManager.uploadObjectAsSegments(obj, file, ui, fileSize, new ProgressInformation (callback, false), callback) ;
+    	
+    	Mockito.verify(callback, Mockito.never()).onError(Mockito.any(CommandException.class));
+    	assertTrue (obj.exists()) ;
+    	assertTrue (largeObjectManager.getSegmentsList(obj).size() == TestUtils.getNumberOfSegments (fileSize, segmentSize)) ;
+    	assertTrue (FileUtils.getSumOfSegmentsMd5(file, segmentSize).equals(largeObjectManager.getSumOfSegmentsMd5(obj))) ;
+    }
+    
+    
+    @Test
+    public void shouldNotWriteManifestWhenSegmentsCannotBeUploaded() throws IOException
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, objName, fileSize) ;
+    	StoredObject obj = container.getObject(objName);
+    	UploadInstructions ui = new UploadInstructions (file).setSegmentationSize(segmentSize) ;
+    	
+    	File missingFile = new File (file.getPath() + ".missing") ;
+    	largeObjectManager.uploadObjectAsSegments(obj, missingFile, ui, fileSize, new ProgressInformation (callback, false), callback) ;
+    	
+    	Mockito.verify(callback, Mockito.times(1)).onError(Mockito.any(CommandException.class));
+    	assertFalse (obj.exists()) ;
+    }
+    
+    
+    @Test
+    public void shouldOnlyUploadModifiedSegments() throws IOException
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, objName, fileSize) ;
+    	StoredObject obj = container.getObject(objName);
+    	largeObjectManager.uploadObjectAsSegments(obj, file, new UploadInstructions (file).setSegmentationSize(segmentSize), fileSize, new ProgressInformation (callback, false), callback) ;
+    	
+    	List<StoredObject> segments = largeObjectManager.getSegmentsList(obj) ;
+    	List<Date> dates = new ArrayList<Date> () ;
+    	for (StoredObject so : segments)
+    		dates.add(so.getLastModifiedAsDate()) ;
+    	
+    	// we modify the third segment (the size remains the same)
+    	final int modifiedSegment = 2 ;
+    	try (RandomAccessFile raf = new RandomAccessFile (file, "rw"))
+    	{
+    		raf.seek(modifiedSegment * segmentSize + 10);
+    		raf.write(new byte [] {1, 2, 3, 4, 5, 6, 7, 8});
+    	}
+    	largeObjectManager.uploadObjectAsSegments(obj, file, new UploadInstructions (file).setSegmentationSize(segmentSize), fileSize, new ProgressInformation (callback, false), callback) ;
+    	
+    	Mockito.verify(callback, Mockito.never()).onError(Mockito.any(CommandException.class));
+    	List<String> segmentsMd5 = FileUtils.getSegmentsMd5(file, segmentSize) ;
+    	List<StoredObject> newSegments = largeObjectManager.getSegmentsList(obj) ;
+    	assertTrue (newSegments.size() == segments.size()) ;
+    	for (int i = 0 ; i < newSegments.size() ; ++i)
+    	{
+    		assertTrue (segmentsMd5.get(i).equals(newSegments.get(i).getEtag())) ;
+    		if (i != modifiedSegment)
+    			assertTrue (dates.get(i).equals(newSegments.get(i).getLastModifiedAsDate())) ;
+    	}
+    }
+    
+    
+    @Test
+    public void shouldUploadJournaledSegmentsMissingFromTheCloud() throws IOException
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, objName, fileSize) ;
+    	StoredObject obj = container.getObject(objName);
+    	largeObjectManager.uploadObjectAsSegments(obj, file, new UploadInstructions (file).setSegmentationSize(segmentSize), fileSize, new ProgressInformation (callback, false), callback) ;
+    	
+    	TransferJournal journal = new TransferJournal ((File) null) ;
+    	TransferJournal.setDefault(journal);
+    	try
+    	{
+    		// as if the previous upload had been interrupted before writing the manifest
+	    	BasicFileAttributes attr = FileUtils.getFileAttr(file.toPath()) ;
+	    	List<String> segmentsMd5 = FileUtils.getSegmentsMd5(file, segmentSize) ;
+	    	for (int i = 0 ; i < segmentsMd5.size() ; ++i)
+	    		journal.setSegmentUploaded(account.getPublicURL(), obj, file, attr, segmentSize, i + 1, segmentsMd5.get(i)) ;
+	    	
+	    	// a segment is then deleted by another client
+	    	final int deletedSegment = 2 ;
+	    	StoredObject segment = largeObjectManager.getSegmentsList(obj).get(deletedSegment) ;
+	    	segment.delete();
+	    	assertFalse (segment.exists()) ;
+	    	
+	    	largeObjectManager.uploadObjectAsSegments(obj, file, new UploadInstructions (file).setSegmentationSize(segmentSize), fileSize, new ProgressInformation (callback, false), callback) ;
+	    	
+	    	Mockito.verify(callback, Mockito.never()).onError(Mockito.any(CommandException.class));
+	    	assertTrue (segment.exists()) ;
+	    	assertTrue (segmentsMd5.get(deletedSegment).equals(segment.getEtag())) ;
+	    	assertTrue (largeObjectManager.getSegmentsList(obj).size() == segmentsMd5.size()) ;
+    	}
+    	finally
+    	{
+    		TransferJournal.setDefault(null);
+    	}
+    }
 }
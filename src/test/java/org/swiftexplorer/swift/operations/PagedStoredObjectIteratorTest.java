@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.javaswift.joss.client.factory.AccountConfig;
+import org.javaswift.joss.model.Account;
+import org.javaswift.joss.model.Container;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.swiftexplorer.swift.client.factory.AccountConfigFactory;
+import org.swiftexplorer.swift.operations.SwiftOperations.SwiftCallback;
+
+public class PagedStoredObjectIteratorTest {
+
+    private Container container ;
+    
+    
+    @Before
+    public void init() {
+    	AccountConfig accConf = AccountConfigFactory.getMockAccountConfig() ;
+    	SwiftOperations ops = new SwiftOperationsImpl();
+    	ops.login(accConf, "http://localhost:8080/", "user", "pass", "secret", Mockito.mock(SwiftCallback.class));
+        Account account = ((SwiftOperationsImpl)ops).getAccount() ;
+        container = account.getContainer("x").create();
+        
+        for (int i = 0 ; i < 20 ; ++i)
+        {
+        	container.getObject(String.format("dir/%02d", i)).uploadObject(new byte[10]) ;
+        	container.getObject(String.format("other/%02d", i)).uploadObject(new byte[10]) ;
+        }
+    }
+    
+    
+    @Test
+    public void shouldIterateOverAllPages() {
+    	
+    	PagedStoredObjectIterator it = new PagedStoredObjectIterator (container, "dir/", 6) ;
+    	List<String> names = new ArrayList<String> () ;
+    	while (it.hasNext())
+    		names.add(it.next().getName()) ;
+    	
+    	assertEquals (20, names.size()) ;
+    	for (int i = 0 ; i < 20 ; ++i)
+    		assertEquals (String.format("dir/%02d", i), names.get(i)) ;
+    	assertEquals (20, it.getNumberOfListedObjects()) ;
+    }
+    
+    
+    @Test
+    public void shouldListLazily() {
+    	
+    	PagedStoredObjectIterator it = new PagedStoredObjectIterator (container, null, 6) ;
+    	assertEquals (0, it.getNumberOfListedObjects()) ;
+    	it.next() ;
+    	assertEquals (6, it.getNumberOfListedObjects()) ;
+    	assertEquals (5, it.nextPage().size()) ;
+    	assertEquals (6, it.nextPage().size()) ;
+    	assertEquals (12, it.getNumberOfListedObjects()) ;
+    }
+    
+    
+    @Test
+    public void shouldIterateOverEmptyListing() {
+    	
+    	assertFalse (new PagedStoredObjectIterator (container, "none/", 7).hasNext()) ;
+    	assertFalse (PagedStoredObjectIterator.iterable(container, "none/", 7).iterator().hasNext()) ;
+    }
+}
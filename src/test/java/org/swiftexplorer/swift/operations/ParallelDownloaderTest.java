@@ -0,0 +1,230 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+
+import org.javaswift.joss.client.factory.AccountConfig;
+import org.javaswift.joss.instructions.DownloadInstructions;
+import org.javaswift.joss.instructions.UploadInstructions;
+import org.javaswift.joss.model.Account;
+import org.javaswift.joss.model.Container;
+import org.javaswift.joss.model.StoredObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.swiftexplorer.TestUtils;
+import org.swiftexplorer.config.swift.SwiftParameters;
+import org.swiftexplorer.gui.util.SwiftOperationStopRequesterImpl;
+import org.swiftexplorer.swift.client.factory.AccountConfigFactory;
+import org.swiftexplorer.swift.operations.SwiftOperations.SwiftCallback;
+import org.swiftexplorer.util.FileUtils;
+
+public class ParallelDownloaderTest {
+
+    private SwiftCallback callback;
+    private Account account;
+    private LargeObjectManagerImpl largeObjectManager ;
+    private Container container ;
+    
+    private final long partSize = 800 ;
+    private final long fileSize = 8192 ;
+    
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+    
+    
+    @Before
+    public void init() {
+    	AccountConfig accConf = AccountConfigFactory.getMockAccountConfig() ;
+        callback = Mockito.mock(SwiftCallback.class);
+
+    	SwiftOperations ops = new SwiftOperationsImpl();
+    	SwiftParameters param = Mockito.mock(SwiftParameters.class);
+    	Mockito.when(param.getSegmentationSize()).thenReturn(partSize) ;
+    	ops.login(accConf, param, "http://localhost:8080/", "user", "pass", "secret", callback);
+        account = ((SwiftOperationsImpl)ops).getAccount() ;
+        
+        // segments are uploaded sequentially (the mock account is not thread-safe for writing)
+        largeObjectManager = new LargeObjectManagerImpl (account) ;
+        container = account.getContainer("x").create();
+    }
+    
+    
+    @Test
+    public void shouldDownloadSegmentsConcurrently() throws IOException
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, "segmented.dat", fileSize) ;
+    	StoredObject obj = container.getObject(file.getName());
+    	largeObjectManager.uploadObjectAsSegments(obj, file, new UploadInstructions (file).setSegmentationSize(partSize), fileSize, new ProgressInformation (callback, false), callback) ;
+    	assertTrue (largeObjectManager.isSegmented(obj)) ;
+    	
+    	File target = new File (tmpFolder.getRoot(), "segmented.target") ;
+    	ParallelDownloader downloader = new ParallelDownloader (largeObjectManager, 4, partSize) ;
+    	
+    	assertTrue (downloader.download(obj, target, new ProgressInformation (callback, false), null)) ;
+    	assertEquals (fileSize, target.length()) ;
+    	assertEquals (FileUtils.getMD5(file), FileUtils.getMD5(target)) ;
+    }
+    
+    
+    @Test
+    public void shouldKeepThePartsWhenStopped() throws IOException
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, "stopped.dat", fileSize) ;
+    	StoredObject obj = container.getObject(file.getName());
+    	largeObjectManager.uploadObjectAsSegments(obj, file, new UploadInstructions (file).setSegmentationSize(partSize), fileSize, new ProgressInformation (callback, false), callback) ;
+    	
+    	File target = new File (tmpFolder.getRoot(), "stopped.target") ;
+    	ParallelDownloader downloader = new ParallelDownloader (largeObjectManager, 4, partSize) ;
+    	SwiftOperationStopRequesterImpl stopRequester = new SwiftOperationStopRequesterImpl () ;
+    	stopRequester.stop();
+    	try
+    	{
+    		downloader.download(obj, target, new ProgressInformation (callback, false), stopRequester) ;
+    		fail ("The download should have been stopped") ;
+    	}
+    	catch (InterruptedIOException e)
+    	{
+    	}
+    	assertFalse (target.exists()) ;
+    	assertTrue (ResumableDownloader.getPartFile(target).exists()) ;
+    	
+    	// resumed
+    	assertTrue (downloader.download(obj, target, new ProgressInformation (callback, false), null)) ;
+    	assertEquals (FileUtils.getMD5(file), FileUtils.getMD5(target)) ;
+    }
+    
+    
+    @Test
+    public void shouldDownloadRangesConcurrently() throws IOException
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, "large.dat", fileSize) ;
+    	StoredObject obj = container.getObject(file.getName());
+    	obj.uploadObject(file);
+    	assertFalse (largeObjectManager.isSegmented(obj)) ;
+    	
+    	File target = new File (tmpFolder.getRoot(), "large.target") ;
+    	ParallelDownloader downloader = new ParallelDownloader (largeObjectManager, 4, partSize) ;
+    	
+    	assertTrue (downloader.download(obj, target, new ProgressInformation (callback, false), null)) ;
+    	assertEquals (fileSize, target.length()) ;
+    	assertEquals (FileUtils.getMD5(file), FileUtils.getMD5(target)) ;
+    	assertFalse (ResumableDownloader.getPartFile(target).exists()) ;
+    }
+    
+    
+    @Test
+    public void shouldKeepTheTargetWhenTheContentIsCorrupted() throws IOException
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, "corrupted.dat", fileSize) ;
+    	StoredObject obj = container.getObject(file.getName());
+    	obj.uploadObject(file);
+    	StoredObject corrupted = Mockito.spy(obj) ;
+    	Mockito.doReturn(FileUtils.emptyMd5).when(corrupted).getEtag() ;
+    	
+    	File target = TestUtils.getTestFile (tmpFolder, "corrupted.target", 10) ;
+    	String md5 = FileUtils.getMD5(target) ;
+    	ParallelDownloader downloader = new ParallelDownloader (largeObjectManager, 4, partSize) ;
+    	try
+    	{
+    		downloader.download(corrupted, target, new ProgressInformation (callback, false), null) ;
+    		fail ("The md5 should not match") ;
+    	}
+    	catch (IOException e)
+    	{
+    		// expected
+    	}
+    	assertEquals (md5, FileUtils.getMD5(target)) ;
+    	assertFalse (ResumableDownloader.getPartFile(target).exists()) ;
+    }
+    
+    
+    @Test
+    public void shouldResumeFromTheReceivedParts() throws IOException
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, "resumed.dat", fileSize) ;
+    	StoredObject obj = container.getObject(file.getName());
+    	obj.uploadObject(file);
+    	
+    	File target = new File (tmpFolder.getRoot(), "resumed.target") ;
+    	ParallelDownloader downloader = new ParallelDownloader (largeObjectManager, 4, partSize) ;
+    	assertTrue (downloader.download(obj, target, new ProgressInformation (callback, false), null)) ;
+    	
+    	// a former attempt received the first two parts only
+    	final long numberOfParts = TestUtils.getNumberOfSegments (fileSize, partSize) ;
+    	PartialDownload partial = new PartialDownload (target) ;
+    	partial.start(obj.getEtag(), String.format("ranges:%d:%d", numberOfParts, fileSize)) ;
+    	Files.copy(target.toPath(), partial.getPartFile().toPath()) ;
+    	partial.setReceived(1) ;
+    	partial.setReceived(2) ;
+    	Files.delete(target.toPath()) ;
+    	
+    	StoredObject spy = Mockito.spy(obj) ;
+    	assertTrue (downloader.download(spy, target, new ProgressInformation (callback, false), null)) ;
+    	Mockito.verify(spy, Mockito.times((int) numberOfParts - 2)).downloadObjectAsInputStream(Matchers.any(DownloadInstructions.class)) ;
+    	assertEquals (FileUtils.getMD5(file), FileUtils.getMD5(target)) ;
+    	assertFalse (partial.getPartFile().exists()) ;
+    	assertFalse (new File (target.getPath() + PartialDownload.infoFileSuffix).exists()) ;
+    }
+    
+    
+    @Test
+    public void shouldNotResumeAnotherVersion() throws IOException
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, "changed.dat", fileSize) ;
+    	StoredObject obj = container.getObject(file.getName());
+    	obj.uploadObject(file);
+    	
+    	File target = new File (tmpFolder.getRoot(), "changed.target") ;
+    	final long numberOfParts = TestUtils.getNumberOfSegments (fileSize, partSize) ;
+    	PartialDownload partial = new PartialDownload (target) ;
+    	partial.start(FileUtils.emptyMd5, String.format("ranges:%d:%d", numberOfParts, fileSize)) ;
+    	Files.write(partial.getPartFile().toPath(), new byte [(int) fileSize]) ;
+    	partial.setReceived(1) ;
+    	
+    	StoredObject spy = Mockito.spy(obj) ;
+    	ParallelDownloader downloader = new ParallelDownloader (largeObjectManager, 4, partSize) ;
+    	assertTrue (downloader.download(spy, target, new ProgressInformation (callback, false), null)) ;
+    	Mockito.verify(spy, Mockito.times((int) numberOfParts)).downloadObjectAsInputStream(Matchers.any(DownloadInstructions.class)) ;
+    	assertEquals (FileUtils.getMD5(file), FileUtils.getMD5(target)) ;
+    }
+    
+    
+    @Test
+    public void shouldNotSplitSmallObjects() throws IOException
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, "small.dat", partSize + 1) ;
+    	StoredObject obj = container.getObject(file.getName());
+    	obj.uploadObject(file);
+    	
+    	File target = new File (tmpFolder.getRoot(), "small.target") ;
+    	ParallelDownloader downloader = new ParallelDownloader (largeObjectManager, 4, partSize) ;
+    	
+    	assertFalse (downloader.download(obj, target, new ProgressInformation (callback, false), null)) ;
+    	assertFalse (target.exists()) ;
+    }
+}
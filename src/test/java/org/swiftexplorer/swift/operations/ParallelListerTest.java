@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.javaswift.joss.client.factory.AccountConfig;
+import org.javaswift.joss.model.Account;
+import org.javaswift.joss.model.Container;
+import org.javaswift.joss.model.StoredObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.swiftexplorer.config.swift.SwiftParameters;
+import org.swiftexplorer.swift.client.factory.AccountConfigFactory;
+import org.swiftexplorer.swift.operations.SwiftOperations.SwiftCallback;
+
+public class ParallelListerTest {
+
+    private Container container ;
+    private final List<String> names = new ArrayList<String> () ;
+    
+    
+    @Before
+    public void init() {
+    	AccountConfig accConf = AccountConfigFactory.getMockAccountConfig() ;
+    	SwiftCallback callback = Mockito.mock(SwiftCallback.class);
+
+    	SwiftOperations ops = new SwiftOperationsImpl();
+    	ops.login(accConf, Mockito.mock(SwiftParameters.class), "http://localhost:8080/", "user", "pass", "secret", callback);
+        Account account = ((SwiftOperationsImpl)ops).getAccount() ;
+        container = account.getContainer("x").create();
+        
+        names.clear();
+        for (String dir : new String [] {"a", "b", "c", "d"})
+        {
+        	names.add(dir) ;
+        	for (int i = 0 ; i < 25 ; ++i)
+        		names.add(String.format("%s/%02d", dir, i)) ;
+        	names.add(dir + "/sub/object") ;
+        }
+        names.add("e") ;
+        for (String name : names)
+        	container.getObject(name).uploadObject(name.getBytes()) ;
+    }
+    
+    
+    private void assertListed (Collection<StoredObject> listed, String prefix)
+    {
+    	List<String> expected = new ArrayList<String> () ;
+    	for (String name : names)
+    	{
+    		if (name.startsWith(prefix))
+    			expected.add(name) ;
+    	}
+    	List<String> actual = new ArrayList<String> () ;
+    	for (StoredObject obj : listed)
+    		actual.add(obj.getName()) ;
+    	assertEquals (expected, actual) ;
+    }
+    
+    
+    @Test
+    public void shouldListAllObjectsInNameOrder() {
+    	
+    	// small pages, so that each shard is listed over several requests
+    	assertListed (new ParallelLister (4, 7).list(container, "", null, 0), "") ;
+    }
+    
+    
+    @Test
+    public void shouldListObjectsUnderPrefix() {
+    	
+    	assertListed (new ParallelLister (4, 7).list(container, "b/", null, 0), "b/") ;
+    }
+    
+    
+    @Test
+    public void shouldListFlatNamespaceSerially() {
+    	
+    	// only one sub-prefix under "c/"
+    	assertListed (new ParallelLister (4, 7).list(container, "c/sub/", null, 0), "c/sub/") ;
+    	assertListed (new ParallelLister (4, 7).list(container, "c/", null, 0), "c/") ;
+    }
+    
+    
+    @Test
+    public void shouldListSeriallyWithSingleWorker() {
+    	
+    	assertListed (new ParallelLister (1, 7).list(container, "", null, 0), "") ;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.swiftexplorer.swift.operations.SwiftOperations.SwiftCallback;
+
+public class ProgressInformationTest {
+
+	
+    @Test
+    public void shouldCoalesceTheReports() throws InterruptedException {
+    	SwiftCallback callback = Mockito.mock(SwiftCallback.class);
+    	
+    	ProgressInformation progInfo = new ProgressInformation (callback, false) ;
+    	final int numberOfUpdates = 100000 ;
+    	for (int i = 1 ; i <= numberOfUpdates ; ++i)
+    		progInfo.onStreamProgress(i / (double) numberOfUpdates);
+    	
+    	// the deferred report is sent at the end of the frame
+    	Thread.sleep(300);
+    	
+    	ArgumentCaptor<Double> currentProgress = ArgumentCaptor.forClass(Double.class) ;
+    	Mockito.verify(callback, Mockito.atLeastOnce()).onProgress(Matchers.anyDouble(), Matchers.anyString(), currentProgress.capture(), Matchers.anyString()) ;
+    	assertTrue (currentProgress.getAllValues().size() < numberOfUpdates / 100) ;
+    	assertEquals (1.0, currentProgress.getValue(), 0.0) ;
+    }
+    
+    
+    @Test
+    public void shouldAggregateConcurrentStreams() throws InterruptedException {
+    	ProgressInformation progInfo = new ProgressInformation (null, false) ;
+    	final int numberOfStreams = 8 ;
+    	final int bytesPerStream = 100000 ;
+    	progInfo.addExpectedBytes(2L * numberOfStreams * bytesPerStream);
+    	
+    	List<Thread> threads = new ArrayList<Thread> () ;
+    	final ProgressInformation target = progInfo ;
+    	for (int i = 0 ; i < numberOfStreams ; ++i)
+    	{
+    		Thread t = new Thread (new Runnable () {
+				@Override
+				public void run() {
+					for (int j = 0 ; j < bytesPerStream ; ++j)
+						target.onStreamBytes(1);
+				}}) ;
+    		threads.add(t) ;
+    		t.start();
+    	}
+    	for (Thread t : threads)
+    		t.join();
+    	
+    	assertEquals ((long) numberOfStreams * bytesPerStream, progInfo.getStreamedBytes()) ;
+    	// no report yet, hence no rate
+    	assertEquals (-1, progInfo.getEstimatedRemainingSeconds()) ;
+    }
+    
+    
+    @Test
+    public void shouldEstimateTheRemainingTime() throws InterruptedException {
+    	SwiftCallback callback = Mockito.mock(SwiftCallback.class);
+    	ProgressInformation progInfo = new ProgressInformation (callback, true) ;
+    	progInfo.addExpectedBytes(1000000);
+    	
+    	Thread.sleep(100);
+    	progInfo.onStreamBytes(1000);
+    	progInfo.flush();
+    	
+    	assertTrue (progInfo.getBytesPerSecond() > 0) ;
+    	assertTrue (progInfo.getEstimatedRemainingSeconds() > 0) ;
+    	
+    	ArgumentCaptor<String> msg = ArgumentCaptor.forClass(String.class) ;
+    	progInfo.setTotalMessage("Downloading");
+    	progInfo.flush();
+    	Mockito.verify(callback, Mockito.atLeastOnce()).onProgress(Matchers.anyDouble(), msg.capture(), Matchers.anyDouble(), Matchers.anyString()) ;
+    	assertTrue (msg.getValue().startsWith("Downloading - ")) ;
+    	assertTrue (msg.getValue().endsWith(" left")) ;
+    }
+}
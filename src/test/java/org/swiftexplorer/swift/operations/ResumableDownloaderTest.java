@@ -0,0 +1,214 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.javaswift.joss.client.factory.AccountConfig;
+import org.javaswift.joss.exception.CommandException;
+import org.javaswift.joss.instructions.DownloadInstructions;
+import org.javaswift.joss.instructions.UploadInstructions;
+import org.javaswift.joss.model.Account;
+import org.javaswift.joss.model.Container;
+import org.javaswift.joss.model.StoredObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.swiftexplorer.TestUtils;
+import org.swiftexplorer.config.swift.SwiftParameters;
+import org.swiftexplorer.swift.client.factory.AccountConfigFactory;
+import org.swiftexplorer.swift.operations.SwiftOperations.SwiftCallback;
+import org.swiftexplorer.util.FileUtils;
+
+public class ResumableDownloaderTest {
+
+    private SwiftCallback callback;
+    private Account account;
+    private Container container ;
+    private ResumableDownloader downloader ;
+    
+    private final long fileSize = 8192 ;
+    
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+    
+    
+    @Before
+    public void init() {
+    	AccountConfig accConf = AccountConfigFactory.getMockAccountConfig() ;
+        callback = Mockito.mock(SwiftCallback.class);
+
+    	SwiftOperations ops = new SwiftOperationsImpl();
+    	ops.login(accConf, Mockito.mock(SwiftParameters.class), "http://localhost:8080/", "user", "pass", "secret", callback);
+        account = ((SwiftOperationsImpl)ops).getAccount() ;
+        container = account.getContainer("x").create();
+        downloader = new ResumableDownloader (new LargeObjectManagerImpl (account)) ;
+    }
+    
+    
+    private StoredObject uploadTestObject (File file)
+    {
+    	StoredObject obj = container.getObject(file.getName());
+    	obj.uploadObject(file);
+    	return obj ;
+    }
+    
+    
+    private static void writePart (File target, String etag, byte [] content) throws IOException
+    {
+    	new PartialDownload (target).start(etag, null) ;
+    	File part = ResumableDownloader.getPartFile(target) ;
+    	FileOutputStream out = new FileOutputStream (part) ;
+    	try
+    	{
+    		out.write(content);
+    	}
+    	finally
+    	{
+    		out.close();
+    	}
+    }
+    
+    
+    @Test
+    public void shouldDownloadAndRenamePartFile() throws IOException
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, "object.dat", fileSize) ;
+    	StoredObject obj = uploadTestObject (file) ;
+    	
+    	File target = new File (tmpFolder.getRoot(), "object.target") ;
+    	downloader.download(obj, target, new ProgressInformation (callback, false)) ;
+    	
+    	assertEquals (FileUtils.getMD5(file), FileUtils.getMD5(target)) ;
+    	assertFalse (ResumableDownloader.getPartFile(target).exists()) ;
+    }
+    
+    
+    @Test
+    public void shouldResumePartialDownload() throws IOException
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, "object.dat", fileSize) ;
+    	StoredObject obj = Mockito.spy(uploadTestObject (file)) ;
+    	
+    	File target = new File (tmpFolder.getRoot(), "object.target") ;
+    	byte [] content = Files.readAllBytes(file.toPath()) ;
+    	writePart (target, obj.getEtag(), Arrays.copyOf(content, content.length / 3)) ;
+    	assertTrue (ResumableDownloader.hasPartialDownload(obj, target)) ;
+    	
+    	downloader.download(obj, target, new ProgressInformation (callback, false)) ;
+    	
+    	// only the missing bytes must have been requested
+    	Mockito.verify(obj).downloadObjectAsInputStream(Matchers.any(DownloadInstructions.class)) ;
+    	Mockito.verify(obj, Mockito.never()).downloadObjectAsInputStream() ;
+    	assertEquals (FileUtils.getMD5(file), FileUtils.getMD5(target)) ;
+    	assertFalse (ResumableDownloader.getPartFile(target).exists()) ;
+    }
+    
+    
+    @Test
+    public void shouldDiscardCorruptedPartialDownload() throws IOException
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, "object.dat", fileSize) ;
+    	StoredObject obj = uploadTestObject (file) ;
+    	
+    	File target = new File (tmpFolder.getRoot(), "object.target") ;
+    	writePart (target, obj.getEtag(), new byte [(int) fileSize / 2]) ;
+    	try
+    	{
+    		downloader.download(obj, target, new ProgressInformation (callback, false)) ;
+    		fail ("The md5 mismatch should have been detected") ;
+    	}
+    	catch (CommandException e)
+    	{
+    		// expected
+    	}
+    	assertFalse (target.exists()) ;
+    	assertFalse (ResumableDownloader.getPartFile(target).exists()) ;
+    	
+    	// the retry starts from scratch
+    	downloader.download(obj, target, new ProgressInformation (callback, false)) ;
+    	assertEquals (FileUtils.getMD5(file), FileUtils.getMD5(target)) ;
+    }
+    
+    
+    @Test
+    public void shouldDiscardPartialDownloadOfAnotherVersion() throws IOException
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, "object.dat", fileSize) ;
+    	StoredObject obj = Mockito.spy(uploadTestObject (file)) ;
+    	
+    	File target = new File (tmpFolder.getRoot(), "object.target") ;
+    	byte [] content = Files.readAllBytes(file.toPath()) ;
+    	writePart (target, FileUtils.emptyMd5, Arrays.copyOf(content, content.length / 3)) ;
+    	assertFalse (ResumableDownloader.hasPartialDownload(obj, target)) ;
+    	
+    	downloader.download(obj, target, new ProgressInformation (callback, false)) ;
+    	
+    	// the whole content must have been requested
+    	Mockito.verify(obj).downloadObjectAsInputStream() ;
+    	assertEquals (FileUtils.getMD5(file), FileUtils.getMD5(target)) ;
+    	assertFalse (new File (target.getPath() + PartialDownload.infoFileSuffix).exists()) ;
+    }
+    
+    
+    @Test
+    public void shouldCheckSegmentedObjects() throws IOException
+    {
+    	final long segmentSize = 800 ;
+    	LargeObjectManagerImpl largeObjectManager = new LargeObjectManagerImpl (account) ;
+    	File file = TestUtils.getTestFile (tmpFolder, "segmented.dat", fileSize) ;
+    	StoredObject obj = container.getObject(file.getName());
+    	largeObjectManager.uploadObjectAsSegments(obj, file, new UploadInstructions (file).setSegmentationSize(segmentSize), fileSize, new ProgressInformation (callback, false), callback) ;
+    	
+    	File target = new File (tmpFolder.getRoot(), "segmented.target") ;
+    	downloader.download(obj, target, new ProgressInformation (callback, false)) ;
+    	assertEquals (FileUtils.getMD5(file), FileUtils.getMD5(target)) ;
+    	
+    	// a segment does not match its etag
+    	List<StoredObject> segments = largeObjectManager.getSegmentsList(obj) ;
+    	StoredObject corruptedSegment = Mockito.spy(segments.get(1)) ;
+    	Mockito.doReturn(FileUtils.emptyMd5).when(corruptedSegment).getEtag() ;
+    	segments.set(1, corruptedSegment) ;
+    	LargeObjectManager corruptedManager = Mockito.mock(LargeObjectManager.class) ;
+    	Mockito.when(corruptedManager.isSegmented(obj)).thenReturn(true) ;
+    	Mockito.when(corruptedManager.getSegmentsList(obj)).thenReturn(segments) ;
+    	
+    	File corruptedTarget = new File (tmpFolder.getRoot(), "corrupted.target") ;
+    	try
+    	{
+    		new ResumableDownloader (corruptedManager).download(obj, corruptedTarget, new ProgressInformation (callback, false)) ;
+    		fail ("The md5 mismatch should have been detected") ;
+    	}
+    	catch (CommandException e)
+    	{
+    		// expected
+    	}
+    	assertFalse (corruptedTarget.exists()) ;
+    	assertFalse (ResumableDownloader.getPartFile(corruptedTarget).exists()) ;
+    }
+}
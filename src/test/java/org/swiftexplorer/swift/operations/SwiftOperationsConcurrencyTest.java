@@ -0,0 +1,226 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.javaswift.joss.client.factory.AccountConfig;
+import org.javaswift.joss.model.Account;
+import org.javaswift.joss.model.Container;
+import org.javaswift.joss.model.StoredObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.swiftexplorer.swift.client.factory.AccountConfigFactory;
+import org.swiftexplorer.swift.operations.SwiftOperations.ResultCallback;
+import org.swiftexplorer.swift.operations.SwiftOperations.SwiftCallback;
+
+public class SwiftOperationsConcurrencyTest {
+
+	private SwiftOperationsImpl ops ;
+	private SwiftCallback callback ;
+	private AccountConfig accConf ;
+	private Container containerA ;
+	private Container containerB ;
+	
+	
+    @Before
+    public void init() {
+    	accConf = AccountConfigFactory.getMockAccountConfig() ;
+    	ops = new SwiftOperationsImpl();
+    	callback = Mockito.mock(SwiftCallback.class) ;
+    	ops.login(accConf, "http://localhost:8080/", "user", "pass", "secret", callback);
+        Account account = ops.getAccount() ;
+        containerA = account.getContainer("a").create();
+        containerB = account.getContainer("b").create();
+        for (int i = 0 ; i < 10 ; ++i)
+        {
+        	containerA.getObject(String.format("%02d", i)).uploadObject(new byte[10]) ;
+        	containerB.getObject(String.format("%02d", i)).uploadObject(new byte[10]) ;
+        }
+    }
+    
+    
+    private Thread start (final Runnable runnable, final List<Throwable> errors)
+    {
+    	Thread t = new Thread (new Runnable () {
+			@Override
+			public void run() {
+				try
+				{
+					runnable.run();
+				}
+				catch (Throwable e)
+				{
+					errors.add(e) ;
+				}
+			}}) ;
+    	t.start();
+    	return t ;
+    }
+    
+    
+    private ResultCallback<Collection<StoredObject> > newBlockingPageCallback (final CountDownLatch started, final CountDownLatch release, final AtomicBoolean released)
+    {
+    	return new ResultCallback<Collection<StoredObject> > () {
+			@Override
+			public void onResult(Collection<StoredObject> page) {
+				started.countDown();
+				try {
+					released.set(release.await(5, TimeUnit.SECONDS)) ;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}} ;
+    }
+    
+    
+    @Test
+    public void shouldRunOperationsOnDifferentContainersConcurrently() throws InterruptedException {
+
+    	final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable> ()) ;
+    	final CountDownLatch started = new CountDownLatch (1) ;
+    	final CountDownLatch release = new CountDownLatch (1) ;
+    	final AtomicBoolean released = new AtomicBoolean () ;
+    	
+    	// the listing of the first container waits until that of the second one has completed,
+    	// which would never happen if the operations were serialized
+    	Thread t = start (new Runnable () {
+			@Override
+			public void run() {
+				ops.listStoredObjects(containerA, "", newBlockingPageCallback (started, release, released), null, callback);
+			}}, errors) ;
+    	assertTrue (started.await(5, TimeUnit.SECONDS)) ;
+    	
+    	final AtomicInteger listed = new AtomicInteger () ;
+    	ops.listStoredObjects(containerB, "", new ResultCallback<Collection<StoredObject> > () {
+			@Override
+			public void onResult(Collection<StoredObject> page) {
+				listed.addAndGet(page.size()) ;
+			}}, null, callback);
+    	ops.getMetadata(containerB, callback);
+    	release.countDown();
+    	t.join(5000);
+    	
+    	assertEquals (10, listed.get()) ;
+    	assertTrue (released.get()) ;
+    	assertTrue (errors.isEmpty()) ;
+    }
+    
+    
+    @Test
+    public void shouldWaitForOperationsBeforeLoggingIn() throws InterruptedException {
+
+    	final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable> ()) ;
+    	final CountDownLatch started = new CountDownLatch (1) ;
+    	final CountDownLatch release = new CountDownLatch (1) ;
+    	final AtomicBoolean released = new AtomicBoolean () ;
+    	final Account account = ops.getAccount() ;
+    	
+    	Thread t = start (new Runnable () {
+			@Override
+			public void run() {
+				ops.listStoredObjects(containerA, "", newBlockingPageCallback (started, release, released), null, callback);
+			}}, errors) ;
+    	assertTrue (started.await(5, TimeUnit.SECONDS)) ;
+    	
+    	final SwiftCallback loginCallback = Mockito.mock(SwiftCallback.class) ;
+    	Thread login = start (new Runnable () {
+			@Override
+			public void run() {
+				ops.login(accConf, "http://localhost:8080/", "user", "pass", "secret", loginCallback);
+			}}, errors) ;
+    	
+    	// the account is not swapped while the listing is in progress
+    	login.join(200) ;
+    	assertTrue (login.isAlive()) ;
+    	assertSame (account, ops.getAccount()) ;
+    	Mockito.verify(loginCallback, Mockito.never()).onLoginSuccess();
+    	
+    	release.countDown();
+    	t.join(5000);
+    	login.join(5000);
+    	
+    	assertTrue (released.get()) ;
+    	assertFalse (login.isAlive()) ;
+    	assertNotSame (account, ops.getAccount()) ;
+    	Mockito.verify(loginCallback, Mockito.times(1)).onLoginSuccess();
+    	assertTrue (errors.isEmpty()) ;
+    }
+    
+    
+    @Test
+    public void shouldNotCorruptAccountWhenLoggingInConcurrently() throws InterruptedException {
+
+    	final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable> ()) ;
+    	final int numberOfReaders = 4 ;
+    	final int numberOfIterations = 50 ;
+    	final int numberOfLogins = 20 ;
+    	final AtomicReference<Account> lastAccount = new AtomicReference<Account> () ;
+    	final AtomicInteger pages = new AtomicInteger () ;
+    	
+    	List<Thread> threads = new ArrayList<Thread> () ;
+    	for (int i = 0 ; i < numberOfReaders ; ++i)
+    	{
+    		final Container container = (i % 2 == 0) ? (containerA) : (containerB) ;
+    		threads.add(start (new Runnable () {
+				@Override
+				public void run() {
+					for (int j = 0 ; j < numberOfIterations ; ++j)
+					{
+						ops.listStoredObjects(container, "", new ResultCallback<Collection<StoredObject> > () {
+							@Override
+							public void onResult(Collection<StoredObject> page) {
+								pages.incrementAndGet() ;
+							}}, null, callback);
+						ops.getMetadata(container, callback);
+						ops.refreshContainers(callback);
+					}
+				}}, errors)) ;
+    	}
+    	final SwiftCallback loginCallback = Mockito.mock(SwiftCallback.class) ;
+    	threads.add(start (new Runnable () {
+			@Override
+			public void run() {
+				for (int j = 0 ; j < numberOfLogins ; ++j)
+				{
+					ops.login(accConf, "http://localhost:8080/", "user", "pass", "secret", loginCallback);
+					lastAccount.set(ops.getAccount()) ;
+				}
+			}}, errors)) ;
+    	
+    	for (Thread t : threads)
+    		t.join(30000);
+    	
+    	assertTrue (errors.toString(), errors.isEmpty()) ;
+    	assertEquals (numberOfReaders * numberOfIterations, pages.get()) ;
+    	assertSame (lastAccount.get(), ops.getAccount()) ;
+    	Mockito.verify(loginCallback, Mockito.times(numberOfLogins)).onLoginSuccess();
+    }
+}
@@ -62,6 +62,7 @@ import java.util.Collections;
 import java.util.List;
 
 import org.javaswift.joss.client.factory.AccountConfig;
+import org.javaswift.joss.exception.CommandException;
 import org.javaswift.joss.instructions.UploadInstructions;
 import org.javaswift.joss.model.Account;
 import org.javaswift.joss.model.Container;
@@ -72,7 +73,10 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 public class SwiftOperationsTest {
 
@@ -289,6 +293,39 @@ public class SwiftOperationsTest {
     }
     
     
+    @Test
+    public void shouldNotTrustTheJournalOverTheCloud() throws IOException 
+    {
+    	TransferJournal.setDefault(new TransferJournal ((File) null));
+    	try
+    	{
+	        Container container = account.getContainer("x").create();
+	        StoredObject object = container.getObject("object");
+	        File file = TestUtils.getTestFile(tmpFolder, "file", 4096) ;
+	        
+	        List<Pair<? extends StoredObject, ? extends File> > pairObjectFile = new ArrayList<> () ;
+	        pairObjectFile.add(Pair.newPair(object, file)) ;
+	    	ops.uploadFiles(container, pairObjectFile, true, stopRequester, callback);
+	    	assertTrue(FileUtils.getMD5(file).equals(object.getEtag())) ;
+	    	
+	    	// deleted by another client
+	    	object.delete();
+	    	ops.uploadFiles(container, pairObjectFile, false, stopRequester, callback);
+	    	assertTrue (object.exists()) ;
+	    	assertTrue(FileUtils.getMD5(file).equals(object.getEtag())) ;
+	    	
+	    	// overwritten by another client
+	    	object.uploadObject(TestUtils.getTestFile(tmpFolder, "other", 8192));
+	    	ops.uploadFiles(container, pairObjectFile, true, stopRequester, callback);
+	    	assertTrue(FileUtils.getMD5(file).equals(object.getEtag())) ;
+    	}
+    	finally
+    	{
+    		TransferJournal.setDefault(null);
+    	}
+    }
+    
+    
     @Test
     public void shouldStopUploadingStoredObjectCollection() throws IOException 
     {
@@ -377,6 +414,41 @@ public class SwiftOperationsTest {
     }
     
     
+    @Test
+    public void shouldDownloadStoredObjectCollectionConcurrently() throws IOException 
+    {
+    	final int numberOfObjects = 16 ;
+    	
+    	SwiftParameters param = Mockito.mock(SwiftParameters.class);
+    	Mockito.when(param.getSegmentationSize()).thenReturn(SwiftParameters.MAX_SEGMENTATION_SIZE) ;
+    	Mockito.when(param.getNumberOfConcurrentTransfers()).thenReturn(4) ;
+    	
+    	SwiftOperations ops = new SwiftOperationsImpl();
+        ops.login(accConf, param, "http://localhost:8080/", "user", "pass", "secret", callback);
+        Account acc = ((SwiftOperationsImpl)ops).getAccount() ;
+        
+        Container container = acc.getContainer("x").create();
+        File destFolder = tmpFolder.newFolder() ;
+        
+        List<Pair<? extends StoredObject, ? extends File> > pairObjectFile = new ArrayList<> () ;
+        for (int i = 0 ; i < numberOfObjects ; ++i)
+        {
+	        StoredObject object = container.getObject("sr" + i);
+	        object.uploadObject(TestUtils.getTestFile(tmpFolder, "src" + i, 8192));
+	        pairObjectFile.add(Pair.newPair(object, new File (destFolder.getPath() + File.separator + "target" + i + ".dat"))) ;
+        }
+        
+    	ops.downloadStoredObject(container, pairObjectFile, false, stopRequester, callback);
+    	
+    	Mockito.verify(callback, Mockito.never()).onError(Mockito.any(CommandException.class));
+    	for (Pair<? extends StoredObject, ? extends File> pair : pairObjectFile)
+    	{
+    		assertTrue(pair.getSecond().exists());
+    		assertTrue(FileUtils.getMD5(pair.getSecond()).equals(pair.getFirst().getEtag())) ;
+    	}
+    }
+    
+    
     @Test
     public void shouldStopDownloadingStoredObjectCollection() throws IOException 
     {
@@ -459,6 +531,27 @@ public class SwiftOperationsTest {
     }
 
     
+    @Test
+    public void shouldListStoredObjectsByPages() {
+        Container create = account.getContainer("x").create();
+        for (int i = 0 ; i < 5 ; ++i)
+        {
+        	create.getObject("dir/" + i).uploadObject(new byte[10]);
+        	create.getObject("other/" + i).uploadObject(new byte[10]);
+        }
+        
+        final List<String> names = new ArrayList<> () ;
+        ops.listStoredObjects(create, "dir/", new ResultCallback<Collection<StoredObject> > () {
+			@Override
+			public void onResult(Collection<StoredObject> res) {
+				for (StoredObject obj : res)
+					names.add(obj.getName()) ;
+			}}, stopRequester, callback);
+        
+        assertTrue (names.equals(Arrays.asList("dir/0", "dir/1", "dir/2", "dir/3", "dir/4"))) ;
+    }
+
+    
     @Test
     public void shouldGetMetadata() {
         Container create = account.getContainer("x").create();
@@ -664,6 +757,52 @@ public class SwiftOperationsTest {
     }
     
     
+    @SuppressWarnings("unchecked")
+	@Test
+    public void shouldKeepTheManifestWhenSegmentsAreNotDeleted() {
+    	
+    	final long segmentSize = 800 ;
+    	final long fileSize = 8192 ;
+    	final String fileName = "segmentationTest.dat" ;
+    	
+    	SwiftOperations ops = getCustomSegmentationSizeSwiftOperations (segmentSize) ;
+        Account acc = ((SwiftOperationsImpl)ops).getAccount() ;
+    	
+        Container container = acc.getContainer("x").create();
+        File file = null ;
+        try
+        {        
+        	file = TestUtils.getTestFile (tmpFolder, fileName, fileSize) ;
+        	ops.uploadFiles(container, null, new File[] {file}, true, stopRequester, callback);
+        	StoredObject object = container.getObject(fileName);
+        	assertTrue (object.exists()) ;
+        	
+        	// the cluster fails to delete one of the segments
+        	BulkDeleter deleter = Mockito.mock(BulkDeleter.class) ;
+        	Mockito.when(deleter.getMaxDeletesPerRequest()).thenReturn(1000) ;
+        	Mockito.when(deleter.delete(Matchers.anyCollection())).thenAnswer(new Answer<List<StoredObject>> () {
+				@Override
+				public List<StoredObject> answer(InvocationOnMock invocation) throws Throwable {
+					List<StoredObject> batch = new ArrayList<StoredObject> ((Collection<StoredObject>) invocation.getArguments()[0]) ;
+					return batch.subList(0, 1) ;
+				}}) ;
+        	((SwiftOperationsImpl)ops).setBulkDeleter(deleter) ;
+        	
+        	ops.deleteStoredObjects(container, Arrays.asList(object), stopRequester, callback) ;
+        	
+        	// only the segments were submitted, the manifest is kept
+        	Mockito.verify(deleter, Mockito.times(1)).delete(Matchers.anyCollection()) ;
+        	Mockito.verify(callback, Mockito.never()).onStoredObjectDeleted(container, object);
+        	Mockito.verify(callback, Mockito.atLeastOnce()).onError(Matchers.any(CommandException.class));
+        }
+        catch (IOException e) 
+        {
+        	logger.error ("Error occurred in shouldKeepTheManifestWhenSegmentsAreNotDeleted", e) ;
+        	assertFalse(true) ;
+		}	
+    }
+    
+    
     @Test
     public void shouldRefreshDirectoriesOrStoredObjectsWithoutParent() 
     {
@@ -855,6 +994,41 @@ public class SwiftOperationsTest {
     }
     
     
+    @SuppressWarnings("unchecked")
+	@Test
+    public void shouldKeepTheDirectoryWhenSomeObjectsAreNotDeleted() throws IOException
+    {
+    	final String directoryName = "directory" ;
+    	final int numberOfFiles = 3 ;
+        Container container = account.getContainer("x").create();
+        File folder = TestUtils.getTestDirectoryWithFiles (tmpFolder, directoryName, "file", numberOfFiles) ;
+        ops.uploadDirectory(container, null, folder, true, stopRequester, callback);
+        StoredObject directory = container.getObject(directoryName) ;
+        assertTrue (directory.exists()) ;
+        
+    	// the cluster fails to delete one of the objects
+    	BulkDeleter deleter = Mockito.mock(BulkDeleter.class) ;
+    	Mockito.when(deleter.getMaxDeletesPerRequest()).thenReturn(1000) ;
+    	Mockito.when(deleter.delete(Matchers.anyCollection())).thenAnswer(new Answer<List<StoredObject>> () {
+			@Override
+			public List<StoredObject> answer(InvocationOnMock invocation) throws Throwable {
+				List<StoredObject> batch = new ArrayList<StoredObject> ((Collection<StoredObject>) invocation.getArguments()[0]) ;
+				return batch.subList(0, 1) ;
+			}}) ;
+    	((SwiftOperationsImpl)ops).setBulkDeleter(deleter) ;
+    	
+    	ops.deleteDirectory(container, directory, stopRequester, callback);
+    	
+    	// the directory marker is not submitted, and only the deleted objects are reported
+    	Mockito.verify(deleter, Mockito.times(1)).delete(Matchers.anyCollection()) ;
+    	@SuppressWarnings("rawtypes")
+		ArgumentCaptor<List<StoredObject> > argument = ArgumentCaptor.forClass((Class) List.class);
+    	Mockito.verify(callback, Mockito.times(1)).onStoredObjectDeleted(Mockito.eq(container), argument.capture());
+    	assertTrue (argument.getValue().size() == numberOfFiles - 1) ;
+    	assertFalse (argument.getValue().contains(directory)) ;
+    }
+    
+    
     @Test
     public void shouldStopUploadingDirectory ()
     {
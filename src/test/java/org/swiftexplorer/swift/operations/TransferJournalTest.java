@@ -0,0 +1,154 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.javaswift.joss.model.StoredObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.swiftexplorer.TestUtils;
+import org.swiftexplorer.util.FileUtils;
+
+public class TransferJournalTest {
+	
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+    
+    private final long segmentSize = 800 ;
+    private final String account = "http://swift.example.com/v1/AUTH_test" ;
+    
+    
+    private StoredObject getObject (String path)
+    {
+    	StoredObject obj = Mockito.mock(StoredObject.class) ;
+    	Mockito.when(obj.getPath()).thenReturn(path) ;
+    	Mockito.when(obj.getEtag()).thenReturn("etag") ;
+    	return obj ;
+    }
+    
+    
+    @Test
+    public void shouldResumeFromLogFile() throws IOException 
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, "upload.dat", 8192) ;
+    	File logFile = new File (tmpFolder.getRoot(), "transfers.log") ;
+    	StoredObject obj = getObject ("/container/upload.dat") ;
+    	StoredObject other = getObject ("/container/other.dat") ;
+    	
+    	TransferJournal journal = new TransferJournal (logFile) ;
+    	journal.setSegmentUploaded(account, obj, file, FileUtils.getFileAttr(file.toPath()), segmentSize, 1, "md5-1");
+    	journal.setSegmentUploaded(account, obj, file, FileUtils.getFileAttr(file.toPath()), segmentSize, 3, "md5-3");
+    	journal.setUploaded(account, other, file, FileUtils.getFileAttr(file.toPath()), "md5") ;
+    	journal.close();
+    	
+    	// as if the application had been killed while writing a line
+    	try (FileOutputStream out = new FileOutputStream (logFile, true))
+    	{
+    		out.write(("S\t" + account + "/container/upload.dat\t").getBytes(StandardCharsets.UTF_8));
+    	}
+    	
+    	TransferJournal reloaded = new TransferJournal (logFile) ;
+    	Map<Long, String> segments = reloaded.getUploadedSegments(account, obj, file, FileUtils.getFileAttr(file.toPath()), segmentSize) ;
+    	assertEquals (2, segments.size()) ;
+    	assertEquals ("md5-3", segments.get(3L)) ;
+    	// segments of another size cannot be reused
+    	assertTrue (reloaded.getUploadedSegments(account, obj, file, FileUtils.getFileAttr(file.toPath()), segmentSize * 2).isEmpty()) ;
+    	assertEquals ("md5", reloaded.getUploadedMd5(account, other, file)) ;
+    	assertNull (reloaded.getUploadedMd5(account, obj, file)) ;
+    	
+    	// once the upload is complete, its segments are not needed anymore
+    	reloaded.setUploaded(account, obj, file, FileUtils.getFileAttr(file.toPath()), "md5") ;
+    	assertEquals ("md5", reloaded.getUploadedMd5(account, obj, file)) ;
+    	assertTrue (reloaded.getUploadedSegments(account, obj, file, FileUtils.getFileAttr(file.toPath()), segmentSize).isEmpty()) ;
+    	reloaded.close();
+    }
+    
+    
+    @Test
+    public void shouldInvalidateModifiedFiles() throws IOException 
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, "download.dat", 4096) ;
+    	StoredObject obj = getObject ("/container/download.dat") ;
+    	
+    	TransferJournal journal = new TransferJournal ((File) null) ;
+    	journal.setDownloaded(account, obj, file, "etag") ;
+    	assertTrue (journal.isDownloaded(account, obj, file)) ;
+    	
+    	// the remote object has changed
+    	Mockito.when(obj.getEtag()).thenReturn("new-etag") ;
+    	assertFalse (journal.isDownloaded(account, obj, file)) ;
+    	Mockito.when(obj.getEtag()).thenReturn("etag") ;
+    	
+    	// the local file has changed
+    	try (RandomAccessFile raf = new RandomAccessFile (file, "rw"))
+    	{
+    		raf.write(new byte [] {1, 2, 3, 4});
+    	}
+    	file.setLastModified(file.lastModified() - 30000) ;
+    	assertFalse (journal.isDownloaded(account, obj, file)) ;
+    }
+    
+    
+    @Test
+    public void shouldForgetDeletedObjects() throws IOException 
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, "upload.dat", 4096) ;
+    	File logFile = new File (tmpFolder.getRoot(), "transfers.log") ;
+    	StoredObject obj = getObject ("/container/upload.dat") ;
+    	
+    	TransferJournal journal = new TransferJournal (logFile) ;
+    	journal.setUploaded(account, obj, file, FileUtils.getFileAttr(file.toPath()), "md5") ;
+    	journal.forget(account, obj);
+    	assertNull (journal.getUploadedMd5(account, obj, file)) ;
+    	journal.close();
+    	
+    	TransferJournal reloaded = new TransferJournal (logFile) ;
+    	assertNull (reloaded.getUploadedMd5(account, obj, file)) ;
+    	assertEquals (0, reloaded.size()) ;
+    	reloaded.close();
+    }
+    
+    
+    @Test
+    public void shouldNotMixUpAccounts() throws IOException 
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, "upload.dat", 4096) ;
+    	StoredObject obj = getObject ("/container/upload.dat") ;
+    	
+    	TransferJournal journal = new TransferJournal ((File) null) ;
+    	journal.setUploaded(account, obj, file, FileUtils.getFileAttr(file.toPath()), "md5") ;
+    	journal.setSegmentUploaded(account, obj, file, FileUtils.getFileAttr(file.toPath()), segmentSize, 1, "md5-1");
+    	journal.setDownloaded(account, obj, file, "etag") ;
+    	
+    	String otherAccount = "http://swift.example.com/v1/AUTH_other" ;
+    	assertNull (journal.getUploadedMd5(otherAccount, obj, file)) ;
+    	assertTrue (journal.getUploadedSegments(otherAccount, obj, file, FileUtils.getFileAttr(file.toPath()), segmentSize).isEmpty()) ;
+    	assertFalse (journal.isDownloaded(otherAccount, obj, file)) ;
+    	assertTrue (journal.isDownloaded(account, obj, file)) ;
+    }
+}
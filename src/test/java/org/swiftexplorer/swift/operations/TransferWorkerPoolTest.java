@@ -0,0 +1,189 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.javaswift.joss.exception.CommandException;
+import org.junit.Test;
+import org.swiftexplorer.gui.util.SwiftOperationStopRequesterImpl;
+
+public class TransferWorkerPoolTest {
+
+
+    @Test
+    public void shouldExecuteAllTransfers() throws IOException {
+
+    	final int numberOfTransfers = 100 ;
+    	final Set<Integer> done = Collections.synchronizedSet(new HashSet<Integer> ()) ;
+
+    	TransferWorkerPool pool = new TransferWorkerPool (4, null) ;
+    	for (int i = 0 ; i < numberOfTransfers ; ++i)
+    	{
+    		final int index = i ;
+    		pool.submit("transfer " + i, new TransferWorkerPool.Transfer () {
+				@Override
+				public void execute() throws IOException {
+					done.add(index) ;
+				}}) ;
+    	}
+    	pool.awaitCompletion();
+
+    	assertEquals (numberOfTransfers, done.size()) ;
+    	assertTrue (pool.getFailures().isEmpty()) ;
+    }
+
+
+    @Test
+    public void shouldNotExceedNumberOfWorkers() throws IOException {
+
+    	final int numberOfWorkers = 3 ;
+    	final AtomicInteger running = new AtomicInteger () ;
+    	final AtomicInteger maxRunning = new AtomicInteger () ;
+
+    	TransferWorkerPool pool = new TransferWorkerPool (numberOfWorkers, null) ;
+    	for (int i = 0 ; i < 30 ; ++i)
+    	{
+    		pool.submit("transfer " + i, new TransferWorkerPool.Transfer () {
+				@Override
+				public void execute() throws IOException {
+					int r = running.incrementAndGet() ;
+					synchronized (maxRunning) {
+						maxRunning.set(Math.max(r, maxRunning.get()));
+					}
+					try {
+						Thread.sleep(10);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					running.decrementAndGet() ;
+				}}) ;
+    	}
+    	pool.awaitCompletion();
+
+    	assertTrue (maxRunning.get() <= numberOfWorkers) ;
+    }
+
+
+    @Test
+    public void shouldReportFailuresWithoutAbortingTheBatch() throws IOException {
+
+    	final AtomicInteger done = new AtomicInteger () ;
+
+    	TransferWorkerPool pool = new TransferWorkerPool (2, null) ;
+    	for (int i = 0 ; i < 10 ; ++i)
+    	{
+    		final boolean fail = (i % 2 == 0) ;
+    		pool.submit("transfer " + i, new TransferWorkerPool.Transfer () {
+				@Override
+				public void execute() throws IOException {
+					if (fail)
+						throw new CommandException ("failure") ;
+					done.incrementAndGet() ;
+				}}) ;
+    	}
+    	pool.awaitCompletion();
+
+    	assertEquals (5, done.get()) ;
+    	assertEquals (5, pool.getFailures().size()) ;
+    }
+
+
+    @Test
+    public void shouldRunInCallingThreadWithSingleWorker() throws IOException {
+
+    	final Thread caller = Thread.currentThread() ;
+    	final AtomicInteger sameThread = new AtomicInteger () ;
+
+    	TransferWorkerPool pool = new TransferWorkerPool (1, null) ;
+    	for (int i = 0 ; i < 5 ; ++i)
+    	{
+    		pool.submit("transfer " + i, new TransferWorkerPool.Transfer () {
+				@Override
+				public void execute() throws IOException {
+					if (Thread.currentThread() == caller)
+						sameThread.incrementAndGet() ;
+				}}) ;
+    	}
+    	pool.awaitCompletion();
+
+    	assertEquals (5, sameThread.get()) ;
+    }
+
+
+    @Test
+    public void shouldNotStartTransfersOnceStopped() throws IOException {
+
+    	final AtomicInteger done = new AtomicInteger () ;
+    	SwiftOperationStopRequesterImpl stopRequester = new SwiftOperationStopRequesterImpl () ;
+    	stopRequester.stop();
+
+    	TransferWorkerPool pool = new TransferWorkerPool (4, stopRequester) ;
+    	for (int i = 0 ; i < 10 ; ++i)
+    	{
+    		pool.submit("transfer " + i, new TransferWorkerPool.Transfer () {
+				@Override
+				public void execute() throws IOException {
+					done.incrementAndGet() ;
+				}}) ;
+    	}
+    	pool.awaitCompletion();
+
+    	assertEquals (0, done.get()) ;
+    }
+
+
+    @Test
+    public void shouldGrowWithTheControllerLimit() throws Exception {
+
+    	final CountDownLatch started = new CountDownLatch (3) ;
+    	final CountDownLatch release = new CountDownLatch (1) ;
+    	AdaptiveConcurrencyController controller = new AdaptiveConcurrencyController (1) ;
+
+    	TransferWorkerPool pool = new TransferWorkerPool (controller.getLimit(), null, controller) ;
+    	TransferWorkerPool.Transfer transfer = new TransferWorkerPool.Transfer () {
+			@Override
+			public void execute() throws IOException {
+				started.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS) ;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}} ;
+    	pool.submit("transfer 0", transfer) ;
+    	// e.g., from the progress panel, while the batch runs
+    	controller.setMaximum(3);
+    	pool.submit("transfer 1", transfer) ;
+    	pool.submit("transfer 2", transfer) ;
+
+    	boolean concurrent = started.await(10, TimeUnit.SECONDS) ;
+    	release.countDown();
+    	pool.awaitCompletion();
+
+    	assertTrue (concurrent) ;
+    	assertEquals (3, pool.getNumberOfWorkers()) ;
+    	assertTrue (pool.getFailures().isEmpty()) ;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.swift.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.javaswift.joss.client.factory.AccountConfig;
+import org.javaswift.joss.client.factory.AccountFactory;
+import org.javaswift.joss.model.Container;
+import org.javaswift.joss.model.StoredObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.swiftexplorer.gui.util.StoredObjectsSearcher;
+import org.swiftexplorer.swift.client.factory.AccountConfigFactory;
+
+public class StoredObjectsIndexTest {
+
+	private Container container ;
+	private final List<StoredObject> storedObjects = new ArrayList<StoredObject> () ;
+	
+	
+    @Before
+    public void init() {
+    	AccountConfig accConf = AccountConfigFactory.getMockAccountConfig() ;
+    	container = new AccountFactory(accConf).createAccount().getContainer("x") ;
+    	
+    	storedObjects.clear();
+        for (int i = 0 ; i < 100 ; ++i)
+        {
+        	storedObjects.add(container.getObject(String.format("photos/2014/img_%03d.jpg", i))) ;
+        	storedObjects.add(container.getObject(String.format("docs/report_%03d.pdf", i))) ;
+        }
+    }
+    
+    
+    private List<String> getNames (List<StoredObject> objs, String filter)
+    {
+    	List<String> ret = new ArrayList<String> () ;
+    	for (StoredObject obj : objs)
+    	{
+    		if (filter == null || obj.getName().contains(filter))
+    			ret.add(obj.getName()) ;
+    	}
+    	return ret ;
+    }
+    
+    
+    @Test
+    public void shouldReturnAllMatchingObjects() {
+    	
+    	StoredObjectsIndex index = new StoredObjectsIndex () ;
+    	index.addAll(storedObjects);
+    	
+    	for (String filter : new String [] {"img_01", "report", ".pdf", "4/i", "_09", "photos/2014/img_099.jpg"})
+    	{
+    		List<String> candidates = getNames (index.getCandidates(filter), null) ;
+    		List<String> expected = getNames (storedObjects, filter) ;
+    		assertTrue (filter, candidates.containsAll(expected)) ;
+    		Collections.sort(expected) ;
+    		assertEquals (filter, expected, getNames (StoredObjectsSearcher.search(index, filter, null), null)) ;
+    	}
+    }
+    
+    
+    @Test
+    public void shouldNarrowDownCandidates() {
+    	
+    	StoredObjectsIndex index = new StoredObjectsIndex () ;
+    	index.addAll(storedObjects);
+    	
+    	assertEquals (10, index.getCandidates("img_05").size()) ;
+    	assertEquals (0, index.getCandidates("unknown").size()) ;
+    	// too short to use the index
+    	assertEquals (storedObjects.size(), index.getCandidates("_0").size()) ;
+    }
+    
+    
+    @Test
+    public void shouldIgnoreObjectsNotLoaded() {
+    	
+    	StoredObjectsIndex index = new StoredObjectsIndex () ;
+    	index.addAll(storedObjects);
+    	List<StoredObject> loaded = new ArrayList<StoredObject> (storedObjects.subList(0, 10)) ;
+    	// indexed twice
+    	index.addAll(loaded);
+    	
+    	List<StoredObject> results = StoredObjectsSearcher.search(index, "img", loaded) ;
+    	assertEquals (5, results.size()) ;
+    	
+    	index.clear();
+    	assertEquals (0, index.size()) ;
+    	assertEquals (0, StoredObjectsSearcher.search(index, "img", loaded).size()) ;
+    }
+}
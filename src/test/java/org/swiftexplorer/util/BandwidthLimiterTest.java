@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class BandwidthLimiterTest {
+
+	
+	@After
+	public void restoreDefault ()
+	{
+		BandwidthLimiter.setDefault(new BandwidthLimiter (0));
+	}
+	
+	
+    @Test
+    public void shouldNotWaitWhenUnlimited() {
+    	BandwidthLimiter limiter = new BandwidthLimiter (0) ;
+    	assertEquals (0, limiter.reserve(Long.MAX_VALUE / 2, System.nanoTime())) ;
+    }
+    
+    
+    @Test
+    public void shouldWaitOnceTheBucketIsEmpty() {
+    	final long rate = 1000 ;
+    	BandwidthLimiter limiter = new BandwidthLimiter (rate) ;
+    	long now = System.nanoTime() ;
+    	// the bucket starts empty: half a second worth of bytes takes half a second
+    	long wait = limiter.reserve(rate / 2, now) ;
+    	assertEquals (TimeUnit.MILLISECONDS.toNanos(500), wait, TimeUnit.MILLISECONDS.toNanos(10)) ;
+    	// the debt must be paid back before the next bytes
+    	wait = limiter.reserve(rate / 2, now) ;
+    	assertEquals (TimeUnit.SECONDS.toNanos(1), wait, TimeUnit.MILLISECONDS.toNanos(10)) ;
+    	// after a long pause, no more than one second of tokens is available
+    	now += TimeUnit.SECONDS.toNanos(10) ;
+    	assertEquals (0, limiter.reserve(rate, now)) ;
+    	assertTrue (limiter.reserve(1, now) > 0) ;
+    }
+    
+    
+    @Test
+    public void shouldCountTheBytesReadThroughTheStreams() throws IOException {
+    	BandwidthLimiter limiter = new BandwidthLimiter (0) ;
+    	BandwidthLimiter.setDefault(limiter);
+    	
+    	byte [] data = new byte [100000] ;
+    	try (InputStream in = FileUtils.getInputStreamWithProgressFilter(null, data.length, new ByteArrayInputStream (data)))
+    	{
+    		byte [] buf = new byte [4096] ;
+    		while (in.read(buf) >= 0) ;
+    	}
+    	assertEquals (data.length, limiter.getTotalBytes()) ;
+    }
+}
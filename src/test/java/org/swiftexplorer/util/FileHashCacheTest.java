@@ -0,0 +1,110 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.swiftexplorer.TestUtils;
+
+public class FileHashCacheTest {
+	
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+    
+    private final long segmentSize = 800 ;
+    
+    
+    // recently modified files are not cached
+    private File getOldTestFile (String name, long size) throws IOException
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, name, size) ;
+    	file.setLastModified(System.currentTimeMillis() - 60000) ;
+    	return file ;
+    }
+    
+    
+    @Test
+    public void shouldComputeTheSameValuesAsFileUtils() throws IOException 
+    {
+    	File file = getOldTestFile ("hash.dat", 8192) ;
+    	FileHashCache cache = new FileHashCache ((File) null) ;
+    	
+    	assertEquals (FileUtils.getMD5(file), cache.getMD5(file)) ;
+    	assertEquals (FileUtils.getSumOfSegmentsMd5(file, segmentSize), cache.getSumOfSegmentsMd5(file, segmentSize)) ;
+    	assertEquals (TestUtils.getNumberOfSegments(8192, segmentSize), cache.getSegmentsMd5(file, segmentSize).size()) ;
+    	assertEquals (1, cache.size()) ;
+    }
+    
+    
+    @Test
+    public void shouldReloadFromLogFile() throws IOException 
+    {
+    	File file = getOldTestFile ("hash.dat", 8192) ;
+    	File logFile = new File (tmpFolder.getRoot(), "hashes.log") ;
+    	
+    	FileHashCache cache = new FileHashCache (logFile) ;
+    	String md5 = cache.getMD5(file) ;
+    	List<String> segmentsMd5 = cache.getSegmentsMd5(file, segmentSize) ;
+    	cache.close();
+    	
+    	FileHashCache reloaded = new FileHashCache (logFile) ;
+    	assertEquals (1, reloaded.size()) ;
+    	assertEquals (segmentsMd5, reloaded.getCachedSegmentsMd5(file, segmentSize)) ;
+    	assertEquals (md5, reloaded.getMD5(file)) ;
+    	reloaded.close();
+    }
+    
+    
+    @Test
+    public void shouldInvalidateModifiedFiles() throws IOException 
+    {
+    	File file = getOldTestFile ("hash.dat", 8192) ;
+    	FileHashCache cache = new FileHashCache ((File) null) ;
+    	cache.getSegmentsMd5(file, segmentSize) ;
+    	
+    	// other segment size
+    	assertNull (cache.getCachedSegmentsMd5(file, segmentSize * 2)) ;
+    	
+    	// same size, different content and mtime
+    	try (RandomAccessFile raf = new RandomAccessFile (file, "rw"))
+    	{
+    		raf.write(new byte [] {1, 2, 3, 4});
+    	}
+    	file.setLastModified(System.currentTimeMillis() - 30000) ;
+    	assertNull (cache.getCachedSegmentsMd5(file, segmentSize)) ;
+    	assertEquals (FileUtils.getMD5(file), cache.getMD5(file)) ;
+    }
+    
+    
+    @Test
+    public void shouldNotCacheRecentlyModifiedFiles() throws IOException 
+    {
+    	File file = TestUtils.getTestFile (tmpFolder, "recent.dat", 1024) ;
+    	FileHashCache cache = new FileHashCache ((File) null) ;
+    	
+    	assertEquals (FileUtils.getMD5(file), cache.getMD5(file)) ;
+    	assertTrue (cache.size() == 0) ;
+    }
+}
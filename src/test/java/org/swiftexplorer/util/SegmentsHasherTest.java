@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Loic Merckel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.swiftexplorer.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.swiftexplorer.TestUtils;
+import org.swiftexplorer.swift.instructions.FastSegmentationPlanFile;
+
+public class SegmentsHasherTest {
+	
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+    
+    
+    // hashes the segments one after another
+    private List<String> getSequentialSegmentsMd5 (File file, long segmentSize) throws IOException
+    {
+    	List<String> ret = new ArrayList<String> () ;
+		FastSegmentationPlanFile segments = new FastSegmentationPlanFile (file, segmentSize) ;
+		InputStream segmentStream = segments.getNextSegment() ;
+		while (segmentStream != null)
+		{
+			if (segmentStream.available() == 0)
+				break ;
+			ret.add(FileUtils.readAllAndgetMD5(segmentStream)) ;
+			segmentStream = segments.getNextSegment() ;
+		}
+		segments.close();
+		return ret ;
+    }
+    
+    
+    @Test
+    public void shouldComputeTheSameValuesAsSequentialHashing() throws IOException 
+    {
+    	final long segmentSize = 1000 ;
+    	File file = TestUtils.getTestFile (tmpFolder, "segments.dat", 10 * segmentSize + 123) ;
+    	
+    	List<String> expected = getSequentialSegmentsMd5 (file, segmentSize) ;
+    	List<String> actual = SegmentsHasher.getSegmentsMd5(file, segmentSize) ;
+    	
+    	assertEquals (11, actual.size()) ;
+    	assertEquals (expected, actual) ;
+    	assertEquals (FileUtils.getSumOfSegmentsMd5(expected), FileUtils.getSumOfSegmentsMd5(file, segmentSize)) ;
+    }
+    
+    
+    @Test
+    public void shouldNotAddEmptyLastSegment() throws IOException 
+    {
+    	final long segmentSize = 1000 ;
+    	File file = TestUtils.getTestFile (tmpFolder, "segments.dat", 4 * segmentSize) ;
+    	
+    	assertEquals (getSequentialSegmentsMd5 (file, segmentSize), SegmentsHasher.getSegmentsMd5(file, segmentSize)) ;
+    	assertEquals (4, SegmentsHasher.getSegmentsMd5(file, segmentSize).size()) ;
+    }
+    
+    
+    @Test
+    public void shouldHashSegmentsLargerThanTheBuffer() throws IOException 
+    {
+    	final long segmentSize = 3 * 1024 * 1024 ;
+    	File file = TestUtils.getTestFile (tmpFolder, "segments.dat", 2 * segmentSize + 1) ;
+    	
+    	assertEquals (getSequentialSegmentsMd5 (file, segmentSize), SegmentsHasher.getSegmentsMd5(file, segmentSize)) ;
+    }
+    
+    
+    @Test
+    public void shouldHashOnlyTheFirstSegments() throws IOException 
+    {
+    	final long segmentSize = 1000 ;
+    	File file = TestUtils.getTestFile (tmpFolder, "segments.dat", 10 * segmentSize) ;
+    	
+    	assertEquals (getSequentialSegmentsMd5 (file, segmentSize).subList(0, 3), SegmentsHasher.getSegmentsMd5(file, segmentSize, 3)) ;
+    }
+}